@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process database for the benchmarks: an H2 database in MySQL mode,
+ * created from db/inventory.sql and padded with generated products,
+ * customers and sales. Installed as the pool behind DBConnection, so the
+ * application classes run exactly as they do against MySQL.
+ *
+ * Lives in the unnamed package next to the application classes. JMH
+ * benchmarks cannot, so they reach these methods through InventoryApp.
+ */
+public class BenchFixture {
+    private static final int STOCK = 1_000_000_000;
+    private static final long THREE_YEARS_MILLIS = 3L * 365 * 24 * 3600 * 1000;
+
+    private static int productCount;
+    private static int customerCount;
+    private static TransactionHistoryModel history;
+
+    public static void setUp(int products, int customers, int sales) throws SQLException, IOException {
+        String url = "jdbc:h2:mem:bench" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        try (Connection conn = DriverManager.getConnection(url)) {
+            runScript(conn, loadScript());
+            seed(conn, products, customers, sales);
+        }
+        DBConnection.usePool(new ConnectionPool(() -> DriverManager.getConnection(url),
+            ConnectionPool.Config.fromSystemProperties().maxSize(32)));
+        try (Connection conn = DBConnection.getConnection()) {
+            StatsEngine.rebuildSummary(conn);
+        }
+        SalesRollup.rebuild(Runtime.getRuntime().availableProcessors());
+        productCount = products;
+        customerCount = customers;
+        history = new TransactionHistoryModel(null, String::valueOf, 100, 500);
+        System.out.println("📦 Seeded " + products + " products, " + customers + " customers, " + sales + " sales");
+    }
+
+    public static void tearDown() {
+        DBConnection.shutdown();
+    }
+
+    /** Full catalog reload, as on startup or after the reload interval. */
+    public static int loadCatalog() throws SQLException {
+        ProductCatalog catalog = new ProductCatalog(Long.MAX_VALUE, Long.MAX_VALUE);
+        catalog.reload();
+        return catalog.size();
+    }
+
+    /** Newest page of the history, optionally filtered to one customer (0 = unfiltered). */
+    public static int loadHistoryPage(int customerId) throws SQLException {
+        TransactionHistoryModel.Filter filter = customerId == 0 ? TransactionHistoryModel.Filter.NONE
+            : new TransactionHistoryModel.Filter(null, null, null, customerId);
+        return history.queryPage(filter, TransactionHistoryModel.Direction.FIRST, null).size();
+    }
+
+    /** The reports tab for one range, served from the rollups. */
+    public static int loadReport(int range) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            SalesRollup.Report report = SalesRollup.loadReport(conn, SalesRollup.Range.values()[range], 10);
+            return report.periods().size() + report.topProducts().size();
+        }
+    }
+
+    public static long loadStats() throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return StatsEngine.load(conn).transactions();
+        }
+    }
+
+    /** One checkout of {@code lines} distinct random products. */
+    public static double checkout(int lines) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(productCount - lines + 1);
+        List<CheckoutProcessor.Line> cart = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            cart.add(new CheckoutProcessor.Line(1000 + first + i, 1 + random.nextInt(3), 100.0));
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            return new CheckoutProcessor().checkout(conn, 100 + random.nextInt(customerCount), cart).revenue();
+        }
+    }
+
+    /** Restocks or removes one unit of one of the first {@code hotProducts} products. */
+    public static int adjustStock(int hotProducts) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try (Connection conn = DBConnection.getConnection()) {
+            return new StockAdjuster().adjust(conn, 1000 + random.nextInt(hotProducts), random.nextBoolean() ? 1 : -1).newStock();
+        }
+    }
+
+    private static void seed(Connection conn, int products, int customers, int sales) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO product (id, name, quantity, price, cost_price) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < products; i++) {
+                double cost = 50 + random.nextInt(5000);
+                stmt.setInt(1, 1000 + i);
+                stmt.setString(2, "Bench Product " + i);
+                stmt.setInt(3, STOCK);
+                stmt.setDouble(4, Math.round(cost * 1.3));
+                stmt.setDouble(5, cost);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        // Generated ids start above the sample rows of inventory.sql
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO customer (id, name, email) VALUES (?, ?, ?)")) {
+            for (int i = 100; i < 100 + customers; i++) {
+                stmt.setInt(1, i);
+                stmt.setString(2, "Bench Customer " + i);
+                stmt.setString(3, "bench" + i + "@example.invalid");
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        long now = System.currentTimeMillis();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO transaction (product_id, customer_id, quantity, unit_cost, unit_price, subtotal, " +
+                 "tax_amount, total_with_tax, profit_amount, date) VALUES (?, ?, ?, ?, ?, ?, 0, ?, ?, ?)")) {
+            for (int i = 0; i < sales; i++) {
+                int quantity = 1 + random.nextInt(5);
+                stmt.setInt(1, 1000 + random.nextInt(products));
+                stmt.setInt(2, 100 + random.nextInt(customers));
+                stmt.setInt(3, quantity);
+                stmt.setDouble(4, 100);
+                stmt.setDouble(5, 130);
+                stmt.setDouble(6, 130.0 * quantity);
+                stmt.setDouble(7, 130.0 * quantity);
+                stmt.setDouble(8, 30.0 * quantity);
+                stmt.setTimestamp(9, new Timestamp(now - random.nextLong(THREE_YEARS_MILLIS)));
+                stmt.addBatch();
+                if (i % 5000 == 4999) stmt.executeBatch();
+            }
+            stmt.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    private static String loadScript() throws IOException {
+        try (InputStream in = BenchFixture.class.getResourceAsStream("/inventory.sql")) {
+            if (in == null) throw new IOException("inventory.sql is not on the classpath");
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Runs the DDL and sample data of inventory.sql. Skips what only makes
+     * sense in the MySQL client (database switching, DESCRIBE, the
+     * verification SELECTs), the rollup seed, whose MySQL date functions
+     * H2 lacks (setUp rebuilds the rollups instead), and the change_log
+     * triggers, and drops the MySQL-only keyword and table options
+     * (partitioning, compressed rows) H2 rejects.
+     */
+    static void runScript(Connection conn, String script) throws SQLException {
+        String sql = script.replaceAll("(?s)/\\*.*?\\*/", "").replaceAll("--[^\\n]*", "");
+        try (Statement stmt = conn.createStatement()) {
+            for (String statement : sql.split(";\\s*\\n")) {
+                String s = statement.strip();
+                String upper = s.toUpperCase();
+                if (s.isEmpty() || upper.startsWith("DROP DATABASE") || upper.startsWith("CREATE DATABASE")
+                        || upper.startsWith("USE ") || upper.startsWith("DESCRIBE") || upper.startsWith("SELECT")
+                        || upper.startsWith("INSERT INTO SALES_ROLLUP") || upper.startsWith("CREATE TRIGGER")) {
+                    continue;
+                }
+                stmt.execute(s.replace(" STORED", "").replace(" ROW_FORMAT=COMPRESSED", "")
+                    .replaceFirst("(?s)\\)\\s*PARTITION BY .*$", ")").replaceAll(";$", ""));
+            }
+        }
+    }
+}
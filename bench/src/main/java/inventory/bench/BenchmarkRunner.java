@@ -0,0 +1,29 @@
+package inventory.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results as JSON (jmh-result.json by
+ * default) so runs can be compared against a stored baseline.
+ * Accepts the usual JMH command line, e.g. a benchmark regex, -p sales=500000
+ * or -rff baseline.json.
+ *
+ * Build and run:
+ *   mvn -f bench/pom.xml package
+ *   java --enable-preview -jar bench/target/benchmarks.jar
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+            .parent(commandLine)
+            .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+            .result(commandLine.getResult().orElse("jmh-result.json"))
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,63 @@
+package inventory.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Typed entry points into BenchFixture. The application is compiled into
+ * the unnamed package, which Java source in a named package cannot refer
+ * to, so the calls go through method handles resolved once at class load.
+ */
+final class InventoryApp {
+    private static final MethodHandle SET_UP = find("setUp", MethodType.methodType(void.class, int.class, int.class, int.class));
+    private static final MethodHandle TEAR_DOWN = find("tearDown", MethodType.methodType(void.class));
+    private static final MethodHandle LOAD_CATALOG = find("loadCatalog", MethodType.methodType(int.class));
+    private static final MethodHandle LOAD_HISTORY_PAGE = find("loadHistoryPage", MethodType.methodType(int.class, int.class));
+    private static final MethodHandle LOAD_STATS = find("loadStats", MethodType.methodType(long.class));
+    private static final MethodHandle LOAD_REPORT = find("loadReport", MethodType.methodType(int.class, int.class));
+    private static final MethodHandle CHECKOUT = find("checkout", MethodType.methodType(double.class, int.class));
+    private static final MethodHandle ADJUST_STOCK = find("adjustStock", MethodType.methodType(int.class, int.class));
+
+    private InventoryApp() {}
+
+    private static MethodHandle find(String name, MethodType type) {
+        try {
+            return MethodHandles.publicLookup().findStatic(Class.forName("BenchFixture"), name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static void setUp(int products, int customers, int sales) throws Throwable {
+        SET_UP.invokeExact(products, customers, sales);
+    }
+
+    static void tearDown() throws Throwable {
+        TEAR_DOWN.invokeExact();
+    }
+
+    static int loadCatalog() throws Throwable {
+        return (int) LOAD_CATALOG.invokeExact();
+    }
+
+    static int loadHistoryPage(int customerId) throws Throwable {
+        return (int) LOAD_HISTORY_PAGE.invokeExact(customerId);
+    }
+
+    static long loadStats() throws Throwable {
+        return (long) LOAD_STATS.invokeExact();
+    }
+
+    static int loadReport(int range) throws Throwable {
+        return (int) LOAD_REPORT.invokeExact(range);
+    }
+
+    static double checkout(int lines) throws Throwable {
+        return (double) CHECKOUT.invokeExact(lines);
+    }
+
+    static int adjustStock(int hotProducts) throws Throwable {
+        return (int) ADJUST_STOCK.invokeExact(hotProducts);
+    }
+}
@@ -0,0 +1,50 @@
+package inventory.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/** What the GUI runs on a refresh: catalog reload, history pages, dashboard figures and reports. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadPathBenchmarks {
+
+    @Benchmark
+    public int catalogLoad(SeededDatabase db) throws Throwable {
+        return InventoryApp.loadCatalog();
+    }
+
+    @Benchmark
+    public int historyFirstPage(SeededDatabase db) throws Throwable {
+        return InventoryApp.loadHistoryPage(0);
+    }
+
+    @Benchmark
+    public int historyCustomerPage(SeededDatabase db) throws Throwable {
+        return InventoryApp.loadHistoryPage(100 + db.customers / 2);
+    }
+
+    @Benchmark
+    public long dashboardStats(SeededDatabase db) throws Throwable {
+        return InventoryApp.loadStats();
+    }
+
+    @Benchmark
+    public int reportLast30Days(SeededDatabase db) throws Throwable {
+        return InventoryApp.loadReport(1);
+    }
+
+    @Benchmark
+    public int reportLast12Months(SeededDatabase db) throws Throwable {
+        return InventoryApp.loadReport(2);
+    }
+}
@@ -0,0 +1,31 @@
+package inventory.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** One seeded in-process database per benchmark fork. Sizes can be overridden with -p. */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+    @Param("2000")
+    public int products;
+
+    @Param("200")
+    public int customers;
+
+    @Param("50000")
+    public int sales;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        InventoryApp.setUp(products, customers, sales);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        InventoryApp.tearDown();
+    }
+}
@@ -31,9 +31,12 @@ CREATE TABLE supplier (
     contact VARCHAR(50)
 );
 
--- Transaction table with profit tracking and discount functionality
+-- Transaction table with profit tracking and discount functionality. Holds the
+-- recent months only: SalesArchive moves older sales to transaction_archive,
+-- adds monthly partitions ahead of time and drops the ones it has emptied.
+-- No foreign keys, so deleting a product or customer keeps their sales history.
 CREATE TABLE transaction (
-    id INT PRIMARY KEY AUTO_INCREMENT,
+    id INT NOT NULL AUTO_INCREMENT,
     product_id INT NOT NULL,
     customer_id INT NOT NULL,
     quantity INT NOT NULL,
@@ -45,14 +48,134 @@ CREATE TABLE transaction (
     tax_amount DOUBLE DEFAULT NULL COMMENT 'GST/Tax amount (18% of discounted subtotal)',
     total_with_tax DOUBLE DEFAULT NULL COMMENT 'Final total amount including tax after discount',
     profit_amount DOUBLE DEFAULT NULL COMMENT 'Actual profit earned: (discounted_unit_price - unit_cost) × quantity',
-    date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE,
-    FOREIGN KEY (customer_id) REFERENCES customer(id) ON DELETE CASCADE,
+    date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, date),
     INDEX idx_date (date),
     INDEX idx_product (product_id),
     INDEX idx_customer (customer_id)
+) PARTITION BY RANGE (UNIX_TIMESTAMP(date)) (
+    PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+-- Sales from closed months, one compact row per sale with prices resolved, clustered by date
+CREATE TABLE transaction_archive (
+    id INT NOT NULL,
+    date TIMESTAMP NOT NULL,
+    product_id INT NOT NULL,
+    customer_id INT NOT NULL,
+    quantity INT NOT NULL,
+    unit_cost DOUBLE NOT NULL,
+    unit_price DOUBLE NOT NULL,
+    discount_percent DOUBLE NOT NULL,
+    total DOUBLE NOT NULL,
+    profit DOUBLE NOT NULL,
+    PRIMARY KEY (date, id),
+    INDEX idx_archive_product (product_id, date),
+    INDEX idx_archive_customer (customer_id, date)
+) ROW_FORMAT=COMPRESSED;
+
+-- Months that have been archived, with their totals
+CREATE TABLE transaction_archive_period (
+    period_start DATE PRIMARY KEY,
+    sales BIGINT NOT NULL DEFAULT 0,
+    revenue DOUBLE NOT NULL DEFAULT 0,
+    profit DOUBLE NOT NULL DEFAULT 0,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Running dashboard totals, maintained incrementally at checkout so the
+-- dashboard never has to scan the transaction table
+CREATE TABLE sales_summary (
+    id INT PRIMARY KEY,
+    transaction_count BIGINT NOT NULL DEFAULT 0,
+    total_revenue DOUBLE NOT NULL DEFAULT 0 COMMENT 'Sum of total_with_tax',
+    total_profit DOUBLE NOT NULL DEFAULT 0 COMMENT 'Sum of profit_amount'
+);
+
+-- Hourly (H), daily (D) and monthly (M) sales per product (P), per customer (C)
+-- and in total (T, key_id 0), maintained at checkout for the reports tab
+CREATE TABLE sales_rollup (
+    grain CHAR(1) NOT NULL,
+    dimension CHAR(1) NOT NULL,
+    key_id INT NOT NULL,
+    period_start DATETIME NOT NULL,
+    transactions BIGINT NOT NULL DEFAULT 0,
+    units BIGINT NOT NULL DEFAULT 0,
+    revenue DOUBLE NOT NULL DEFAULT 0,
+    profit DOUBLE NOT NULL DEFAULT 0,
+    PRIMARY KEY (grain, dimension, key_id, period_start),
+    INDEX idx_rollup_period (grain, dimension, period_start)
+);
+
+-- Last journaled checkout each terminal's SalesJournal has written, committed with every batch
+CREATE TABLE sales_journal (
+    journal_id BIGINT PRIMARY KEY,
+    flushed_seq BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Every insert, update and delete of a product, customer or supplier, in commit order
+-- of seq; terminals poll it to patch their tables (ChangeFeed)
+CREATE TABLE change_log (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    table_name VARCHAR(32) NOT NULL,
+    row_id INT NOT NULL,
+    op CHAR(1) NOT NULL,
+    changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_change_log_time (changed_at)
+);
+
+CREATE TRIGGER change_log_product_insert AFTER INSERT ON product FOR EACH ROW
+INSERT INTO change_log (table_name, row_id, op) VALUES ('product', NEW.id, 'I');
+CREATE TRIGGER change_log_product_update AFTER UPDATE ON product FOR EACH ROW
+INSERT INTO change_log (table_name, row_id, op) VALUES ('product', NEW.id, 'U');
+CREATE TRIGGER change_log_product_delete AFTER DELETE ON product FOR EACH ROW
+INSERT INTO change_log (table_name, row_id, op) VALUES ('product', OLD.id, 'D');
+CREATE TRIGGER change_log_customer_insert AFTER INSERT ON customer FOR EACH ROW
+INSERT INTO change_log (table_name, row_id, op) VALUES ('customer', NEW.id, 'I');
+CREATE TRIGGER change_log_customer_update AFTER UPDATE ON customer FOR EACH ROW
+INSERT INTO change_log (table_name, row_id, op) VALUES ('customer', NEW.id, 'U');
+CREATE TRIGGER change_log_customer_delete AFTER DELETE ON customer FOR EACH ROW
+INSERT INTO change_log (table_name, row_id, op) VALUES ('customer', OLD.id, 'D');
+CREATE TRIGGER change_log_supplier_insert AFTER INSERT ON supplier FOR EACH ROW
+INSERT INTO change_log (table_name, row_id, op) VALUES ('supplier', NEW.id, 'I');
+CREATE TRIGGER change_log_supplier_update AFTER UPDATE ON supplier FOR EACH ROW
+INSERT INTO change_log (table_name, row_id, op) VALUES ('supplier', NEW.id, 'U');
+CREATE TRIGGER change_log_supplier_delete AFTER DELETE ON supplier FOR EACH ROW
+INSERT INTO change_log (table_name, row_id, op) VALUES ('supplier', OLD.id, 'D');
+
+-- Which suppliers can deliver each product; unit_cost NULL means the product's cost_price
+CREATE TABLE product_supplier (
+    product_id INT NOT NULL,
+    supplier_id INT NOT NULL,
+    unit_cost DOUBLE DEFAULT NULL,
+    lead_time_days INT NOT NULL DEFAULT 7,
+    min_order_qty INT NOT NULL DEFAULT 1,
+    preferred BOOLEAN NOT NULL DEFAULT FALSE,
+    PRIMARY KEY (product_id, supplier_id),
+    FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE,
+    FOREIGN KEY (supplier_id) REFERENCES supplier(id) ON DELETE CASCADE,
+    INDEX idx_product_supplier_supplier (supplier_id)
+);
+
+-- Migrations already contained in this script; SchemaMigrator applies only newer ones
+CREATE TABLE schema_version (
+    version INT PRIMARY KEY,
+    description VARCHAR(200) NOT NULL,
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO schema_version (version, description) VALUES
+(1, 'product cost price'),
+(2, 'per-sale price, tax and profit columns'),
+(3, 'transaction date/product/customer indexes'),
+(4, 'sales_summary dashboard table'),
+(5, 'sales_journal checkpoint table'),
+(6, 'sales_rollup report aggregates'),
+(7, 'change_log and capture triggers'),
+(8, 'product_supplier links'),
+(9, 'sales archive tables, monthly transaction partitions');
+
 -- ===================================================================
 -- SAMPLE DATA INSERTION
 -- ===================================================================
@@ -79,6 +202,15 @@ INSERT INTO supplier (id, name, contact) VALUES
 (3, 'Computer World', '8765432109'),
 (4, 'Digital Solutions', '7654321098');
 
+-- Insert sample supplier links
+INSERT INTO product_supplier (product_id, supplier_id, unit_cost, lead_time_days, min_order_qty, preferred) VALUES
+(1, 1, 45000.0, 10, 2, TRUE),
+(1, 3, 46500.0, 5, 1, FALSE),
+(2, 2, NULL, 3, 20, TRUE),
+(3, 2, NULL, 3, 10, TRUE),
+(4, 3, 12000.0, 7, 2, TRUE),
+(5, 4, NULL, 5, 10, TRUE);
+
 -- ===================================================================
 -- SAMPLE TRANSACTIONS WITH PROFIT TRACKING (NO DISCOUNT)
 -- ===================================================================
@@ -108,6 +240,23 @@ VALUES (4, 4, 1, 12000.0, 15000.0, 15000.0, 2700.0, 17700.0, 3000.0);
 INSERT INTO transaction (product_id, customer_id, quantity, unit_cost, unit_price, subtotal, tax_amount, total_with_tax, profit_amount) 
 VALUES (5, 1, 2, 2200.0, 3500.0, 7000.0, 1260.0, 8260.0, 2600.0);
 
+-- Seed the dashboard summary from the sample transactions
+INSERT INTO sales_summary (id, transaction_count, total_revenue, total_profit)
+SELECT 1, COUNT(*), COALESCE(SUM(total_with_tax), 0), COALESCE(SUM(profit_amount), 0) FROM transaction;
+
+-- Seed the report rollups from the sample transactions (java SalesRollup rebuilds them at any time)
+INSERT INTO sales_rollup (grain, dimension, key_id, period_start, transactions, units, revenue, profit)
+SELECT g.grain, d.dimension,
+       CASE d.dimension WHEN 'P' THEN t.product_id WHEN 'C' THEN t.customer_id ELSE 0 END,
+       CASE g.grain WHEN 'H' THEN DATE_FORMAT(t.date, '%Y-%m-%d %H:00:00')
+                    WHEN 'D' THEN DATE(t.date)
+                    ELSE DATE_FORMAT(t.date, '%Y-%m-01') END,
+       COUNT(*), SUM(t.quantity), COALESCE(SUM(t.total_with_tax), 0), COALESCE(SUM(t.profit_amount), 0)
+FROM transaction t
+CROSS JOIN (SELECT 'H' AS grain UNION ALL SELECT 'D' UNION ALL SELECT 'M') g
+CROSS JOIN (SELECT 'P' AS dimension UNION ALL SELECT 'C' UNION ALL SELECT 'T') d
+GROUP BY 1, 2, 3, 4;
+
 -- ===================================================================
 -- DATABASE VERIFICATION AND OPTIMIZATION
 -- ===================================================================
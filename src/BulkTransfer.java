@@ -0,0 +1,412 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Bulk CSV import and export.
+ *
+ * Import streams the file in chunks: a chunk is validated and written by a
+ * worker thread as one batched INSERT ... ON DUPLICATE KEY UPDATE and one
+ * commit, while the next chunks are read. At most two chunks per worker
+ * are in memory at once, whatever the file size. Rows that fail
+ * validation or that the database refuses go to a rejects file with the
+ * line number and reason; the rest of their chunk is still written.
+ *
+ * Export streams any table through a forward-only cursor (row-by-row
+ * streaming on MySQL), so memory does not grow with the table.
+ *
+ * Usage: java BulkTransfer import <product|customer|supplier> <file.csv> [--chunk=5000] [--threads=4] [connection]
+ *        java BulkTransfer export <table> <file.csv|-> [connection]
+ * where connection is [--url=jdbcUrl] [--user=name] [--password=secret];
+ * the user and password default to DBConnection's. The first line of an
+ * import file names the columns, in any order.
+ */
+public class BulkTransfer {
+    private static final long PROGRESS_INTERVAL_NANOS = 5_000_000_000L;
+
+    public record Options(int chunkSize, int threads, Path rejectsFile) {
+        public static Options defaults(Path file) {
+            return new Options(5000, Math.min(4, Runtime.getRuntime().availableProcessors()),
+                file.resolveSibling(file.getFileName() + ".rejects.csv"));
+        }
+    }
+
+    public record Result(long rowsRead, long rowsWritten, long rowsRejected, double seconds) {
+        public double rowsPerSecond() {
+            return seconds > 0 ? rowsRead / seconds : rowsRead;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows read, %d written, %d rejected in %.1fs (%.0f rows/s)",
+                rowsRead, rowsWritten, rowsRejected, seconds, rowsPerSecond());
+        }
+    }
+
+    private interface RowParser {
+        /** Values for the upsert parameters; throws IllegalArgumentException naming the bad field. */
+        Object[] parse(Map<String, String> row);
+    }
+
+    private record Target(String table, List<String> required, String upsert, RowParser parser) {}
+
+    private record Row(long line, String[] fields, Object[] values) {}
+
+    private static final Map<String, Target> TARGETS = Map.of(
+        "product", new Target("product", List.of("id", "name", "quantity", "price"),
+            "INSERT INTO product (id, name, quantity, price, cost_price) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE name=VALUES(name), quantity=VALUES(quantity), price=VALUES(price), cost_price=VALUES(cost_price)",
+            row -> new Object[] {
+                positiveInt(row, "id"), text(row, "name", 100, true), nonNegativeInt(row, "quantity"),
+                nonNegativeDouble(row, "price"), row.getOrDefault("cost_price", "").isBlank() ? 0.0 : nonNegativeDouble(row, "cost_price")
+            }),
+        "customer", new Target("customer", List.of("id", "name"),
+            "INSERT INTO customer (id, name, email) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE name=VALUES(name), email=VALUES(email)",
+            row -> new Object[] { positiveInt(row, "id"), text(row, "name", 100, true), email(row) }),
+        "supplier", new Target("supplier", List.of("id", "name"),
+            "INSERT INTO supplier (id, name, contact) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE name=VALUES(name), contact=VALUES(contact)",
+            row -> new Object[] { positiveInt(row, "id"), text(row, "name", 100, true), text(row, "contact", 50, false) })
+    );
+
+    // ---- import ----
+
+    public static Result importCsv(String table, Path file, Options options) throws IOException, SQLException {
+        Target target = TARGETS.get(table.toLowerCase(Locale.ROOT));
+        if (target == null) throw new IllegalArgumentException("Can import product, customer or supplier, not " + table);
+        if (target.table().equals("product") && !SchemaCapabilities.get().hasProductCostPrice()) {
+            throw new SQLException("product.cost_price is missing; run SchemaMigrator first");
+        }
+
+        long started = System.nanoTime();
+        AtomicLong read = new AtomicLong();
+        AtomicLong written = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        ExecutorService workers = Executors.newFixedThreadPool(options.threads());
+        Semaphore inFlight = new Semaphore(options.threads() * 2);
+
+        try (Csv.Reader reader = new Csv.Reader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+             Writer rejects = Files.newBufferedWriter(options.rejectsFile(), StandardCharsets.UTF_8)) {
+            String[] header = reader.next();
+            if (header == null) throw new IllegalArgumentException(file + " is empty");
+            for (int i = 0; i < header.length; i++) header[i] = header[i].strip().toLowerCase(Locale.ROOT);
+            for (String column : target.required()) {
+                if (!List.of(header).contains(column)) throw new IllegalArgumentException(file + " has no '" + column + "' column");
+            }
+            String[] rejectsHeader = new String[header.length + 2];
+            rejectsHeader[0] = "line";
+            rejectsHeader[1] = "reason";
+            System.arraycopy(header, 0, rejectsHeader, 2, header.length);
+            Csv.writeRow(rejects, rejectsHeader);
+
+            long nextProgress = started + PROGRESS_INTERVAL_NANOS;
+            List<Row> chunk = new ArrayList<>(options.chunkSize());
+            String[] fields;
+            while (failure.get() == null) {
+                fields = reader.next();
+                if (fields != null) {
+                    chunk.add(new Row(reader.recordLine(), fields, null));
+                    read.incrementAndGet();
+                }
+                if (chunk.size() == options.chunkSize() || (fields == null && !chunk.isEmpty())) {
+                    List<Row> batch = chunk;
+                    chunk = new ArrayList<>(options.chunkSize());
+                    inFlight.acquireUninterruptibly();
+                    workers.execute(() -> {
+                        try {
+                            importChunk(target, header, batch, rejects, written, rejected);
+                        } catch (Exception e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+                if (fields == null) break;
+                if (System.nanoTime() >= nextProgress) {
+                    nextProgress += PROGRESS_INTERVAL_NANOS;
+                    System.out.println("📥 " + progress(read.get(), written.get(), rejected.get(), started));
+                }
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } finally {
+            workers.shutdownNow();
+        }
+        if (failure.get() instanceof SQLException e) throw e;
+        if (failure.get() instanceof IOException e) throw e;
+        if (failure.get() != null) throw new IllegalStateException(failure.get());
+        if (rejected.get() == 0) Files.deleteIfExists(options.rejectsFile());
+        return new Result(read.get(), written.get(), rejected.get(), (System.nanoTime() - started) / 1e9);
+    }
+
+    private static void importChunk(Target target, String[] header, List<Row> chunk, Writer rejects,
+                                    AtomicLong written, AtomicLong rejected) throws SQLException, IOException {
+        List<Row> valid = new ArrayList<>(chunk.size());
+        List<String[]> refused = new ArrayList<>();
+        Map<String, String> row = new HashMap<>();
+        for (Row raw : chunk) {
+            row.clear();
+            for (int i = 0; i < header.length && i < raw.fields().length; i++) row.put(header[i], raw.fields()[i].strip());
+            try {
+                valid.add(new Row(raw.line(), raw.fields(), target.parser().parse(row)));
+            } catch (IllegalArgumentException e) {
+                refused.add(rejectRow(raw, e.getMessage()));
+            }
+        }
+        if (!valid.isEmpty()) {
+            try (Connection conn = DBConnection.getConnection()) {
+                if (conn == null) throw new SQLException("Database is not reachable");
+                written.addAndGet(TransactionRetry.run(() -> {
+                    // Only an attempt that committed reports its rejects; a retried one would list them twice
+                    List<String[]> attempt = new ArrayList<>();
+                    int count = writeChunk(conn, target, valid, attempt);
+                    refused.addAll(attempt);
+                    return count;
+                }));
+            }
+        }
+        if (refused.isEmpty()) return;
+        rejected.addAndGet(refused.size());
+        synchronized (rejects) {
+            for (String[] reject : refused) Csv.writeRow(rejects, reject);
+        }
+    }
+
+    /**
+     * Upserts the chunk in one batch and commits. If the batch is refused
+     * (a duplicate email, say) the chunk is written row by row instead, so
+     * only the offending rows are rejected.
+     */
+    private static int writeChunk(Connection conn, Target target, List<Row> rows, List<String[]> refused) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement upsert = conn.prepareStatement(target.upsert())) {
+            try {
+                for (Row row : rows) {
+                    bind(upsert, row.values());
+                    upsert.addBatch();
+                }
+                upsert.executeBatch();
+                conn.commit();
+                return rows.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                if (TransactionRetry.isRetryable(e)) throw e;
+            }
+            int count = 0;
+            for (Row row : rows) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    bind(upsert, row.values());
+                    upsert.executeUpdate();
+                    conn.releaseSavepoint(savepoint);
+                    count++;
+                } catch (SQLException e) {
+                    if (TransactionRetry.isRetryable(e)) throw e;
+                    conn.rollback(savepoint);
+                    refused.add(rejectRow(row, e.getMessage()));
+                }
+            }
+            conn.commit();
+            return count;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void bind(PreparedStatement stmt, Object[] values) throws SQLException {
+        for (int i = 0; i < values.length; i++) stmt.setObject(i + 1, values[i]);
+    }
+
+    private static String[] rejectRow(Row row, String reason) {
+        String[] reject = new String[row.fields().length + 2];
+        reject[0] = String.valueOf(row.line());
+        reject[1] = reason;
+        System.arraycopy(row.fields(), 0, reject, 2, row.fields().length);
+        return reject;
+    }
+
+    private static String progress(long read, long written, long rejected, long started) {
+        double seconds = (System.nanoTime() - started) / 1e9;
+        return String.format("%d rows read, %d written, %d rejected (%.0f rows/s)", read, written, rejected, read / Math.max(seconds, 1e-9));
+    }
+
+    // ---- validation ----
+
+    private static String field(Map<String, String> row, String name) {
+        String value = row.get(name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException(name + " is missing");
+        return value;
+    }
+
+    private static int positiveInt(Map<String, String> row, String name) {
+        int value = nonNegativeInt(row, name);
+        if (value == 0) throw new IllegalArgumentException(name + " must be positive");
+        return value;
+    }
+
+    private static int nonNegativeInt(Map<String, String> row, String name) {
+        String text = field(row, name);
+        try {
+            int value = Integer.parseInt(text);
+            if (value < 0) throw new IllegalArgumentException(name + " cannot be negative");
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a whole number: " + text);
+        }
+    }
+
+    private static double nonNegativeDouble(Map<String, String> row, String name) {
+        String text = field(row, name);
+        try {
+            double value = Double.parseDouble(text);
+            if (!(value >= 0) || Double.isInfinite(value)) throw new IllegalArgumentException(name + " must be zero or more");
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number: " + text);
+        }
+    }
+
+    private static String text(Map<String, String> row, String name, int maxLength, boolean required) {
+        String value = row.getOrDefault(name, "");
+        if (value.isEmpty()) {
+            if (required) throw new IllegalArgumentException(name + " is missing");
+            return null;
+        }
+        if (value.length() > maxLength) throw new IllegalArgumentException(name + " is longer than " + maxLength + " characters");
+        return value;
+    }
+
+    private static String email(Map<String, String> row) {
+        String value = text(row, "email", 100, false);
+        if (value != null && (value.indexOf('@') <= 0 || value.indexOf('@') == value.length() - 1)) {
+            throw new IllegalArgumentException("email is not valid: " + value);
+        }
+        return value;
+    }
+
+    // ---- export ----
+
+    /** Writes every row of the table as CSV with a header line. Returns the row count. */
+    public static long exportCsv(String table, Writer out, PrintStream log) throws SQLException, IOException {
+        long started = System.nanoTime();
+        long nextProgress = started + PROGRESS_INTERVAL_NANOS;
+        long rows = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("Database is not reachable");
+            String name = resolveTable(conn, table);
+            try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Connector/J only streams with this magic value; other drivers take it as a page size
+                stmt.setFetchSize("MySQL".equals(conn.getMetaData().getDatabaseProductName()) ? Integer.MIN_VALUE : 1000);
+                try (ResultSet rs = stmt.executeQuery("SELECT * FROM `" + name + "`")) {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    String[] values = new String[meta.getColumnCount()];
+                    for (int i = 0; i < values.length; i++) values[i] = meta.getColumnLabel(i + 1).toLowerCase(Locale.ROOT);
+                    Csv.writeRow(out, values);
+                    while (rs.next()) {
+                        for (int i = 0; i < values.length; i++) values[i] = rs.getString(i + 1);
+                        Csv.writeRow(out, values);
+                        rows++;
+                        if ((rows & 0xFFF) == 0 && System.nanoTime() >= nextProgress) {
+                            nextProgress += PROGRESS_INTERVAL_NANOS;
+                            log.printf("📤 %d rows (%.0f rows/s)%n", rows, rows / ((System.nanoTime() - started) / 1e9));
+                        }
+                    }
+                }
+            }
+        }
+        out.flush();
+        return rows;
+    }
+
+    // Only names that exist in the schema reach the SQL text
+    private static String resolveTable(Connection conn, String table) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getTables(conn.getCatalog(), null, "%", new String[] {"TABLE"})) {
+            while (rs.next()) {
+                String name = rs.getString("TABLE_NAME");
+                if (name.equalsIgnoreCase(table)) return name;
+            }
+        }
+        throw new IllegalArgumentException("No table named " + table);
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.err.println("Usage: java BulkTransfer import <product|customer|supplier> <file.csv> [--chunk=5000] [--threads=4] [connection]");
+            System.err.println("       java BulkTransfer export <table> <file.csv|-> [connection]");
+            System.err.println("where connection is [--url=jdbcUrl] [--user=name] [--password=secret]");
+            System.exit(2);
+        }
+        Path file = Path.of(args[2]);
+        Options options = Options.defaults(file);
+        String url = null;
+        String user = DBConnection.USER;
+        String password = DBConnection.PASSWORD;
+        for (int i = 3; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--chunk=")) options = new Options(Integer.parseInt(arg.substring(8)), options.threads(), options.rejectsFile());
+            else if (arg.startsWith("--threads=")) options = new Options(options.chunkSize(), Integer.parseInt(arg.substring(10)), options.rejectsFile());
+            else if (arg.startsWith("--url=")) url = arg.substring(6);
+            else if (arg.startsWith("--user=")) user = arg.substring(7);
+            else if (arg.startsWith("--password=")) password = arg.substring(11);
+            else throw new IllegalArgumentException("Unknown option " + arg);
+        }
+        if (url != null) {
+            String jdbcUrl = url;
+            String jdbcUser = user;
+            String jdbcPassword = password;
+            DBConnection.usePool(new ConnectionPool(() -> DriverManager.getConnection(jdbcUrl, jdbcUser, jdbcPassword),
+                ConnectionPool.Config.fromSystemProperties().maxSize(Math.max(options.threads() + 1, 2))));
+        }
+        try {
+            if (args[0].equals("import")) {
+                System.out.println("📥 Importing " + file + " into " + args[1] + " (" + options.chunkSize() + " rows per chunk, "
+                    + options.threads() + " threads)");
+                Result result = importCsv(args[1], file, options);
+                System.out.println("✅ " + result);
+                if (result.rowsRejected() > 0) System.out.println("⚠️ Rejected rows written to " + options.rejectsFile());
+            } else if (args[2].equals("-")) {
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+                long rows = exportCsv(args[1], out, System.err);
+                System.err.println("✅ Exported " + rows + " rows");
+            } else {
+                try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    long started = System.nanoTime();
+                    long rows = exportCsv(args[1], out, System.out);
+                    System.out.printf("✅ Exported %d rows to %s in %.1fs%n", rows, file, (System.nanoTime() - started) / 1e9);
+                }
+            }
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            System.err.println("❌ " + args[0] + " failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes row-level changes to product, customer and supplier to every
+ * terminal. Triggers on those tables append (table, id) to change_log,
+ * whose seq only ever grows; the poller reads the entries after the last
+ * seq it has seen, re-reads just those rows and hands listeners the new
+ * rows plus the ids that are gone. Product rows are applied to the
+ * ProductCatalog as well, customer and supplier rows to the shared
+ * ContactDirectory. New sales are spotted by a rise in the highest
+ * transaction id, so checkout does not pay for a trigger on that table.
+ *
+ * Entries older than inventory.changes.retainHours are purged; a terminal
+ * that was away longer than that is told to reload everything.
+ */
+public class ChangeFeed implements AutoCloseable {
+
+    /** One poll's worth of changes. resync means entries were missed and everything should be reloaded. */
+    public record Changes(List<Product> products, Set<Integer> removedProducts,
+                          List<Customer> customers, Set<Integer> removedCustomers,
+                          List<Supplier> suppliers, Set<Integer> removedSuppliers,
+                          boolean newSales, boolean resync) {
+        public boolean isEmpty() {
+            return products.isEmpty() && removedProducts.isEmpty() && customers.isEmpty() && removedCustomers.isEmpty()
+                && suppliers.isEmpty() && removedSuppliers.isEmpty() && !newSales && !resync;
+        }
+    }
+
+    /** Runs on the poller thread. */
+    public interface Listener {
+        void changed(Changes changes);
+    }
+
+    private static final String[] TABLES = {"product", "customer", "supplier"};
+    private static final String[] OPERATIONS = {"INSERT", "UPDATE", "DELETE"};
+    private static final int BATCH = 5000;
+    // An entry missing below newer ones is a write still in flight; past this it was rolled back
+    private static final long GAP_MILLIS = 10_000;
+    private static final long PURGE_INTERVAL_MILLIS = 3_600_000;
+    private static final SqlQuery POLL = SqlQuery.named("changes.poll",
+        "SELECT seq, table_name, row_id FROM change_log WHERE seq > ? ORDER BY seq LIMIT " + BATCH);
+    private static final SqlQuery LAST_SEQ = SqlQuery.named("changes.last_seq", "SELECT COALESCE(MAX(seq), 0) FROM change_log");
+    private static final SqlQuery OLDEST_SEQ = SqlQuery.named("changes.oldest_seq", "SELECT COALESCE(MIN(seq), 0) FROM change_log");
+    private static final SqlQuery LAST_SALE = SqlQuery.named("changes.last_sale", "SELECT COALESCE(MAX(id), 0) FROM `transaction`");
+
+    private final ProductCatalog catalog;
+    private final long pollMillis;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "change-feed");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean pollQueued = new AtomicBoolean();
+    // Poller thread only
+    private final TreeSet<Long> seenAfterCursor = new TreeSet<>();
+    private long cursor;
+    private long gapSince;
+    private int lastSaleId;
+    private long lastPurge;
+    private volatile boolean active;
+
+    public ChangeFeed(ProductCatalog catalog, long pollMillis) {
+        this.catalog = catalog;
+        this.pollMillis = pollMillis;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts polling from the current end of the log, so call it before
+     * the initial loads. Returns false, and stays idle, when change_log or
+     * its triggers are not installed.
+     */
+    public boolean start() {
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) return false;
+            if (!isInstalled(conn)) {
+                System.out.println("ℹ️ change_log triggers not installed; tables refresh on demand only");
+                return false;
+            }
+            try (PreparedStatement stmt = LAST_SEQ.prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                cursor = rs.getLong(1);
+            }
+            lastSaleId = maxSaleId(conn);
+        } catch (SQLException e) {
+            System.err.println("⚠️ Change feed unavailable: " + e.getMessage());
+            return false;
+        }
+        active = true;
+        poller.scheduleWithFixedDelay(this::pollQuietly, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /** Polls now instead of at the next tick, e.g. right after this terminal wrote something. */
+    public void pollNow() {
+        if (active && pollQueued.compareAndSet(false, true)) poller.execute(this::pollQuietly);
+    }
+
+    @Override
+    public void close() {
+        active = false;
+        poller.shutdownNow();
+    }
+
+    private void pollQuietly() {
+        pollQueued.set(false);
+        try {
+            poll();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("⚠️ Change feed poll failed: " + e.getMessage());
+        }
+    }
+
+    private void poll() throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) return;
+            Map<String, Set<Integer>> touched = new HashMap<>();
+            for (String table : TABLES) touched.put(table, new LinkedHashSet<>());
+            try (PreparedStatement stmt = POLL.prepare(conn)) {
+                stmt.setLong(1, cursor);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Set<Integer> ids = touched.get(rs.getString(2));
+                        // Entries already handled while the cursor waits at a gap are read again; skip them
+                        if (seenAfterCursor.add(rs.getLong(1)) && ids != null) ids.add(rs.getInt(3));
+                    }
+                }
+            }
+            boolean resync = advanceCursor(conn);
+            int saleId = maxSaleId(conn);
+            boolean newSales = saleId != lastSaleId;
+            lastSaleId = saleId;
+
+            Changes changes;
+            if (resync) {
+                changes = new Changes(List.of(), Set.of(), List.of(), Set.of(), List.of(), Set.of(), newSales, true);
+                catalog.reload();
+                ContactDirectory.shared().invalidate();
+            } else {
+                List<Product> products = new ArrayList<>();
+                Set<Integer> removedProducts = new LinkedHashSet<>(touched.get("product"));
+                String productQuery = SchemaCapabilities.get(conn).productLoadQuery();
+                forEachRow(conn, "changes.products", productQuery, touched.get("product"), rs -> {
+                    Product p = new Product(rs.getInt("id"), rs.getString("name"), rs.getInt("quantity"),
+                        rs.getDouble("price"), rs.getDouble("cost_price"));
+                    products.add(p);
+                    removedProducts.remove(p.getId());
+                });
+                List<Customer> customers = new ArrayList<>();
+                Set<Integer> removedCustomers = new LinkedHashSet<>(touched.get("customer"));
+                forEachRow(conn, "changes.customers", "SELECT id, name, email FROM customer", touched.get("customer"), rs -> {
+                    customers.add(new Customer(rs.getInt(1), rs.getString(2), rs.getString(3)));
+                    removedCustomers.remove(rs.getInt(1));
+                });
+                List<Supplier> suppliers = new ArrayList<>();
+                Set<Integer> removedSuppliers = new LinkedHashSet<>(touched.get("supplier"));
+                forEachRow(conn, "changes.suppliers", "SELECT id, name, contact FROM supplier", touched.get("supplier"), rs -> {
+                    suppliers.add(new Supplier(rs.getInt(1), rs.getString(2), rs.getString(3)));
+                    removedSuppliers.remove(rs.getInt(1));
+                });
+                changes = new Changes(products, removedProducts, customers, removedCustomers,
+                    suppliers, removedSuppliers, newSales, false);
+                if (!products.isEmpty() || !removedProducts.isEmpty()) catalog.applyChanges(products, removedProducts);
+                ContactDirectory.shared().applyChanges(changes);
+            }
+            if (!changes.isEmpty()) {
+                for (Listener listener : listeners) listener.changed(changes);
+            }
+            purgeIfDue(conn);
+        }
+    }
+
+    /**
+     * Moves the cursor over the entries seen without a gap. A gap is waited
+     * for, since a lower seq can commit after a higher one, but only for
+     * GAP_MILLIS. Returns true when the gap lies below the oldest entry
+     * left, i.e. the entries were purged before this terminal read them.
+     */
+    private boolean advanceCursor(Connection conn) throws SQLException {
+        long next = cursor;
+        for (long seq : seenAfterCursor) {
+            if (seq != next + 1) break;
+            next = seq;
+        }
+        boolean resync = false;
+        if (!seenAfterCursor.isEmpty() && next < seenAfterCursor.last()) {
+            long now = System.currentTimeMillis();
+            if (oldestSeq(conn) > next + 1) {
+                resync = true;
+                next = seenAfterCursor.last();
+                gapSince = 0;
+            } else if (gapSince == 0) {
+                gapSince = now;
+            } else if (now - gapSince >= GAP_MILLIS) {
+                next = seenAfterCursor.higher(next);
+                gapSince = 0;
+            }
+        } else {
+            gapSince = 0;
+        }
+        cursor = next;
+        seenAfterCursor.headSet(cursor, true).clear();
+        return resync;
+    }
+
+    private interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+
+    private static void forEachRow(Connection conn, String name, String select, Collection<Integer> ids, RowHandler handler) throws SQLException {
+        List<Integer> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += 1024) {
+            List<Integer> chunk = all.subList(from, Math.min(all.size(), from + 1024));
+            SqlQuery query = SqlQuery.named(name, select + " WHERE id IN (" + SqlQuery.inList(chunk.size()) + ")");
+            try (PreparedStatement stmt = query.prepare(conn)) {
+                for (int i = 0; i < SqlQuery.inListSize(chunk.size()); i++) stmt.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) handler.handle(rs);
+                }
+            }
+        }
+    }
+
+    private static long oldestSeq(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = OLDEST_SEQ.prepare(conn);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static int maxSaleId(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = LAST_SALE.prepare(conn);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void purgeIfDue(Connection conn) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge < PURGE_INTERVAL_MILLIS) return;
+        lastPurge = now;
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM change_log WHERE changed_at < ?")) {
+            stmt.setTimestamp(1, new Timestamp(now - Long.getLong("inventory.changes.retainHours", 24) * 3_600_000));
+            stmt.executeUpdate();
+        }
+    }
+
+    // ---- schema ----
+
+    private static boolean isMySql(Connection conn) throws SQLException {
+        return "MySQL".equals(conn.getMetaData().getDatabaseProductName());
+    }
+
+    private static Set<String> installedTriggers(Connection conn) throws SQLException {
+        String sql = "SELECT LOWER(trigger_name) FROM information_schema.triggers WHERE LOWER(trigger_name) LIKE 'change_log%'";
+        if (isMySql(conn)) sql += " AND trigger_schema = DATABASE()";
+        Set<String> names = new java.util.HashSet<>();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) names.add(rs.getString(1));
+        }
+        return names;
+    }
+
+    static boolean isInstalled(Connection conn) throws SQLException {
+        if (!SchemaCapabilities.columns(conn.getMetaData(), conn.getCatalog(), "change_log").contains("seq")) return false;
+        return installedTriggers(conn).size() >= TABLES.length * OPERATIONS.length;
+    }
+
+    /**
+     * Creates change_log and, on MySQL, the triggers that fill it. Other
+     * databases get the table only; their terminals keep reloading on demand.
+     */
+    static void ensureChangeLog(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS change_log (" +
+                "seq BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "table_name VARCHAR(32) NOT NULL, " +
+                "row_id INT NOT NULL, " +
+                "op CHAR(1) NOT NULL, " +
+                "changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "INDEX idx_change_log_time (changed_at))");
+            if (!isMySql(conn)) {
+                System.err.println("⚠️ change_log triggers are MySQL only; skipped");
+                return;
+            }
+            Set<String> existing = installedTriggers(conn);
+            for (String table : TABLES) {
+                for (String operation : OPERATIONS) {
+                    String name = "change_log_" + table + "_" + operation.toLowerCase(java.util.Locale.ROOT);
+                    if (existing.contains(name)) continue;
+                    String row = operation.equals("DELETE") ? "OLD.id" : "NEW.id";
+                    stmt.executeUpdate("CREATE TRIGGER " + name + " AFTER " + operation + " ON " + table +
+                        " FOR EACH ROW INSERT INTO change_log (table_name, row_id, op) VALUES ('" + table + "', " + row +
+                        ", '" + operation.charAt(0) + "')");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes a multi-item checkout with a fixed number of round trips:
+ * one batched conditional stock decrement, one IN (...) lookup for cost
+ * prices and one batched INSERT for the transaction rows, all in one
+ * transaction.
+ * Stock is never read and then written back: each decrement only applies
+ * while quantity >= requested, so concurrent terminals cannot oversell.
+ * If any line cannot be covered the whole cart is rolled back and a
+ * StockConflictException lists the failing lines. Deadlocks are retried.
+ * Where no foreign keys guard the transaction table, an unknown customer
+ * fails the sale with SQLState 23000 just as the key would have; unknown
+ * products already fail the stock decrement.
+ */
+public class CheckoutProcessor {
+    private static final Metrics.Family<LatencyHistogram> STAGE_TIMES = Metrics.timers("inventory_checkout_stage_seconds",
+        "Time spent in each checkout stage, journal flushes included", "stage");
+
+    public record Line(int productId, int quantity, double unitPrice) {
+        double subtotal() { return unitPrice * quantity; }
+    }
+
+    /** Totals of a committed checkout plus how long each stage took, in milliseconds. */
+    public record Receipt(int lines, int units, double revenue, double profit, Map<String, Double> stageMillis) {
+        public String timings() {
+            StringBuilder sb = new StringBuilder();
+            stageMillis.forEach((stage, ms) -> sb.append(sb.length() == 0 ? "" : ", ").append(String.format("%s=%.2fms", stage, ms)));
+            return sb.toString();
+        }
+    }
+
+    private static final SqlQuery INSERT_TRANSACTION = SqlQuery.named("checkout.insert_sale",
+        "INSERT INTO transaction (product_id, customer_id, quantity, unit_cost, unit_price, " +
+        "subtotal, tax_amount, total_with_tax, profit_amount, date) " +
+        "VALUES (?, ?, ?, ?, ?, ?, 0, ?, ?, NOW())");
+
+    // Same row with the time of sale supplied, for sales written after the fact
+    private static final SqlQuery INSERT_DATED_TRANSACTION = SqlQuery.named("checkout.insert_dated_sale",
+        "INSERT INTO transaction (product_id, customer_id, quantity, unit_cost, unit_price, " +
+        "subtotal, tax_amount, total_with_tax, profit_amount, date) " +
+        "VALUES (?, ?, ?, ?, ?, ?, 0, ?, ?, ?)");
+
+    // Share-locked so the customer cannot be deleted before the sale commits
+    private static final SqlQuery CUSTOMER_EXISTS = SqlQuery.named("checkout.customer_exists",
+        "SELECT 1 FROM customer WHERE id = ? LOCK IN SHARE MODE");
+    private static final SqlQuery CUSTOMER_EXISTS_FOR_UPDATE = SqlQuery.named("checkout.customer_exists",
+        "SELECT 1 FROM customer WHERE id = ? FOR UPDATE");
+
+    private static final SqlQuery DECREMENT_STOCK = SqlQuery.named("checkout.decrement_stock",
+        "UPDATE product SET quantity = quantity - ? WHERE id = ? AND quantity >= ?");
+
+    public Receipt checkout(Connection conn, int customerId, List<Line> lines) throws SQLException {
+        validate(lines);
+        return TransactionRetry.run(() -> attemptCheckout(conn, customerId, lines));
+    }
+
+    static void validate(List<Line> lines) {
+        if (lines.isEmpty()) throw new IllegalArgumentException("Cannot check out an empty cart");
+        for (Line line : lines) {
+            if (line.quantity() <= 0) throw new IllegalArgumentException("Quantity must be positive for product #" + line.productId());
+        }
+    }
+
+    private Receipt attemptCheckout(Connection conn, int customerId, List<Line> lines) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            Map<String, Double> stages = new LinkedHashMap<>();
+            Receipt receipt = writeSale(conn, customerId, lines, null, null, stages);
+            long t = System.nanoTime();
+            conn.commit();
+            lap(stages, "commit", t);
+            return receipt;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Writes one sale inside the caller's open transaction without
+     * committing. soldAt null means now. On a stock conflict the work is
+     * rolled back to {@code savepoint}, or entirely when it is null, before
+     * the exception is thrown; other failures leave the rollback to the caller.
+     * Stage timings are added to {@code stages}, which the receipt shows.
+     */
+    Receipt writeSale(Connection conn, int customerId, List<Line> lines, Timestamp soldAt, Savepoint savepoint,
+                      Map<String, Double> stages) throws SQLException {
+        long t = System.nanoTime();
+        if (!SchemaCapabilities.get(conn).hasSaleForeignKeys()) requireCustomer(conn, customerId);
+        reserveStock(conn, lines, savepoint);
+        t = lap(stages, "reserveStock", t);
+
+        Map<Integer, Double> costPrices = loadCostPrices(conn, lines);
+        t = lap(stages, "costLookup", t);
+
+        double revenue = 0.0;
+        double profit = 0.0;
+        int units = 0;
+        SalesRollup.Delta rollup = new SalesRollup.Delta();
+        java.time.LocalDateTime rollupTime = soldAt == null ? java.time.LocalDateTime.now() : soldAt.toLocalDateTime();
+        try (PreparedStatement insert = (soldAt == null ? INSERT_TRANSACTION : INSERT_DATED_TRANSACTION).prepare(conn)) {
+            for (Line line : lines) {
+                double costPrice = costPrices.getOrDefault(line.productId(), 0.0);
+                double total = line.subtotal();
+                double lineProfit = (line.unitPrice() - costPrice) * line.quantity();
+                insert.setInt(1, line.productId());
+                insert.setInt(2, customerId);
+                insert.setInt(3, line.quantity());
+                insert.setDouble(4, costPrice);
+                insert.setDouble(5, line.unitPrice());
+                insert.setDouble(6, total);
+                insert.setDouble(7, total);
+                insert.setDouble(8, lineProfit);
+                if (soldAt != null) insert.setTimestamp(9, soldAt);
+                insert.addBatch();
+                rollup.add(line.productId(), customerId, rollupTime, line.quantity(), total, lineProfit);
+                revenue += total;
+                profit += lineProfit;
+                units += line.quantity();
+            }
+            insert.executeBatch();
+        }
+        t = lap(stages, "insertTransactions", t);
+
+        StatsEngine.recordSales(conn, lines.size(), revenue, profit);
+        t = lap(stages, "updateSummary", t);
+
+        SalesRollup.apply(conn, rollup);
+        lap(stages, "updateRollups", t);
+        return new Receipt(lines.size(), units, revenue, profit, Collections.unmodifiableMap(stages));
+    }
+
+    // What the customer foreign key checked; H2 has no shared row locks
+    private static void requireCustomer(Connection conn, int customerId) throws SQLException {
+        boolean mySql = "MySQL".equals(conn.getMetaData().getDatabaseProductName());
+        try (PreparedStatement stmt = (mySql ? CUSTOMER_EXISTS : CUSTOMER_EXISTS_FOR_UPDATE).prepare(conn)) {
+            stmt.setInt(1, customerId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) throw new SQLIntegrityConstraintViolationException("Unknown customer #" + customerId, "23000");
+            }
+        }
+    }
+
+    /**
+     * Decrements every product in one batch, in ascending id order so that
+     * two carts locking the same rows always lock them in the same order.
+     * Rolls back (to the savepoint, if given) and throws if any product is short.
+     */
+    private void reserveStock(Connection conn, List<Line> lines, Savepoint savepoint) throws SQLException {
+        Map<Integer, Integer> requested = new TreeMap<>();
+        for (Line line : lines) requested.merge(line.productId(), line.quantity(), Integer::sum);
+
+        List<Integer> ids = new ArrayList<>(requested.keySet());
+        int[] counts;
+        try (PreparedStatement update = DECREMENT_STOCK.prepare(conn)) {
+            for (int id : ids) {
+                int qty = requested.get(id);
+                update.setInt(1, qty);
+                update.setInt(2, id);
+                update.setInt(3, qty);
+                update.addBatch();
+            }
+            counts = update.executeBatch();
+        }
+        List<Integer> failed = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            // Connector/J reports real per-row counts for UPDATE batches; anything
+            // unverifiable (SUCCESS_NO_INFO) is treated as a failed reservation
+            if (counts[i] != 1) failed.add(ids.get(i));
+        }
+        if (failed.isEmpty()) return;
+
+        if (savepoint == null) conn.rollback();
+        else conn.rollback(savepoint);
+        throw new StockConflictException(describeShortfalls(conn, failed, requested));
+    }
+
+    static List<StockConflictException.Shortfall> describeShortfalls(Connection conn, List<Integer> productIds,
+                                                                     Map<Integer, Integer> requested) throws SQLException {
+        Map<Integer, StockConflictException.Shortfall> found = new HashMap<>();
+        SqlQuery query = SqlQuery.named("checkout.shortfalls",
+            "SELECT id, name, quantity FROM product WHERE id IN (" + SqlQuery.inList(productIds.size()) + ")");
+        try (PreparedStatement stmt = query.prepare(conn)) {
+            for (int i = 0; i < SqlQuery.inListSize(productIds.size()); i++) {
+                stmt.setInt(i + 1, productIds.get(Math.min(i, productIds.size() - 1)));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    found.put(id, new StockConflictException.Shortfall(id, rs.getString("name"), requested.get(id), rs.getInt("quantity")));
+                }
+            }
+        }
+        List<StockConflictException.Shortfall> shortfalls = new ArrayList<>();
+        for (int id : productIds) {
+            shortfalls.add(found.getOrDefault(id, new StockConflictException.Shortfall(id, null, requested.get(id), -1)));
+        }
+        return shortfalls;
+    }
+
+    private Map<Integer, Double> loadCostPrices(Connection conn, List<Line> lines) throws SQLException {
+        SqlQuery query = SqlQuery.named("checkout.cost_prices",
+            "SELECT id, COALESCE(cost_price, 0) AS cost_price FROM product WHERE id IN (" + SqlQuery.inList(lines.size()) + ")");
+        Map<Integer, Double> costPrices = new HashMap<>();
+        try (PreparedStatement stmt = query.prepare(conn)) {
+            for (int i = 0; i < SqlQuery.inListSize(lines.size()); i++) {
+                stmt.setInt(i + 1, lines.get(Math.min(i, lines.size() - 1)).productId());
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) costPrices.put(rs.getInt("id"), rs.getDouble("cost_price"));
+            }
+        }
+        return costPrices;
+    }
+
+    private static long lap(Map<String, Double> stages, String stage, long since) {
+        long now = System.nanoTime();
+        stages.put(stage, (now - since) / 1_000_000.0);
+        STAGE_TIMES.get(stage).record(now - since);
+        return now;
+    }
+}
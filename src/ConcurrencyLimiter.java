@@ -0,0 +1,130 @@
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many asynchronous operations run at once, without holding a
+ * thread for the ones that wait: work over the limit is queued and started
+ * as earlier work completes. Sized to the connection pool, it keeps
+ * thousands of sessions from piling onto a handful of connections, where
+ * they would time out waiting inside acquire().
+ *
+ * The queue is bounded too. Work that finds it full fails with
+ * RejectedExecutionException at once, and work still queued when the queue
+ * timeout runs out fails with it then, even while every slot is held by a
+ * stalled call, so a server can answer "busy" instead of slowly.
+ */
+public class ConcurrencyLimiter {
+    private static final LatencyHistogram QUEUE_WAIT = Metrics.timer("inventory_limiter_wait_seconds",
+        "Time limited work waited for a free slot");
+    private static final Metrics.Counter REJECTED = Metrics.counter("inventory_limiter_rejected_total",
+        "Limited work refused because the queue was full or the wait too long");
+
+    public record Stats(int limit, int running, int queued, long started, long rejected) {}
+
+    private record Pending<T>(Supplier<CompletableFuture<T>> work, CompletableFuture<T> result, long queuedAt) {}
+
+    private final int limit;
+    private final int maxQueued;
+    private final Executor expiry;
+    // Insertion-ordered, so the oldest waiter goes first and an expired one is removed without a scan
+    private final LinkedHashSet<Pending<?>> queue = new LinkedHashSet<>();
+    // Waiters handed a slot, started by one thread at a time in a loop: work that completes at once
+    // would otherwise start the next waiter from inside its own completion, one stack frame deeper each time
+    private final Queue<Pending<?>> handedOff = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger starting = new AtomicInteger();
+    private int running;
+    private long started;
+    private long rejected;
+
+    public ConcurrencyLimiter(int limit, int maxQueued, long queueTimeoutMillis) {
+        if (limit < 1 || maxQueued < 0) throw new IllegalArgumentException("Invalid limits: limit=" + limit + " maxQueued=" + maxQueued);
+        this.limit = limit;
+        this.maxQueued = maxQueued;
+        this.expiry = CompletableFuture.delayedExecutor(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        Metrics.gauge("inventory_limiter_running", "Limited work currently running", () -> stats().running());
+        Metrics.gauge("inventory_limiter_queued", "Limited work waiting for a slot", () -> stats().queued());
+    }
+
+    /**
+     * Starts {@code work} now if a slot is free, otherwise once one is. The
+     * slot is held until the future it returns completes.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> work) {
+        Pending<T> pending = new Pending<>(work, new CompletableFuture<>(), System.nanoTime());
+        synchronized (this) {
+            if (running >= limit) {
+                if (queue.size() >= maxQueued) {
+                    rejected++;
+                    REJECTED.increment();
+                    pending.result().completeExceptionally(new RejectedExecutionException("Server busy: " + queue.size() + " requests already waiting"));
+                    return pending.result();
+                }
+                queue.add(pending);
+                expiry.execute(() -> expire(pending));
+                return pending.result();
+            }
+            running++;
+            started++;
+        }
+        start(pending);
+        return pending.result();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(limit, running, queue.size(), started, rejected);
+    }
+
+    private <T> void start(Pending<T> pending) {
+        QUEUE_WAIT.recordSince(pending.queuedAt());
+        CompletableFuture<T> future;
+        try {
+            future = pending.work().get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((value, failure) -> {
+            // Complete only after the slot is passed on, so a caller reacting to the result sees it free
+            finished();
+            if (failure != null) pending.result().completeExceptionally(failure);
+            else pending.result().complete(value);
+        });
+    }
+
+    // Hands the slot to the oldest waiter
+    private void finished() {
+        Pending<?> next;
+        synchronized (this) {
+            if (queue.isEmpty()) {
+                running--;
+                return;
+            }
+            next = queue.removeFirst();
+            started++;
+        }
+        handedOff.add(next);
+        if (starting.getAndIncrement() != 0) return;
+        int missed = 1;
+        do {
+            Pending<?> pending;
+            while ((pending = handedOff.poll()) != null) start(pending);
+            missed = starting.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    // Runs when the queue timeout is up; a no-op if the work has started by then
+    private void expire(Pending<?> pending) {
+        synchronized (this) {
+            if (!queue.remove(pending)) return;
+            rejected++;
+        }
+        REJECTED.increment();
+        pending.result().completeExceptionally(new RejectedExecutionException("Server busy: waited too long for a free slot"));
+    }
+}
@@ -0,0 +1,603 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool used behind DBConnection.
+ * Connections handed out are proxies: close() returns the physical
+ * connection to the pool instead of closing the socket.
+ * Acquire times, statement times by query type and a periodic ping of an
+ * idle connection go to Metrics, so a slow query can be told apart from
+ * a slow network.
+ * Each physical connection keeps its prepared statements open for reuse:
+ * preparing the same SQL again hands back the cached statement with its
+ * parameters cleared, and close() returns it to the cache.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /** Opens a new physical connection. Lets the pool run against any JDBC source (MySQL, an in-process stand-in, ...). */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection connect() throws SQLException;
+    }
+
+    public static class Config {
+        int minSize = 2;
+        int maxSize = 10;
+        long acquireTimeoutMillis = 5000;
+        long validateAfterIdleMillis = 30000;
+        int validationTimeoutSeconds = 2;
+        long leakThresholdMillis = 60000;
+        boolean timeQueries = true;
+        long probeIntervalMillis = 5000;
+        int statementCacheSize = 64;
+
+        public Config minSize(int v) { minSize = v; return this; }
+        public Config maxSize(int v) { maxSize = v; return this; }
+        public Config acquireTimeoutMillis(long v) { acquireTimeoutMillis = v; return this; }
+        public Config validateAfterIdleMillis(long v) { validateAfterIdleMillis = v; return this; }
+        public Config validationTimeoutSeconds(int v) { validationTimeoutSeconds = v; return this; }
+        /** 0 disables leak detection. */
+        public Config leakThresholdMillis(long v) { leakThresholdMillis = v; return this; }
+        /** Times every statement execution into inventory_db_query_seconds. */
+        public Config timeQueries(boolean v) { timeQueries = v; return this; }
+        /** How often an idle connection is pinged for inventory_db_roundtrip_seconds; 0 disables. */
+        public Config probeIntervalMillis(long v) { probeIntervalMillis = v; return this; }
+        /** Prepared statements kept open per connection, least recently used closed first; 0 disables. */
+        public Config statementCacheSize(int v) { statementCacheSize = v; return this; }
+
+        /** Reads inventory.pool.* system properties, keeping the defaults for anything not set. */
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.minSize = Integer.getInteger("inventory.pool.minSize", c.minSize);
+            c.maxSize = Integer.getInteger("inventory.pool.maxSize", c.maxSize);
+            c.acquireTimeoutMillis = Long.getLong("inventory.pool.acquireTimeoutMillis", c.acquireTimeoutMillis);
+            c.validateAfterIdleMillis = Long.getLong("inventory.pool.validateAfterIdleMillis", c.validateAfterIdleMillis);
+            c.validationTimeoutSeconds = Integer.getInteger("inventory.pool.validationTimeoutSeconds", c.validationTimeoutSeconds);
+            c.leakThresholdMillis = Long.getLong("inventory.pool.leakThresholdMillis", c.leakThresholdMillis);
+            c.timeQueries = Boolean.parseBoolean(System.getProperty("inventory.pool.timeQueries", String.valueOf(c.timeQueries)));
+            c.probeIntervalMillis = Long.getLong("inventory.pool.probeIntervalMillis", c.probeIntervalMillis);
+            c.statementCacheSize = Integer.getInteger("inventory.pool.statementCacheSize", c.statementCacheSize);
+            return c;
+        }
+    }
+
+    /** Point-in-time snapshot of pool counters. */
+    public record Stats(int total, int active, int idle, int waiting,
+                        long created, long destroyed, long acquired, long timeouts,
+                        long leaksDetected, double avgAcquireMillis) {
+        @Override
+        public String toString() {
+            return String.format("total=%d active=%d idle=%d waiting=%d created=%d destroyed=%d acquired=%d timeouts=%d leaks=%d avgAcquire=%.2fms",
+                total, active, idle, waiting, created, destroyed, acquired, timeouts, leaksDetected, avgAcquireMillis);
+        }
+    }
+
+    private class PooledEntry {
+        final Connection physical;
+        final StatementCache statements = new StatementCache();
+        volatile long lastUsedMillis = System.currentTimeMillis();
+        PooledEntry(Connection physical) { this.physical = physical; }
+    }
+
+    // Prepared statements of one physical connection by SQL text, in least recently used order
+    private class StatementCache extends LinkedHashMap<String, CachedStatement> {
+        StatementCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+            if (size() <= config.statementCacheSize) return false;
+            STATEMENT_CACHE.get("evicted").increment();
+            eldest.getValue().evict();
+            return true;
+        }
+    }
+
+    private class Lease implements InvocationHandler {
+        final PooledEntry entry;
+        final long acquiredAtMillis = System.currentTimeMillis();
+        final Throwable acquiredBy;
+        final List<Statement> statements = new ArrayList<>();
+        final Set<CachedStatement> borrowed = new HashSet<>();
+        volatile boolean closed;
+        volatile boolean leakReported;
+
+        Lease(PooledEntry entry) {
+            this.entry = entry;
+            this.acquiredBy = config.leakThresholdMillis > 0 ? new Throwable("Connection acquired here") : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    break;
+                default:
+                    break;
+            }
+            if (closed) throw new SQLException("Connection has already been returned to the pool");
+            // Only (sql) and (sql, autoGeneratedKeys) are shared; result set type, concurrency or holdability configure the statement
+            if (name.equals("prepareStatement") && config.statementCacheSize > 0
+                && (args.length == 1 || args.length == 2 && args[1] instanceof Integer)) {
+                return prepareCached(method, args);
+            }
+            try {
+                Object result = method.invoke(entry.physical, args);
+                if (result instanceof Statement stmt) {
+                    synchronized (statements) { statements.add(stmt); }
+                    if (method.getReturnType().isInterface()) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{method.getReturnType()},
+                            new TrackedStatement(stmt, sql, config.timeQueries));
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Object prepareCached(Method method, Object[] args) throws Throwable {
+            String sql = (String) args[0];
+            String key = args.length == 1 ? sql : sql + '\u0000' + args[1];
+            CachedStatement cached;
+            synchronized (entry.statements) {
+                cached = entry.statements.get(key);
+                if (cached != null && !cached.inUse) {
+                    cached.inUse = true;
+                    STATEMENT_CACHE.get("hit").increment();
+                    synchronized (statements) { borrowed.add(cached); }
+                    return cached.proxy;
+                }
+            }
+            STATEMENT_CACHE.get("miss").increment();
+            PreparedStatement stmt;
+            try {
+                stmt = (PreparedStatement) method.invoke(entry.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (cached != null) {
+                // The same SQL is still open in this lease, so this one is an ordinary statement closed on release
+                synchronized (statements) { statements.add(stmt); }
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    new TrackedStatement(stmt, sql, config.timeQueries));
+            }
+            try {
+                cached = new CachedStatement(entry, key, stmt, sql);
+            } catch (SQLException e) {
+                stmt.close();
+                throw e;
+            }
+            cached.inUse = true;
+            synchronized (entry.statements) { entry.statements.put(key, cached); }
+            synchronized (statements) { borrowed.add(cached); }
+            return cached.proxy;
+        }
+    }
+
+    // Counts and times execute*() calls by query; every other call passes straight through
+    private static class TrackedStatement implements InvocationHandler {
+        final Statement target;
+        final String sql;
+        final boolean timed;
+
+        TrackedStatement(Statement target, String sql, boolean timed) {
+            this.target = target;
+            this.sql = sql;
+            this.timed = timed;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            String text = sql != null ? sql : args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+            String name = text == null ? null : SqlQuery.nameOf(text);
+            String query = queryLabel(text);
+            STATEMENT_EXECUTIONS.get(name != null ? name : query).increment();
+            long start = timed ? System.nanoTime() : 0;
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                QUERY_ERRORS.get(query).increment();
+                throw e.getCause();
+            } finally {
+                if (timed) QUERY_TIMES.get(query).recordSince(start);
+            }
+        }
+    }
+
+    // Settings a borrower may change on a shared statement: the first are put back on return, the others cannot be and evict it
+    private static final Set<String> RESET_SETTINGS = Set.of("setFetchSize", "setFetchDirection", "setMaxRows", "setLargeMaxRows",
+        "setQueryTimeout", "setMaxFieldSize");
+    private static final Set<String> EVICTING_SETTINGS = Set.of("setEscapeProcessing", "setCursorName", "setPoolable", "closeOnCompletion");
+
+    // A statement in a connection's cache; close() through the proxy hands it back instead of closing it
+    private class CachedStatement extends TrackedStatement {
+        final PooledEntry owner;
+        final String key;
+        final Object proxy;
+        final int fetchSize;
+        final int fetchDirection;
+        final int maxRows;
+        final int queryTimeout;
+        final int maxFieldSize;
+        boolean inUse;
+        boolean evicted;
+        boolean reconfigured;
+        boolean unshareable;
+
+        CachedStatement(PooledEntry owner, String key, PreparedStatement target, String sql) throws SQLException {
+            super(target, sql, config.timeQueries);
+            this.owner = owner;
+            this.key = key;
+            this.proxy = Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, this);
+            this.fetchSize = target.getFetchSize();
+            this.fetchDirection = target.getFetchDirection();
+            this.maxRows = target.getMaxRows();
+            this.queryTimeout = target.getQueryTimeout();
+            this.maxFieldSize = target.getMaxFieldSize();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    giveBack();
+                    return null;
+                case "isClosed":
+                    synchronized (owner.statements) { return !inUse; }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            synchronized (owner.statements) {
+                if (!inUse) throw new SQLException("Statement is closed");
+            }
+            if (RESET_SETTINGS.contains(method.getName())) reconfigured = true;
+            else if (EVICTING_SETTINGS.contains(method.getName())) unshareable = true;
+            return super.invoke(proxy, method, args);
+        }
+
+        void giveBack() {
+            boolean close;
+            synchronized (owner.statements) {
+                if (!inUse) return;
+                inUse = false;
+                if (unshareable && !evicted) {
+                    owner.statements.remove(key, this);
+                    evicted = true;
+                }
+                close = evicted;
+            }
+            try {
+                if (close) {
+                    target.close();
+                    return;
+                }
+                ResultSet open = target.getResultSet();
+                if (open != null) open.close();
+                ((PreparedStatement) target).clearParameters();
+                target.clearBatch();
+                if (reconfigured) {
+                    reconfigured = false;
+                    target.setMaxRows(maxRows); // first: drivers reject a fetch size above max rows
+                    target.setFetchSize(fetchSize);
+                    target.setFetchDirection(fetchDirection);
+                    target.setQueryTimeout(queryTimeout);
+                    target.setMaxFieldSize(maxFieldSize);
+                }
+            } catch (SQLException e) {
+                synchronized (owner.statements) {
+                    owner.statements.remove(key, this);
+                    evicted = true;
+                }
+                try { target.close(); } catch (SQLException ignored) {}
+            }
+        }
+
+        // Called with the cache locked; a statement still in use is closed when it comes back
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                try { target.close(); } catch (SQLException ignored) {}
+            }
+        }
+    }
+
+    private static final LatencyHistogram ACQUIRE_TIME = Metrics.timer("inventory_db_acquire_seconds",
+        "Time to borrow a pooled connection, including waiting for a free one");
+    private static final Metrics.Counter ACQUIRE_TIMEOUTS = Metrics.counter("inventory_db_acquire_timeouts_total",
+        "Connection requests that gave up waiting");
+    private static final LatencyHistogram ROUND_TRIP = Metrics.timer("inventory_db_roundtrip_seconds",
+        "Ping of an idle connection: network and server overhead without any query work");
+    private static final Metrics.Family<LatencyHistogram> QUERY_TIMES = Metrics.timers("inventory_db_query_seconds",
+        "Statement execution time by verb and first table", "query");
+    private static final Metrics.Family<Metrics.Counter> QUERY_ERRORS = Metrics.counters("inventory_db_query_errors_total",
+        "Statements that failed, by verb and first table", "query");
+    private static final Metrics.Family<Metrics.Counter> STATEMENT_EXECUTIONS = Metrics.counters("inventory_db_statement_executions_total",
+        "Statement executions by SqlQuery name, or by verb and first table for unnamed SQL", "statement");
+    private static final Metrics.Family<Metrics.Counter> STATEMENT_CACHE = Metrics.counters("inventory_db_statement_cache_total",
+        "Prepared statements reused from a connection's cache (hit), prepared anew (miss) or closed to make room (evicted)", "result");
+    private static final Map<String, String> queryLabels = new ConcurrentHashMap<>();
+
+    private final ConnectionFactory factory;
+    private final Config config;
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong acquireNanos = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    public ConnectionPool(ConnectionFactory factory, Config config) {
+        if (config.maxSize < 1 || config.minSize < 0 || config.minSize > config.maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + config.minSize + " max=" + config.maxSize);
+        }
+        this.factory = factory;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        fillToMinimum();
+        long period = Math.max(1000, config.leakThresholdMillis > 0 ? config.leakThresholdMillis / 2 : 10000);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+        if (config.probeIntervalMillis > 0) {
+            housekeeper.scheduleWithFixedDelay(this::probe, config.probeIntervalMillis, config.probeIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        Metrics.gauge("inventory_db_pool_connections", "Open physical connections", total::get);
+        Metrics.gauge("inventory_db_pool_active", "Connections currently borrowed", leases::size);
+        Metrics.gauge("inventory_db_pool_idle", "Connections waiting in the pool", idle::size);
+        Metrics.gauge("inventory_db_pool_waiting", "Threads waiting for a connection", waiting::get);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured acquire timeout.
+     * The caller must close() it to hand it back.
+     */
+    public Connection acquire() throws SQLException {
+        if (shutdown) throw new SQLException("Connection pool is shut down");
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(config.acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                ACQUIRE_TIMEOUTS.increment();
+                ACQUIRE_TIME.recordSince(start);
+                throw new SQLException("Timed out after " + config.acquireTimeoutMillis + "ms waiting for a database connection (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        try {
+            PooledEntry entry = takeValidEntry();
+            Lease lease = new Lease(entry);
+            leases.add(lease);
+            acquired.incrementAndGet();
+            long elapsed = System.nanoTime() - start;
+            acquireNanos.addAndGet(elapsed);
+            ACQUIRE_TIME.record(elapsed);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, lease);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledEntry takeValidEntry() throws SQLException {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - entry.lastUsedMillis < config.validateAfterIdleMillis || isValid(entry)) {
+                return entry;
+            }
+            destroy(entry);
+        }
+        return createEntry();
+    }
+
+    private boolean isValid(PooledEntry entry) {
+        try {
+            return entry.physical.isValid(config.validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledEntry createEntry() throws SQLException {
+        Connection physical = factory.connect();
+        if (physical == null) throw new SQLException("Connection factory returned no connection");
+        total.incrementAndGet();
+        created.incrementAndGet();
+        return new PooledEntry(physical);
+    }
+
+    private void release(Lease lease) {
+        leases.remove(lease);
+        PooledEntry entry = lease.entry;
+        boolean reusable = !shutdown;
+        List<CachedStatement> borrowed;
+        synchronized (lease.statements) {
+            for (Statement stmt : lease.statements) {
+                try { stmt.close(); } catch (SQLException ignored) {}
+            }
+            lease.statements.clear();
+            borrowed = new ArrayList<>(lease.borrowed);
+            lease.borrowed.clear();
+        }
+        for (CachedStatement cached : borrowed) cached.giveBack();
+        try {
+            if (entry.physical.isClosed()) {
+                reusable = false;
+            } else if (!entry.physical.getAutoCommit()) {
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+        if (reusable) {
+            entry.lastUsedMillis = System.currentTimeMillis();
+            idle.offerFirst(entry);
+        } else {
+            destroy(entry);
+        }
+        permits.release();
+    }
+
+    private void destroy(PooledEntry entry) {
+        total.decrementAndGet();
+        destroyed.incrementAndGet();
+        try { entry.physical.close(); } catch (SQLException ignored) {}
+    }
+
+    private void fillToMinimum() {
+        while (!shutdown && total.get() < config.minSize) {
+            try {
+                idle.offerLast(createEntry());
+            } catch (SQLException e) {
+                System.err.println("⚠️ Connection pool could not pre-open a connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void housekeep() {
+        if (config.leakThresholdMillis > 0) {
+            long now = System.currentTimeMillis();
+            for (Lease lease : leases) {
+                if (!lease.leakReported && now - lease.acquiredAtMillis > config.leakThresholdMillis) {
+                    lease.leakReported = true;
+                    leaksDetected.incrementAndGet();
+                    System.err.println("⚠️ Possible connection leak: held for " + (now - lease.acquiredAtMillis) + "ms without close()");
+                    if (lease.acquiredBy != null) lease.acquiredBy.printStackTrace();
+                }
+            }
+        }
+        fillToMinimum();
+    }
+
+    // Pings one idle connection; skipped while every connection is busy, which acquire times already show
+    private void probe() {
+        if (shutdown || !permits.tryAcquire()) return;
+        try {
+            PooledEntry entry = idle.pollFirst();
+            if (entry == null) return;
+            long start = System.nanoTime();
+            boolean valid = isValid(entry);
+            if (valid) {
+                ROUND_TRIP.recordSince(start);
+                entry.lastUsedMillis = System.currentTimeMillis();
+                idle.offerFirst(entry);
+            } else {
+                destroy(entry);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** "select product", "update product", ...: the statement's verb and first table, to label query metrics. */
+    static String queryLabel(String sql) {
+        if (sql == null) return "batch";
+        String label = queryLabels.get(sql);
+        if (label != null) return label;
+        label = describeQuery(sql);
+        // Statements built with a varying number of placeholders would grow this without bound
+        if (queryLabels.size() < 4096) queryLabels.put(sql, label);
+        return label;
+    }
+
+    private static String describeQuery(String sql) {
+        String[] words = sql.trim().toLowerCase(Locale.ROOT).split("[\\s(),;`]+");
+        String verb = words[0].isEmpty() ? "other" : words[0];
+        String keyword = switch (verb) {
+            case "select", "delete" -> "from";
+            case "insert", "replace" -> "into";
+            case "update" -> "update";
+            default -> null;
+        };
+        if (keyword == null) return verb;
+        for (int i = 0; i + 1 < words.length; i++) {
+            if (words[i].equals(keyword) && !words[i + 1].equals("select")) return verb + " " + words[i + 1];
+        }
+        return verb;
+    }
+
+    public Stats getStats() {
+        long count = acquired.get();
+        return new Stats(total.get(), leases.size(), idle.size(), waiting.get(),
+            created.get(), destroyed.get(), count, timeouts.get(), leaksDetected.get(),
+            count == 0 ? 0.0 : acquireNanos.get() / 1_000_000.0 / count);
+    }
+
+    @Override
+    public void close() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Searchable in-memory copy of the customer and supplier tables for
+ * type-ahead pickers, so choosing a customer at checkout no longer loads
+ * the whole list into a dialog. Loaded on first use and again every
+ * inventory.contacts.reloadSeconds; in between, local writes and the
+ * ChangeFeed patch single rows.
+ */
+public class ContactDirectory {
+    private static final SqlQuery LOAD_CUSTOMERS = SqlQuery.named("contacts.customers", "SELECT id, name, email FROM customer");
+    private static final SqlQuery LOAD_SUPPLIERS = SqlQuery.named("contacts.suppliers", "SELECT id, name, contact FROM supplier");
+    private static ContactDirectory shared;
+
+    private final SearchIndex<Customer> customers = new SearchIndex<>(Customer::getId, Customer::getName, Customer::getEmail);
+    private final SearchIndex<Supplier> suppliers = new SearchIndex<>(Supplier::getId, Supplier::getName, Supplier::getContact);
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final long reloadIntervalMillis;
+    private volatile long lastLoadMillis;
+    private volatile boolean loaded;
+
+    public ContactDirectory(long reloadIntervalMillis) {
+        this.reloadIntervalMillis = reloadIntervalMillis;
+    }
+
+    public static synchronized ContactDirectory shared() {
+        if (shared == null) {
+            shared = new ContactDirectory(Long.getLong("inventory.contacts.reloadSeconds", 300) * 1000);
+        }
+        return shared;
+    }
+
+    /** Loads the directory if it never was or is older than the reload interval. Blocking: call it off the EDT. */
+    public void ensureFresh() throws SQLException {
+        if (loaded && System.currentTimeMillis() - lastLoadMillis < reloadIntervalMillis) return;
+        loadLock.lock();
+        try {
+            if (loaded && System.currentTimeMillis() - lastLoadMillis < reloadIntervalMillis) return;
+            reload();
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    public void reload() throws SQLException {
+        List<Customer> freshCustomers = new ArrayList<>();
+        List<Supplier> freshSuppliers = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("Database is not reachable");
+            try (PreparedStatement stmt = LOAD_CUSTOMERS.prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) freshCustomers.add(new Customer(rs.getInt(1), rs.getString(2), rs.getString(3)));
+            }
+            try (PreparedStatement stmt = LOAD_SUPPLIERS.prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) freshSuppliers.add(new Supplier(rs.getInt(1), rs.getString(2), rs.getString(3)));
+            }
+        }
+        customers.replaceAll(freshCustomers);
+        suppliers.replaceAll(freshSuppliers);
+        lastLoadMillis = System.currentTimeMillis();
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int customerCount() {
+        return customers.size();
+    }
+
+    public Customer getCustomer(int id) {
+        return customers.get(id);
+    }
+
+    /** Type-ahead lookup by id, name or email. Safe on the EDT. */
+    public List<Customer> searchCustomers(String query, int limit) {
+        return customers.search(query, limit);
+    }
+
+    /** Type-ahead lookup by id, name or contact. Safe on the EDT. */
+    public List<Supplier> searchSuppliers(String query, int limit) {
+        return suppliers.search(query, limit);
+    }
+
+    public void putCustomer(Customer customer) {
+        if (loaded) customers.put(customer);
+    }
+
+    public void putSupplier(Supplier supplier) {
+        if (loaded) suppliers.put(supplier);
+    }
+
+    /** Rows re-read by the ChangeFeed. */
+    public void applyChanges(ChangeFeed.Changes changes) {
+        if (!loaded) return;
+        for (Customer customer : changes.customers()) customers.put(customer);
+        for (int id : changes.removedCustomers()) customers.remove(id);
+        for (Supplier supplier : changes.suppliers()) suppliers.put(supplier);
+        for (int id : changes.removedSuppliers()) suppliers.remove(id);
+    }
+
+    /** Forces the next ensureFresh() to reload, e.g. after the ChangeFeed lost track. */
+    public void invalidate() {
+        lastLoadMillis = 0;
+    }
+}
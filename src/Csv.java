@@ -0,0 +1,133 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV for the bulk import/export tool: a streaming reader that
+ * holds one record at a time, and a row writer. Quoted fields may contain
+ * commas, doubled quotes and line breaks.
+ */
+public final class Csv {
+    // A record longer than this is almost certainly an unterminated quote swallowing the file
+    private static final int MAX_RECORD_CHARS = 1 << 20;
+
+    private Csv() {}
+
+    public static final class Reader implements Closeable {
+        private final java.io.Reader in;
+        private final char[] buffer = new char[1 << 16];
+        private int pos;
+        private int limit;
+        private int pushback = -2;
+        private long line = 1;
+        private long recordLine;
+        private boolean started;
+
+        public Reader(java.io.Reader in) {
+            this.in = in;
+        }
+
+        /** Next record, or null at end of input. Blank lines are skipped. */
+        public String[] next() throws IOException {
+            int c = read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') c = read(); // byte order mark written by Excel
+            }
+            while (c == '\n' || c == '\r') {
+                if (c == '\n') line++;
+                c = read();
+            }
+            if (c == -1) return null;
+            recordLine = line;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            int length = 0;
+            while (true) {
+                if (c == '"' && field.length() == 0) {
+                    while (true) {
+                        c = read();
+                        if (c == -1) throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                        if (c == '"') {
+                            c = read();
+                            if (c != '"') break;
+                        } else if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                        if (++length > MAX_RECORD_CHARS) throw new IOException("Record on line " + recordLine + " is too long");
+                    }
+                }
+                if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    c = read();
+                    continue;
+                }
+                if (c == '\n' || c == '\r' || c == -1) {
+                    fields.add(field.toString());
+                    if (c == '\r') {
+                        c = read();
+                        if (c == '\n') line++;
+                        else pushback = c;
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                    return fields.toArray(new String[0]);
+                }
+                field.append((char) c);
+                if (++length > MAX_RECORD_CHARS) throw new IOException("Record on line " + recordLine + " is too long");
+                c = read();
+            }
+        }
+
+        /** Line on which the record last returned by next() started. */
+        public long recordLine() {
+            return recordLine;
+        }
+
+        private int read() throws IOException {
+            if (pushback != -2) {
+                int c = pushback;
+                pushback = -2;
+                return c;
+            }
+            if (pos == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[pos++];
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /** Writes one record terminated by a newline; null fields are written empty. */
+    public static void writeRow(Writer out, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) out.write(',');
+            out.write(escape(fields[i]));
+        }
+        out.write('\n');
+    }
+
+    public static String escape(String value) {
+        if (value == null) return "";
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+}
@@ -3,22 +3,92 @@ import java.sql.*;
 public class DBConnection {
     // MySQL configuration with multiple connection string options
     private static final String DB_NAME = "inventorydb";
-    private static final String USER = "root";
-    private static final String PASSWORD = ""; // Default XAMPP password is empty
+    // Also the defaults of tools that take their own JDBC URL, such as BulkTransfer
+    static final String USER = "root";
+    static final String PASSWORD = ""; // Default XAMPP password is empty
+    
+    // Lets Connector/J send a JDBC batch as one multi-row statement (used by checkout)
+    private static final String BATCH_OPTIONS = "&rewriteBatchedStatements=true";
+
+    // Prepares statements on the server, so the ones ConnectionPool keeps open skip parsing and planning on reuse.
+    // The pool's per-connection cache is the only one; each statement in it counts against max_prepared_stmt_count
+    private static final String PREPARE_OPTIONS = "&useServerPrepStmts=true";
     
     // Try multiple connection URLs for different MySQL configurations
     private static final String[] CONNECTION_URLS = {
         // Primary: Modern MySQL connector with all parameters
-        "jdbc:mysql://localhost:3306/" + DB_NAME + "?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC",
+        "jdbc:mysql://localhost:3306/" + DB_NAME + "?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC" + BATCH_OPTIONS + PREPARE_OPTIONS,
         // Fallback 1: Without timezone specification
-        "jdbc:mysql://localhost:3306/" + DB_NAME + "?useSSL=false&allowPublicKeyRetrieval=true",
+        "jdbc:mysql://localhost:3306/" + DB_NAME + "?useSSL=false&allowPublicKeyRetrieval=true" + BATCH_OPTIONS + PREPARE_OPTIONS,
         // Fallback 2: Minimal parameters
         "jdbc:mysql://localhost:3306/" + DB_NAME + "?useSSL=false",
         // Fallback 3: Legacy compatibility mode
         "jdbc:mysql://localhost:3306/" + DB_NAME
     };
 
+    private static ConnectionPool pool;
+    private static String resolvedUrl;
+
+    /**
+     * Borrows a pooled connection. The working URL is picked once, on the
+     * first call; close() hands the connection back to the pool.
+     * Returns null when the database cannot be reached.
+     */
     public static Connection getConnection() {
+        try {
+            ConnectionPool p = getPool();
+            return p == null ? null : p.acquire();
+        } catch (SQLException e) {
+            System.err.println("❌ Could not get a pooled connection: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static synchronized ConnectionPool getPool() {
+        if (pool != null) return pool;
+        if (EmbeddedDatabase.isSelected()) return openEmbeddedPool();
+        String url = resolveConnectionUrl();
+        if (url == null) return null;
+        pool = new ConnectionPool(() -> DriverManager.getConnection(url, USER, PASSWORD), ConnectionPool.Config.fromSystemProperties());
+        return pool;
+    }
+
+    // Installed before the schema is set up, since migrations borrow connections from it on this thread
+    private static ConnectionPool openEmbeddedPool() {
+        ConnectionPool embedded = EmbeddedDatabase.openPool();
+        if (embedded == null) return null;
+        pool = embedded;
+        try (Connection conn = embedded.acquire()) {
+            EmbeddedDatabase.initialize(conn);
+        } catch (SQLException e) {
+            System.err.println("❌ Could not open the embedded database: " + e.getMessage());
+            embedded.close();
+            pool = null;
+        }
+        return pool;
+    }
+
+    /** Installs an externally built pool, e.g. one backed by an in-process JDBC database. */
+    public static synchronized void usePool(ConnectionPool customPool) {
+        if (pool != null && pool != customPool) pool.close();
+        pool = customPool;
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    public static ConnectionPool.Stats getPoolStats() {
+        ConnectionPool p;
+        synchronized (DBConnection.class) { p = pool; }
+        return p == null ? null : p.getStats();
+    }
+
+    private static String resolveConnectionUrl() {
+        if (resolvedUrl != null) return resolvedUrl;
         // Try to load the driver first
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
@@ -30,22 +100,20 @@ public class DBConnection {
         }
         
         // Try each connection URL
-        Connection conn = null;
         SQLException lastException = null;
         
         for (int i = 0; i < CONNECTION_URLS.length; i++) {
-            try {
-                conn = DriverManager.getConnection(CONNECTION_URLS[i], USER, PASSWORD);
+            try (Connection conn = DriverManager.getConnection(CONNECTION_URLS[i], USER, PASSWORD)) {
                 if (conn != null && !conn.isClosed()) {
                     System.out.println("✓ Database connected successfully! (Method " + (i + 1) + ")");
-                    return conn;
+                    resolvedUrl = CONNECTION_URLS[i];
+                    return resolvedUrl;
                 }
             } catch (SQLException e) {
                 lastException = e;
                 // Continue to next connection method
             }
         }
-        
         // If all methods failed, provide detailed error information
         if (lastException != null) {
             System.err.println("❌ Database connection failed after trying all methods!");
@@ -61,6 +129,7 @@ public class DBConnection {
             System.err.println("   4. Import db/inventory.sql into phpMyAdmin");
             System.err.println("   5. Verify database name is 'inventorydb'");
             System.err.println("   6. Check if MySQL root password is empty (default)");
+            System.err.println("   7. Or run without MySQL: -Dinventory.storage=embedded");
         }
         
         return null;
@@ -176,6 +245,9 @@ public class DBConnection {
         System.out.println("    DATABASE CONNECTION TEST");
         System.out.println("===========================================");
         testConnection();
+        ConnectionPool.Stats stats = getPoolStats();
+        if (stats != null) System.out.println("🏊 Pool: " + stats);
+        shutdown();
         System.out.println("===========================================");
     }
 }
\ No newline at end of file
@@ -0,0 +1,159 @@
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs database work off the Event Dispatch Thread and hands the result
+ * back to Swing. Tasks are tagged with a group name so the GUI can cancel
+ * loads it no longer needs (for example when the user switches tabs).
+ * Each task's wait for a worker, its run and the hand-over of its result
+ * to the EDT are timed separately per group, so a slow table can be
+ * pinned on the pool, the database or a busy EDT.
+ */
+public class DataExecutor {
+    private static final Metrics.Family<LatencyHistogram> QUEUE_TIMES = Metrics.timers("inventory_ui_task_queue_seconds",
+        "Time a GUI data task waited for a worker thread", "group");
+    private static final Metrics.Family<LatencyHistogram> WORK_TIMES = Metrics.timers("inventory_ui_task_work_seconds",
+        "Time a GUI data task ran on its worker thread, database calls included", "group");
+    private static final Metrics.Family<LatencyHistogram> EDT_TIMES = Metrics.timers("inventory_ui_task_edt_seconds",
+        "Time from a GUI data task finishing until its result was applied on the EDT", "group");
+
+    private final ExecutorService workers;
+    private final Map<String, List<Task<?>>> inFlight = new ConcurrentHashMap<>();
+    private final List<IntConsumer> busyListeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger running = new AtomicInteger();
+
+    public DataExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "db-worker-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static class Task<T> extends FutureTask<T> {
+        final long submittedAt = System.nanoTime();
+        volatile long startedAt;
+        volatile boolean dropped;
+        Task(Callable<T> work) { super(work); }
+
+        @Override
+        public void run() {
+            startedAt = System.nanoTime();
+            super.run();
+        }
+    }
+
+    /**
+     * Runs {@code work} on a background thread. Exactly one of {@code onSuccess}
+     * or {@code onError} is then invoked on the EDT, unless the task was cancelled.
+     */
+    public <T> Future<T> submit(String group, Callable<T> work, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        List<Task<?>> groupTasks = inFlight.computeIfAbsent(group, _ -> new CopyOnWriteArrayList<>());
+        Task<T> task = new Task<>(work) {
+            @Override
+            protected void done() {
+                groupTasks.remove(this);
+                changeBusy(-1);
+                if (isCancelled()) return;
+                long finishedAt = System.nanoTime();
+                QUEUE_TIMES.get(group).record(startedAt - submittedAt);
+                WORK_TIMES.get(group).record(finishedAt - startedAt);
+                try {
+                    T result = get();
+                    SwingUtilities.invokeLater(() -> {
+                        if (!dropped) onSuccess.accept(result);
+                        EDT_TIMES.get(group).recordSince(finishedAt);
+                    });
+                } catch (ExecutionException e) {
+                    Exception cause = e.getCause() instanceof Exception ex ? ex : new RuntimeException(e.getCause());
+                    SwingUtilities.invokeLater(() -> {
+                        if (!dropped) onError.accept(cause);
+                        EDT_TIMES.get(group).recordSince(finishedAt);
+                    });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        changeBusy(1);
+        groupTasks.add(task);
+        workers.execute(task);
+        return task;
+    }
+
+    /**
+     * Hands the outcome of work that is already running elsewhere (for
+     * example an InventoryService call) to the EDT, counting it as busy
+     * until it completes.
+     */
+    public <T> void attach(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        changeBusy(1);
+        future.whenComplete((result, failure) -> {
+            changeBusy(-1);
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            long finishedAt = System.nanoTime();
+            SwingUtilities.invokeLater(() -> {
+                if (cause == null) onSuccess.accept(result);
+                else onError.accept(cause instanceof Exception ex ? ex : new RuntimeException(cause));
+                EDT_TIMES.get("service").recordSince(finishedAt);
+            });
+        });
+    }
+
+    /**
+     * Like submit(), but first cancels anything still running in the group,
+     * so a newer load supersedes an older one instead of racing it.
+     */
+    public <T> Future<T> submitLatest(String group, Callable<T> work, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        cancel(group);
+        return submit(group, work, onSuccess, onError);
+    }
+
+    /**
+     * Cancels every queued or running task in the given groups. Results of
+     * cancelled tasks are never applied. Returns true if anything was cancelled.
+     */
+    public boolean cancel(String... groups) {
+        boolean any = false;
+        for (String group : groups) {
+            List<Task<?>> tasks = inFlight.get(group);
+            if (tasks == null) continue;
+            for (Task<?> task : tasks) {
+                task.dropped = true;
+                any |= task.cancel(true);
+            }
+        }
+        return any;
+    }
+
+    /** Listener receives the number of in-flight tasks, always on the EDT. */
+    public void addBusyListener(IntConsumer listener) {
+        busyListeners.add(listener);
+    }
+
+    private void changeBusy(int delta) {
+        int now = running.addAndGet(delta);
+        SwingUtilities.invokeLater(() -> {
+            for (IntConsumer l : busyListeners) l.accept(now);
+        });
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
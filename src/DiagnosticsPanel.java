@@ -0,0 +1,189 @@
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live view of Metrics: one row per latency histogram with percentiles in
+ * milliseconds, and the current counters and gauges. Refreshes every
+ * second while visible; Reset shows only what happened since.
+ *
+ * Also measures EDT lag: a background thread posts an empty task every
+ * 100 ms and records how long the EDT took to get to it. Reading the
+ * rows together tells where a slow screen loses its time: the round trip
+ * is the network, query minus round trip is MySQL, task queue is the
+ * worker pool, and EDT lag or task edt is the Swing thread.
+ */
+public class DiagnosticsPanel extends JPanel {
+    private static final LatencyHistogram EDT_LAG = Metrics.timer("inventory_ui_edt_lag_seconds",
+        "Delay before the EDT runs a task posted to it");
+    private static final String[] TIMER_COLUMNS = {"Metric", "Count", "p50 ms", "p90 ms", "p99 ms", "Max ms", "Mean ms"};
+
+    private final DefaultTableModel timerModel = readOnlyModel(TIMER_COLUMNS);
+    private final DefaultTableModel valueModel = readOnlyModel(new String[]{"Counter / Gauge", "Value"});
+    private final JLabel summary = new JLabel(" ");
+    private final ScheduledExecutorService edtProbe;
+    private Map<String, LatencyHistogram.Snapshot> timerBaseline = new HashMap<>();
+    private Map<String, Double> valueBaseline = new HashMap<>();
+
+    public DiagnosticsPanel() {
+        super(new BorderLayout(15, 15));
+        setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        setBackground(new Color(245, 245, 245));
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 4));
+        controls.setBackground(Color.WHITE);
+        controls.setBorder(BorderFactory.createTitledBorder("🩺 Live Diagnostics"));
+        JButton resetBtn = new JButton("🔄 Reset");
+        resetBtn.addActionListener(_ -> reset());
+        JButton exportBtn = new JButton("💾 Export Prometheus...");
+        exportBtn.addActionListener(_ -> export());
+        summary.setFont(new Font("Arial", Font.PLAIN, 12));
+        controls.add(resetBtn);
+        controls.add(exportBtn);
+        controls.add(summary);
+        add(controls, BorderLayout.NORTH);
+
+        JSplitPane tables = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
+            createTable(timerModel, "⏱ Latency (since start or last reset)"),
+            createTable(valueModel, "🔢 Counters and Gauges"));
+        tables.setResizeWeight(0.75);
+        tables.setBorder(null);
+        add(tables, BorderLayout.CENTER);
+
+        edtProbe = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "edt-lag-probe");
+            t.setDaemon(true);
+            return t;
+        });
+        edtProbe.scheduleAtFixedRate(() -> {
+            long posted = System.nanoTime();
+            SwingUtilities.invokeLater(() -> EDT_LAG.recordSince(posted));
+        }, 100, 100, TimeUnit.MILLISECONDS);
+
+        Timer refresh = new Timer(1000, _ -> {
+            if (isShowing()) refresh();
+        });
+        refresh.start();
+    }
+
+    /** Stops the EDT lag probe. */
+    public void close() {
+        edtProbe.shutdownNow();
+    }
+
+    private void refresh() {
+        List<Object[]> rows = new ArrayList<>();
+        Map<String, LatencyHistogram.Snapshot> byName = new HashMap<>();
+        for (Metrics.Timer timer : Metrics.allTimers()) {
+            String name = timer.displayName();
+            LatencyHistogram.Snapshot snapshot = timer.histogram().snapshot();
+            LatencyHistogram.Snapshot baseline = timerBaseline.get(name);
+            if (baseline != null) snapshot = snapshot.minus(baseline);
+            byName.put(name, snapshot);
+            if (snapshot.count() == 0) continue;
+            rows.add(new Object[]{name, snapshot.count(), millis(snapshot.percentileNanos(0.5)), millis(snapshot.percentileNanos(0.9)),
+                millis(snapshot.percentileNanos(0.99)), millis(snapshot.maxNanos()), millis(snapshot.meanNanos())});
+        }
+        update(timerModel, rows);
+
+        rows = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : Metrics.values().entrySet()) {
+            Double baseline = valueBaseline.get(entry.getKey());
+            rows.add(new Object[]{entry.getKey(), baseline == null ? entry.getValue() : entry.getValue() - baseline});
+        }
+        update(valueModel, rows);
+
+        summary.setText("Round trip p50 " + percentile(byName, "inventory_db_roundtrip_seconds", 0.5)
+            + " · Acquire p99 " + percentile(byName, "inventory_db_acquire_seconds", 0.99)
+            + " · EDT lag p99 " + percentile(byName, "inventory_ui_edt_lag_seconds", 0.99));
+    }
+
+    private void reset() {
+        timerBaseline = new HashMap<>();
+        for (Metrics.Timer timer : Metrics.allTimers()) timerBaseline.put(timer.displayName(), timer.histogram().snapshot());
+        // Gauges are levels, not totals, so only counters start again from zero
+        valueBaseline = new HashMap<>(Metrics.values());
+        valueBaseline.keySet().removeIf(name -> !name.endsWith("_total") && !name.contains("_total{"));
+        refresh();
+    }
+
+    private void export() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("inventory-metrics.prom"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            Metrics.writePrometheus(chooser.getSelectedFile().toPath());
+            summary.setText("✅ Exported to " + chooser.getSelectedFile().getName());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "❌ Export failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private static String percentile(Map<String, LatencyHistogram.Snapshot> byName, String name, double quantile) {
+        LatencyHistogram.Snapshot snapshot = byName.get(name);
+        if (snapshot == null || snapshot.count() == 0) return "–";
+        return String.format("%.2f ms", snapshot.percentileNanos(quantile) / 1_000_000.0);
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    // Updates cells in place while the rows stay the same, so selection and sorting survive a refresh
+    private static void update(DefaultTableModel model, List<Object[]> rows) {
+        boolean sameRows = model.getRowCount() == rows.size();
+        for (int i = 0; sameRows && i < rows.size(); i++) sameRows = rows.get(i)[0].equals(model.getValueAt(i, 0));
+        if (!sameRows) {
+            model.setRowCount(0);
+            for (Object[] row : rows) model.addRow(row);
+            return;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            for (int c = 1; c < row.length; c++) {
+                if (!row[c].equals(model.getValueAt(i, c))) model.setValueAt(row[c], i, c);
+            }
+        }
+    }
+
+    private static DefaultTableModel readOnlyModel(String[] columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return column == 0 ? String.class : Number.class;
+            }
+        };
+    }
+
+    private static JScrollPane createTable(DefaultTableModel model, String title) {
+        JTable table = new JTable(model);
+        table.setRowHeight(25);
+        table.setFont(new Font("Arial", Font.PLAIN, 12));
+        table.setAutoCreateRowSorter(true);
+        table.getTableHeader().setBackground(new Color(52, 73, 94));
+        table.getTableHeader().setForeground(Color.WHITE);
+        table.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
+        DefaultTableCellRenderer rightRenderer = new DefaultTableCellRenderer();
+        rightRenderer.setHorizontalAlignment(JLabel.RIGHT);
+        for (int i = 1; i < model.getColumnCount(); i++) table.getColumnModel().getColumn(i).setCellRenderer(rightRenderer);
+        table.getColumnModel().getColumn(0).setPreferredWidth(360);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(BorderFactory.createTitledBorder(title));
+        return scrollPane;
+    }
+}
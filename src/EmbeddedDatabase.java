@@ -0,0 +1,118 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.zip.CRC32;
+
+/**
+ * File-backed H2 database inside the application process, for single-store
+ * deployments and for running everything without a MySQL server. Selected
+ * with -Dinventory.storage=embedded; the files live at
+ * inventory.embedded.path (default data/inventorydb).
+ *
+ * H2 runs in MySQL mode, so the application's SQL works unchanged. A new
+ * database starts from the original four tables and SchemaMigrator brings
+ * it to the current layout, the same way an old MySQL database is upgraded.
+ * The GUI and InventoryServer on one machine can share the files: whichever
+ * opens them first serves the other over a local socket.
+ *
+ * Usage: java EmbeddedDatabase
+ * Creates or upgrades the database and prints what it holds.
+ */
+public class EmbeddedDatabase {
+    private static final String USER = "sa";
+    private static final String PASSWORD = "";
+
+    public static boolean isSelected() {
+        return "embedded".equalsIgnoreCase(System.getProperty("inventory.storage", "mysql"));
+    }
+
+    public static Path path() {
+        return Path.of(System.getProperty("inventory.embedded.path", "data/inventorydb")).toAbsolutePath();
+    }
+
+    public static String url() {
+        // H2 closes the files from its own shutdown hook; journaled sales it cuts off are replayed on the next start
+        return "jdbc:h2:file:" + path() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;AUTO_SERVER=TRUE";
+    }
+
+    /** A pool over the database files, or null when the H2 driver is missing. Call initialize() before handing it out. */
+    static ConnectionPool openPool() {
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            System.err.println("❌ H2 JDBC driver not found!");
+            System.err.println("📁 Please put h2-2.2.224.jar on the classpath, or run without -Dinventory.storage=embedded");
+            return null;
+        }
+        String url = url();
+        System.out.println("✓ Using embedded database " + path());
+        return new ConnectionPool(() -> DriverManager.getConnection(url, USER, PASSWORD), ConnectionPool.Config.fromSystemProperties());
+    }
+
+    /** Creates the base tables of a new database, then applies every migration. */
+    static void initialize(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS product (" +
+                "id INT PRIMARY KEY, " +
+                "name VARCHAR(100) NOT NULL, " +
+                "quantity INT NOT NULL, " +
+                "price DOUBLE NOT NULL)");
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS customer (" +
+                "id INT PRIMARY KEY, " +
+                "name VARCHAR(100) NOT NULL, " +
+                "email VARCHAR(100) UNIQUE)");
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS supplier (" +
+                "id INT PRIMARY KEY, " +
+                "name VARCHAR(100) NOT NULL, " +
+                "contact VARCHAR(50))");
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS `transaction` (" +
+                "id INT PRIMARY KEY AUTO_INCREMENT, " +
+                "product_id INT NOT NULL, " +
+                "customer_id INT NOT NULL, " +
+                "quantity INT NOT NULL, " +
+                "date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+        SchemaMigrator.migrate(conn);
+        registerFunctions(conn);
+    }
+
+    /** MySQL functions the application uses that H2 lacks, backed by the static methods below. */
+    static void registerFunctions(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE ALIAS IF NOT EXISTS CRC32 FOR 'EmbeddedDatabase.crc32'");
+        }
+    }
+
+    /** MySQL's CRC32() of the UTF-8 bytes. */
+    public static long crc32(String text) {
+        if (text == null) return 0;
+        CRC32 crc = new CRC32();
+        crc.update(text.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("inventory.storage", "embedded");
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) System.exit(1);
+            System.out.println("📋 Schema version " + SchemaMigrator.currentVersion(conn) + " at " + path());
+            try (Statement stmt = conn.createStatement()) {
+                for (String table : new String[]{"product", "customer", "supplier", "`transaction`"}) {
+                    try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                        rs.next();
+                        System.out.println("   " + table.replace("`", "") + ": " + rs.getLong(1) + " rows");
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Embedded database failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+}
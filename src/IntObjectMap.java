@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing hash map from primitive int keys to values. Avoids the
+ * Integer boxing and entry objects of HashMap for large id-keyed caches.
+ * Not thread-safe; callers synchronize.
+ */
+public class IntObjectMap<V> {
+    private static final int FREE = 0;
+    private static final int USED = 1;
+    private static final int REMOVED = 2;
+
+    private int[] keys;
+    private Object[] values;
+    private byte[] states;
+    private int size;
+    private int occupied; // used + removed slots, drives resizing
+
+    public IntObjectMap() {
+        this(16);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        states = new byte[capacity];
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(int key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            if (states[i] == FREE) return -1;
+            if (states[i] == USED && keys[i] == key) return i;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    public boolean containsKey(int key) {
+        return indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if ((occupied + 1) * 4 >= keys.length * 3) rehash(size * 4 >= keys.length ? keys.length * 2 : keys.length);
+        int mask = keys.length - 1;
+        int firstRemoved = -1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            if (states[i] == FREE) {
+                int slot = firstRemoved >= 0 ? firstRemoved : i;
+                if (firstRemoved < 0) occupied++;
+                keys[slot] = key;
+                values[slot] = value;
+                states[slot] = USED;
+                size++;
+                return null;
+            }
+            if (states[i] == REMOVED) {
+                if (firstRemoved < 0) firstRemoved = i;
+            } else if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = indexOf(key);
+        if (i < 0) return null;
+        V old = (V) values[i];
+        values[i] = null;
+        states[i] = REMOVED;
+        size--;
+        return old;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        Arrays.fill(states, (byte) FREE);
+        size = 0;
+        occupied = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (int i = 0; i < states.length; i++) {
+            if (states[i] == USED) action.accept((V) values[i]);
+        }
+    }
+
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size);
+        forEachValue(list::add);
+        return list;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        byte[] oldStates = states;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        states = new byte[capacity];
+        size = 0;
+        occupied = 0;
+        for (int i = 0; i < oldStates.length; i++) {
+            if (oldStates[i] == USED) {
+                @SuppressWarnings("unchecked")
+                V value = (V) oldValues[i];
+                put(oldKeys[i], value);
+            }
+        }
+    }
+}
@@ -6,51 +6,130 @@ import java.sql.*;
 import java.text.DecimalFormat;
 public class InventoryGUI extends JFrame {
     private JTabbedPane tabbedPane;
-    private DefaultTableModel productTableModel, customerTableModel, supplierTableModel, transactionTableModel;
+    private KeyedTableModel productTableModel, customerTableModel, supplierTableModel;
+    private TransactionHistoryModel transactionTableModel;
     private JTable productTable, customerTable, supplierTable, transactionTable;
     private JLabel statsProducts, statsCustomers, statsSuppliers, statsTransactions;
     private JLabel totalRevenue, totalProfit;
-    private DecimalFormat currencyFormat;
+    // DecimalFormat is not thread-safe and rows are now formatted on worker threads
+    private static final ThreadLocal<DecimalFormat> CURRENCY_FORMAT = ThreadLocal.withInitial(() -> new DecimalFormat("₹#,##0.00"));
+    private static final String READY_STATUS = "✅ System Ready - Data loaded successfully";
     private JLabel statusLabel;
     private DefaultTableModel multiCartTableModel;
     private JLabel multiCartSubtotalLabel, multiCartGrandTotalLabel;
     private java.util.List<SimpleCartItem> shoppingCart = new java.util.ArrayList<>();
-    private JComboBox<String> cartProductCombo;
-    private JComboBox<String> stockProductCombo;
+    private TypeAheadField<Product> cartProductField;
+    private TypeAheadField<Product> stockProductField;
+    private final InventoryService inventoryService = InventoryService.shared();
+    private final ProductCatalog catalog = inventoryService.getCatalog();
+    private KeyedTableModel stockTableModel;
+    private DefaultTableModel reportPeriodModel, reportProductModel, reportCustomerModel;
+    private JComboBox<SalesRollup.Range> reportRangeCombo;
+    private JLabel reportStatus;
+    private DefaultTableModel reorderTableModel;
+    private JLabel reorderStatus;
+    private JProgressBar busyBar;
+    private final DataExecutor dataExecutor = new DataExecutor(Integer.getInteger("inventory.executor.threads", 4));
+    private final RefreshScheduler refreshScheduler = new RefreshScheduler(Integer.getInteger("inventory.refresh.debounceMillis", 150), 1000);
+    private final ChangeFeed changeFeed = new ChangeFeed(catalog, Long.getLong("inventory.changes.pollMillis", 1000));
+    private final ReplenishmentEngine replenishment = ReplenishmentEngine.shared();
+    private final ContactDirectory contacts = ContactDirectory.shared();
+    private int lastSelectedTab = 0;
+    private final java.util.Set<Integer> staleTabs = new java.util.HashSet<>();
+    // Panels of tabs not opened yet; the tab shows an empty placeholder until then
+    private final java.util.Map<Integer, java.util.function.Supplier<JPanel>> pendingTabs = new java.util.HashMap<>();
+    private boolean databaseReady;
+    private static final long LAUNCHED = System.nanoTime();
+    private static final Metrics.Family<LatencyHistogram> STARTUP_TIMES = Metrics.timers("inventory_ui_startup_seconds",
+        "Time from launch until each startup phase completed", "phase");
+    private static final Metrics.Family<LatencyHistogram> TAB_BUILD_TIMES = Metrics.timers("inventory_ui_tab_build_seconds",
+        "Time to build a tab's panel when it is first opened", "tab");
+    private static final java.util.Set<String> loggedPhases = java.util.concurrent.ConcurrentHashMap.newKeySet();
+    private static java.util.concurrent.CompletableFuture<Boolean> warmUp;
     public InventoryGUI() {
-        currencyFormat = new DecimalFormat("₹#,##0.00");
         setTitle("₹ Inventory Management System");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(1400, 900);
         setLocationRelativeTo(null);
-        try { UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel"); } catch (Exception e) {}
-        testDatabaseConnection();
+        // main() has normally installed it already, and installing it again costs as much as building a tab
+        if (!(UIManager.getLookAndFeel() instanceof javax.swing.plaf.nimbus.NimbusLookAndFeel)) {
+            try { UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel"); } catch (Exception e) {}
+        }
         initComponents();
+        registerRefreshLoaders();
+        Metrics.startFileExport();
+        startupPhase("window built");
+        dataExecutor.attach(warmUpDatabase(), connected -> {
+            if (connected) onDatabaseReady();
+            else connectionFailed(null);
+        }, this::connectionFailed);
+    }
+    /**
+     * Opens the pool and reads the schema on a background thread. main()
+     * starts it before Swing is initialized, so connecting to MySQL and
+     * building the window overlap. Completes with false if there is no
+     * connection at all.
+     */
+    static synchronized java.util.concurrent.CompletableFuture<Boolean> warmUpDatabase() {
+        if (warmUp == null) {
+            warmUp = java.util.concurrent.CompletableFuture.supplyAsync(() -> {
+                try (Connection conn = DBConnection.getConnection()) {
+                    if (conn == null) return false;
+                    SchemaCapabilities.get(conn);
+                } catch (SQLException e) {
+                    throw new java.util.concurrent.CompletionException(e);
+                }
+                startupPhase("database ready");
+                return true;
+            }, task -> {
+                Thread t = new Thread(task, "db-warmup");
+                t.setDaemon(true);
+                t.start();
+            });
+        }
+        return warmUp;
+    }
+    // Logs how long after launch a phase completed; later calls for the same phase are ignored
+    static void startupPhase(String phase) {
+        if (!loggedPhases.add(phase)) return;
+        long nanos = System.nanoTime() - LAUNCHED;
+        STARTUP_TIMES.get(phase).record(nanos);
+        System.out.printf("⏱ Startup: %s after %d ms%n", phase, nanos / 1_000_000);
+    }
+    private void onDatabaseReady() {
+        System.out.println("✓ Database connected successfully!");
+        databaseReady = true;
+        changeFeed.addListener(changes -> SwingUtilities.invokeLater(() -> applyChanges(changes)));
+        changeFeed.start();
+        replenishment.addListener(plan -> SwingUtilities.invokeLater(() -> showReorderPlan(plan)));
+        replenishment.start();
+        SalesArchive.shared().start();
+        // The cart's pickers search these; having them in memory before the first sale keeps it from waiting on a load
+        dataExecutor.submit("warm-up", () -> {
+            catalog.ensureFresh();
+            contacts.ensureFresh();
+            return null;
+        }, _ -> startupPhase("catalog loaded"), e -> System.err.println("Error preloading catalog: " + e.getMessage()));
         loadAllData();
+        refreshScheduler.flush();
     }
-    private void testDatabaseConnection() {
-        try {
-            Connection conn = DBConnection.getConnection();
-            if (conn == null) {
-                JOptionPane.showMessageDialog(null, 
-                    "❌ Cannot connect to database!\n\n" +
-                    "Please ensure:\n" +
-                    "1. MySQL is running (XAMPP)\n" +
-                    "2. Database 'inventorydb' exists\n" +
-                    "3. Import db/inventory.sql\n" +
-                    "4. MySQL JDBC driver is in lib folder", 
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-                System.exit(1);
-            } else {
-                conn.close();
-                System.out.println("✓ Database connected successfully!");
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(null, 
+    private void connectionFailed(Exception e) {
+        if (e == null) {
+            JOptionPane.showMessageDialog(this, 
+                "❌ Cannot connect to database!\n\n" +
+                "Please ensure:\n" +
+                "1. MySQL is running (XAMPP)\n" +
+                "2. Database 'inventorydb' exists\n" +
+                "3. Import db/inventory.sql\n" +
+                "4. MySQL JDBC driver is in lib folder\n\n" +
+                "Or run without MySQL: -Dinventory.storage=embedded", 
+                "Database Error", JOptionPane.ERROR_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, 
                 "❌ Database Error: " + e.getMessage(), 
                 "Database Error", JOptionPane.ERROR_MESSAGE);
-            System.exit(1);
         }
+        System.exit(1);
     }
     private void initComponents() {
         setLayout(new BorderLayout());
@@ -80,15 +159,23 @@ public class InventoryGUI extends JFrame {
         tabbedPane.setFont(new Font("Arial", Font.BOLD, 14));
         
         tabbedPane.addTab("★" + " Financial Dashboard", createEnhancedDashboard());
-        tabbedPane.addTab("▒" + " Products", createEnhancedProductPanel());
-        tabbedPane.addTab("█" + " Stock Management", createStockManagementPanel());
-        tabbedPane.addTab("☺" + " Customers", createCustomerPanel());
-        tabbedPane.addTab("⚙" + " Suppliers", createSupplierPanel());
-        tabbedPane.addTab("🛒 Shopping Cart", createShoppingCartPanel());
-        tabbedPane.addTab("$" + " Transactions", createSimpleTransactionPanel());
+        addLazyTab("▒" + " Products", this::createEnhancedProductPanel);
+        addLazyTab("█" + " Stock Management", this::createStockManagementPanel);
+        addLazyTab("☺" + " Customers", this::createCustomerPanel);
+        addLazyTab("⚙" + " Suppliers", this::createSupplierPanel);
+        addLazyTab("🛒 Shopping Cart", this::createShoppingCartPanel);
+        addLazyTab("$" + " Transactions", this::createSimpleTransactionPanel);
+        addLazyTab("📈 Reports", this::createReportsPanel);
+        addLazyTab("🩺 Diagnostics", DiagnosticsPanel::new);
         
         tabbedPane.addChangeListener(e -> {
             int selectedIndex = tabbedPane.getSelectedIndex();
+            // Loads for the tab being left are no longer worth waiting for
+            if (dataExecutor.cancel(loadGroupsForTab(lastSelectedTab))) staleTabs.add(lastSelectedTab);
+            lastSelectedTab = selectedIndex;
+            if (pendingTabs.containsKey(selectedIndex)) buildTab(selectedIndex);
+            else if (staleTabs.remove(selectedIndex)) reloadTab(selectedIndex);
+            if (!databaseReady) return;
             if (selectedIndex == 5) refreshShoppingCartProducts();
             else if (selectedIndex == 2) refreshStockManagementProducts();
         });
@@ -96,11 +183,26 @@ public class InventoryGUI extends JFrame {
         add(tabbedPane, BorderLayout.CENTER);
         createStatusBar();
     }
+    private void addLazyTab(String title, java.util.function.Supplier<JPanel> panel) {
+        pendingTabs.put(tabbedPane.getTabCount(), panel);
+        tabbedPane.addTab(title, new JPanel());
+    }
+    // Swaps the placeholder for the real panel and loads what it shows
+    private void buildTab(int tabIndex) {
+        long started = System.nanoTime();
+        tabbedPane.setComponentAt(tabIndex, pendingTabs.remove(tabIndex).get());
+        String title = tabbedPane.getTitleAt(tabIndex).replaceAll("^[^\\p{L}]+", "");
+        TAB_BUILD_TIMES.get(title).recordSince(started);
+        System.out.printf("⏱ Built %s tab in %d ms%n", title, (System.nanoTime() - started) / 1_000_000);
+        staleTabs.remove(tabIndex);
+        if (tabIndex == 2 && replenishment.getLatest() != null) showReorderPlan(replenishment.getLatest());
+        reloadTab(tabIndex);
+    }
     private void createStatusBar() {
         JPanel statusBar = new JPanel(new BorderLayout());
         statusBar.setBorder(BorderFactory.createLoweredBevelBorder());
         statusBar.setBackground(new Color(240, 240, 240));
-        statusLabel = new JLabel("✅ System Ready - Data loaded successfully");
+        statusLabel = new JLabel(READY_STATUS);
         statusLabel.setBorder(BorderFactory.createEmptyBorder(2, 10, 2, 10));
         statusLabel.setFont(new Font("Arial", Font.PLAIN, 11));
         JLabel timeLabel = new JLabel();
@@ -109,10 +211,83 @@ public class InventoryGUI extends JFrame {
         javax.swing.Timer timeTimer = new javax.swing.Timer(1000, _ -> 
             timeLabel.setText("🕐 " + java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss"))));
         timeTimer.start();
+        busyBar = new JProgressBar();
+        busyBar.setIndeterminate(true);
+        busyBar.setPreferredSize(new Dimension(120, 14));
+        busyBar.setVisible(false);
+        JPanel busyPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 2));
+        busyPanel.setOpaque(false);
+        busyPanel.add(busyBar);
+        dataExecutor.addBusyListener(inFlight -> {
+            busyBar.setVisible(inFlight > 0);
+            statusLabel.setText(inFlight > 0 ? "⏳ Working... (" + inFlight + " database task" + (inFlight == 1 ? "" : "s") + ")" : READY_STATUS);
+        });
         statusBar.add(statusLabel, BorderLayout.WEST);
+        statusBar.add(busyPanel, BorderLayout.CENTER);
         statusBar.add(timeLabel, BorderLayout.EAST);
         add(statusBar, BorderLayout.SOUTH);
     }
+    private String[] loadGroupsForTab(int tabIndex) {
+        switch (tabIndex) {
+            case 0: return new String[]{"stats"};
+            case 1: return new String[]{"products"};
+            case 2: return new String[]{"stock", "stock-combo"};
+            case 3: return new String[]{"customers"};
+            case 4: return new String[]{"suppliers"};
+            case 5: return new String[]{"cart-combo"};
+            case 6: return new String[0]; // history pages are small and keep the scroll position
+            case 7: return new String[]{"reports"};
+            default: return new String[0];
+        }
+    }
+    private void reloadTab(int tabIndex) {
+        switch (tabIndex) {
+            case 0: refreshScheduler.request(RefreshScheduler.Dataset.STATS); break;
+            case 1: refreshScheduler.request(RefreshScheduler.Dataset.PRODUCTS); break;
+            case 2: refreshScheduler.request(RefreshScheduler.Dataset.STOCK); break;
+            case 3: refreshScheduler.request(RefreshScheduler.Dataset.CUSTOMERS); break;
+            case 4: refreshScheduler.request(RefreshScheduler.Dataset.SUPPLIERS); break;
+            case 6: refreshScheduler.request(RefreshScheduler.Dataset.TRANSACTIONS); break;
+            case 7: refreshScheduler.request(RefreshScheduler.Dataset.REPORTS); break;
+            default: break;
+        }
+    }
+    private void registerRefreshLoaders() {
+        registerLoader(RefreshScheduler.Dataset.PRODUCTS, 1, this::loadProductData);
+        registerLoader(RefreshScheduler.Dataset.STOCK, 2, this::loadStockData);
+        // The pickers only exist once their tabs are built and skip themselves until then
+        registerLoader(RefreshScheduler.Dataset.PRODUCT_COMBOS, 0, () -> {
+            refreshShoppingCartProducts();
+            refreshStockManagementProducts();
+        });
+        registerLoader(RefreshScheduler.Dataset.CUSTOMERS, 3, this::loadCustomerData);
+        registerLoader(RefreshScheduler.Dataset.SUPPLIERS, 4, this::loadSupplierData);
+        registerLoader(RefreshScheduler.Dataset.TRANSACTIONS, 6, this::loadTransactionData);
+        registerLoader(RefreshScheduler.Dataset.STATS, 0, this::updateEnhancedStats);
+        registerLoader(RefreshScheduler.Dataset.REPORTS, 7, this::loadReportData);
+    }
+    // Nothing loads before the database is up or into a tab that has not been built; both load in full when they are
+    private void registerLoader(RefreshScheduler.Dataset dataset, int tabIndex, Runnable loader) {
+        refreshScheduler.register(dataset, () -> {
+            if (databaseReady && !pendingTabs.containsKey(tabIndex)) loader.run();
+        });
+    }
+    private static String formatCurrency(double amount) {
+        return CURRENCY_FORMAT.get().format(amount);
+    }
+    // Swaps the whole row set in and fires a single change event instead of one per addRow()
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void replaceRows(DefaultTableModel model, java.util.List<Object[]> rows) {
+        java.util.Vector data = model.getDataVector();
+        data.clear();
+        for (Object[] row : rows) {
+            data.add(new java.util.Vector<>(java.util.Arrays.asList(row)));
+        }
+        model.fireTableDataChanged();
+    }
+    private void showDatabaseError(Exception e) {
+        JOptionPane.showMessageDialog(this, "❌ Database Error: " + e.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
+    }
     private JPanel createEnhancedDashboard() {
         JPanel panel = new JPanel(new BorderLayout(15, 15));
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
@@ -231,24 +406,24 @@ public class InventoryGUI extends JFrame {
                     if (confirm != JOptionPane.YES_OPTION) return;
                 }
                 double profitMargin = ((price - cost) / cost) * 100;
-                try (Connection conn = DBConnection.getConnection();
-                     PreparedStatement stmt = conn.prepareStatement("INSERT INTO product (id, name, quantity, price, cost_price) VALUES (?, ?, ?, ?, ?) " +
-                         "ON DUPLICATE KEY UPDATE name=VALUES(name), quantity=VALUES(quantity), price=VALUES(price), cost_price=VALUES(cost_price)")) {
-                    stmt.setInt(1, id); stmt.setString(2, name); stmt.setInt(3, qty); stmt.setDouble(4, price); stmt.setDouble(5, cost);
-                    stmt.executeUpdate();
+                addBtn.setEnabled(false);
+                dataExecutor.attach(inventoryService.saveProduct(new Product(id, name, qty, price, cost)), _ -> {
+                    addBtn.setEnabled(true);
                     JOptionPane.showMessageDialog(this, String.format("✅ Product added/updated!\n\nID: %d | Name: %s\nStock: %d | Cost: %s | Price: %s\nProfit Margin: %.1f%%", 
-                        id, name, qty, currencyFormat.format(cost), currencyFormat.format(price), profitMargin), "Success", JOptionPane.INFORMATION_MESSAGE);
+                        id, name, qty, formatCurrency(cost), formatCurrency(price), profitMargin), "Success", JOptionPane.INFORMATION_MESSAGE);
                     idField.setText(""); nameField.setText(""); qtyField.setText(""); costField.setText(""); priceField.setText("");
                     profitLabel.setText("Profit Margin: 0.0%");
                     profitLabel.setForeground(new Color(46, 204, 113));
-                    loadProductData();
-                    updateEnhancedStats();
-                }
+                    // An upsert may rename a product, which the transaction history shows
+                    refreshAfterWrite(RefreshScheduler.Dataset.PRODUCTS, RefreshScheduler.Dataset.STOCK,
+                        RefreshScheduler.Dataset.PRODUCT_COMBOS, RefreshScheduler.Dataset.TRANSACTIONS);
+                }, ex -> {
+                    addBtn.setEnabled(true);
+                    showDatabaseError(ex);
+                    ex.printStackTrace();
+                });
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(this, "❌ Invalid input! Please enter valid numbers.", "Input Error", JOptionPane.ERROR_MESSAGE);
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this, "❌ Database Error: " + ex.getMessage(), "Database Error", JOptionPane.ERROR_MESSAGE);
-                ex.printStackTrace();
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "❌ Error: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 ex.printStackTrace();
@@ -256,7 +431,7 @@ public class InventoryGUI extends JFrame {
         });
         panel.add(formPanel, BorderLayout.NORTH);
         String[] columns = {"ID", "Product Name", "Stock Qty", "Cost Price", "Selling Price", "Profit Margin", "Status"};
-        productTableModel = new DefaultTableModel(columns, 0);
+        productTableModel = new KeyedTableModel(columns, KeyedTableModel.byKey());
         productTable = new JTable(productTableModel);
         productTable.setRowHeight(35);
         productTable.setFont(new Font("Arial", Font.PLAIN, 12));
@@ -285,13 +460,8 @@ public class InventoryGUI extends JFrame {
         panel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
         panel.setBackground(new Color(245, 245, 245));
         
-        String[] columns = {"Sale ID", "Product", "Customer", "Qty", "Cost Price", "Unit Price", "Total", "Profit", "Date & Time"};
-        transactionTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        transactionTableModel = new TransactionHistoryModel(dataExecutor, InventoryGUI::formatCurrency,
+            Integer.getInteger("inventory.history.pageSize", 100), Integer.getInteger("inventory.history.windowRows", 500));
         transactionTable = new JTable(transactionTableModel);
         transactionTable.setRowHeight(35);
         transactionTable.setFont(new Font("Arial", Font.PLAIN, 12));
@@ -334,18 +504,163 @@ public class InventoryGUI extends JFrame {
         scrollPane.setBorder(BorderFactory.createTitledBorder("💳 Complete Transaction History"));
         panel.add(scrollPane, BorderLayout.CENTER);
         
-        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        // Fetch the next page when the user scrolls near either end of the loaded window
+        int prefetchRows = Math.max(10, Integer.getInteger("inventory.history.pageSize", 100) / 4);
+        scrollPane.getVerticalScrollBar().addAdjustmentListener(_ -> {
+            Rectangle view = scrollPane.getViewport().getViewRect();
+            int rowHeight = transactionTable.getRowHeight();
+            int firstVisible = view.y / rowHeight;
+            int lastVisible = (view.y + view.height) / rowHeight;
+            if (lastVisible >= transactionTableModel.getRowCount() - prefetchRows) transactionTableModel.loadOlder();
+            else if (firstVisible <= prefetchRows) transactionTableModel.loadNewer();
+        });
+        // Keep the rows under the viewport still when the window grows or shrinks at the top
+        transactionTableModel.setTopRowsListener(rows -> SwingUtilities.invokeLater(() -> {
+            JViewport viewport = scrollPane.getViewport();
+            Point position = viewport.getViewPosition();
+            position.y = Math.max(0, position.y + rows * transactionTable.getRowHeight());
+            viewport.setViewPosition(position);
+        }));
+        
+        JLabel historyStatus = new JLabel(" ");
+        historyStatus.setFont(new Font("Arial", Font.PLAIN, 12));
+        transactionTableModel.addTableModelListener(_ -> historyStatus.setText(transactionTableModel.describeWindow()));
+        transactionTableModel.setErrorListener(e -> historyStatus.setText(describeHistoryError(e)));
+        
+        panel.add(createHistoryFilterPanel(), BorderLayout.NORTH);
+        
+        JPanel buttonPanel = new JPanel(new BorderLayout());
         buttonPanel.setBackground(new Color(245, 245, 245));
         
         JButton refreshBtn =         new JButton("🔄 Refresh");
-        refreshBtn.addActionListener(_ -> loadTransactionData());
+        refreshBtn.addActionListener(_ -> refreshScheduler.request(RefreshScheduler.Dataset.TRANSACTIONS));
         
-        buttonPanel.add(refreshBtn);
+        buttonPanel.add(historyStatus, BorderLayout.CENTER);
+        buttonPanel.add(refreshBtn, BorderLayout.EAST);
         panel.add(buttonPanel, BorderLayout.SOUTH);
         
         return panel;
     }
     
+    private JPanel createReportsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(15, 15));
+        panel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        panel.setBackground(new Color(245, 245, 245));
+        
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 4));
+        controls.setBackground(Color.WHITE);
+        controls.setBorder(BorderFactory.createTitledBorder("📈 Sales Reports"));
+        reportRangeCombo = new JComboBox<>(SalesRollup.Range.values());
+        reportRangeCombo.setSelectedItem(SalesRollup.Range.LAST_30_DAYS);
+        reportRangeCombo.addActionListener(_ -> loadReportData());
+        JButton refreshBtn = new JButton("🔄 Refresh");
+        refreshBtn.addActionListener(_ -> refreshScheduler.request(RefreshScheduler.Dataset.REPORTS));
+        reportStatus = new JLabel(" ");
+        reportStatus.setFont(new Font("Arial", Font.PLAIN, 12));
+        controls.add(new JLabel("Period:"));
+        controls.add(reportRangeCombo);
+        controls.add(refreshBtn);
+        controls.add(reportStatus);
+        panel.add(controls, BorderLayout.NORTH);
+        
+        reportPeriodModel = createReportModel(new String[]{"Period", "Sales", "Units", "Revenue", "Profit", "Margin %"});
+        reportProductModel = createReportModel(new String[]{"ID", "Product", "Units", "Revenue", "Profit"});
+        reportCustomerModel = createReportModel(new String[]{"ID", "Customer", "Sales", "Revenue", "Profit"});
+        
+        JPanel topLists = new JPanel(new GridLayout(1, 2, 15, 15));
+        topLists.setOpaque(false);
+        topLists.add(createReportTable(reportProductModel, "🏆 Top Products by Revenue"));
+        topLists.add(createReportTable(reportCustomerModel, "☺ Top Customers by Revenue"));
+        JPanel tables = new JPanel(new GridLayout(2, 1, 15, 15));
+        tables.setOpaque(false);
+        tables.add(createReportTable(reportPeriodModel, "₹ Revenue and Margin by Period"));
+        tables.add(topLists);
+        panel.add(tables, BorderLayout.CENTER);
+        return panel;
+    }
+    
+    private static DefaultTableModel createReportModel(String[] columns) {
+        return new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+    
+    private static JScrollPane createReportTable(DefaultTableModel model, String title) {
+        JTable table = new JTable(model);
+        table.setRowHeight(25);
+        table.setFont(new Font("Arial", Font.PLAIN, 12));
+        table.getTableHeader().setBackground(new Color(52, 73, 94));
+        table.getTableHeader().setForeground(Color.WHITE);
+        table.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
+        DefaultTableCellRenderer rightRenderer = new DefaultTableCellRenderer();
+        rightRenderer.setHorizontalAlignment(JLabel.RIGHT);
+        for (int i = 2; i < model.getColumnCount(); i++) table.getColumnModel().getColumn(i).setCellRenderer(rightRenderer);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(BorderFactory.createTitledBorder(title));
+        return scrollPane;
+    }
+    
+    private JPanel createHistoryFilterPanel() {
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 4));
+        filterPanel.setBackground(Color.WHITE);
+        filterPanel.setBorder(BorderFactory.createTitledBorder("🔎 Filter Sales"));
+        
+        JTextField fromField = new JTextField(9);
+        JTextField toField = new JTextField(9);
+        JTextField productField = new JTextField(6);
+        JTextField customerField = new JTextField(6);
+        fromField.setToolTipText("yyyy-mm-dd");
+        toField.setToolTipText("yyyy-mm-dd");
+        
+        filterPanel.add(new JLabel("From:"));
+        filterPanel.add(fromField);
+        filterPanel.add(new JLabel("To:"));
+        filterPanel.add(toField);
+        filterPanel.add(new JLabel("Product ID:"));
+        filterPanel.add(productField);
+        filterPanel.add(new JLabel("Customer ID:"));
+        filterPanel.add(customerField);
+        
+        JButton applyBtn = new JButton("Apply");
+        JButton clearBtn = new JButton("Clear");
+        filterPanel.add(applyBtn);
+        filterPanel.add(clearBtn);
+        
+        applyBtn.addActionListener(_ -> {
+            try {
+                String from = fromField.getText().trim();
+                String to = toField.getText().trim();
+                String product = productField.getText().trim();
+                String customer = customerField.getText().trim();
+                transactionTableModel.setFilter(new TransactionHistoryModel.Filter(
+                    from.isEmpty() ? null : java.time.LocalDate.parse(from),
+                    to.isEmpty() ? null : java.time.LocalDate.parse(to),
+                    product.isEmpty() ? null : Integer.valueOf(product),
+                    customer.isEmpty() ? null : Integer.valueOf(customer)));
+            } catch (java.time.format.DateTimeParseException ex) {
+                JOptionPane.showMessageDialog(this, "⚠️ Dates must be in yyyy-mm-dd format!");
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "⚠️ Product and customer IDs must be numbers!");
+            }
+        });
+        clearBtn.addActionListener(_ -> {
+            fromField.setText(""); toField.setText(""); productField.setText(""); customerField.setText("");
+            transactionTableModel.setFilter(TransactionHistoryModel.Filter.NONE);
+        });
+        return filterPanel;
+    }
+    
+    private static String describeHistoryError(Exception e) {
+        String errorMsg = String.valueOf(e.getMessage());
+        if (errorMsg.contains("doesn't exist")) return "⚠️ Table Missing - please import inventory.sql";
+        if (errorMsg.contains("Unknown column")) return "⚠️ Column Missing - database schema needs updating";
+        System.err.println("Transaction data loading error: " + errorMsg);
+        return "⚠️ Database Error - connection failed";
+    }
+    
     private class SimpleCartItem {
         int productId;
         String productName;
@@ -373,16 +688,15 @@ public class InventoryGUI extends JFrame {
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.insets = new Insets(10, 10, 10, 10);
         
-        cartProductCombo = new JComboBox<>(); // Store reference for auto-refresh
+        cartProductField = new TypeAheadField<>(30, 12, (text, limit) -> catalog.search(text, limit, p -> p.getQuantity() > 0),
+            p -> productLabel(p, true), p -> productLabel(p, true));
         JTextField qtyField = new JTextField("1", 8);
         qtyField.setHorizontalAlignment(JTextField.CENTER);
         
-        loadProductComboForCart(cartProductCombo);
-        
         gbc.gridx = 0; gbc.gridy = 0;
-        addItemPanel.add(new JLabel("Select Product:"), gbc);
-        gbc.gridx = 1; gbc.gridwidth = 2; cartProductCombo.setPreferredSize(new Dimension(350, 30));
-        addItemPanel.add(cartProductCombo, gbc);
+        addItemPanel.add(new JLabel("Find Product (name or ID):"), gbc);
+        gbc.gridx = 1; gbc.gridwidth = 2; cartProductField.setPreferredSize(new Dimension(350, 30));
+        addItemPanel.add(cartProductField, gbc);
         
         gbc.gridx = 0; gbc.gridy = 1; gbc.gridwidth = 1;
         addItemPanel.add(new JLabel("Quantity:"), gbc);
@@ -475,7 +789,7 @@ public class InventoryGUI extends JFrame {
         bottomPanel.add(buttonsPanel, BorderLayout.CENTER);
         panel.add(bottomPanel, BorderLayout.SOUTH);
         
-        addToCartBtn.addActionListener(_ -> addItemToShoppingCart(cartProductCombo, qtyField));
+        addToCartBtn.addActionListener(_ -> addItemToShoppingCart(cartProductField, qtyField));
         clearCartBtn.addActionListener(_ -> clearShoppingCart());
         checkoutBtn.addActionListener(_ -> processMultiItemCheckout());
         
@@ -483,41 +797,41 @@ public class InventoryGUI extends JFrame {
     }
     
     private void refreshShoppingCartProducts() {
-        if (cartProductCombo != null) {
-            String currentSelection = (String) cartProductCombo.getSelectedItem();
-            loadProductComboForCart(cartProductCombo);
-            
-            if (currentSelection != null && !currentSelection.equals("Select Product")) {
-                for (int i = 0; i < cartProductCombo.getItemCount(); i++) {
-                    if (cartProductCombo.getItemAt(i).equals(currentSelection)) {
-                        cartProductCombo.setSelectedIndex(i);
-                        break;
-                    }
-                }
-            }
+        if (cartProductField != null) {
+            refreshProductPicker("cart-picker", cartProductField);
         }
     }
     
     private void refreshStockManagementProducts() {
-        if (stockProductCombo != null) {
-            String currentSelection = (String) stockProductCombo.getSelectedItem();
-            loadProductComboForStock(stockProductCombo);
-            
-            if (currentSelection != null && !currentSelection.equals("Select Product")) {
-                for (int i = 0; i < stockProductCombo.getItemCount(); i++) {
-                    if (stockProductCombo.getItemAt(i).equals(currentSelection)) {
-                        stockProductCombo.setSelectedIndex(i);
-                        break;
-                    }
-                }
-            }
+        if (stockProductField != null) {
+            refreshProductPicker("stock-picker", stockProductField);
+        }
+    }
+    
+    // Pickers search the catalog as the user types; this only keeps it fresh and swaps in the latest copy of the picked product
+    private void refreshProductPicker(String group, TypeAheadField<Product> field) {
+        dataExecutor.submitLatest(group, () -> {
+            catalog.ensureFresh();
+            return catalog.getVersion();
+        }, _ -> {
+            Product picked = field.getSelected();
+            if (picked != null) field.setSelected(catalog.get(picked.getId()));
+        }, Throwable::printStackTrace);
+    }
+    
+    private static String productLabel(Product p, boolean showProfit) {
+        if (showProfit) {
+            double margin = p.getProfitMargin();
+            String profitInfo = margin > 0 ? String.format(" | Profit: %.1f%%", margin) : "";
+            return String.format("%d - %s (₹%.2f, Stock: %d%s)", p.getId(), p.getName(), p.getPrice(), p.getQuantity(), profitInfo);
         }
+        return String.format("%d - %s (Price: ₹%.2f, Stock: %d)", p.getId(), p.getName(), p.getPrice(), p.getQuantity());
     }
     
-    private void addItemToShoppingCart(JComboBox<String> productCombo, JTextField qtyField) {
+    private void addItemToShoppingCart(TypeAheadField<Product> productField, JTextField qtyField) {
         try {
-            String selected = (String) productCombo.getSelectedItem();
-            if (selected == null || selected.equals("Select Product")) {
+            Product selected = productField.getSelected();
+            if (selected == null) {
                 JOptionPane.showMessageDialog(this, "⚠️ Please select a product!");
                 return;
             }
@@ -534,22 +848,18 @@ public class InventoryGUI extends JFrame {
                 return;
             }
             
-            int productId = Integer.parseInt(selected.split(" - ")[0].trim());
-            String productName = selected.split(" - ")[1].split(" \\(")[0].trim();
-            
-            double unitPrice = 0.0;
-            int availableStock = 0;
-            
-            if (selected.contains("₹")) {
-                String priceStr = selected.split("₹")[1].split(",")[0].trim();
-                unitPrice = Double.parseDouble(priceStr);
-            }
-            
-            if (selected.contains("Stock: ")) {
-                String stockStr = selected.split("Stock: ")[1];
-                stockStr = stockStr.split("[^0-9]")[0].trim();
-                availableStock = Integer.parseInt(stockStr);
+            // The catalog may have moved on since the product was picked
+            Product current = catalog.get(selected.getId());
+            if (current == null) {
+                JOptionPane.showMessageDialog(this, "❌ This product no longer exists!");
+                refreshScheduler.request(RefreshScheduler.Dataset.PRODUCT_COMBOS);
+                return;
             }
+            int productId = current.getId();
+            String productName = current.getName();
+            double unitPrice = current.getPrice();
+            // Less what journaled checkouts have already sold
+            int availableStock = Math.max(0, current.getQuantity() - inventoryService.reservedStock(productId));
             
             int currentCartQty = 0;
             for (SimpleCartItem item : shoppingCart) {
@@ -584,7 +894,7 @@ public class InventoryGUI extends JFrame {
             
             JOptionPane.showMessageDialog(this, 
                 String.format("✅ Added to cart!\n\nProduct: %s | Qty: %d | Price: %s\nRemaining Stock: %d units", 
-                    productName, qty, currencyFormat.format(unitPrice), availableStock - totalRequested),
+                    productName, qty, formatCurrency(unitPrice), availableStock - totalRequested),
                 "Success", JOptionPane.INFORMATION_MESSAGE);
             
         } catch (NumberFormatException e) {
@@ -638,15 +948,15 @@ public class InventoryGUI extends JFrame {
             Object[] row = {
                 (i + 1),
                 item.productName,
-                currencyFormat.format(item.unitPrice),
+                formatCurrency(item.unitPrice),
                 item.quantity,
-                currencyFormat.format(itemSubtotal),
+                formatCurrency(itemSubtotal),
                 "✕ Remove"
             };
             multiCartTableModel.addRow(row);
         }
         multiCartSubtotalLabel.setText("Total Items: " + shoppingCart.size() + " (" + totalQty + " units)");
-        multiCartGrandTotalLabel.setText("TOTAL: " + currencyFormat.format(total));
+        multiCartGrandTotalLabel.setText("TOTAL: " + formatCurrency(total));
     }
     
     private void processMultiItemCheckout() {
@@ -654,86 +964,80 @@ public class InventoryGUI extends JFrame {
             JOptionPane.showMessageDialog(this, "Cart is empty! Add items first.");
             return;
         }
-        // Select customer
-        String[] customers = getCustomerList();
-        if (customers.length == 0) {
+        // Select customer; only the directory's matches are ever put in front of Swing
+        dataExecutor.submitLatest("contacts", () -> {
+            contacts.ensureFresh();
+            return contacts.customerCount();
+        }, this::chooseCustomerAndCheckout, this::showDatabaseError);
+    }
+    
+    private void chooseCustomerAndCheckout(int customerCount) {
+        if (customerCount == 0) {
             JOptionPane.showMessageDialog(this, "No customers found! Add a customer first.");
             return;
         }
-        String customer = (String) JOptionPane.showInputDialog(this, "Select Customer:", "Checkout", JOptionPane.QUESTION_MESSAGE, null, customers, customers[0]);
-        
-        if (customer == null) return;
+        TypeAheadField<Customer> customerField = new TypeAheadField<>(30, 12, contacts::searchCustomers,
+            c -> c.getId() + " - " + c.getName(), c -> c.getId() + " - " + c.getName() + " <" + c.getEmail() + ">");
+        customerField.focusWhenShown();
+        JPanel chooser = new JPanel(new BorderLayout(5, 5));
+        chooser.add(new JLabel("Customer (name, email or ID):"), BorderLayout.NORTH);
+        chooser.add(customerField, BorderLayout.CENTER);
+        int choice = JOptionPane.showConfirmDialog(this, chooser, "Checkout", JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+        
+        if (choice != JOptionPane.OK_OPTION || shoppingCart.isEmpty()) return;
+        Customer chosen = customerField.getSelected();
+        if (chosen == null) {
+            JOptionPane.showMessageDialog(this, "⚠️ Please pick a customer from the list!");
+            return;
+        }
         
-        int customerId = Integer.parseInt(customer.split(" - ")[0]);
+        int customerId = chosen.getId();
+        String customer = customerId + " - " + chosen.getName();
+        // The cart stays editable while the worker runs, so check out a snapshot of it
+        java.util.List<SimpleCartItem> checkedOut = new java.util.ArrayList<>(shoppingCart);
+        java.util.List<SimpleCartItem> items = new java.util.ArrayList<>();
+        for (SimpleCartItem item : checkedOut) {
+            items.add(new SimpleCartItem(item.productId, item.productName, item.unitPrice, item.quantity));
+        }
         
-        try (Connection conn = DBConnection.getConnection()) {
-            conn.setAutoCommit(false);
-            
-            for (SimpleCartItem item : shoppingCart) {
-                double costPrice = 0.0;
-                try (PreparedStatement stmt = conn.prepareStatement(
-                    "SELECT COALESCE(cost_price, 0) as cost_price FROM product WHERE id = ?")) {
-                    stmt.setInt(1, item.productId);
-                    ResultSet rs = stmt.executeQuery();
-                    if (rs.next()) {
-                        costPrice = rs.getDouble("cost_price");
-                    }
-                }
-                double total = item.getSubtotal();
-                double profit = (item.unitPrice - costPrice) * item.quantity;
-                
-                try (PreparedStatement stmt = conn.prepareStatement(
-                    "INSERT INTO transaction (product_id, customer_id, quantity, unit_price, " +
-                    "subtotal, tax_amount, total_with_tax, profit_amount, date) " +
-                    "VALUES (?, ?, ?, ?, ?, 0, ?, ?, NOW())")) {
-                    stmt.setInt(1, item.productId);
-                    stmt.setInt(2, customerId);
-                    stmt.setInt(3, item.quantity);
-                    stmt.setDouble(4, item.unitPrice);
-                    stmt.setDouble(5, total);
-                    stmt.setDouble(6, total);
-                    stmt.setDouble(7, profit);
-                    stmt.executeUpdate();
-                }
-                try (PreparedStatement stmt = conn.prepareStatement(
-                    "UPDATE product SET quantity = quantity - ? WHERE id = ?")) {
-                    stmt.setInt(1, item.quantity);
-                    stmt.setInt(2, item.productId);
-                    stmt.executeUpdate();
-                }
-            }
-            conn.commit();
-            
-            double total = shoppingCart.stream().mapToDouble(SimpleCartItem::getSubtotal).sum();
-            int totalQty = shoppingCart.stream().mapToInt(item -> item.quantity).sum();
-            
+        dataExecutor.attach(writeCheckout(customerId, items), result -> {
             String receipt = String.format("✅ Checkout Successful!\n\nCustomer: %s\nItems: %d (%d units) | Total: %s\n\nThank you!", 
-                customer, shoppingCart.size(), totalQty, currencyFormat.format(total));
+                customer, result.lines(), result.units(), formatCurrency(result.revenue()));
             
             JOptionPane.showMessageDialog(this, receipt, "Receipt", JOptionPane.INFORMATION_MESSAGE);
             
-            shoppingCart.clear();
+            shoppingCart.removeAll(checkedOut);
             updateMultiCartDisplay();
-            loadAllData();
-            
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error during checkout: " + e.getMessage());
-        }
+            refreshAfterWrite(RefreshScheduler.Dataset.PRODUCTS, RefreshScheduler.Dataset.STOCK,
+                RefreshScheduler.Dataset.PRODUCT_COMBOS, RefreshScheduler.Dataset.TRANSACTIONS, RefreshScheduler.Dataset.STATS,
+                RefreshScheduler.Dataset.REPORTS);
+        }, e -> {
+            if (e instanceof StockConflictException conflict) {
+                StringBuilder lines = new StringBuilder();
+                for (StockConflictException.Shortfall shortfall : conflict.getShortfalls()) {
+                    lines.append("\n• ").append(shortfall);
+                }
+                JOptionPane.showMessageDialog(this,
+                    "❌ Checkout cancelled - not enough stock for:" + lines + "\n\nNothing was charged. Adjust the cart and try again.",
+                    "Stock Error", JOptionPane.ERROR_MESSAGE);
+                refreshAfterWrite(RefreshScheduler.Dataset.PRODUCT_COMBOS, RefreshScheduler.Dataset.STOCK, RefreshScheduler.Dataset.PRODUCTS);
+            } else {
+                JOptionPane.showMessageDialog(this, "Error during checkout: " + e.getMessage());
+            }
+        });
     }
     
-    private String[] getCustomerList() {
-        java.util.List<String> customers = new java.util.ArrayList<>();
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT id, name FROM customer ORDER BY name")) {
-            while (rs.next()) {
-                customers.add(rs.getInt("id") + " - " + rs.getString("name"));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    private java.util.concurrent.CompletableFuture<CheckoutProcessor.Receipt> writeCheckout(int customerId, java.util.List<SimpleCartItem> items) {
+        java.util.List<CheckoutProcessor.Line> lines = new java.util.ArrayList<>();
+        for (SimpleCartItem item : items) {
+            lines.add(new CheckoutProcessor.Line(item.productId, item.quantity, item.unitPrice));
         }
-        return customers.toArray(new String[0]);
+        return inventoryService.checkout(customerId, lines).thenApply(receipt -> {
+            System.out.println("🧾 Checkout of " + receipt.lines() + " lines: " + receipt.timings());
+            return receipt;
+        });
     }
+    
     private JPanel createStockManagementPanel() {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -745,7 +1049,8 @@ public class InventoryGUI extends JFrame {
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.insets = new Insets(8, 8, 8, 8);
         
-        stockProductCombo = new JComboBox<>(); // Store reference for auto-refresh
+        stockProductField = new TypeAheadField<>(30, 12, (text, limit) -> catalog.search(text, limit, _ -> true),
+            p -> productLabel(p, false), p -> productLabel(p, false));
         JTextField addQuantityField = new JTextField(10);
         JTextField removeQuantityField = new JTextField(10);
         JLabel currentStockLabel = new JLabel("Current Stock: 0");
@@ -754,10 +1059,8 @@ public class InventoryGUI extends JFrame {
         currentStockLabel.setFont(new Font("Arial", Font.BOLD, 14)); currentStockLabel.setForeground(new Color(52, 73, 94));
         newStockLabel.setFont(new Font("Arial", Font.BOLD, 14)); newStockLabel.setForeground(new Color(46, 204, 113));
 
-        loadProductComboForStock(stockProductCombo);
-
-        gbc.gridx = 0; gbc.gridy = 0; formPanel.add(new JLabel("Select Product:"), gbc);
-        gbc.gridx = 1; gbc.gridwidth = 2; formPanel.add(stockProductCombo, gbc);
+        gbc.gridx = 0; gbc.gridy = 0; formPanel.add(new JLabel("Find Product (name or ID):"), gbc);
+        gbc.gridx = 1; gbc.gridwidth = 2; formPanel.add(stockProductField, gbc);
         
         gbc.gridx = 0; gbc.gridy = 1; gbc.gridwidth = 1; formPanel.add(new JLabel("Add Quantity:"), gbc);
         gbc.gridx = 1; formPanel.add(addQuantityField, gbc);
@@ -769,11 +1072,11 @@ public class InventoryGUI extends JFrame {
         
         Runnable updateStockCalculation = () -> {
             try {
-                String productItem = (String) stockProductCombo.getSelectedItem();
-                if (productItem != null && !productItem.equals("Select Product")) {
-                    if (productItem.contains("Stock: ")) {
-                        String stockStr = productItem.split("Stock: ")[1].split("\\)")[0];
-                        int currentStock = Integer.parseInt(stockStr);
+                Product selectedProduct = stockProductField.getSelected();
+                if (selectedProduct != null) {
+                    Product cached = catalog.get(selectedProduct.getId());
+                    if (cached != null) {
+                        int currentStock = cached.getQuantity();
                         currentStockLabel.setText("Current Stock: " + currentStock);
                         
                         int addQty = 0;
@@ -799,7 +1102,7 @@ public class InventoryGUI extends JFrame {
             }
         };
 
-        stockProductCombo.addActionListener(_ -> updateStockCalculation.run());
+        stockProductField.addSelectionListener(_ -> updateStockCalculation.run());
         addQuantityField.addCaretListener(_ -> updateStockCalculation.run());
         removeQuantityField.addCaretListener(_ -> updateStockCalculation.run());
 
@@ -807,7 +1110,7 @@ public class InventoryGUI extends JFrame {
         gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 4;
         formPanel.add(updateBtn, gbc);
 
-        updateBtn.addActionListener(_ -> updateStock(stockProductCombo, addQuantityField, removeQuantityField, updateStockCalculation));
+        updateBtn.addActionListener(_ -> updateStock(stockProductField, addQuantityField, removeQuantityField, updateStockCalculation));
 
         panel.add(formPanel, BorderLayout.NORTH);
 
@@ -815,21 +1118,29 @@ public class InventoryGUI extends JFrame {
         tablePanel.setBorder(BorderFactory.createTitledBorder("📊 Current Stock Levels"));
         
         String[] stockColumns = {"ID", "Product Name", "Current Stock", "Unit Price", "Status"};
-        DefaultTableModel stockTableModel = new DefaultTableModel(stockColumns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        stockTableModel = new KeyedTableModel(stockColumns,
+            java.util.Comparator.comparing((Object[] row) -> (String) row[1], String.CASE_INSENSITIVE_ORDER));
         JTable stockTable = new JTable(stockTableModel);
         stockTable.setRowHeight(30);
         stockTable.setFont(new Font("Arial", Font.PLAIN, 12));
         
-        loadStockData(stockTableModel);
-        
         JScrollPane stockScrollPane = new JScrollPane(stockTable);
         tablePanel.add(stockScrollPane, BorderLayout.CENTER);
-        panel.add(tablePanel, BorderLayout.CENTER);
+
+        JPanel reorderPanel = new JPanel(new BorderLayout());
+        reorderTableModel = createReportModel(new String[]{"Supplier", "ID", "Product Name", "Stock", "Reorder At", "Order Qty", "Units/Day", "Days Left", "Est. Cost"});
+        reorderPanel.add(createReportTable(reorderTableModel, "🧾 Reorder Suggestions"), BorderLayout.CENTER);
+        JPanel reorderBar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton recheckBtn = new JButton("🔄 Re-check Now");
+        recheckBtn.addActionListener(_ -> replenishment.evaluateSoon());
+        reorderStatus = new JLabel("Waiting for the first reorder check...");
+        reorderBar.add(recheckBtn);
+        reorderBar.add(reorderStatus);
+        reorderPanel.add(reorderBar, BorderLayout.SOUTH);
+
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, tablePanel, reorderPanel);
+        split.setResizeWeight(0.6);
+        panel.add(split, BorderLayout.CENTER);
 
         return panel;
     }
@@ -860,21 +1171,11 @@ public class InventoryGUI extends JFrame {
                     JOptionPane.showMessageDialog(this, "Name and email cannot be empty!");
                     return;
                 }
-                try (Connection conn = DBConnection.getConnection();
-                     PreparedStatement stmt = conn.prepareStatement("INSERT INTO customer (id, name, email) VALUES (?, ?, ?)")) {
-                    
-                    stmt.setInt(1, id);
-                    stmt.setString(2, name);
-                    stmt.setString(3, email);
-
-                    int result = stmt.executeUpdate();
-                    if (result > 0) {
-                        JOptionPane.showMessageDialog(this, "✅ Customer added successfully!");
-                        idField.setText(""); nameField.setText(""); emailField.setText("");
-                        loadCustomerData();
-                        updateEnhancedStats();
-                    }
-                }
+                dataExecutor.attach(inventoryService.addCustomer(new Customer(id, name, email)), _ -> {
+                    JOptionPane.showMessageDialog(this, "✅ Customer added successfully!");
+                    idField.setText(""); nameField.setText(""); emailField.setText("");
+                    refreshAfterWrite(RefreshScheduler.Dataset.CUSTOMERS);
+                }, ex -> JOptionPane.showMessageDialog(this, "❌ Error: " + ex.getMessage()));
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "❌ Error: " + ex.getMessage());
             }
@@ -883,7 +1184,7 @@ public class InventoryGUI extends JFrame {
         panel.add(formPanel, BorderLayout.NORTH);
 
         String[] columns = {"ID", "Name", "Email"};
-        customerTableModel = new DefaultTableModel(columns, 0);
+        customerTableModel = new KeyedTableModel(columns, KeyedTableModel.byKey());
         customerTable = new JTable(customerTableModel);
         customerTable.setRowHeight(25);
         
@@ -920,30 +1221,65 @@ public class InventoryGUI extends JFrame {
                     JOptionPane.showMessageDialog(this, "Name and contact cannot be empty!");
                     return;
                 }
-                try (Connection conn = DBConnection.getConnection();
-                     PreparedStatement stmt = conn.prepareStatement("INSERT INTO supplier (id, name, contact) VALUES (?, ?, ?)")) {
-                    
-                    stmt.setInt(1, id);
-                    stmt.setString(2, name);
-                    stmt.setString(3, contact);
-
-                    int result = stmt.executeUpdate();
-                    if (result > 0) {
-                        JOptionPane.showMessageDialog(this, "✅ Supplier added successfully!");
-                        idField.setText(""); nameField.setText(""); contactField.setText("");
-                        loadSupplierData();
-                        updateEnhancedStats();
-                    }
-                }
+                dataExecutor.attach(inventoryService.addSupplier(new Supplier(id, name, contact)), _ -> {
+                    JOptionPane.showMessageDialog(this, "✅ Supplier added successfully!");
+                    idField.setText(""); nameField.setText(""); contactField.setText("");
+                    refreshAfterWrite(RefreshScheduler.Dataset.SUPPLIERS);
+                }, ex -> JOptionPane.showMessageDialog(this, "❌ Error: " + ex.getMessage()));
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "❌ Error: " + ex.getMessage());
             }
         });
 
-        panel.add(formPanel, BorderLayout.NORTH);
+        JPanel linkPanel = new JPanel(new FlowLayout());
+        linkPanel.setBorder(BorderFactory.createTitledBorder("Link Supplier to Product"));
+
+        JTextField productIdField = new JTextField(5);
+        JTextField supplierIdField = new JTextField(5);
+        JTextField unitCostField = new JTextField(7);
+        JTextField leadTimeField = new JTextField("7", 3);
+        JTextField minOrderField = new JTextField("1", 4);
+        JCheckBox preferredBox = new JCheckBox("Preferred", true);
+        JButton linkBtn = new JButton("Save Link");
+
+        linkPanel.add(new JLabel("Product ID:")); linkPanel.add(productIdField);
+        linkPanel.add(new JLabel("Supplier ID:")); linkPanel.add(supplierIdField);
+        linkPanel.add(new JLabel("Unit Cost (blank = cost price):")); linkPanel.add(unitCostField);
+        linkPanel.add(new JLabel("Lead Days:")); linkPanel.add(leadTimeField);
+        linkPanel.add(new JLabel("Min Order:")); linkPanel.add(minOrderField);
+        linkPanel.add(preferredBox);
+        linkPanel.add(linkBtn);
+
+        linkBtn.addActionListener(_ -> {
+            try {
+                String cost = unitCostField.getText().trim();
+                ReplenishmentEngine.Link link = new ReplenishmentEngine.Link(
+                    Integer.parseInt(productIdField.getText().trim()),
+                    Integer.parseInt(supplierIdField.getText().trim()),
+                    cost.isEmpty() ? 0 : Double.parseDouble(cost),
+                    Integer.parseInt(leadTimeField.getText().trim()),
+                    Integer.parseInt(minOrderField.getText().trim()),
+                    preferredBox.isSelected());
+                if (link.leadTimeDays() < 1 || link.minOrderQty() < 1 || link.unitCost() < 0) {
+                    JOptionPane.showMessageDialog(this, "Unit cost cannot be negative; lead days and minimum order must be at least 1!");
+                    return;
+                }
+                dataExecutor.attach(inventoryService.linkSupplier(link), _ -> {
+                    JOptionPane.showMessageDialog(this, "✅ Supplier link saved! Reorder suggestions will update shortly.");
+                    productIdField.setText(""); supplierIdField.setText(""); unitCostField.setText("");
+                }, ex -> JOptionPane.showMessageDialog(this, "❌ Error: " + ex.getMessage()));
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "❌ Please enter valid numbers!");
+            }
+        });
+
+        JPanel forms = new JPanel(new GridLayout(2, 1));
+        forms.add(formPanel);
+        forms.add(linkPanel);
+        panel.add(forms, BorderLayout.NORTH);
 
         String[] columns = {"ID", "Name", "Contact"};
-        supplierTableModel = new DefaultTableModel(columns, 0);
+        supplierTableModel = new KeyedTableModel(columns, KeyedTableModel.byKey());
         supplierTable = new JTable(supplierTableModel);
         supplierTable.setRowHeight(25);
         
@@ -954,254 +1290,107 @@ public class InventoryGUI extends JFrame {
         return panel;
     }
     private void loadTransactionData() {
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement()) {
-            
-            String query;
-            boolean hasEnhancedColumns = false;
-            
-            try (ResultSet checkColumns = stmt.executeQuery(
-                "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS " +
-                "WHERE TABLE_NAME = 'transaction' AND COLUMN_NAME IN ('unit_price', 'profit_amount', 'tax_amount')")) {
-                
-                if (checkColumns.next()) {
-                    hasEnhancedColumns = true;
-                }
-                checkColumns.close();
-            } catch (SQLException e) {
-                hasEnhancedColumns = false;
+        transactionTableModel.reload();
+    }
+    private void loadReportData() {
+        SalesRollup.Range range = (SalesRollup.Range) reportRangeCombo.getSelectedItem();
+        dataExecutor.submitLatest("reports", () -> {
+            try (Connection conn = DBConnection.getConnection()) {
+                return SalesRollup.loadReport(conn, range, 10);
             }
-            if (hasEnhancedColumns) {
-                query = "SELECT t.id, p.name as product_name, c.name as customer_name, " +
-                       "t.quantity, " +
-                       "COALESCE(p.cost_price, 0) as cost_price, " +
-                       "COALESCE(t.unit_price, p.price) as unit_price, " +
-                       "COALESCE(t.subtotal, t.quantity * COALESCE(t.unit_price, p.price)) as subtotal, " +
-                       "COALESCE(t.discount_percent, 0) as discount_percent, " +
-                       "COALESCE(t.discount_amount, 0) as discount_amount, " +
-                       "COALESCE(t.tax_amount, 0) as tax_amount, " +
-                       "COALESCE(t.total_with_tax, 0) as total_with_tax, " +
-                       "COALESCE(t.profit_amount, 0) as profit_amount, " +
-                       "DATE_FORMAT(t.date, '%d-%m-%Y %H:%i') as formatted_date " +
-                       "FROM transaction t " +
-                       "JOIN product p ON t.product_id = p.id " +
-                       "JOIN customer c ON t.customer_id = c.id " +
-                       "ORDER BY t.date DESC LIMIT 50";
-            } else {
-                query = "SELECT t.id, p.name as product_name, c.name as customer_name, " +
-                       "t.quantity, COALESCE(p.cost_price, 0) as cost_price, p.price as unit_price, " +
-                       "(t.quantity * p.price) as subtotal, " +
-                       "(t.quantity * p.price * 0.18) as tax_amount, " +
-                       "(t.quantity * p.price * 1.18) as total_with_tax, " +
-                       "0 as profit_amount, " +
-                       "DATE_FORMAT(t.date, '%Y-%m-%d %H:%i:%s') as formatted_date " +
-                       "FROM transaction t " +
-                       "JOIN product p ON t.product_id = p.id " +
-                       "JOIN customer c ON t.customer_id = c.id " +
-                       "ORDER BY t.date DESC LIMIT 20";
+        }, report -> {
+            java.time.format.DateTimeFormatter format = java.time.format.DateTimeFormatter.ofPattern(
+                range == SalesRollup.Range.LAST_24_HOURS ? "dd MMM HH:00" : range == SalesRollup.Range.LAST_30_DAYS ? "EEE dd MMM" : "MMM yyyy");
+            java.util.List<Object[]> periods = new java.util.ArrayList<>();
+            double revenue = 0, profit = 0;
+            for (SalesRollup.Period period : report.periods()) {
+                periods.add(new Object[]{period.start().format(format), period.transactions(), period.units(),
+                    formatCurrency(period.revenue()), formatCurrency(period.profit()), String.format("%.1f%%", period.marginPercent())});
+                revenue += period.revenue();
+                profit += period.profit();
             }
-            try (ResultSet rs = stmt.executeQuery(query)) {
-                transactionTableModel.setRowCount(0);
-                
-                if (!rs.next()) {
-                    transactionTableModel.addRow(new Object[]{
-                        "No sales yet", "Add products and customers", "to start", "selling", "", "", "", "", ""
-                    });
-                } else {
-                    do {
-                        int quantity = rs.getInt("quantity");
-                        double costPrice = rs.getDouble("cost_price");
-                        double unitPrice = rs.getDouble("unit_price");
-                        double grandTotal = rs.getDouble("total_with_tax");
-                        double profit = rs.getDouble("profit_amount");
-                        
-                        String formattedCostPrice = currencyFormat.format(costPrice);
-                        String formattedUnitPrice = currencyFormat.format(unitPrice);
-                        String formattedGrandTotal = currencyFormat.format(grandTotal);
-                        String formattedProfit = currencyFormat.format(profit);
-                        
-                        Object[] row = {
-                            "#" + rs.getInt("id"),
-                            rs.getString("product_name"),
-                            rs.getString("customer_name"),
-                            quantity,
-                            formattedCostPrice,
-                            formattedUnitPrice,
-                            formattedGrandTotal,
-                            formattedProfit,
-                            rs.getString("formatted_date")
-                        };
-                        transactionTableModel.addRow(row);
-                    } while (rs.next());
-                }
+            java.util.List<Object[]> products = new java.util.ArrayList<>();
+            for (SalesRollup.Ranked product : report.topProducts()) {
+                products.add(new Object[]{product.id(), product.name(), product.units(), formatCurrency(product.revenue()), formatCurrency(product.profit())});
             }
-        } catch (SQLException e) {
-            transactionTableModel.setRowCount(0);
-            String errorMsg = e.getMessage();
-            if (errorMsg.contains("doesn't exist")) {
-                transactionTableModel.addRow(new Object[]{
-                    "⚠️ Table Missing", "Please import inventory.sql", "", "", "", "", "", "", ""
-                });
-            } else if (errorMsg.contains("Unknown column")) {
-                transactionTableModel.addRow(new Object[]{
-                    "⚠️ Column Missing", "Database schema needs updating", "", "", "", "", "", "", ""
-                });
-            } else {
-                transactionTableModel.addRow(new Object[]{
-                    "⚠️ Database Error", "Connection failed", "", "", "", "", "", "", ""
-                });
+            java.util.List<Object[]> customers = new java.util.ArrayList<>();
+            for (SalesRollup.Ranked customer : report.topCustomers()) {
+                customers.add(new Object[]{customer.id(), customer.name(), customer.transactions(), formatCurrency(customer.revenue()), formatCurrency(customer.profit())});
             }
-            System.err.println("Transaction data loading error: " + errorMsg);
-        }
+            replaceRows(reportPeriodModel, periods);
+            replaceRows(reportProductModel, products);
+            replaceRows(reportCustomerModel, customers);
+            reportStatus.setText(String.format("Revenue %s | Profit %s | loaded in %.0f ms",
+                formatCurrency(revenue), formatCurrency(profit), report.millis()));
+        }, e -> reportStatus.setText("❌ " + e.getMessage()));
     }
-    private void updateEnhancedStats() {
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement()) {
-
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM product");
-            if (rs.next()) statsProducts.setText(String.valueOf(rs.getInt(1)));
-
-            rs = stmt.executeQuery("SELECT COUNT(*) FROM customer");
-            if (rs.next()) statsCustomers.setText(String.valueOf(rs.getInt(1)));
-
-            rs = stmt.executeQuery("SELECT COUNT(*) FROM supplier");
-            if (rs.next()) statsSuppliers.setText(String.valueOf(rs.getInt(1)));
-
-            rs = stmt.executeQuery("SELECT COUNT(*) FROM `transaction`");
-            if (rs.next()) statsTransactions.setText(String.valueOf(rs.getInt(1)));
-
-            // Financial metrics - calculate basic revenue (will be enhanced when total_with_tax is available)
-            try {
-                rs = stmt.executeQuery(
-                    "SELECT COALESCE(SUM(t.quantity * p.price * 1.18), 0) " +
-                    "FROM transaction t JOIN product p ON t.product_id = p.id");
-                if (rs.next()) {
-                    double totalRevenueWithTax = rs.getDouble(1);
-                    totalRevenue.setText(currencyFormat.format(totalRevenueWithTax));
-                    
-                    // Estimated profit (20% margin on tax-inclusive revenue)
-                    double estimatedProfit = totalRevenueWithTax * 0.2;
-                    totalProfit.setText(currencyFormat.format(estimatedProfit));
-                }
-            } catch (SQLException statEx) {
-                // Fallback if joins fail - show basic counts
-                totalRevenue.setText("₹0.00");
-                totalProfit.setText("₹0.00");
+    private void showReorderPlan(ReplenishmentEngine.Plan plan) {
+        if (reorderTableModel == null) return; // shown when the stock tab is built
+        java.util.List<Object[]> rows = new java.util.ArrayList<>();
+        int lines = 0;
+        double cost = 0;
+        for (ReplenishmentEngine.PurchaseOrder order : plan.orders()) {
+            for (ReplenishmentEngine.Advice line : order.lines()) {
+                rows.add(new Object[]{order.supplierName(), line.productId(), line.productName(), line.stock(), line.reorderPoint(),
+                    line.suggestedQuantity(), String.format("%.1f", line.dailyDemand()), String.format("%.0f", Math.floor(line.daysOfCover())),
+                    formatCurrency(line.suggestedQuantity() * line.unitCost())});
             }
-        } catch (SQLException e) {
-            System.err.println("Error updating enhanced statistics: " + e.getMessage());
+            lines += order.lines().size();
+            cost += order.estimatedCost();
         }
+        replaceRows(reorderTableModel, rows);
+        reorderStatus.setText(String.format("%d product(s) to reorder from %d supplier(s), est. %s | checked %s in %.0f ms",
+            lines, plan.orders().size(), formatCurrency(cost),
+            plan.computedAt().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss")), plan.millis()));
+        refreshScheduler.request(RefreshScheduler.Dataset.STOCK);
     }
-    private void loadProductComboForCart(JComboBox<String> productCombo) {
-        try (Connection conn = DBConnection.getConnection()) {
-            productCombo.removeAllItems();
-            productCombo.addItem("Select Product");
-            
-            String query;
-            boolean useEnhanced = true;
-            
-            try (Statement testStmt = conn.createStatement()) {
-                ResultSet testRs = testStmt.executeQuery("SELECT cost_price FROM product LIMIT 1");
-                testRs.close();
-                query = "SELECT id, name, price, quantity, COALESCE(cost_price, 0) as cost_price, " +
-                       "COALESCE(profit_margin, 0) as profit_margin FROM product WHERE quantity > 0 ORDER BY name";
-            } catch (SQLException e) {
-                useEnhanced = false;
-                query = "SELECT id, name, price, quantity FROM product WHERE quantity > 0 ORDER BY name";
-            }
-            try (PreparedStatement stmt = conn.prepareStatement(query);
-                 ResultSet rs = stmt.executeQuery()) {
-                
-                while (rs.next()) {
-                    String profitInfo = "";
-                    if (useEnhanced) {
-                        double profitMargin = rs.getDouble("profit_margin");
-                        profitInfo = profitMargin > 0 ? 
-                            String.format(" | Profit: %.1f%%", profitMargin) : "";
-                    }
-                    productCombo.addItem(String.format("%d - %s (₹%.2f, Stock: %d%s)", 
-                        rs.getInt("id"), rs.getString("name"), 
-                        rs.getDouble("price"), rs.getInt("quantity"), profitInfo));
-                }
-                if (productCombo.getItemCount() == 1) { // Only "Select Product" item
-                    productCombo.addItem("No products available");
-                }
+    private void updateEnhancedStats() {
+        dataExecutor.submitLatest("stats", () -> {
+            try (Connection conn = DBConnection.getConnection()) {
+                return StatsEngine.load(conn);
             }
-        } catch (SQLException e) {
-            productCombo.removeAllItems();
-            productCombo.addItem("Database Error: " + e.getMessage());
-            e.printStackTrace();
-        }
+        }, stats -> {
+            statsProducts.setText(String.valueOf(stats.products()));
+            statsCustomers.setText(String.valueOf(stats.customers()));
+            statsSuppliers.setText(String.valueOf(stats.suppliers()));
+            statsTransactions.setText(String.valueOf(stats.transactions()));
+            totalRevenue.setText(formatCurrency(stats.revenue()));
+            totalProfit.setText(formatCurrency(stats.profit()));
+            startupPhase("dashboard loaded");
+        }, e -> System.err.println("Error updating enhanced statistics: " + e.getMessage()));
     }
     private void loadProductData() {
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement()) {
-            
-            String query;
-            boolean useEnhanced = true;
-            
-            try {
-                ResultSet testRs = stmt.executeQuery("SELECT cost_price FROM product LIMIT 1");
-                testRs.close();
-                query = "SELECT id, name, quantity, price, " +
-                       "COALESCE(cost_price, 0) as cost_price, " +
-                       "COALESCE(profit_margin, 0) as profit_margin " +
-                       "FROM product ORDER BY id";
-            } catch (SQLException e) {
-                // Fallback to basic query
-                useEnhanced = false;
-                query = "SELECT id, name, quantity, price FROM product ORDER BY id";
-            }
-            ResultSet rs = stmt.executeQuery(query);
-            productTableModel.setRowCount(0);
-            
-            while (rs.next()) {
-                int qty = rs.getInt("quantity");
-                double price = rs.getDouble("price");
-                
-                String status = qty == 0 ? "❌ Out of Stock" : 
-                               qty < 10 ? "⚠️ Low Stock" : "✅ In Stock";
-                
-                if (useEnhanced) {
-                    double costPrice = rs.getDouble("cost_price");
-                    double profitMargin = rs.getDouble("profit_margin");
-                    
-                    // Display profit margin percentage with color coding
-                    String profitDisplay;
-                    if (costPrice > 0) {
-                        profitDisplay = String.format("%.1f%%", profitMargin);
-                    } else {
-                        profitDisplay = "N/A";
-                    }
-                    
-                    Object[] row = {
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        qty,
-                        costPrice > 0 ? currencyFormat.format(costPrice) : "N/A",
-                        currencyFormat.format(price), // Selling Price
-                        profitDisplay,
-                        status
-                    };
-                    productTableModel.addRow(row);
-                } else {
-                    // Basic display without cost/profit info
-                    Object[] row = {
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        qty,
-                        "N/A", // Cost price
-                        currencyFormat.format(price), // Selling Price
-                        "N/A", // Profit amount  
-                        status
-                    };
-                    productTableModel.addRow(row);
-                }
-            }
-            rs.close();
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage());
+        dataExecutor.submitLatest("products", this::queryProductRows,
+            rows -> {
+                productTableModel.replaceAll(rows);
+                statsProducts.setText(String.valueOf(rows.size()));
+            },
+            e -> JOptionPane.showMessageDialog(this, "Error: " + e.getMessage()));
+    }
+    private java.util.List<Object[]> queryProductRows() throws SQLException {
+        catalog.ensureFresh();
+        java.util.List<Object[]> rows = new java.util.ArrayList<>();
+        for (Product product : catalog.snapshot(java.util.Comparator.comparingInt(Product::getId))) {
+            rows.add(productRow(product));
         }
+        return rows;
+    }
+    private static Object[] productRow(Product product) {
+        int qty = product.getQuantity();
+        double costPrice = product.getCostPrice();
+        
+        String status = qty == 0 ? "❌ Out of Stock" : 
+                       qty < 10 ? "⚠️ Low Stock" : "✅ In Stock";
+        
+        return new Object[]{
+            product.getId(),
+            product.getName(),
+            qty,
+            costPrice > 0 ? formatCurrency(costPrice) : "N/A",
+            formatCurrency(product.getPrice()), // Selling Price
+            costPrice > 0 ? String.format("%.1f%%", product.getProfitMargin()) : "N/A",
+            status
+        };
     }
     
     private void deleteSelectedProduct() {
@@ -1215,164 +1404,165 @@ public class InventoryGUI extends JFrame {
             return;
         }
         
-        try {
-            int productId = (int) productTableModel.getValueAt(selectedRow, 0);
-            String productName = (String) productTableModel.getValueAt(selectedRow, 1);
-            
-            // Check if product has any transactions
-            try (Connection conn = DBConnection.getConnection();
-                 PreparedStatement checkStmt = conn.prepareStatement(
-                     "SELECT COUNT(*) as count FROM transaction WHERE product_id = ?")) {
-                
-                checkStmt.setInt(1, productId);
-                ResultSet rs = checkStmt.executeQuery();
-                
-                int transactionCount = 0;
-                if (rs.next()) {
-                    transactionCount = rs.getInt("count");
-                }
-                
-                String confirmMessage;
-                if (transactionCount > 0) {
-                    confirmMessage = String.format(
-                        "⚠️ Warning: This product has %d transaction(s) in history.\n\n" +
-                        "Product ID: %d\nProduct Name: %s\n\n" +
-                        "Are you sure you want to delete this product?\n" +
-                        "(Transaction history will remain but will show as 'Deleted Product')",
-                        transactionCount, productId, productName);
-                } else {
-                    confirmMessage = String.format(
-                        "Are you sure you want to delete this product?\n\n" +
-                        "Product ID: %d\nProduct Name: %s",
-                        productId, productName);
-                }
-                
-                int confirm = JOptionPane.showConfirmDialog(this,
-                    confirmMessage,
-                    "Confirm Delete",
-                    JOptionPane.YES_NO_OPTION,
-                    JOptionPane.WARNING_MESSAGE);
+        int productId = (int) productTableModel.getValueAt(selectedRow, 0);
+        String productName = (String) productTableModel.getValueAt(selectedRow, 1);
+        
+        // Check if product has any transactions
+        dataExecutor.attach(inventoryService.countProductSales(productId), transactionCount -> confirmAndDeleteProduct(productId, productName, transactionCount), this::showDatabaseError);
+    }
+    
+    private void confirmAndDeleteProduct(int productId, String productName, int transactionCount) {
+        String confirmMessage;
+        if (transactionCount > 0) {
+            confirmMessage = String.format(
+                "⚠️ Warning: This product has %d transaction(s) in history.\n\n" +
+                "Product ID: %d\nProduct Name: %s\n\n" +
+                "Are you sure you want to delete this product?\n" +
+                "(Transaction history will remain but will show as 'Deleted Product')",
+                transactionCount, productId, productName);
+        } else {
+            confirmMessage = String.format(
+                "Are you sure you want to delete this product?\n\n" +
+                "Product ID: %d\nProduct Name: %s",
+                productId, productName);
+        }
+        
+        int confirm = JOptionPane.showConfirmDialog(this,
+            confirmMessage,
+            "Confirm Delete",
+            JOptionPane.YES_NO_OPTION,
+            JOptionPane.WARNING_MESSAGE);
+        
+        if (confirm != JOptionPane.YES_OPTION) return;
+        
+        // Delete the product
+        dataExecutor.attach(inventoryService.deleteProduct(productId), deleted -> {
+            if (deleted) {
+                JOptionPane.showMessageDialog(this,
+                    String.format("✅ Product deleted successfully!\n\nProduct ID: %d | Name: %s",
+                        productId, productName),
+                    "Success",
+                    JOptionPane.INFORMATION_MESSAGE);
                 
-                if (confirm == JOptionPane.YES_OPTION) {
-                    // Delete the product
-                    try (PreparedStatement deleteStmt = conn.prepareStatement(
-                        "DELETE FROM product WHERE id = ?")) {
-                        
-                        deleteStmt.setInt(1, productId);
-                        int rowsAffected = deleteStmt.executeUpdate();
-                        
-                        if (rowsAffected > 0) {
-                            JOptionPane.showMessageDialog(this,
-                                String.format("✅ Product deleted successfully!\n\nProduct ID: %d | Name: %s",
-                                    productId, productName),
-                                "Success",
-                                JOptionPane.INFORMATION_MESSAGE);
-                            
-                            // Refresh all data
-                            loadProductData();
-                            updateEnhancedStats();
-                            
-                            // Refresh combo boxes if on shopping cart or stock management tabs
-                            if (cartProductCombo != null) {
-                                loadProductComboForCart(cartProductCombo);
-                            }
-                            if (stockProductCombo != null) {
-                                loadProductComboForStock(stockProductCombo);
-                            }
-                        } else {
-                            JOptionPane.showMessageDialog(this,
-                                "❌ Failed to delete product. Please try again.",
-                                "Delete Failed",
-                                JOptionPane.ERROR_MESSAGE);
-                        }
-                    }
-                }
+                // The product's sales now show as 'Deleted Product' (or, on old schemas, went with it)
+                refreshAfterWrite(RefreshScheduler.Dataset.PRODUCTS, RefreshScheduler.Dataset.STOCK,
+                    RefreshScheduler.Dataset.PRODUCT_COMBOS, RefreshScheduler.Dataset.TRANSACTIONS, RefreshScheduler.Dataset.STATS);
+            } else {
+                JOptionPane.showMessageDialog(this,
+                    "❌ Failed to delete product. Please try again.",
+                    "Delete Failed",
+                    JOptionPane.ERROR_MESSAGE);
             }
-            
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this,
-                "❌ Database Error: " + ex.getMessage(),
-                "Database Error",
-                JOptionPane.ERROR_MESSAGE);
+        }, ex -> {
+            showDatabaseError(ex);
             ex.printStackTrace();
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this,
-                "❌ Error: " + ex.getMessage(),
-                "Error",
-                JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
-        }
+        });
     }
     
     private void loadCustomerData() {
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM customer ORDER BY id")) {
-
-            customerTableModel.setRowCount(0);
-            while (rs.next()) {
-                Object[] row = {
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getString("email")
-                };
-                customerTableModel.addRow(row);
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage());
-        }
+        dataExecutor.submitLatest("customers", this::queryCustomerRows,
+            rows -> {
+                customerTableModel.replaceAll(rows);
+                statsCustomers.setText(String.valueOf(rows.size()));
+            },
+            e -> JOptionPane.showMessageDialog(this, "Error: " + e.getMessage()));
+    }
+    private java.util.List<Object[]> queryCustomerRows() throws SQLException {
+        java.util.List<Object[]> rows = new java.util.ArrayList<>();
+        for (Customer customer : inventoryService.getRepository().customers().findAll()) rows.add(customerRow(customer));
+        return rows;
+    }
+    private static Object[] customerRow(Customer customer) {
+        return new Object[]{customer.getId(), customer.getName(), customer.getEmail()};
     }
     private void loadSupplierData() {
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM supplier ORDER BY id")) {
-
-            supplierTableModel.setRowCount(0);
-            while (rs.next()) {
-                Object[] row = {
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getString("contact")
-                };
-                supplierTableModel.addRow(row);
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage());
-        }
+        dataExecutor.submitLatest("suppliers", this::querySupplierRows,
+            rows -> {
+                supplierTableModel.replaceAll(rows);
+                statsSuppliers.setText(String.valueOf(rows.size()));
+            },
+            e -> JOptionPane.showMessageDialog(this, "Error: " + e.getMessage()));
+    }
+    private java.util.List<Object[]> querySupplierRows() throws SQLException {
+        java.util.List<Object[]> rows = new java.util.ArrayList<>();
+        for (Supplier supplier : inventoryService.getRepository().suppliers().findAll()) rows.add(supplierRow(supplier));
+        return rows;
+    }
+    private static Object[] supplierRow(Supplier supplier) {
+        return new Object[]{supplier.getId(), supplier.getName(), supplier.getContact()};
     }
     private void loadAllData() {
-        loadProductData();
-        loadCustomerData();
-        loadSupplierData();
-        loadTransactionData();
-        updateEnhancedStats();
+        refreshScheduler.requestAll();
     }
-    // Windows-compatible icons using Unicode and symbols
-    private void loadProductComboForStock(JComboBox<String> productCombo) {
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT id, name, price, quantity FROM product");
-             ResultSet rs = stmt.executeQuery()) {
-            
-            productCombo.removeAllItems();
-            productCombo.addItem("Select Product");
-            
-            while (rs.next()) {
-                productCombo.addItem(String.format("%d - %s (Price: ₹%.2f, Stock: %d)", 
-                    rs.getInt("id"), rs.getString("name"), 
-                    rs.getDouble("price"), rs.getInt("quantity")));
+    // Rows changed by this or any other terminal, patched in one at a time
+    private void applyChanges(ChangeFeed.Changes changes) {
+        if (changes.resync()) {
+            loadAllData();
+            return;
+        }
+        // Tabs not opened yet have no rows to patch; the dashboard counts them instead
+        boolean recount = false;
+        if (productTableModel != null) {
+            for (Product product : changes.products()) productTableModel.upsert(productRow(product));
+            for (int id : changes.removedProducts()) productTableModel.remove(id);
+            statsProducts.setText(String.valueOf(productTableModel.getRowCount()));
+        } else {
+            recount = !changes.products().isEmpty() || !changes.removedProducts().isEmpty();
+        }
+        if (stockTableModel != null) {
+            for (Product product : changes.products()) stockTableModel.upsert(stockRow(product));
+            for (int id : changes.removedProducts()) stockTableModel.remove(id);
+        }
+        if (customerTableModel != null) {
+            for (Customer customer : changes.customers()) customerTableModel.upsert(customerRow(customer));
+            for (int id : changes.removedCustomers()) customerTableModel.remove(id);
+            statsCustomers.setText(String.valueOf(customerTableModel.getRowCount()));
+        } else {
+            recount |= !changes.customers().isEmpty() || !changes.removedCustomers().isEmpty();
+        }
+        if (supplierTableModel != null) {
+            for (Supplier supplier : changes.suppliers()) supplierTableModel.upsert(supplierRow(supplier));
+            for (int id : changes.removedSuppliers()) supplierTableModel.remove(id);
+            statsSuppliers.setText(String.valueOf(supplierTableModel.getRowCount()));
+        } else {
+            recount |= !changes.suppliers().isEmpty() || !changes.removedSuppliers().isEmpty();
+        }
+        if (recount && !changes.newSales()) {
+            if (tabbedPane.getSelectedIndex() == 0) refreshScheduler.request(RefreshScheduler.Dataset.STATS);
+            else staleTabs.add(0);
+        }
+        if (!changes.products().isEmpty() || !changes.removedProducts().isEmpty()) {
+            refreshScheduler.request(RefreshScheduler.Dataset.PRODUCT_COMBOS);
+        }
+        if (changes.newSales()) {
+            // Other terminals' sales: reload what is on screen now, the rest when its tab is opened
+            int[] tabs = {0, 6, 7};
+            RefreshScheduler.Dataset[] datasets = {RefreshScheduler.Dataset.STATS, RefreshScheduler.Dataset.TRANSACTIONS, RefreshScheduler.Dataset.REPORTS};
+            for (int i = 0; i < tabs.length; i++) {
+                if (tabbedPane.getSelectedIndex() == tabs[i]) refreshScheduler.request(datasets[i]);
+                else staleTabs.add(tabs[i]);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
-    private void updateStock(JComboBox<String> productCombo, JTextField addField, JTextField removeField, Runnable updateCalc) {
+    // With the change feed running, the table rows a write touched arrive through it; otherwise reload the tables
+    private void refreshAfterWrite(RefreshScheduler.Dataset first, RefreshScheduler.Dataset... rest) {
+        java.util.EnumSet<RefreshScheduler.Dataset> datasets = java.util.EnumSet.of(first, rest);
+        if (changeFeed.isActive()) {
+            datasets.removeAll(java.util.EnumSet.of(RefreshScheduler.Dataset.PRODUCTS, RefreshScheduler.Dataset.STOCK,
+                RefreshScheduler.Dataset.CUSTOMERS, RefreshScheduler.Dataset.SUPPLIERS));
+            changeFeed.pollNow();
+        }
+        if (!datasets.isEmpty()) refreshScheduler.request(datasets);
+    }
+    // Windows-compatible icons using Unicode and symbols
+    private void updateStock(TypeAheadField<Product> productField, JTextField addField, JTextField removeField, Runnable updateCalc) {
         try {
-            String productItem = (String) productCombo.getSelectedItem();
-            if (productItem == null || productItem.equals("Select Product")) {
+            Product selected = productField.getSelected();
+            if (selected == null) {
                 JOptionPane.showMessageDialog(this, "⚠️ Please select a product!");
                 return;
             }
-            int productId = Integer.parseInt(productItem.split(" - ")[0]);
+            int productId = selected.getId();
             
             String addText = addField.getText().trim();
             String removeText = removeField.getText().trim();
@@ -1388,99 +1578,71 @@ public class InventoryGUI extends JFrame {
                 JOptionPane.showMessageDialog(this, "⚠️ Please enter quantity to add or remove!");
                 return;
             }
-            Connection conn = DBConnection.getConnection();
-            conn.setAutoCommit(false);
-
-            try {
-                // Get current stock
-                int currentStock = 0;
-                try (PreparedStatement checkStmt = conn.prepareStatement("SELECT quantity, name FROM product WHERE id = ?")) {
-                    checkStmt.setInt(1, productId);
-                    ResultSet rs = checkStmt.executeQuery();
-                    if (rs.next()) {
-                        currentStock = rs.getInt("quantity");
-                        String productName = rs.getString("name");
-                        
-                        int newStock = currentStock + addQty - removeQty;
-                        if (newStock < 0) {
-                            JOptionPane.showMessageDialog(this, 
-                                String.format("❌ Insufficient stock!\n\nProduct: %s\nCurrent Stock: %d\nTrying to Remove: %d", 
-                                productName, currentStock, removeQty));
-                            return;
-                        }
-                        // Update stock
-                        try (PreparedStatement updateStmt = conn.prepareStatement("UPDATE product SET quantity = ? WHERE id = ?")) {
-                            updateStmt.setInt(1, newStock);
-                            updateStmt.setInt(2, productId);
-                            updateStmt.executeUpdate();
-                        }
-                        conn.commit();
-                        
-                        String operation = "";
-                        if (addQty > 0) operation += "Added " + addQty + " units";
-                        if (removeQty > 0) {
-                            if (!operation.isEmpty()) operation += ", ";
-                            operation += "Removed " + removeQty + " units";
-                        }
+            dataExecutor.attach(inventoryService.adjustStock(productId, addQty - removeQty), change -> {
+                String operation = "";
+                if (addQty > 0) operation += "Added " + addQty + " units";
+                if (removeQty > 0) {
+                    if (!operation.isEmpty()) operation += ", ";
+                    operation += "Removed " + removeQty + " units";
+                }
+                JOptionPane.showMessageDialog(this, 
+                    String.format("✅ Stock updated successfully!\n\n" +
+                    "Product: %s\n%s\nNew Stock Level: %d units", 
+                    change.productName(), operation, change.newStock()));
+                
+                // Clear fields and refresh
+                addField.setText("");
+                removeField.setText("");
+                updateCalc.run();
+                refreshAfterWrite(RefreshScheduler.Dataset.PRODUCTS, RefreshScheduler.Dataset.STOCK,
+                    RefreshScheduler.Dataset.PRODUCT_COMBOS);
+            }, e -> {
+                if (e instanceof StockConflictException conflict) {
+                    StockConflictException.Shortfall shortfall = conflict.getShortfalls().get(0);
+                    if (shortfall.available() < 0) {
+                        JOptionPane.showMessageDialog(this, "❌ This product no longer exists!");
+                    } else {
                         JOptionPane.showMessageDialog(this, 
-                            String.format("✅ Stock updated successfully!\n\n" +
-                            "Product: %s\n%s\nNew Stock Level: %d units", 
-                            productName, operation, newStock));
-                        
-                        // Clear fields and refresh
-                        addField.setText("");
-                        removeField.setText("");
-                        loadProductComboForStock(productCombo);
-                        updateCalc.run();
-                        loadAllData(); // Refresh all data
+                            String.format("❌ Insufficient stock!\n\nProduct: %s\nCurrent Stock: %d\nTrying to Remove: %d", 
+                            shortfall.productName(), shortfall.available(), removeQty));
                     }
+                } else {
+                    JOptionPane.showMessageDialog(this, "❌ Error updating stock: " + e.getMessage());
                 }
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-                conn.close();
-            }
+                refreshAfterWrite(RefreshScheduler.Dataset.PRODUCT_COMBOS, RefreshScheduler.Dataset.STOCK);
+            });
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "❌ Error updating stock: " + e.getMessage());
         }
     }
-    private void loadStockData(DefaultTableModel stockTableModel) {
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT id, name, quantity, price FROM product ORDER BY name")) {
-
-            stockTableModel.setRowCount(0);
-            
-            while (rs.next()) {
-                int quantity = rs.getInt("quantity");
-                double price = rs.getDouble("price");
-                
-                String status;
-                if (quantity == 0) {
-                    status = "🔴 Out of Stock";
-                } else if (quantity <= 5) {
-                    status = "🟡 Low Stock";
-                } else if (quantity <= 20) {
-                    status = "🟢 Normal";
-                } else {
-                    status = "🔵 High Stock";
-                }
-                Object[] row = {
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    quantity + " units",
-                    currencyFormat.format(price),
-                    status
-                };
-                stockTableModel.addRow(row);
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading stock data: " + e.getMessage());
+    private void loadStockData() {
+        dataExecutor.submitLatest("stock", this::queryStockRows,
+            rows -> stockTableModel.replaceAll(rows),
+            e -> JOptionPane.showMessageDialog(this, "Error loading stock data: " + e.getMessage()));
+    }
+    private java.util.List<Object[]> queryStockRows() throws SQLException {
+        catalog.ensureFresh();
+        java.util.List<Object[]> rows = new java.util.ArrayList<>();
+        for (Product product : catalog.snapshot(java.util.Comparator.comparing(Product::getName, String.CASE_INSENSITIVE_ORDER))) {
+            rows.add(stockRow(product));
         }
+        return rows;
+    }
+    private Object[] stockRow(Product product) {
+        int quantity = product.getQuantity();
+        double price = product.getPrice();
+        ReplenishmentEngine.Plan plan = replenishment.getLatest();
+        String status = ReplenishmentEngine.status(quantity, plan != null ? plan.advice(product.getId()) : null);
+        return new Object[]{
+            product.getId(),
+            product.getName(),
+            quantity + " units",
+            formatCurrency(price),
+            status
+        };
     }
     public static void main(String[] args) {
+        warmUpDatabase();
         try {
             UIManager.setLookAndFeel("javax.swing.plaf.nimbus.NimbusLookAndFeel");
         } catch (Exception e) {
@@ -1488,6 +1650,7 @@ public class InventoryGUI extends JFrame {
         }
         SwingUtilities.invokeLater(() -> {
             new InventoryGUI().setVisible(true);
+            startupPhase("window shown");
         });
     }
 }
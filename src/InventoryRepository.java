@@ -0,0 +1,65 @@
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Where products, customers, suppliers and sales are kept. InventoryService
+ * and the GUI go through this instead of writing SQL themselves.
+ *
+ * JdbcInventoryRepository is the one implementation: it runs against
+ * whichever database DBConnection was configured for, MySQL by default or
+ * the embedded file-backed EmbeddedDatabase with
+ * -Dinventory.storage=embedded. Calls block; the service runs them on its
+ * own threads.
+ */
+public interface InventoryRepository {
+
+    interface Products {
+        /** Ordered by id. */
+        List<Product> findAll() throws SQLException;
+
+        /** Null when there is no such product. */
+        Product findById(int id) throws SQLException;
+
+        /** Inserts the product, or replaces name, stock and prices of an existing one. */
+        void save(Product product) throws SQLException;
+
+        /** Deletes the product; its sales stay. False if it did not exist. */
+        boolean delete(int id) throws SQLException;
+    }
+
+    interface Customers {
+        /** Ordered by id. */
+        List<Customer> findAll() throws SQLException;
+
+        void insert(Customer customer) throws SQLException;
+    }
+
+    interface Suppliers {
+        /** Ordered by id. */
+        List<Supplier> findAll() throws SQLException;
+
+        void insert(Supplier supplier) throws SQLException;
+    }
+
+    interface Sales {
+        /** Sales recorded for the product, archived ones included. */
+        long countForProduct(int productId) throws SQLException;
+
+        /** Sells every line in one transaction; StockConflictException, with nothing written, if any cannot be covered. */
+        CheckoutProcessor.Receipt checkout(int customerId, List<CheckoutProcessor.Line> lines) throws SQLException;
+
+        /**
+         * Adds {@code delta} units (negative to remove); StockConflictException if the
+         * product is missing or would drop below the {@code reserved} units already sold.
+         */
+        StockAdjuster.Result adjustStock(int productId, int delta, int reserved) throws SQLException;
+    }
+
+    Products products();
+
+    Customers customers();
+
+    Suppliers suppliers();
+
+    Sales sales();
+}
@@ -0,0 +1,619 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Headless point-of-sale server: a JSON API over InventoryService, so many
+ * lightweight terminals share one connection pool and one product catalog
+ * instead of each running a full client against MySQL.
+ * Requests are served on virtual threads.
+ *
+ *   GET    /health                     pool status
+ *   GET    /metrics                    latency histograms and counters, Prometheus text format
+ *   GET    /api/products               catalog
+ *   GET    /api/products/{id}
+ *   POST   /api/products               upsert one product, or an array of them
+ *   DELETE /api/products/{id}
+ *   POST   /api/stock/{id}             {"delta": n}
+ *   POST   /api/stock/bulk             [{"productId": 1, "delta": n}, ...]
+ *   POST   /api/checkout               {"customerId": 1, "lines": [{"productId": 1, "quantity": 2}]}
+ *   POST   /api/checkout/bulk          [checkout, checkout, ...]
+ *   GET    /api/customers
+ *   GET    /api/stats
+ *   GET    /api/stream/products        catalog, one JSON object per line
+ *   GET    /api/stream/history?from=2024-01-01&to=2024-07-01&product=1&customer=1
+ *                                      sales newest first, one JSON object per line
+ *   GET    /api/analytics?groupBy=product&from=2024-01-01&to=2024-07-01&customer=1&minDiscount=5&maxDiscount=20&limit=50
+ *   GET    /api/replenishment          purchase order suggestions per supplier
+ *   POST   /api/replenishment/links    {"productId": 1, "supplierId": 2, "leadTimeDays": 5, "minOrderQty": 10, "preferred": true}
+ *
+ * Dates are yyyy-mm-dd, and from and to both include the day named.
+ * A line's unitPrice defaults to the catalog price. Stock conflicts answer
+ * 409 with the shortfalls; bulk calls and product arrays answer 200 with
+ * one result per item.
+ *
+ * Checkouts, stock adjustments and streams go through ReactiveInventory's
+ * limiter, so only as many touch the database at once as the pool has
+ * connections. The rest wait without a thread, and once too many wait the
+ * server answers 503.
+ * Streams are read a page at a time as the client takes them; an error
+ * after the first line arrives as a last {"error": ...} line.
+ *
+ * Usage: java InventoryServer [port]   (default 8080, or -Dinventory.server.port)
+ */
+public class InventoryServer {
+    private static final Metrics.Family<LatencyHistogram> REQUEST_TIMES = Metrics.timers("inventory_http_request_seconds",
+        "HTTP request handling time by route", "route");
+
+    private static class HttpError extends RuntimeException {
+        final int status;
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Route {
+        Object handle(HttpExchange exchange, String[] path, String body) throws Exception;
+    }
+
+    private final InventoryService service;
+    private final ReactiveInventory reactive;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public InventoryServer(InventoryService service, int port) throws IOException {
+        this.service = service;
+        this.reactive = ReactiveInventory.fromSystemProperties(service);
+        this.server = HttpServer.create(new InetSocketAddress(port), Integer.getInteger("inventory.server.backlog", 256));
+        server.setExecutor(executor);
+        route("/health", this::health);
+        server.createContext("/metrics", exchange -> {
+            byte[] bytes = Metrics.prometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        route("/api/products", this::products);
+        route("/api/stock", this::stock);
+        route("/api/checkout", this::checkout);
+        route("/api/customers", (exchange, _, _) -> {
+            requireMethod(exchange, "GET");
+            List<Object> customers = new ArrayList<>();
+            for (Customer customer : service.listCustomers().join()) {
+                Map<String, Object> json = new LinkedHashMap<>();
+                json.put("id", customer.getId());
+                json.put("name", customer.getName());
+                json.put("email", customer.getEmail());
+                customers.add(json);
+            }
+            return customers;
+        });
+        route("/api/stats", (exchange, _, _) -> {
+            requireMethod(exchange, "GET");
+            return service.stats().join();
+        });
+        route("/api/analytics", this::analytics);
+        route("/api/replenishment", this::replenishment);
+        stream("/api/stream/products", _ -> reactive.catalog(), InventoryServer::toJson);
+        stream("/api/stream/history", query -> reactive.history(historyFilter(query)), InventoryServer::toJson);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("🌐 Inventory API listening on port " + server.getAddress().getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        reactive.close();
+        executor.shutdown();
+    }
+
+    // ---- endpoints ----
+
+    private Object health(HttpExchange exchange, String[] path, String body) {
+        requireMethod(exchange, "GET");
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("status", "ok");
+        status.put("products", service.getCatalog().size());
+        status.put("pool", DBConnection.getPoolStats());
+        status.put("limiter", reactive.getLimiter().stats());
+        if (service.getSalesJournal() != null) status.put("journal", service.getSalesJournal().stats());
+        return status;
+    }
+
+    private Object analytics(HttpExchange exchange, String[] path, String body) {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        SalesAnalytics.GroupBy groupBy;
+        try {
+            groupBy = SalesAnalytics.GroupBy.valueOf(query.getOrDefault("groupBy", "none").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("groupBy must be one of " + java.util.Arrays.toString(SalesAnalytics.GroupBy.values()));
+        }
+        SalesAnalytics.Filter filter = new SalesAnalytics.Filter();
+        try {
+            if (query.containsKey("from")) filter.from(LocalDate.parse(query.get("from")).atStartOfDay());
+            // The filter's bound is exclusive; the whole day named is included, as in the history stream
+            if (query.containsKey("to")) filter.to(LocalDate.parse(query.get("to")).plusDays(1).atStartOfDay());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Dates must be yyyy-mm-dd");
+        }
+        if (query.containsKey("product")) filter.product(intParam(query, "product"));
+        if (query.containsKey("customer")) filter.customer(intParam(query, "customer"));
+        if (query.containsKey("minDiscount") || query.containsKey("maxDiscount")) {
+            filter.discount(doubleParam(query, "minDiscount", Double.NEGATIVE_INFINITY),
+                            doubleParam(query, "maxDiscount", Double.POSITIVE_INFINITY));
+        }
+        int limit = query.containsKey("limit") ? intParam(query, "limit") : 100;
+
+        SalesAnalytics.Result result = service.analyze(filter, groupBy).join();
+        List<SalesAnalytics.Group> groups = new ArrayList<>();
+        for (SalesAnalytics.Group group : result.groups().subList(0, Math.min(limit, result.groups().size()))) {
+            if (groupBy == SalesAnalytics.GroupBy.PRODUCT) {
+                Product product = service.getCatalog().get((int) group.key());
+                group = new SalesAnalytics.Group(group.key(), product == null ? null : product.getName(),
+                    group.transactions(), group.units(), group.revenue(), group.profit());
+            }
+            groups.add(group);
+        }
+        return new SalesAnalytics.Result(groupBy, groups, result.rowsScanned(), result.rowsMatched(), result.millis());
+    }
+
+    private Object replenishment(HttpExchange exchange, String[] path, String body) {
+        if (path.length == 1 && path[0].equals("links")) {
+            requireMethod(exchange, "POST");
+            Map<String, Object> object = Json.parseObject(body);
+            ReplenishmentEngine.Link link = new ReplenishmentEngine.Link(intField(object, "productId"), intField(object, "supplierId"),
+                doubleField(object, "unitCost", 0),
+                object.containsKey("leadTimeDays") ? intField(object, "leadTimeDays") : 7,
+                object.containsKey("minOrderQty") ? intField(object, "minOrderQty") : 1,
+                Boolean.TRUE.equals(object.get("preferred")));
+            if (link.leadTimeDays() < 1 || link.minOrderQty() < 1 || link.unitCost() < 0) {
+                throw new IllegalArgumentException("unitCost cannot be negative; leadTimeDays and minOrderQty must be at least 1");
+            }
+            return service.linkSupplier(link).join();
+        }
+        if (path.length != 0) throw new HttpError(404, "Not found");
+        requireMethod(exchange, "GET");
+        ReplenishmentEngine.Plan plan = service.replenishmentPlan().join();
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("computedAt", plan.computedAt().toString());
+        json.put("productsEvaluated", plan.productsEvaluated());
+        json.put("millis", plan.millis());
+        json.put("orders", plan.orders());
+        return json;
+    }
+
+    private Object products(HttpExchange exchange, String[] path, String body) {
+        String method = exchange.getRequestMethod();
+        if (path.length == 0) {
+            if (method.equals("GET")) {
+                List<Object> products = new ArrayList<>();
+                for (Product product : service.listProducts().join()) products.add(toJson(product));
+                return products;
+            }
+            requireMethod(exchange, "POST");
+            Object parsed = Json.parse(body);
+            if (!(parsed instanceof List<?> items)) return toJson(service.saveProduct(toProduct(asObject(parsed))).join());
+            List<CompletableFuture<Product>> saves = new ArrayList<>();
+            for (Object item : items) {
+                try {
+                    saves.add(service.saveProduct(toProduct(asObject(item))));
+                } catch (RuntimeException e) {
+                    saves.add(CompletableFuture.failedFuture(e));
+                }
+            }
+            return collect(saves, InventoryServer::toJson);
+        }
+        int id = parseId(path[0]);
+        if (method.equals("DELETE")) {
+            if (!service.deleteProduct(id).join()) throw new HttpError(404, "No product with id " + id);
+            return Map.of("deleted", id);
+        }
+        requireMethod(exchange, "GET");
+        Product product = service.getProduct(id).join();
+        if (product == null) throw new HttpError(404, "No product with id " + id);
+        return toJson(product);
+    }
+
+    private Object stock(HttpExchange exchange, String[] path, String body) {
+        requireMethod(exchange, "POST");
+        if (path.length == 0) throw new HttpError(404, "Use /api/stock/{id} or /api/stock/bulk");
+        if (path[0].equals("bulk")) {
+            List<CompletableFuture<StockAdjuster.Result>> adjustments = new ArrayList<>();
+            for (Object item : asList(Json.parse(body))) {
+                try {
+                    Map<String, Object> request = asObject(item);
+                    adjustments.add(submitAdjustment(intField(request, "productId"), intField(request, "delta")));
+                } catch (RuntimeException e) {
+                    adjustments.add(CompletableFuture.failedFuture(e));
+                }
+            }
+            return collect(adjustments, result -> result);
+        }
+        return submitAdjustment(parseId(path[0]), intField(Json.parseObject(body), "delta")).join();
+    }
+
+    private CompletableFuture<StockAdjuster.Result> submitAdjustment(int productId, int delta) {
+        return reactive.getLimiter().submit(() -> service.adjustStock(productId, delta));
+    }
+
+    private Object checkout(HttpExchange exchange, String[] path, String body) {
+        requireMethod(exchange, "POST");
+        if (path.length == 0) return submitCheckout(Json.parseObject(body)).join();
+        if (!path[0].equals("bulk")) throw new HttpError(404, "Use /api/checkout or /api/checkout/bulk");
+        List<CompletableFuture<CheckoutProcessor.Receipt>> checkouts = new ArrayList<>();
+        for (Object item : asList(Json.parse(body))) {
+            try {
+                checkouts.add(submitCheckout(asObject(item)));
+            } catch (RuntimeException e) {
+                checkouts.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        return collect(checkouts, receipt -> receipt);
+    }
+
+    private CompletableFuture<CheckoutProcessor.Receipt> submitCheckout(Map<String, Object> request) {
+        int customerId = intField(request, "customerId");
+        List<CheckoutProcessor.Line> lines = new ArrayList<>();
+        for (Object item : asList(request.get("lines"))) {
+            Map<String, Object> line = asObject(item);
+            int productId = intField(line, "productId");
+            double unitPrice;
+            if (line.get("unitPrice") instanceof Double price) {
+                unitPrice = price;
+            } else {
+                Product product = service.getProduct(productId).join();
+                unitPrice = product == null ? 0.0 : product.getPrice(); // a missing product is reported as a conflict
+            }
+            lines.add(new CheckoutProcessor.Line(productId, intField(line, "quantity"), unitPrice));
+        }
+        if (lines.isEmpty()) throw new HttpError(400, "A checkout needs at least one line");
+        return reactive.getLimiter().submit(() -> service.checkout(customerId, lines));
+    }
+
+    private static TransactionHistoryModel.Filter historyFilter(Map<String, String> query) {
+        try {
+            return new TransactionHistoryModel.Filter(
+                query.containsKey("from") ? LocalDate.parse(query.get("from")) : null,
+                query.containsKey("to") ? LocalDate.parse(query.get("to")) : null,
+                query.containsKey("product") ? intParam(query, "product") : null,
+                query.containsKey("customer") ? intParam(query, "customer") : null);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Dates must be yyyy-mm-dd");
+        }
+    }
+
+    // ---- plumbing ----
+
+    private void route(String prefix, Route route) {
+        LatencyHistogram requestTime = REQUEST_TIMES.get(prefix);
+        server.createContext(prefix, exchange -> {
+            long start = System.nanoTime();
+            int status = 200;
+            Object response;
+            try {
+                String rest = exchange.getRequestURI().getPath().substring(prefix.length());
+                String[] path = rest.isEmpty() || rest.equals("/") ? new String[0] : rest.replaceFirst("^/", "").split("/");
+                String body;
+                try (InputStream in = exchange.getRequestBody()) {
+                    body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                response = route.handle(exchange, path, body);
+            } catch (Exception e) {
+                Throwable cause = unwrap(e);
+                status = statusFor(cause);
+                response = errorBody(cause);
+                if (status == 500) System.err.println("❌ " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + cause);
+            }
+            respond(exchange, status, response);
+            requestTime.recordSince(start);
+        });
+    }
+
+    /**
+     * Serves {@code open}'s items as newline-delimited JSON. Items are
+     * requested a batch at a time as they are written, so a client that
+     * reads slowly slows the stream down instead of being buffered for.
+     */
+    private <T> void stream(String prefix, Function<Map<String, String>, Flow.Publisher<T>> open, Function<T, Object> toJson) {
+        LatencyHistogram requestTime = REQUEST_TIMES.get(prefix);
+        server.createContext(prefix, exchange -> {
+            long start = System.nanoTime();
+            LineWriter<T> writer = new LineWriter<>(exchange, toJson);
+            try {
+                requireMethod(exchange, "GET");
+                if (!exchange.getRequestURI().getPath().equals(prefix)) throw new HttpError(404, "Not found");
+                open.apply(parseQuery(exchange.getRequestURI().getRawQuery())).subscribe(writer);
+                writer.finished.join();
+                writer.close();
+            } catch (Exception e) {
+                Throwable cause = unwrap(e);
+                if (!writer.started()) {
+                    int status = statusFor(cause);
+                    if (status == 500) System.err.println("❌ " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + cause);
+                    respond(exchange, status, errorBody(cause));
+                } else if (cause instanceof IOException) {
+                    exchange.close(); // the client went away
+                } else {
+                    System.err.println("❌ " + exchange.getRequestURI() + " failed mid-stream: " + cause);
+                    writer.writeLine(errorBody(cause));
+                    writer.close();
+                }
+            }
+            requestTime.recordSince(start);
+        });
+    }
+
+    private static final class LineWriter<T> implements Flow.Subscriber<T> {
+        private static final int BATCH = Integer.getInteger("inventory.server.streamBatch", 256);
+
+        final CompletableFuture<Void> finished = new CompletableFuture<>();
+        private final HttpExchange exchange;
+        private final Function<T, Object> toJson;
+        private Flow.Subscription subscription;
+        private OutputStream out;
+        private int written;
+
+        LineWriter(HttpExchange exchange, Function<T, Object> toJson) {
+            this.exchange = exchange;
+            this.toJson = toJson;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(BATCH);
+        }
+
+        @Override
+        public void onNext(T item) {
+            try {
+                writeLine(toJson.apply(item));
+                if (++written % BATCH == 0) {
+                    out.flush();
+                    subscription.request(BATCH);
+                }
+            } catch (IOException | RuntimeException e) {
+                subscription.cancel();
+                finished.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable failure) {
+            finished.completeExceptionally(failure);
+        }
+
+        @Override
+        public void onComplete() {
+            finished.complete(null);
+        }
+
+        boolean started() {
+            return out != null;
+        }
+
+        void writeLine(Object json) throws IOException {
+            begin();
+            out.write((Json.write(json) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        void close() throws IOException {
+            begin();
+            out.close();
+        }
+
+        // Headers go out with the first line, so a stream that fails at once still gets a real status
+        private void begin() throws IOException {
+            if (out != null) return;
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            out = exchange.getResponseBody();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, Object response) throws IOException {
+        byte[] bytes = Json.write(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /** Waits for every future; each entry is either the mapped result or an error description. */
+    private static <T> List<Object> collect(List<CompletableFuture<T>> futures, Function<T, Object> mapper) {
+        List<Object> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(mapper.apply(future.join()));
+            } catch (RuntimeException e) {
+                Throwable cause = unwrap(e);
+                Map<String, Object> error = errorBody(cause);
+                error.put("status", statusFor(cause));
+                results.add(error);
+            }
+        }
+        return results;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) e = e.getCause();
+        return e;
+    }
+
+    private static int statusFor(Throwable cause) {
+        if (cause instanceof HttpError error) return error.status;
+        if (cause instanceof StockConflictException) return 409;
+        if (cause instanceof RejectedExecutionException) return 503;
+        if (cause instanceof IllegalArgumentException) return 400;
+        if (isIntegrityViolation(cause)) return 409;
+        return 500;
+    }
+
+    // SQLState class 23: foreign key or unique constraint
+    private static boolean isIntegrityViolation(Throwable cause) {
+        return cause instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("23");
+    }
+
+    private static Map<String, Object> errorBody(Throwable cause) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        String message = cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+        if (isIntegrityViolation(cause)) message = "Unknown customer or product, or duplicate id";
+        body.put("error", message);
+        if (cause instanceof StockConflictException conflict) body.put("shortfalls", conflict.getShortfalls());
+        return body;
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) throw new HttpError(405, "Use " + method);
+    }
+
+    private static int parseId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "Not a product id: " + text);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (rawQuery == null) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                           URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> query, String name) {
+        try {
+            return Integer.parseInt(query.get(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + name + "' must be a whole number");
+        }
+    }
+
+    private static double doubleParam(Map<String, String> query, String name, double fallback) {
+        if (!query.containsKey(name)) return fallback;
+        try {
+            return Double.parseDouble(query.get(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + name + "' must be a number");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asObject(Object value) {
+        if (value instanceof Map) return (Map<String, Object>) value;
+        throw new IllegalArgumentException("Expected a JSON object");
+    }
+
+    private static List<?> asList(Object value) {
+        if (value instanceof List<?> list) return list;
+        throw new IllegalArgumentException("Expected a JSON array");
+    }
+
+    private static int intField(Map<String, Object> object, String name) {
+        if (object.get(name) instanceof Double number && number == Math.rint(number)) return number.intValue();
+        throw new IllegalArgumentException("'" + name + "' must be a whole number");
+    }
+
+    private static double doubleField(Map<String, Object> object, String name, double fallback) {
+        Object value = object.get(name);
+        if (value == null) return fallback;
+        if (value instanceof Double number) return number;
+        throw new IllegalArgumentException("'" + name + "' must be a number");
+    }
+
+    private static Product toProduct(Map<String, Object> object) {
+        Object name = object.get("name");
+        if (!(name instanceof String)) throw new IllegalArgumentException("'name' is required");
+        return new Product(intField(object, "id"), (String) name, intField(object, "quantity"),
+            doubleField(object, "price", 0.0), doubleField(object, "costPrice", 0.0));
+    }
+
+    private static Map<String, Object> toJson(Product product) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", product.getId());
+        json.put("name", product.getName());
+        json.put("quantity", product.getQuantity());
+        json.put("price", product.getPrice());
+        json.put("costPrice", product.getCostPrice());
+        json.put("profitMargin", product.getProfitMargin());
+        return json;
+    }
+
+    private static Map<String, Object> toJson(TransactionHistoryModel.Row row) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", row.id());
+        json.put("product", row.product());
+        json.put("customer", row.customer());
+        json.put("quantity", row.quantity());
+        json.put("unitCost", row.unitCost());
+        json.put("unitPrice", row.unitPrice());
+        json.put("total", row.total());
+        json.put("profit", row.profit());
+        json.put("date", row.date().toLocalDateTime().toString());
+        return json;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("inventory.server.port", 8080);
+        if (DBConnection.getPool() == null) {
+            System.err.println("❌ Cannot start: database is not reachable");
+            System.exit(1);
+        }
+        InventoryServer server = new InventoryServer(InventoryService.shared(), port);
+        // Keeps the catalog in step with edits made from the desktop terminals
+        ChangeFeed changeFeed = new ChangeFeed(InventoryService.shared().getCatalog(), Long.getLong("inventory.changes.pollMillis", 1000));
+        changeFeed.start();
+        ReplenishmentEngine.shared().start();
+        SalesArchive.shared().start();
+        Metrics.startFileExport();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            changeFeed.close();
+            ReplenishmentEngine.shared().close();
+            SalesArchive.shared().close();
+            Metrics.stopFileExport();
+            server.stop();
+            InventoryService.shared().close();
+            DBConnection.shutdown();
+        }));
+        server.start();
+    }
+}
@@ -0,0 +1,265 @@
+import java.sql.*;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The inventory operations without any user interface: catalog, stock,
+ * checkout, customers, suppliers and dashboard figures.
+ * Every call runs on its own virtual thread and returns a CompletableFuture,
+ * so any number of terminals, batch jobs or load tests can drive it at once;
+ * the connection pool bounds how many actually talk to the database.
+ * Writes keep the shared ProductCatalog in step.
+ */
+public class InventoryService implements AutoCloseable {
+    private static final Metrics.Family<LatencyHistogram> CHECKOUT_TIMES = Metrics.timers("inventory_checkout_seconds",
+        "Checkout from submission to outcome, waiting for a thread and a connection included", "mode");
+    private static final Metrics.Counter CHECKOUT_CONFLICTS = Metrics.counter("inventory_checkout_conflicts_total",
+        "Checkouts refused because stock ran out");
+    private static InventoryService shared;
+
+    private final ProductCatalog catalog;
+    private final ExecutorService executor;
+    private final InventoryRepository repository;
+    private final SalesJournal salesJournal;
+
+    public InventoryService(ProductCatalog catalog, ExecutorService executor) {
+        this(catalog, executor, null);
+    }
+
+    /** With a journal, checkouts return once journaled and reach the database in batches. */
+    public InventoryService(ProductCatalog catalog, ExecutorService executor, SalesJournal salesJournal) {
+        this(catalog, executor, salesJournal, new JdbcInventoryRepository());
+    }
+
+    public InventoryService(ProductCatalog catalog, ExecutorService executor, SalesJournal salesJournal, InventoryRepository repository) {
+        this.catalog = catalog;
+        this.executor = executor;
+        this.salesJournal = salesJournal;
+        this.repository = repository;
+    }
+
+    /** Process-wide service over the shared catalog and, if configured, the shared sales journal, on virtual threads. */
+    public static synchronized InventoryService shared() {
+        if (shared == null) {
+            shared = new InventoryService(ProductCatalog.shared(), Executors.newVirtualThreadPerTaskExecutor(), SalesJournal.shared());
+        }
+        return shared;
+    }
+
+    public ProductCatalog getCatalog() {
+        return catalog;
+    }
+
+    public InventoryRepository getRepository() {
+        return repository;
+    }
+
+    /** The write-behind journal, or null when checkouts write directly. */
+    public SalesJournal getSalesJournal() {
+        return salesJournal;
+    }
+
+    private <T> CompletableFuture<T> async(Callable<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(work.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static Connection connect() throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null) throw new SQLException("Database is not reachable");
+        return conn;
+    }
+
+    // ---- catalog ----
+
+    public CompletableFuture<List<Product>> listProducts() {
+        return async(() -> {
+            catalog.ensureFresh();
+            return catalog.snapshot(Comparator.comparingInt(Product::getId));
+        });
+    }
+
+    /** Completes with null when the product does not exist. */
+    public CompletableFuture<Product> getProduct(int productId) {
+        return async(() -> {
+            catalog.ensureFresh();
+            return catalog.get(productId);
+        });
+    }
+
+    /** Inserts the product, or replaces name, stock and prices of an existing one. */
+    public CompletableFuture<Product> saveProduct(Product product) {
+        if (product.getName() == null || product.getName().isBlank()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Product name cannot be empty"));
+        }
+        return async(() -> {
+            repository.products().save(product);
+            Product saved = new Product(product.getId(), product.getName(), product.getQuantity(), product.getPrice(), product.getCostPrice());
+            catalog.put(saved);
+            return saved;
+        });
+    }
+
+    /** Number of sales recorded for the product, archived ones included. */
+    public CompletableFuture<Integer> countProductSales(int productId) {
+        return async(() -> (int) Math.min(repository.sales().countForProduct(productId), Integer.MAX_VALUE));
+    }
+
+    /**
+     * Deletes the product; its sales stay and show as 'Deleted Product'.
+     * Where a foreign key still links them (any database migration 9 did not partition) it deletes them too.
+     * Completes with false if it did not exist.
+     */
+    public CompletableFuture<Boolean> deleteProduct(int productId) {
+        return async(() -> {
+            boolean deleted = repository.products().delete(productId);
+            catalog.remove(productId);
+            return deleted;
+        });
+    }
+
+    // ---- stock and checkout ----
+
+    /**
+     * Adds {@code delta} units (negative to remove). Fails with
+     * StockConflictException if the product is missing or would go negative,
+     * counting units the sales journal has sold but not yet written as gone.
+     */
+    public CompletableFuture<StockAdjuster.Result> adjustStock(int productId, int delta) {
+        return async(() -> {
+            try {
+                StockAdjuster.Result result = repository.sales().adjustStock(productId, delta, delta < 0 ? reservedStock(productId) : 0);
+                catalog.setQuantity(productId, result.newStock());
+                return result;
+            } catch (StockConflictException e) {
+                applyShortfalls(e);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Sells every line in one transaction. Fails with StockConflictException,
+     * with nothing written, if any line cannot be covered.
+     * With a sales journal the cart is checked against cached stock and
+     * journaled instead; see SalesJournal.
+     */
+    public CompletableFuture<CheckoutProcessor.Receipt> checkout(int customerId, List<CheckoutProcessor.Line> lines) {
+        List<CheckoutProcessor.Line> cart = List.copyOf(lines);
+        long start = System.nanoTime();
+        if (salesJournal != null) return timedCheckout("journal", start, () -> salesJournal.append(customerId, cart));
+        return timedCheckout("direct", start, () -> {
+            try {
+                CheckoutProcessor.Receipt receipt = repository.sales().checkout(customerId, cart);
+                for (CheckoutProcessor.Line line : cart) catalog.adjustQuantity(line.productId(), -line.quantity());
+                return receipt;
+            } catch (StockConflictException e) {
+                applyShortfalls(e);
+                throw e;
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> timedCheckout(String mode, long start, Callable<T> work) {
+        return async(() -> {
+            try {
+                return work.call();
+            } catch (StockConflictException e) {
+                CHECKOUT_CONFLICTS.increment();
+                throw e;
+            } finally {
+                CHECKOUT_TIMES.get(mode).recordSince(start);
+            }
+        });
+    }
+
+    // A conflict tells us the real stock of the lines that failed; the cache was behind on them
+    /** Units of the product sold through the sales journal but not yet in the database; 0 without a journal. */
+    public int reservedStock(int productId) {
+        return salesJournal == null ? 0 : salesJournal.reservedQuantity(productId);
+    }
+
+    private void applyShortfalls(StockConflictException conflict) {
+        for (StockConflictException.Shortfall shortfall : conflict.getShortfalls()) {
+            if (shortfall.available() < 0) catalog.remove(shortfall.productId());
+            else catalog.setQuantity(shortfall.productId(), shortfall.available());
+        }
+    }
+
+    // ---- customers and suppliers ----
+
+    public CompletableFuture<List<Customer>> listCustomers() {
+        return async(() -> repository.customers().findAll());
+    }
+
+    public CompletableFuture<Customer> addCustomer(Customer customer) {
+        return async(() -> {
+            repository.customers().insert(customer);
+            ContactDirectory.shared().putCustomer(customer);
+            return customer;
+        });
+    }
+
+    public CompletableFuture<List<Supplier>> listSuppliers() {
+        return async(() -> repository.suppliers().findAll());
+    }
+
+    public CompletableFuture<Supplier> addSupplier(Supplier supplier) {
+        return async(() -> {
+            repository.suppliers().insert(supplier);
+            ContactDirectory.shared().putSupplier(supplier);
+            return supplier;
+        });
+    }
+
+    /** Adds or updates which supplier delivers a product and re-plans reorders. */
+    public CompletableFuture<ReplenishmentEngine.Link> linkSupplier(ReplenishmentEngine.Link link) {
+        return async(() -> {
+            try (Connection conn = connect()) {
+                ReplenishmentEngine.saveLink(conn, link);
+            }
+            ReplenishmentEngine.shared().evaluateSoon();
+            return link;
+        });
+    }
+
+    public CompletableFuture<ReplenishmentEngine.Plan> replenishmentPlan() {
+        return async(() -> {
+            ReplenishmentEngine.Plan plan = ReplenishmentEngine.shared().getLatest();
+            return plan != null ? plan : ReplenishmentEngine.shared().evaluate();
+        });
+    }
+
+    // ---- dashboard ----
+
+    public CompletableFuture<StatsEngine.Snapshot> stats() {
+        return async(() -> {
+            try (Connection conn = connect()) {
+                return StatsEngine.load(conn);
+            }
+        });
+    }
+
+    /** Slices the sales history held by the shared SalesAnalytics; the first call loads it. */
+    public CompletableFuture<SalesAnalytics.Result> analyze(SalesAnalytics.Filter filter, SalesAnalytics.GroupBy groupBy) {
+        return async(() -> SalesAnalytics.shared().query(filter, groupBy));
+    }
+
+    /** Stops accepting work; calls already running finish. Flushes and closes the sales journal. */
+    @Override
+    public void close() {
+        executor.shutdown();
+        if (salesJournal != null) salesJournal.close();
+    }
+}
@@ -0,0 +1,207 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * InventoryRepository over DBConnection's pool. The SQL is MySQL's; the
+ * embedded H2 database runs in MySQL mode, so the same statements serve both.
+ */
+public class JdbcInventoryRepository implements InventoryRepository {
+    private static final SqlQuery SAVE_PRODUCT = SqlQuery.named("product.save",
+        "INSERT INTO product (id, name, quantity, price, cost_price) VALUES (?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE name=VALUES(name), quantity=VALUES(quantity), price=VALUES(price), cost_price=VALUES(cost_price)");
+    private static final SqlQuery DELETE_PRODUCT = SqlQuery.named("product.delete", "DELETE FROM product WHERE id = ?");
+    private static final SqlQuery FIND_CUSTOMERS = SqlQuery.named("customer.find_all", "SELECT id, name, email FROM customer ORDER BY id");
+    private static final SqlQuery INSERT_CUSTOMER = SqlQuery.named("customer.insert", "INSERT INTO customer (id, name, email) VALUES (?, ?, ?)");
+    private static final SqlQuery FIND_SUPPLIERS = SqlQuery.named("supplier.find_all", "SELECT id, name, contact FROM supplier ORDER BY id");
+    private static final SqlQuery INSERT_SUPPLIER = SqlQuery.named("supplier.insert", "INSERT INTO supplier (id, name, contact) VALUES (?, ?, ?)");
+    private static final SqlQuery COUNT_SALES = SqlQuery.named("sales.count_for_product",
+        "SELECT COUNT(*) FROM `transaction` WHERE product_id = ?");
+    private static final SqlQuery COUNT_ARCHIVED_SALES = SqlQuery.named("sales.count_archived_for_product",
+        "SELECT COUNT(*) FROM transaction_archive WHERE product_id = ?");
+
+    private final CheckoutProcessor checkoutProcessor = new CheckoutProcessor();
+    private final StockAdjuster stockAdjuster = new StockAdjuster();
+
+    private final Products products = new Products() {
+        @Override
+        public List<Product> findAll() throws SQLException {
+            List<Product> found = new ArrayList<>();
+            try (Connection conn = connect();
+                 PreparedStatement stmt = SqlQuery.named("product.find_all", SchemaCapabilities.get(conn).productLoadQuery() + " ORDER BY id").prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) found.add(product(rs));
+            }
+            return found;
+        }
+
+        @Override
+        public Product findById(int id) throws SQLException {
+            try (Connection conn = connect();
+                 PreparedStatement stmt = SqlQuery.named("product.find_by_id", SchemaCapabilities.get(conn).productLoadQuery() + " WHERE id = ?").prepare(conn)) {
+                stmt.setInt(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? product(rs) : null;
+                }
+            }
+        }
+
+        @Override
+        public void save(Product product) throws SQLException {
+            try (Connection conn = connect();
+                 PreparedStatement stmt = SAVE_PRODUCT.prepare(conn)) {
+                stmt.setInt(1, product.getId());
+                stmt.setString(2, product.getName());
+                stmt.setInt(3, product.getQuantity());
+                stmt.setDouble(4, product.getPrice());
+                stmt.setDouble(5, product.getCostPrice());
+                stmt.executeUpdate();
+            }
+        }
+
+        /** Where a foreign key still links them a delete takes the sales too, and the totals are corrected to match. */
+        @Override
+        public boolean delete(int id) throws SQLException {
+            try (Connection conn = connect()) {
+                boolean cascades = SchemaCapabilities.get(conn).deletesSalesWithProducts();
+                conn.setAutoCommit(false);
+                try {
+                    if (cascades) {
+                        StatsEngine.removeProductSales(conn, id);
+                        SalesRollup.removeProductSales(conn, id);
+                    }
+                    int deleted;
+                    try (PreparedStatement stmt = DELETE_PRODUCT.prepare(conn)) {
+                        stmt.setInt(1, id);
+                        deleted = stmt.executeUpdate();
+                    }
+                    conn.commit();
+                    if (cascades) SalesAnalytics.productDeleted(id);
+                    return deleted > 0;
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+        }
+
+        private Product product(ResultSet rs) throws SQLException {
+            return new Product(rs.getInt("id"), rs.getString("name"), rs.getInt("quantity"), rs.getDouble("price"), rs.getDouble("cost_price"));
+        }
+    };
+
+    private final Customers customers = new Customers() {
+        @Override
+        public List<Customer> findAll() throws SQLException {
+            List<Customer> found = new ArrayList<>();
+            try (Connection conn = connect();
+                 PreparedStatement stmt = FIND_CUSTOMERS.prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) found.add(new Customer(rs.getInt("id"), rs.getString("name"), rs.getString("email")));
+            }
+            return found;
+        }
+
+        @Override
+        public void insert(Customer customer) throws SQLException {
+            try (Connection conn = connect();
+                 PreparedStatement stmt = INSERT_CUSTOMER.prepare(conn)) {
+                stmt.setInt(1, customer.getId());
+                stmt.setString(2, customer.getName());
+                stmt.setString(3, customer.getEmail());
+                stmt.executeUpdate();
+            }
+        }
+    };
+
+    private final Suppliers suppliers = new Suppliers() {
+        @Override
+        public List<Supplier> findAll() throws SQLException {
+            List<Supplier> found = new ArrayList<>();
+            try (Connection conn = connect();
+                 PreparedStatement stmt = FIND_SUPPLIERS.prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) found.add(new Supplier(rs.getInt("id"), rs.getString("name"), rs.getString("contact")));
+            }
+            return found;
+        }
+
+        @Override
+        public void insert(Supplier supplier) throws SQLException {
+            try (Connection conn = connect();
+                 PreparedStatement stmt = INSERT_SUPPLIER.prepare(conn)) {
+                stmt.setInt(1, supplier.getId());
+                stmt.setString(2, supplier.getName());
+                stmt.setString(3, supplier.getContact());
+                stmt.executeUpdate();
+            }
+        }
+    };
+
+    private final Sales sales = new Sales() {
+        // The monthly rollups answer in one indexed read; the tables are counted only when they are stale
+        @Override
+        public long countForProduct(int productId) throws SQLException {
+            try (Connection conn = connect()) {
+                long count = SalesRollup.productSales(conn, productId);
+                if (count >= 0) return count;
+                count = count(conn, COUNT_SALES, productId);
+                if (SchemaCapabilities.get(conn).hasSalesArchive()) {
+                    count += count(conn, COUNT_ARCHIVED_SALES, productId);
+                }
+                return count;
+            }
+        }
+
+        @Override
+        public CheckoutProcessor.Receipt checkout(int customerId, List<CheckoutProcessor.Line> lines) throws SQLException {
+            try (Connection conn = connect()) {
+                return checkoutProcessor.checkout(conn, customerId, lines);
+            }
+        }
+
+        @Override
+        public StockAdjuster.Result adjustStock(int productId, int delta, int reserved) throws SQLException {
+            try (Connection conn = connect()) {
+                return stockAdjuster.adjust(conn, productId, delta, reserved);
+            }
+        }
+
+        private long count(Connection conn, SqlQuery query, int id) throws SQLException {
+            try (PreparedStatement stmt = query.prepare(conn)) {
+                stmt.setInt(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0;
+                }
+            }
+        }
+    };
+
+    private static Connection connect() throws SQLException {
+        Connection conn = DBConnection.getConnection();
+        if (conn == null) throw new SQLException("Database is not reachable");
+        return conn;
+    }
+
+    @Override
+    public Products products() {
+        return products;
+    }
+
+    @Override
+    public Customers customers() {
+        return customers;
+    }
+
+    @Override
+    public Suppliers suppliers() {
+        return suppliers;
+    }
+
+    @Override
+    public Sales sales() {
+        return sales;
+    }
+}
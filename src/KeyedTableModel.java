@@ -0,0 +1,105 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Read-only table model whose rows are keyed by the int id in column 0
+ * and kept in a fixed order. upsert() and remove() patch one row and fire
+ * just that row's insert, update or delete event, so the table repaints
+ * only what changed and keeps its selection and scroll position;
+ * replaceAll() is for full loads.
+ * All methods must be called on the Event Dispatch Thread.
+ */
+public class KeyedTableModel extends AbstractTableModel {
+    private final String[] columns;
+    private final Comparator<Object[]> order;
+    private final List<Object[]> rows = new ArrayList<>();
+    private final IntObjectMap<Object[]> byKey = new IntObjectMap<>(256);
+
+    /** Rows sort by {@code order}, then by key, so every row has exactly one place. */
+    public KeyedTableModel(String[] columns, Comparator<Object[]> order) {
+        this.columns = columns;
+        this.order = order.thenComparingInt(KeyedTableModel::key);
+    }
+
+    public static Comparator<Object[]> byKey() {
+        return Comparator.comparingInt(KeyedTableModel::key);
+    }
+
+    private static int key(Object[] row) {
+        return (Integer) row[0];
+    }
+
+    public void replaceAll(List<Object[]> fresh) {
+        rows.clear();
+        byKey.clear();
+        for (Object[] row : fresh) {
+            if (byKey.put(key(row), row) == null) rows.add(row);
+        }
+        rows.sort(order);
+        fireTableDataChanged();
+    }
+
+    /** Inserts the row, or replaces the row with the same key, moving it if its sort position changed. */
+    public void upsert(Object[] row) {
+        Object[] old = byKey.put(key(row), row);
+        if (old == null) {
+            int at = insertionPoint(row);
+            rows.add(at, row);
+            fireTableRowsInserted(at, at);
+            return;
+        }
+        int from = Collections.binarySearch(rows, old, order);
+        if (java.util.Arrays.equals(old, row)) {
+            rows.set(from, row);
+            return;
+        }
+        boolean staysPut = (from == 0 || order.compare(rows.get(from - 1), row) < 0)
+            && (from == rows.size() - 1 || order.compare(row, rows.get(from + 1)) < 0);
+        if (staysPut) {
+            rows.set(from, row);
+            fireTableRowsUpdated(from, from);
+            return;
+        }
+        rows.remove(from);
+        fireTableRowsDeleted(from, from);
+        int at = insertionPoint(row);
+        rows.add(at, row);
+        fireTableRowsInserted(at, at);
+    }
+
+    public void remove(int key) {
+        Object[] old = byKey.remove(key);
+        if (old == null) return;
+        int at = Collections.binarySearch(rows, old, order);
+        rows.remove(at);
+        fireTableRowsDeleted(at, at);
+    }
+
+    private int insertionPoint(Object[] row) {
+        int at = Collections.binarySearch(rows, row, order);
+        return at < 0 ? -at - 1 : at;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return rows.get(row)[column];
+    }
+}
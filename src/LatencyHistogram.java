@@ -0,0 +1,127 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram in nanoseconds with log-linear buckets, in
+ * the style of HdrHistogram: each power of two is split into 32 buckets,
+ * so any reported value is within about 3% of the recorded one. Values
+ * from 0 to about 73 minutes are kept; longer ones count as the maximum.
+ * record() only bumps counters, never allocates, and is safe from any
+ * thread; readers take a snapshot().
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final long MAX_VALUE = (1L << 42) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(index(value));
+        sum.addAndGet(value);
+        long seen;
+        while (value > (seen = max.get()) && !max.compareAndSet(seen, value)) {
+            // lost a race with a concurrent record(); retry against the new maximum
+        }
+    }
+
+    /** Records the time elapsed since {@code startNanos}, a System.nanoTime() reading. */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, sum.get(), max.get());
+    }
+
+    // Values below 2 * SUB_COUNT get a bucket each; above that every power of two gets SUB_COUNT buckets
+    private static int index(long value) {
+        int exponent = 63 - Long.numberOfLeadingZeros(value | 1);
+        if (exponent <= SUB_BITS) return (int) value;
+        int shift = exponent - SUB_BITS;
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    private static long lowestValue(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = (index >>> SUB_BITS) - 1;
+        return (long) ((index & (SUB_COUNT - 1)) | SUB_COUNT) << shift;
+    }
+
+    private static long highestValue(int index) {
+        return index < SUB_COUNT ? index : lowestValue(index) + (1L << ((index >>> SUB_BITS) - 1)) - 1;
+    }
+
+    /** Counts at one point in time. Snapshots of the same histogram can be subtracted to get an interval. */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sumNanos() {
+            return sum;
+        }
+
+        public double meanNanos() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        public long maxNanos() {
+            return max;
+        }
+
+        /** The value that {@code quantile} (0..1) of the recordings are at or below, to bucket precision. */
+        public long percentileNanos(double quantile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValue(i), max);
+            }
+            return max;
+        }
+
+        /** Recordings whose whole bucket lies at or below {@code nanos}. */
+        public long countAtMost(long nanos) {
+            long n = 0;
+            for (int i = 0; i < counts.length && highestValue(i) <= nanos; i++) n += counts[i];
+            return n;
+        }
+
+        /** What was recorded since {@code earlier}; the maximum is then only known to bucket precision. */
+        public Snapshot minus(Snapshot earlier) {
+            long[] diff = Arrays.copyOf(counts, counts.length);
+            int top = -1;
+            for (int i = 0; i < diff.length; i++) {
+                diff[i] -= earlier.counts[i];
+                if (diff[i] > 0) top = i;
+            }
+            long intervalMax = top < 0 ? 0 : Math.min(highestValue(top), max);
+            return new Snapshot(diff, count - earlier.count, sum - earlier.sum, intervalMax);
+        }
+    }
+}
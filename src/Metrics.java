@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Process-wide registry of latency histograms, counters and gauges, with
+ * Prometheus text export. Metrics come in families of one name and at
+ * most one label; callers on hot paths keep the family (or the metric
+ * itself) in a static field, so recording is a map lookup at most.
+ *
+ * The export goes to GET /metrics on InventoryServer and, when
+ * inventory.metrics.file is set, to that file every
+ * inventory.metrics.exportSeconds (default 15).
+ */
+public final class Metrics {
+    // Histogram bucket bounds in the export, in seconds
+    private static final double[] BOUNDS = {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final Map<String, Family<?>> families = new ConcurrentHashMap<>();
+    private static final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService exporter;
+
+    private Metrics() {
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long n) {
+            value.add(n);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /** Metrics sharing a name, one per value of the family's label. */
+    public static final class Family<M> {
+        private final String name;
+        private final String help;
+        private final String labelName;
+        private final String type;
+        private final Function<String, M> factory;
+        private final Map<String, M> children = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, String labelName, String type, Function<String, M> factory) {
+            this.name = name;
+            this.help = help;
+            this.labelName = labelName;
+            this.type = type;
+            this.factory = factory;
+        }
+
+        /** The metric for {@code labelValue}, created on first use. */
+        public M get(String labelValue) {
+            M metric = children.get(labelValue);
+            return metric != null ? metric : children.computeIfAbsent(labelValue, factory);
+        }
+
+        /** The family's only metric, for families without a label. */
+        public M get() {
+            return get("");
+        }
+
+        private String series(String labelValue, String extraLabel) {
+            StringBuilder sb = new StringBuilder();
+            if (labelName != null) sb.append(labelName).append("=\"").append(escape(labelValue)).append('"');
+            if (extraLabel != null) sb.append(sb.length() > 0 ? "," : "").append(extraLabel);
+            return sb.length() == 0 ? "" : "{" + sb + "}";
+        }
+    }
+
+    private record Gauge(String help, DoubleSupplier value) {
+    }
+
+    /** One histogram in the registry, as shown by the diagnostics panel. */
+    public record Timer(String name, String label, LatencyHistogram histogram) {
+        public String displayName() {
+            return label.isEmpty() ? name : name + "{" + label + "}";
+        }
+    }
+
+    /** Latency histograms told apart by {@code labelName}; null for a family with a single metric. */
+    public static Family<LatencyHistogram> timers(String name, String help, String labelName) {
+        return family(name, help, labelName, "histogram", _ -> new LatencyHistogram());
+    }
+
+    public static LatencyHistogram timer(String name, String help) {
+        return timers(name, help, null).get();
+    }
+
+    public static Family<Counter> counters(String name, String help, String labelName) {
+        return family(name, help, labelName, "counter", _ -> new Counter());
+    }
+
+    public static Counter counter(String name, String help) {
+        return counters(name, help, null).get();
+    }
+
+    /** Reports {@code value} at every export; registering the name again replaces the earlier supplier. */
+    public static void gauge(String name, String help, DoubleSupplier value) {
+        gauges.put(name, new Gauge(help, value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <M> Family<M> family(String name, String help, String labelName, String type, Function<String, M> factory) {
+        Family<?> family = families.computeIfAbsent(name, _ -> new Family<>(name, help, labelName, type, factory));
+        if (!family.type.equals(type)) throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        return (Family<M>) family;
+    }
+
+    /** Every histogram, sorted by name and label. */
+    public static List<Timer> allTimers() {
+        List<Timer> timers = new ArrayList<>();
+        for (Family<?> family : new TreeMap<>(families).values()) {
+            if (!family.type.equals("histogram")) continue;
+            for (Map.Entry<String, ?> child : new TreeMap<>(family.children).entrySet()) {
+                timers.add(new Timer(family.name, family.labelName == null ? "" : family.labelName + "=" + child.getKey(),
+                    (LatencyHistogram) child.getValue()));
+            }
+        }
+        return timers;
+    }
+
+    /** Every counter and gauge by display name, sorted. */
+    public static Map<String, Double> values() {
+        Map<String, Double> values = new TreeMap<>();
+        for (Family<?> family : families.values()) {
+            if (!family.type.equals("counter")) continue;
+            family.children.forEach((label, counter) ->
+                values.put(label.isEmpty() ? family.name : family.name + "{" + family.labelName + "=" + label + "}", (double) ((Counter) counter).get()));
+        }
+        gauges.forEach((name, gauge) -> values.put(name, gauge.value().getAsDouble()));
+        return values;
+    }
+
+    /** All metrics in the Prometheus text exposition format, version 0.0.4. */
+    public static String prometheus() {
+        StringBuilder out = new StringBuilder();
+        for (Family<?> family : new TreeMap<>(families).values()) {
+            if (family.children.isEmpty()) continue;
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, ?> child : new TreeMap<>(family.children).entrySet()) {
+                String label = child.getKey();
+                if (child.getValue() instanceof Counter counter) {
+                    out.append(family.name).append(family.series(label, null)).append(' ').append(counter.get()).append('\n');
+                    continue;
+                }
+                LatencyHistogram.Snapshot snapshot = ((LatencyHistogram) child.getValue()).snapshot();
+                for (double bound : BOUNDS) {
+                    out.append(family.name).append("_bucket").append(family.series(label, "le=\"" + number(bound) + "\""))
+                        .append(' ').append(snapshot.countAtMost((long) (bound * 1e9))).append('\n');
+                }
+                out.append(family.name).append("_bucket").append(family.series(label, "le=\"+Inf\"")).append(' ').append(snapshot.count()).append('\n');
+                out.append(family.name).append("_sum").append(family.series(label, null)).append(' ').append(number(snapshot.sumNanos() / 1e9)).append('\n');
+                out.append(family.name).append("_count").append(family.series(label, null)).append(' ').append(snapshot.count()).append('\n');
+            }
+        }
+        for (Map.Entry<String, Gauge> entry : new TreeMap<>(gauges).entrySet()) {
+            String name = entry.getKey();
+            out.append("# HELP ").append(name).append(' ').append(entry.getValue().help()).append('\n');
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            out.append(name).append(' ').append(number(entry.getValue().value().getAsDouble())).append('\n');
+        }
+        return out.toString();
+    }
+
+    /** Writes prometheus() to {@code file} through a temporary file, so a scraper never reads half of it. */
+    public static void writePrometheus(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temp, prometheus(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Starts the periodic file export if inventory.metrics.file is set. Safe to call more than once. */
+    public static synchronized void startFileExport() {
+        String file = System.getProperty("inventory.metrics.file");
+        if (file == null || file.isBlank() || exporter != null) return;
+        long period = Math.max(1, Long.getLong("inventory.metrics.exportSeconds", 15));
+        Path path = Path.of(file);
+        exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-export");
+            t.setDaemon(true);
+            return t;
+        });
+        exporter.scheduleWithFixedDelay(() -> {
+            try {
+                writePrometheus(path);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("⚠️ Could not export metrics to " + path + ": " + e.getMessage());
+            }
+        }, period, period, TimeUnit.SECONDS);
+        System.out.println("📊 Exporting metrics to " + path.toAbsolutePath() + " every " + period + "s");
+    }
+
+    /** Writes a final export and stops the periodic one. */
+    public static synchronized void stopFileExport() {
+        if (exporter == null) return;
+        exporter.shutdownNow();
+        exporter = null;
+        try {
+            writePrometheus(Path.of(System.getProperty("inventory.metrics.file")));
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not export metrics: " + e.getMessage());
+        }
+    }
+
+    private static String number(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+        return String.format(Locale.ROOT, "%.9g", value).replaceFirst("0+$", "").replaceFirst("\\.$", "");
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
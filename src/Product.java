@@ -3,12 +3,18 @@ public class Product {
     private String name;
     private int quantity;
     private double price;
+    private double costPrice;
 
     public Product(int id, String name, int quantity, double price) {
+        this(id, name, quantity, price, 0.0);
+    }
+
+    public Product(int id, String name, int quantity, double price, double costPrice) {
         this.id = id;
         this.name = name;
         this.quantity = quantity;
         this.price = price;
+        this.costPrice = costPrice;
     }
 
     // Getters
@@ -16,12 +22,24 @@ public class Product {
     public String getName() { return name; }
     public int getQuantity() { return quantity; }
     public double getPrice() { return price; }
+    public double getCostPrice() { return costPrice; }
+
+    // Same formula as the generated product.profit_margin column; 0 when no cost price is known
+    public double getProfitMargin() {
+        return costPrice > 0 ? (price - costPrice) / costPrice * 100 : 0.0;
+    }
 
     // Setters
     public void setId(int id) { this.id = id; }
     public void setName(String name) { this.name = name; }
     public void setQuantity(int quantity) { this.quantity = quantity; }
     public void setPrice(double price) { this.price = price; }
+    public void setCostPrice(double costPrice) { this.costPrice = costPrice; }
+
+    /** Copy with a different stock level; cached products are replaced rather than mutated. */
+    public Product withQuantity(int newQuantity) {
+        return new Product(id, name, newQuantity, price, costPrice);
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,259 @@
+import java.sql.*;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Shared in-memory copy of the product table, keyed by id.
+ * Loaded once, patched with deltas after local writes, and revalidated
+ * against the database on an interval: a cheap fingerprint query every
+ * few seconds, a full reload every few minutes. Pickers and tables
+ * render from here instead of each running their own SELECT, and a
+ * SearchIndex kept in step with every change backs type-ahead lookups.
+ * Cached Product objects are never mutated; changes replace them.
+ */
+public class ProductCatalog {
+    // Change detector: a CRC per row over every cached field, XORed so row order doesn't matter but offsetting edits can't cancel out
+    private static final String ROW_TEXT = "CONCAT_WS('|', id, name, quantity, CAST(ROUND(price * 100) AS SIGNED), %s)";
+    private static final String COST_CENTS = "CAST(ROUND(COALESCE(cost_price, 0) * 100) AS SIGNED)";
+    private static final int H2_FUNCTION_NOT_FOUND = 90022;
+
+    private static ProductCatalog shared;
+
+    private final IntObjectMap<Product> products = new IntObjectMap<>(256);
+    private final SearchIndex<Product> index = new SearchIndex<>(Product::getId, Product::getName);
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    // Lets one caller refresh while concurrent callers wait for its result instead of querying too
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final long checkIntervalMillis;
+    private final long reloadIntervalMillis;
+    private volatile boolean loaded;
+    private volatile long version;
+    private long lastLoadMillis;
+    private long lastCheckMillis;
+    private String lastFingerprint;
+    // XOR of rowHash() over the cache, matching the fingerprint query, maintained as deltas are applied
+    private long rowHashes;
+
+    public ProductCatalog(long checkIntervalMillis, long reloadIntervalMillis) {
+        this.checkIntervalMillis = checkIntervalMillis;
+        this.reloadIntervalMillis = reloadIntervalMillis;
+    }
+
+    /** Process-wide catalog, configured by inventory.catalog.checkSeconds / reloadSeconds. */
+    public static synchronized ProductCatalog shared() {
+        if (shared == null) {
+            shared = new ProductCatalog(Long.getLong("inventory.catalog.checkSeconds", 15) * 1000,
+                                        Long.getLong("inventory.catalog.reloadSeconds", 300) * 1000);
+        }
+        return shared;
+    }
+
+    /**
+     * Makes sure the cache is loaded and not older than the configured
+     * intervals. Runs no query when nothing is due; concurrent callers
+     * share a single refresh.
+     * Blocking: call it off the EDT.
+     */
+    public void ensureFresh() throws SQLException {
+        if (!isDue()) return;
+        refreshLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (!loaded || now - lastLoadMillis >= reloadIntervalMillis) {
+                reload();
+            } else if (now - lastCheckMillis >= checkIntervalMillis) {
+                revalidate();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private synchronized boolean isDue() {
+        long now = System.currentTimeMillis();
+        return !loaded || now - lastLoadMillis >= reloadIntervalMillis || now - lastCheckMillis >= checkIntervalMillis;
+    }
+
+    /** Reloads everything from the database. */
+    public void reload() throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            IntObjectMap<Product> fresh = new IntObjectMap<>(Math.max(256, size()));
+            try (PreparedStatement stmt = SqlQuery.named("catalog.load", SchemaCapabilities.get(conn).productLoadQuery()).prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Product p = new Product(rs.getInt("id"), rs.getString("name"), rs.getInt("quantity"),
+                        rs.getDouble("price"), rs.getDouble("cost_price"));
+                    fresh.put(p.getId(), p);
+                }
+            }
+            String fingerprint = fingerprint(conn);
+            synchronized (this) {
+                products.forEachValue(p -> {
+                    if (!fresh.containsKey(p.getId())) index.remove(p.getId());
+                });
+                products.clear();
+                rowHashes = 0;
+                fresh.forEachValue(this::store);
+                lastLoadMillis = lastCheckMillis = System.currentTimeMillis();
+                lastFingerprint = fingerprint;
+                loaded = true;
+                version++;
+            }
+        }
+        fireChanged();
+    }
+
+    /** Compares the database fingerprint with the one from the last load and reloads on mismatch. */
+    public boolean revalidate() throws SQLException {
+        String current;
+        try (Connection conn = DBConnection.getConnection()) {
+            current = fingerprint(conn);
+        }
+        synchronized (this) {
+            lastCheckMillis = System.currentTimeMillis();
+            if (current.equals(lastFingerprint)) return false;
+        }
+        reload();
+        return true;
+    }
+
+    private static String fingerprint(Connection conn) throws SQLException {
+        boolean mySql = "MySQL".equals(conn.getMetaData().getDatabaseProductName());
+        String rowText = String.format(ROW_TEXT, SchemaCapabilities.get(conn).hasProductCostPrice() ? COST_CENTS : "0");
+        // H2 has no BIT_XOR or CRC32 of its own; EmbeddedDatabase supplies the CRC32
+        SqlQuery query = SqlQuery.named("catalog.fingerprint", "SELECT COUNT(*), COALESCE(" + (mySql ? "BIT_XOR" : "BIT_XOR_AGG") +
+            "(CRC32(" + rowText + ")), 0) FROM product");
+        try {
+            return runFingerprint(conn, query);
+        } catch (SQLException e) {
+            if (mySql || e.getErrorCode() != H2_FUNCTION_NOT_FOUND) throw e;
+            EmbeddedDatabase.registerFunctions(conn); // an H2 database not opened through EmbeddedDatabase
+            return runFingerprint(conn, query);
+        }
+    }
+
+    private static String runFingerprint(Connection conn, SqlQuery query) throws SQLException {
+        try (PreparedStatement stmt = query.prepare(conn);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1) + ":" + rs.getLong(2);
+        }
+    }
+
+    // The CRC the fingerprint query computes for the product's row
+    private static long rowHash(Product p) {
+        return EmbeddedDatabase.crc32(p.getId() + "|" + p.getName() + "|" + p.getQuantity() + "|" +
+            Math.round(p.getPrice() * 100) + "|" + Math.round(p.getCostPrice() * 100));
+    }
+
+    public synchronized Product get(int id) {
+        return products.get(id);
+    }
+
+    public synchronized int size() {
+        return products.size();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Increments on every change, so callers can tell whether a snapshot is still current. */
+    public long getVersion() {
+        return version;
+    }
+
+    public synchronized List<Product> snapshot(Comparator<Product> order) {
+        List<Product> list = products.values();
+        list.sort(order);
+        return list;
+    }
+
+    /** Type-ahead lookup by id or name; see SearchIndex. Needs no database, so it is safe on the EDT. */
+    public List<Product> search(String query, int limit, Predicate<Product> filter) {
+        return index.search(query, limit, filter);
+    }
+
+    // ---- deltas after local writes: keep the cache in step without reloading ----
+
+    public void put(Product product) {
+        synchronized (this) {
+            store(product);
+            afterLocalWrite();
+        }
+        fireChanged();
+    }
+
+    public void remove(int id) {
+        synchronized (this) {
+            account(products.remove(id));
+            index.remove(id);
+            afterLocalWrite();
+        }
+        fireChanged();
+    }
+
+    public void setQuantity(int id, int quantity) {
+        synchronized (this) {
+            Product p = products.get(id);
+            if (p == null) return;
+            store(p.withQuantity(quantity));
+            afterLocalWrite();
+        }
+        fireChanged();
+    }
+
+    public void adjustQuantity(int id, int delta) {
+        synchronized (this) {
+            Product p = products.get(id);
+            if (p == null) return;
+            store(p.withQuantity(p.getQuantity() + delta));
+            afterLocalWrite();
+        }
+        fireChanged();
+    }
+
+    /** Rows re-read from the database by the ChangeFeed, written by this or any other terminal. */
+    public void applyChanges(Collection<Product> changed, Collection<Integer> removed) {
+        synchronized (this) {
+            if (!loaded) return;
+            for (Product p : changed) store(p);
+            for (int id : removed) {
+                account(products.remove(id));
+                index.remove(id);
+            }
+            afterLocalWrite();
+        }
+        fireChanged();
+    }
+
+    private void store(Product product) {
+        account(products.put(product.getId(), product));
+        account(product);
+        index.put(product);
+    }
+
+    // XOR adds a row's hash and takes it out again
+    private void account(Product p) {
+        if (p != null) rowHashes ^= rowHash(p);
+    }
+
+    // Our own write moved the database fingerprint; expect the new value so the next check doesn't reload for it
+    private void afterLocalWrite() {
+        version++;
+        lastFingerprint = products.size() + ":" + rowHashes;
+    }
+
+    /** Listener runs on the thread that made the change. */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    private void fireChanged() {
+        for (Runnable l : listeners) l.run();
+    }
+}
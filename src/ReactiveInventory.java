@@ -0,0 +1,225 @@
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Flow.Publisher views of the catalog, the sales history and checkout, for
+ * servers holding many client sessions at once.
+ *
+ * JDBC itself blocks, so the blocking happens on virtual threads and never
+ * on a caller's thread, and a ConcurrencyLimiter sized to the connection
+ * pool decides how many of those calls run at a time. Sessions beyond that
+ * wait in the limiter's queue, holding neither a thread nor a connection,
+ * and are turned away with RejectedExecutionException when it is full.
+ *
+ * Publishers are cold: nothing is read until a subscriber requests, and
+ * each subscriber gets its own pass. History is read one keyset page at a
+ * time, and the next page only once the subscriber has taken the last one
+ * and asked for more, so a slow reader holds back the query rather than
+ * filling memory.
+ */
+public class ReactiveInventory implements AutoCloseable {
+    /** A batch from a paged source; {@code last} when nothing follows it. */
+    private record Page<T>(List<T> items, boolean last) {}
+
+    private final InventoryService service;
+    private final ConcurrencyLimiter limiter;
+    private final ExecutorService executor;
+    private final int pageSize;
+
+    public ReactiveInventory(InventoryService service, ConcurrencyLimiter limiter, ExecutorService executor, int pageSize) {
+        if (pageSize < 1) throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        this.service = service;
+        this.limiter = limiter;
+        this.executor = executor;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Over {@code service}. By default as many calls run at once as the pool
+     * has connections (-Dinventory.reactive.concurrency), up to
+     * -Dinventory.reactive.maxQueued more wait at most
+     * -Dinventory.reactive.queueTimeoutMillis, and history is read
+     * -Dinventory.reactive.pageSize rows at a time.
+     */
+    public static ReactiveInventory fromSystemProperties(InventoryService service) {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+            Integer.getInteger("inventory.reactive.concurrency", ConnectionPool.Config.fromSystemProperties().maxSize),
+            Integer.getInteger("inventory.reactive.maxQueued", 10_000),
+            Long.getLong("inventory.reactive.queueTimeoutMillis", 30_000));
+        return new ReactiveInventory(service, limiter, Executors.newVirtualThreadPerTaskExecutor(),
+            Integer.getInteger("inventory.reactive.pageSize", 500));
+    }
+
+    public ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    /** Every product, ordered by id. */
+    public Flow.Publisher<Product> catalog() {
+        return paged(_ -> limiter.submit(service::listProducts).thenApply(products -> new Page<>(products, true)));
+    }
+
+    /** Sales matching {@code filter}, newest first, archived ones included. */
+    public Flow.Publisher<TransactionHistoryModel.Row> history(TransactionHistoryModel.Filter filter) {
+        return paged(after -> limiter.submit(() -> async(() -> TransactionHistoryModel.queryPage(filter,
+                after == null ? TransactionHistoryModel.Direction.FIRST : TransactionHistoryModel.Direction.OLDER, after, pageSize)))
+            .thenApply(rows -> new Page<>(rows, rows.size() < pageSize)));
+    }
+
+    /**
+     * The receipt, once the checkout is written; it runs when the first
+     * subscriber requests it. Fails with StockConflictException as
+     * InventoryService.checkout() does.
+     */
+    public Flow.Publisher<CheckoutProcessor.Receipt> checkout(int customerId, List<CheckoutProcessor.Line> lines) {
+        List<CheckoutProcessor.Line> cart = List.copyOf(lines);
+        CompletableFuture<CheckoutProcessor.Receipt> once = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+        return paged(_ -> {
+            if (started.getAndIncrement() == 0) {
+                limiter.submit(() -> service.checkout(customerId, cart)).whenComplete((receipt, failure) -> {
+                    if (failure != null) once.completeExceptionally(failure);
+                    else once.complete(receipt);
+                });
+            }
+            return once.thenApply(receipt -> new Page<>(List.of(receipt), true));
+        });
+    }
+
+    /** Stops starting new reads; pages already being read finish. */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> async(Callable<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(work.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static <T> Flow.Publisher<T> paged(Function<T, CompletableFuture<Page<T>>> nextPage) {
+        return subscriber -> {
+            PagedSubscription<T> subscription = new PagedSubscription<>(subscriber, nextPage);
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    /**
+     * Emits a page at a time as demand allows, asking for the page after the
+     * last item emitted once the buffer is empty. Signals go out from drain(),
+     * which one thread at a time runs.
+     */
+    private static final class PagedSubscription<T> implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Function<T, CompletableFuture<Page<T>>> nextPage;
+        private final Queue<T> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean fetching;
+        private volatile boolean exhausted;
+        private volatile Throwable failure;
+        private boolean done;
+        private T last;
+
+        PagedSubscription(Flow.Subscriber<? super T> subscriber, Function<T, CompletableFuture<Page<T>>> nextPage) {
+            this.subscriber = subscriber;
+            this.nextPage = nextPage;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("Subscribers must request a positive number of items, not " + n);
+                buffer.clear();
+            } else {
+                requested.accumulateAndGet(n, (current, more) -> current + more < 0 ? Long.MAX_VALUE : current + more);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) return;
+            int missed = 1;
+            do {
+                if (!done) emit();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            while (!cancelled) {
+                if (requested.get() > 0) {
+                    T item = buffer.poll();
+                    if (item != null) {
+                        if (requested.get() != Long.MAX_VALUE) requested.decrementAndGet();
+                        last = item;
+                        try {
+                            subscriber.onNext(item);
+                        } catch (RuntimeException e) {
+                            // A subscriber that throws has given up on the stream
+                            cancelled = true;
+                        }
+                        continue;
+                    }
+                }
+                if (!buffer.isEmpty() || fetching) return;
+                if (failure != null) {
+                    done = true;
+                    subscriber.onError(failure);
+                } else if (exhausted) {
+                    done = true;
+                    subscriber.onComplete();
+                } else if (requested.get() > 0) {
+                    fetch();
+                }
+                return;
+            }
+            done = true;
+            buffer.clear();
+        }
+
+        private void fetch() {
+            fetching = true;
+            CompletableFuture<Page<T>> page;
+            try {
+                page = nextPage.apply(last);
+            } catch (RuntimeException e) {
+                page = CompletableFuture.failedFuture(e);
+            }
+            page.whenComplete((result, e) -> {
+                if (e != null) {
+                    failure = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                } else {
+                    buffer.addAll(result.items());
+                    exhausted = result.last();
+                }
+                fetching = false;
+                drain();
+            });
+        }
+    }
+}
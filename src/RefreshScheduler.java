@@ -0,0 +1,84 @@
+import javax.swing.Timer;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Debounces and coalesces GUI refresh requests. Mutations ask for the
+ * datasets they touched; requests arriving within the debounce window are
+ * merged and each dataset is reloaded once. Loaders are expected to run
+ * their queries on the DataExecutor, so independent datasets load in
+ * parallel on separate pooled connections.
+ * Requests and actual loads are counted per dataset in Metrics.
+ * All methods must be called on the Event Dispatch Thread.
+ */
+public class RefreshScheduler {
+    public enum Dataset { PRODUCTS, STOCK, PRODUCT_COMBOS, CUSTOMERS, SUPPLIERS, TRANSACTIONS, STATS, REPORTS }
+
+    private static final Metrics.Family<Metrics.Counter> REQUESTS = Metrics.counters("inventory_ui_refresh_requests_total",
+        "Table refreshes asked for, before coalescing", "dataset");
+    private static final Metrics.Family<Metrics.Counter> LOADS = Metrics.counters("inventory_ui_refresh_loads_total",
+        "Table refreshes actually run", "dataset");
+
+    private final Map<Dataset, Runnable> loaders = new EnumMap<>(Dataset.class);
+    private final EnumSet<Dataset> pending = EnumSet.noneOf(Dataset.class);
+    private final Timer timer;
+    private final long maxDelayMillis;
+    private long firstPendingAt;
+    private long requested;
+    private long loaded;
+
+    public RefreshScheduler(int debounceMillis, long maxDelayMillis) {
+        this.maxDelayMillis = maxDelayMillis;
+        timer = new Timer(debounceMillis, _ -> flush());
+        timer.setRepeats(false);
+    }
+
+    public void register(Dataset dataset, Runnable loader) {
+        loaders.put(dataset, loader);
+    }
+
+    public void request(Dataset first, Dataset... rest) {
+        request(EnumSet.of(first, rest));
+    }
+
+    public void request(Set<Dataset> datasets) {
+        requested += datasets.size();
+        for (Dataset dataset : datasets) REQUESTS.get(dataset.name()).increment();
+        pending.addAll(datasets);
+        long now = System.currentTimeMillis();
+        if (!timer.isRunning()) {
+            firstPendingAt = now;
+            timer.start();
+        } else if (now - firstPendingAt < maxDelayMillis) {
+            // Keep pushing the flush back while edits keep coming, but never past maxDelayMillis
+            timer.restart();
+        }
+    }
+
+    public void requestAll() {
+        request(EnumSet.allOf(Dataset.class));
+    }
+
+    /** Runs anything pending right away. */
+    public void flush() {
+        timer.stop();
+        if (pending.isEmpty()) return;
+        EnumSet<Dataset> batch = EnumSet.copyOf(pending);
+        pending.clear();
+        for (Dataset dataset : batch) {
+            Runnable loader = loaders.get(dataset);
+            if (loader != null) {
+                loaded++;
+                LOADS.get(dataset.name()).increment();
+                loader.run();
+            }
+        }
+    }
+
+    /** Requested vs. actually executed dataset loads, for diagnostics. */
+    public String getStats() {
+        return "requested=" + requested + " loaded=" + loaded + " coalesced=" + (requested - loaded);
+    }
+}
@@ -0,0 +1,307 @@
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Works out, for every product, how low stock may fall before it has to
+ * be reordered, and groups what is due into one suggested purchase order
+ * per supplier.
+ *
+ * Demand is the daily unit count from the sales_rollup day rows over the
+ * last inventory.replenish.historyDays, so an evaluation reads one row
+ * per product-day with sales instead of the transaction history. With
+ * mean daily demand d, its standard deviation s and the supplier's lead
+ * time L days:
+ *
+ *   reorder point = d * L + z * s * sqrt(L)    (z = 1.65 covers 95% of lead times)
+ *   order up to   = reorder point + d * review days
+ *
+ * A background job re-evaluates every inventory.replenish.intervalMinutes,
+ * products in parallel, and hands the plan to listeners.
+ */
+public class ReplenishmentEngine implements AutoCloseable {
+
+    /** A supplier that can deliver a product; unitCost 0 means the product's own cost price. */
+    public record Link(int productId, int supplierId, double unitCost, int leadTimeDays, int minOrderQty, boolean preferred) {}
+
+    public record Advice(int productId, String productName, int stock, double dailyDemand, double demandStdDev,
+                         int reorderPoint, int orderUpTo, int supplierId, String supplierName,
+                         int leadTimeDays, int minOrderQty, double unitCost) {
+        public boolean hasDemand() {
+            return dailyDemand > 0;
+        }
+
+        public boolean needsReorder() {
+            return hasDemand() && stock <= reorderPoint;
+        }
+
+        public int suggestedQuantity() {
+            return needsReorder() ? Math.max(minOrderQty, orderUpTo - stock) : 0;
+        }
+
+        public double daysOfCover() {
+            return hasDemand() ? stock / dailyDemand : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /** One supplier's share of the plan; supplierId 0 collects products nobody is linked to supply. */
+    public record PurchaseOrder(int supplierId, String supplierName, List<Advice> lines, int units, double estimatedCost) {}
+
+    public record Plan(LocalDateTime computedAt, Map<Integer, Advice> byProduct, List<PurchaseOrder> orders,
+                       int productsEvaluated, double millis) {
+        public Advice advice(int productId) {
+            return byProduct.get(productId);
+        }
+    }
+
+    private static ReplenishmentEngine shared;
+
+    private final ProductCatalog catalog;
+    private final int historyDays = Integer.getInteger("inventory.replenish.historyDays", 28);
+    private final int reviewDays = Integer.getInteger("inventory.replenish.reviewDays", 14);
+    private final int defaultLeadDays = Integer.getInteger("inventory.replenish.defaultLeadDays", 7);
+    private final double serviceFactor = Double.parseDouble(System.getProperty("inventory.replenish.serviceFactor", "1.65"));
+    private final List<Consumer<Plan>> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "replenishment");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile Plan latest;
+    private boolean started;
+
+    public ReplenishmentEngine(ProductCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    public static synchronized ReplenishmentEngine shared() {
+        if (shared == null) shared = new ReplenishmentEngine(ProductCatalog.shared());
+        return shared;
+    }
+
+    /** Listener runs on the engine's thread. */
+    public void addListener(Consumer<Plan> listener) {
+        listeners.add(listener);
+    }
+
+    /** The last plan, or null before the first evaluation. */
+    public Plan getLatest() {
+        return latest;
+    }
+
+    /** Evaluates now and then every inventory.replenish.intervalMinutes. Later calls do nothing. */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+        long interval = Long.getLong("inventory.replenish.intervalMinutes", 15);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                evaluate();
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("⚠️ Replenishment check failed: " + e.getMessage());
+            }
+        }, 0, interval, TimeUnit.MINUTES);
+    }
+
+    /** Runs an evaluation on the engine's thread, e.g. after supplier links changed. */
+    public void evaluateSoon() {
+        scheduler.execute(() -> {
+            try {
+                evaluate();
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("⚠️ Replenishment check failed: " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    public Plan evaluate() throws SQLException {
+        long start = System.nanoTime();
+        catalog.ensureFresh();
+        List<Product> products = catalog.snapshot(Comparator.comparingInt(Product::getId));
+        Map<Integer, long[]> sales;
+        Map<Integer, Link> links;
+        Map<Integer, String> supplierNames = new HashMap<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("Database is not reachable");
+            sales = SalesRollup.dailyProductUnits(conn, historyDays);
+            links = loadLinks(conn, supplierNames);
+        }
+
+        List<Advice> advice = products.parallelStream()
+            .map(p -> advise(p, sales.get(p.getId()), links.get(p.getId()), supplierNames))
+            .toList();
+
+        Map<Integer, Advice> byProduct = new HashMap<>(advice.size() * 2);
+        Map<Integer, List<Advice>> due = new TreeMap<>();
+        for (Advice a : advice) {
+            byProduct.put(a.productId(), a);
+            if (a.needsReorder()) due.computeIfAbsent(a.supplierId(), _ -> new ArrayList<>()).add(a);
+        }
+        List<PurchaseOrder> orders = new ArrayList<>();
+        for (List<Advice> lines : due.values()) {
+            lines.sort(Comparator.comparingDouble(Advice::daysOfCover));
+            int units = 0;
+            double cost = 0;
+            for (Advice line : lines) {
+                units += line.suggestedQuantity();
+                cost += line.suggestedQuantity() * line.unitCost();
+            }
+            orders.add(new PurchaseOrder(lines.get(0).supplierId(), lines.get(0).supplierName(), lines, units, cost));
+        }
+        Plan plan = new Plan(LocalDateTime.now(), byProduct, orders, products.size(), (System.nanoTime() - start) / 1_000_000.0);
+        latest = plan;
+        for (Consumer<Plan> listener : listeners) listener.accept(plan);
+        return plan;
+    }
+
+    private Advice advise(Product product, long[] daily, Link link, Map<Integer, String> supplierNames) {
+        double mean = 0;
+        double stdDev = 0;
+        if (daily != null) {
+            for (long units : daily) mean += units;
+            mean /= daily.length;
+            double squares = 0;
+            for (long units : daily) squares += (units - mean) * (units - mean);
+            stdDev = daily.length > 1 ? Math.sqrt(squares / (daily.length - 1)) : 0;
+        }
+        int leadDays = link != null && link.leadTimeDays() > 0 ? link.leadTimeDays() : defaultLeadDays;
+        int reorderPoint = (int) Math.ceil(mean * leadDays + serviceFactor * stdDev * Math.sqrt(leadDays));
+        int orderUpTo = reorderPoint + (int) Math.ceil(mean * reviewDays);
+        int supplierId = link != null ? link.supplierId() : 0;
+        double unitCost = link != null && link.unitCost() > 0 ? link.unitCost() : product.getCostPrice();
+        return new Advice(product.getId(), product.getName(), product.getQuantity(), mean, stdDev, reorderPoint, orderUpTo,
+            supplierId, link != null ? supplierNames.get(supplierId) : "Unassigned", leadDays,
+            link != null ? Math.max(1, link.minOrderQty()) : 1, unitCost);
+    }
+
+    // Per product: the preferred supplier, else the cheapest one
+    private static Map<Integer, Link> loadLinks(Connection conn, Map<Integer, String> supplierNames) throws SQLException {
+        Map<Integer, Link> links = new HashMap<>();
+        if (!tableExists(conn)) return links;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT ps.product_id, ps.supplier_id, COALESCE(ps.unit_cost, p.cost_price, 0), ps.lead_time_days, ps.min_order_qty, ps.preferred, s.name " +
+                 "FROM product_supplier ps JOIN supplier s ON s.id = ps.supplier_id JOIN product p ON p.id = ps.product_id")) {
+            while (rs.next()) {
+                Link link = new Link(rs.getInt(1), rs.getInt(2), rs.getDouble(3), rs.getInt(4), rs.getInt(5), rs.getBoolean(6));
+                supplierNames.put(link.supplierId(), rs.getString(7));
+                links.merge(link.productId(), link, (a, b) ->
+                    a.preferred() != b.preferred() ? (a.preferred() ? a : b) : (b.unitCost() < a.unitCost() ? b : a));
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Stock status for the stock table. Products with sales history are
+     * judged against their reorder point; the rest, and everything before
+     * the first evaluation, by fixed thresholds.
+     */
+    public static String status(int quantity, Advice advice) {
+        if (quantity <= 0) return "🔴 Out of Stock";
+        if (advice == null || !advice.hasDemand()) {
+            if (quantity <= 5) return "🟡 Low Stock";
+            if (quantity <= 20) return "🟢 Normal";
+            return "🔵 High Stock";
+        }
+        if (quantity <= advice.reorderPoint()) {
+            return String.format("🟠 Reorder (%.0f days left)", Math.floor(quantity / advice.dailyDemand()));
+        }
+        if (quantity > 2 * advice.orderUpTo()) return "🔵 High Stock";
+        return "🟢 Normal";
+    }
+
+    // ---- links ----
+
+    /** Adds or updates a product-supplier link; a preferred link takes the preference from the product's other suppliers. */
+    public static void saveLink(Connection conn, Link link) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            if (link.preferred()) {
+                try (PreparedStatement stmt = conn.prepareStatement("UPDATE product_supplier SET preferred = FALSE WHERE product_id = ?")) {
+                    stmt.setInt(1, link.productId());
+                    stmt.executeUpdate();
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO product_supplier (product_id, supplier_id, unit_cost, lead_time_days, min_order_qty, preferred) " +
+                     "VALUES (?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE unit_cost = VALUES(unit_cost), " +
+                     "lead_time_days = VALUES(lead_time_days), min_order_qty = VALUES(min_order_qty), preferred = VALUES(preferred)")) {
+                stmt.setInt(1, link.productId());
+                stmt.setInt(2, link.supplierId());
+                if (link.unitCost() > 0) stmt.setDouble(3, link.unitCost());
+                else stmt.setNull(3, Types.DOUBLE);
+                stmt.setInt(4, link.leadTimeDays());
+                stmt.setInt(5, link.minOrderQty());
+                stmt.setBoolean(6, link.preferred());
+                stmt.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static boolean tableExists(Connection conn) throws SQLException {
+        return SchemaCapabilities.columns(conn.getMetaData(), conn.getCatalog(), "product_supplier").contains("supplier_id");
+    }
+
+    static void ensureLinkTable(Connection conn) throws SQLException {
+        if (tableExists(conn)) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS product_supplier (" +
+                "product_id INT NOT NULL, " +
+                "supplier_id INT NOT NULL, " +
+                "unit_cost DOUBLE DEFAULT NULL, " +
+                "lead_time_days INT NOT NULL DEFAULT 7, " +
+                "min_order_qty INT NOT NULL DEFAULT 1, " +
+                "preferred BOOLEAN NOT NULL DEFAULT FALSE, " +
+                "PRIMARY KEY (product_id, supplier_id), " +
+                "FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE, " +
+                "FOREIGN KEY (supplier_id) REFERENCES supplier(id) ON DELETE CASCADE, " +
+                "INDEX idx_product_supplier_supplier (supplier_id))");
+        }
+    }
+
+    /** Prints the current purchase order suggestions. Usage: java ReplenishmentEngine */
+    public static void main(String[] args) {
+        try {
+            Plan plan = shared().evaluate();
+            for (PurchaseOrder order : plan.orders()) {
+                System.out.printf("🧾 %s: %d line(s), %d units, est. %.2f%n", order.supplierName(), order.lines().size(), order.units(), order.estimatedCost());
+                for (Advice line : order.lines()) {
+                    System.out.printf("   #%-6d %-30s stock %5d  reorder at %5d  order %5d  (%.1f/day, %.1f days left)%n",
+                        line.productId(), line.productName(), line.stock(), line.reorderPoint(), line.suggestedQuantity(),
+                        line.dailyDemand(), line.daysOfCover());
+                }
+            }
+            System.out.printf("✅ %d products evaluated, %d purchase order(s) in %.1f ms%n",
+                plan.productsEvaluated(), plan.orders().size(), plan.millis());
+        } catch (SQLException e) {
+            System.err.println("❌ Replenishment check failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+}
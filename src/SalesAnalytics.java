@@ -0,0 +1,519 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory copy of the transaction history for ad-hoc slicing by product,
+ * customer, day, month and discount band without a join per question.
+ * Rows are held column by column in direct buffers of 64K rows, outside the
+ * Java heap: 40 bytes a sale, so ten million sales take about 400 MB and
+ * never add to GC work. Size -XX:MaxDirectMemorySize to the history.
+ *
+ * The history, archived months included, is loaded once; each query first
+ * pulls sales with a higher id than any seen, so checkouts from every
+ * terminal, the server and the sales journal show up within
+ * inventory.analytics.refreshMillis.
+ * Queries scan the chunks in parallel, a block of rows at a time: each
+ * filter is one tight loop over one column that narrows a selection
+ * vector, then the survivors are aggregated.
+ */
+public class SalesAnalytics {
+
+    public enum GroupBy { NONE, PRODUCT, CUSTOMER, DAY, MONTH, DISCOUNT_BAND }
+
+    /** Upper bounds of the discount bands, in percent; the last band is open. */
+    private static final double[] DISCOUNT_BANDS = {0, 5, 10, 20};
+    private static final String[] DISCOUNT_LABELS = {"none", "0-5%", "5-10%", "10-20%", "over 20%"};
+
+    /** Which sales to include. Unset bounds match everything. */
+    public static class Filter {
+        long fromMillis = Long.MIN_VALUE;
+        long toMillis = Long.MAX_VALUE;
+        int productId;
+        int customerId;
+        float minDiscount = Float.NEGATIVE_INFINITY;
+        float maxDiscount = Float.POSITIVE_INFINITY;
+
+        public Filter from(LocalDateTime v) { fromMillis = toMillis(v); return this; }
+        /** Exclusive. */
+        public Filter to(LocalDateTime v) { toMillis = toMillis(v); return this; }
+        public Filter product(int v) { productId = v; return this; }
+        public Filter customer(int v) { customerId = v; return this; }
+        /** Inclusive range of discount_percent. */
+        public Filter discount(double min, double max) { minDiscount = (float) min; maxDiscount = (float) max; return this; }
+    }
+
+    /** One group of a result; key is the product or customer id, epoch day, yyyymm month or discount band. */
+    public record Group(long key, String label, long transactions, long units, double revenue, double profit) {}
+
+    public record Result(GroupBy groupBy, List<Group> groups, long rowsScanned, long rowsMatched, double millis) {}
+
+    public record Stats(long rows, long offHeapBytes, int lastId, double loadMillis) {}
+
+    private static final int CHUNK_ROWS = 1 << 16;
+    private static final int BLOCK = 1024;
+    private static final int BYTES_PER_ROW = 4 + 4 + 4 + 8 + 4 + 8 + 8;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    // A gap in the ids may be a sale that has not committed yet; look for it again for this long
+    private static final long HOLE_MILLIS = 60_000;
+    private static final int MAX_HOLE_GAP = 1000;
+    private static final int MAX_HOLES = 10_000;
+
+    private static final String COLUMNS =
+        "SELECT id, product_id, customer_id, quantity, date, COALESCE(discount_percent, 0), " +
+        "COALESCE(total_with_tax, subtotal, 0), COALESCE(profit_amount, 0) FROM `transaction` ";
+    private static final String ARCHIVE_COLUMNS =
+        "SELECT id, product_id, customer_id, quantity, date, discount_percent, total, profit FROM transaction_archive ";
+
+    private static final class Chunk {
+        final IntBuffer product = ints();
+        final IntBuffer customer = ints();
+        final IntBuffer quantity = ints();
+        final LongBuffer date = ByteBuffer.allocateDirect(CHUNK_ROWS * 8).order(ByteOrder.nativeOrder()).asLongBuffer();
+        final FloatBuffer discount = ByteBuffer.allocateDirect(CHUNK_ROWS * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        final DoubleBuffer revenue = doubles();
+        final DoubleBuffer profit = doubles();
+
+        private static IntBuffer ints() {
+            return ByteBuffer.allocateDirect(CHUNK_ROWS * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+
+        private static DoubleBuffer doubles() {
+            return ByteBuffer.allocateDirect(CHUNK_ROWS * 8).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+    }
+
+    // The rows a query scans; chunks and count are replaced together, so a query never pairs one load's chunks with another's size
+    private record View(Chunk[] chunks, int size) {}
+
+    private static SalesAnalytics shared;
+
+    // Written under the monitor; queries read the last published view instead
+    private Chunk[] chunks = new Chunk[0];
+    private int size;
+    private volatile View view = new View(chunks, 0);
+    private int lastId;
+    private final TreeMap<Integer, Long> holes = new TreeMap<>();
+    private final long refreshMillis;
+    private volatile long refreshedAt;
+    private volatile double loadMillis;
+    private volatile boolean loaded;
+
+    public SalesAnalytics(long refreshMillis) {
+        this.refreshMillis = refreshMillis;
+    }
+
+    /** Process-wide instance, loaded on first query. */
+    public static synchronized SalesAnalytics shared() {
+        if (shared == null) shared = new SalesAnalytics(Long.getLong("inventory.analytics.refreshMillis", 1000));
+        return shared;
+    }
+
+    /** Drops a deleted product's sales from the shared instance, if one has been loaded. */
+    static void productDeleted(int productId) {
+        SalesAnalytics analytics;
+        synchronized (SalesAnalytics.class) {
+            analytics = shared;
+        }
+        if (analytics != null) analytics.removeProduct(productId);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        // Wall-clock millis, so a day is exactly 86,400,000 of them whatever the time zone does
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1_000_000;
+    }
+
+    public Stats stats() {
+        synchronized (this) {
+            return new Stats(size, (long) chunks.length * CHUNK_ROWS * BYTES_PER_ROW, lastId, loadMillis);
+        }
+    }
+
+    // ---- loading ----
+
+    /**
+     * Pulls sales committed since the last call, or the whole history on the
+     * first. Queries see the new rows only once it succeeds; a first load
+     * that fails is thrown away and starts over next time.
+     */
+    public synchronized void refresh() throws SQLException {
+        long start = System.nanoTime();
+        boolean first = !loaded;
+        try {
+            pull(start);
+        } catch (SQLException | RuntimeException e) {
+            if (first) clear();
+            throw e;
+        }
+        view = new View(chunks, size);
+    }
+
+    private void pull(long start) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("Database is not reachable");
+            if (!loaded) {
+                // Archive and hot table from one snapshot: a month archived between the two reads would be in neither
+                int isolation = conn.getTransactionIsolation();
+                conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                conn.setAutoCommit(false);
+                try {
+                    load(conn, start);
+                    conn.commit();
+                } finally {
+                    conn.setAutoCommit(true);
+                    conn.setTransactionIsolation(isolation);
+                }
+            } else {
+                load(conn, start);
+            }
+        }
+    }
+
+    private void load(Connection conn, long start) throws SQLException {
+        long before = size;
+        if (!holes.isEmpty()) fillHoles(conn);
+        if (!loaded) loadArchive(conn);
+        try (PreparedStatement stmt = conn.prepareStatement(COLUMNS + "WHERE id > ? ORDER BY id",
+                                                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            if (!loaded) {
+                // Connector/J only streams with this magic value; other drivers take it as a page size
+                stmt.setFetchSize("MySQL".equals(conn.getMetaData().getDatabaseProductName()) ? Integer.MIN_VALUE : 1000);
+            }
+            stmt.setInt(1, lastId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    if (id > lastId + 1 && id - lastId <= MAX_HOLE_GAP && loaded) {
+                        long now = System.currentTimeMillis();
+                        for (int missing = lastId + 1; missing < id; missing++) holes.put(missing, now);
+                        while (holes.size() > MAX_HOLES) holes.pollFirstEntry();
+                    }
+                    lastId = id;
+                    append(rs);
+                }
+            }
+        }
+        refreshedAt = System.currentTimeMillis();
+        if (!loaded) {
+            loaded = true;
+            loadMillis = (System.nanoTime() - start) / 1_000_000.0;
+            System.out.printf("📦 Loaded %d sales for analytics (%d MB off-heap) in %.1fs%n",
+                size - before, stats().offHeapBytes() >> 20, loadMillis / 1000);
+        }
+    }
+
+    /** Throws the copy away and loads the history again, e.g. after products were deleted by another process. */
+    public synchronized void reload() throws SQLException {
+        clear();
+        refresh();
+    }
+
+    private void clear() {
+        chunks = new Chunk[0];
+        size = 0;
+        lastId = 0;
+        holes.clear();
+        loaded = false;
+    }
+
+    // Archived sales never change and all have ids below the hot table's, so they are read once and lastId is left alone
+    private void loadArchive(Connection conn) throws SQLException {
+        if (!SchemaCapabilities.get(conn).hasSalesArchive()) return;
+        LocalDateTime archivedBefore = SalesArchive.archivedBefore(conn);
+        if (archivedBefore == null) return;
+        try (PreparedStatement stmt = conn.prepareStatement(ARCHIVE_COLUMNS + "WHERE date < ?",
+                                                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize("MySQL".equals(conn.getMetaData().getDatabaseProductName()) ? Integer.MIN_VALUE : 1000);
+            stmt.setTimestamp(1, Timestamp.valueOf(archivedBefore));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) append(rs);
+            }
+        }
+    }
+
+    private void fillHoles(Connection conn) throws SQLException {
+        long expired = System.currentTimeMillis() - HOLE_MILLIS;
+        holes.values().removeIf(seen -> seen < expired);
+        List<Integer> pending = new ArrayList<>(holes.keySet());
+        for (int from = 0; from < pending.size(); from += 500) {
+            StringBuilder in = new StringBuilder();
+            for (int id : pending.subList(from, Math.min(pending.size(), from + 500))) {
+                in.append(in.length() == 0 ? "" : ",").append(id);
+            }
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(COLUMNS + "WHERE id IN (" + in + ")")) {
+                while (rs.next()) {
+                    holes.remove(rs.getInt(1));
+                    append(rs);
+                }
+            }
+        }
+    }
+
+    private void append(ResultSet rs) throws SQLException {
+        int row = size;
+        Chunk[] current = chunks;
+        if (row == current.length * CHUNK_ROWS) {
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = new Chunk();
+            chunks = current;
+        }
+        Chunk chunk = current[row / CHUNK_ROWS];
+        int i = row % CHUNK_ROWS;
+        chunk.product.put(i, rs.getInt(2));
+        chunk.customer.put(i, rs.getInt(3));
+        chunk.quantity.put(i, rs.getInt(4));
+        Timestamp date = rs.getTimestamp(5);
+        chunk.date.put(i, date == null ? NO_DATE : toMillis(date.toLocalDateTime()));
+        chunk.discount.put(i, (float) rs.getDouble(6));
+        chunk.revenue.put(i, rs.getDouble(7));
+        chunk.profit.put(i, rs.getDouble(8));
+        size = row + 1;
+    }
+
+    /** Hides a product's sales from every later query; the rows are overwritten, not reclaimed. */
+    public synchronized void removeProduct(int productId) {
+        Chunk[] current = chunks;
+        int rows = size;
+        IntStream.range(0, current.length).parallel().forEach(c -> {
+            IntBuffer product = current[c].product;
+            int end = Math.min(CHUNK_ROWS, rows - c * CHUNK_ROWS);
+            for (int i = 0; i < end; i++) {
+                if (product.get(i) == productId) product.put(i, -1);
+            }
+        });
+    }
+
+    // ---- queries ----
+
+    public Result query(Filter filter, GroupBy groupBy) throws SQLException {
+        long start = System.nanoTime();
+        if (!loaded || System.currentTimeMillis() - refreshedAt >= refreshMillis) refresh();
+        View snapshot = view;
+        int rows = snapshot.size();
+        Chunk[] current = snapshot.chunks();
+        int chunkCount = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        Partial total = IntStream.range(0, chunkCount).parallel()
+            .mapToObj(c -> scan(current[c], Math.min(CHUNK_ROWS, rows - c * CHUNK_ROWS), filter, groupBy))
+            .reduce(Partial::merge)
+            .orElseGet(Partial::new);
+
+        List<Group> groups = new ArrayList<>(total.size);
+        for (int slot = 0; slot < total.keys.length; slot++) {
+            if (total.used[slot]) {
+                groups.add(new Group(total.keys[slot], label(groupBy, total.keys[slot]), total.transactions[slot],
+                    total.units[slot], total.revenue[slot], total.profit[slot]));
+            }
+        }
+        if (groupBy == GroupBy.PRODUCT || groupBy == GroupBy.CUSTOMER) {
+            groups.sort(Comparator.comparingDouble(Group::revenue).reversed());
+        } else {
+            groups.sort(Comparator.comparingLong(Group::key));
+        }
+        return new Result(groupBy, groups, rows, total.matched, (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    private static Partial scan(Chunk chunk, int rows, Filter filter, GroupBy groupBy) {
+        Partial partial = new Partial();
+        int[] selected = new int[BLOCK];
+        long cachedDay = Long.MIN_VALUE;
+        long cachedMonth = 0;
+        for (int base = 0; base < rows; base += BLOCK) {
+            int end = Math.min(rows, base + BLOCK);
+            int count = 0;
+            // Branch-free: every row is written, only matches advance the count
+            if (filter.productId != 0) {
+                for (int i = base; i < end; i++) {
+                    selected[count] = i;
+                    count += chunk.product.get(i) == filter.productId ? 1 : 0;
+                }
+            } else {
+                for (int i = base; i < end; i++) {
+                    selected[count] = i;
+                    count += chunk.product.get(i) >= 0 ? 1 : 0;
+                }
+            }
+            if (filter.fromMillis != Long.MIN_VALUE || filter.toMillis != Long.MAX_VALUE) {
+                int kept = 0;
+                for (int k = 0; k < count; k++) {
+                    long date = chunk.date.get(selected[k]);
+                    selected[kept] = selected[k];
+                    kept += date != NO_DATE && date >= filter.fromMillis && date < filter.toMillis ? 1 : 0;
+                }
+                count = kept;
+            }
+            if (filter.customerId != 0) {
+                int kept = 0;
+                for (int k = 0; k < count; k++) {
+                    selected[kept] = selected[k];
+                    kept += chunk.customer.get(selected[k]) == filter.customerId ? 1 : 0;
+                }
+                count = kept;
+            }
+            if (filter.minDiscount != Float.NEGATIVE_INFINITY || filter.maxDiscount != Float.POSITIVE_INFINITY) {
+                int kept = 0;
+                for (int k = 0; k < count; k++) {
+                    float discount = chunk.discount.get(selected[k]);
+                    selected[kept] = selected[k];
+                    kept += discount >= filter.minDiscount && discount <= filter.maxDiscount ? 1 : 0;
+                }
+                count = kept;
+            }
+
+            partial.matched += count;
+            for (int k = 0; k < count; k++) {
+                int i = selected[k];
+                long key;
+                switch (groupBy) {
+                    case PRODUCT: key = chunk.product.get(i); break;
+                    case CUSTOMER: key = chunk.customer.get(i); break;
+                    case DAY: key = day(chunk.date.get(i)); break;
+                    case MONTH: {
+                        long day = day(chunk.date.get(i));
+                        // Sales are stored in id order, so consecutive rows are nearly always the same day
+                        if (day != cachedDay) {
+                            cachedDay = day;
+                            LocalDate date = day == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(day);
+                            cachedMonth = date == null ? Long.MIN_VALUE : date.getYear() * 100L + date.getMonthValue();
+                        }
+                        key = cachedMonth;
+                        break;
+                    }
+                    case DISCOUNT_BAND: key = discountBand(chunk.discount.get(i)); break;
+                    default: key = 0;
+                }
+                partial.add(key, chunk.quantity.get(i), chunk.revenue.get(i), chunk.profit.get(i));
+            }
+        }
+        return partial;
+    }
+
+    private static long day(long millis) {
+        return millis == NO_DATE ? Long.MIN_VALUE : Math.floorDiv(millis, 86_400_000L);
+    }
+
+    private static int discountBand(float discount) {
+        int band = 0;
+        while (band < DISCOUNT_BANDS.length && discount > DISCOUNT_BANDS[band]) band++;
+        return band;
+    }
+
+    private static String label(GroupBy groupBy, long key) {
+        if (key == Long.MIN_VALUE) return "undated";
+        switch (groupBy) {
+            case DAY: return LocalDate.ofEpochDay(key).toString();
+            case MONTH: return String.format("%d-%02d", key / 100, key % 100);
+            case DISCOUNT_BAND: return DISCOUNT_LABELS[(int) key];
+            case NONE: return "all";
+            default: return null; // ids; the caller knows the names
+        }
+    }
+
+    /** Per-worker aggregates in an open-addressing table keyed by group. */
+    private static final class Partial {
+        long[] keys = new long[16];
+        boolean[] used = new boolean[16];
+        long[] transactions = new long[16];
+        long[] units = new long[16];
+        double[] revenue = new double[16];
+        double[] profit = new double[16];
+        int size;
+        long matched;
+
+        void add(long key, long quantity, double sale, double margin) {
+            int slot = slot(key);
+            transactions[slot]++;
+            units[slot] += quantity;
+            revenue[slot] += sale;
+            profit[slot] += margin;
+        }
+
+        Partial merge(Partial other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (!other.used[i]) continue;
+                int slot = slot(other.keys[i]);
+                transactions[slot] += other.transactions[i];
+                units[slot] += other.units[i];
+                revenue[slot] += other.revenue[i];
+                profit[slot] += other.profit[i];
+            }
+            matched += other.matched;
+            return this;
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            long h = key * 0x9E3779B97F4A7C15L;
+            for (int i = (int) (h ^ (h >>> 32)) & mask; ; i = (i + 1) & mask) {
+                if (!used[i]) {
+                    if (size * 2 >= keys.length) {
+                        grow();
+                        return slot(key);
+                    }
+                    used[i] = true;
+                    keys[i] = key;
+                    size++;
+                    return i;
+                }
+                if (keys[i] == key) return i;
+            }
+        }
+
+        private void grow() {
+            Partial bigger = new Partial();
+            int capacity = keys.length * 2;
+            bigger.keys = new long[capacity];
+            bigger.used = new boolean[capacity];
+            bigger.transactions = new long[capacity];
+            bigger.units = new long[capacity];
+            bigger.revenue = new double[capacity];
+            bigger.profit = new double[capacity];
+            bigger.merge(this);
+            keys = bigger.keys;
+            used = bigger.used;
+            transactions = bigger.transactions;
+            units = bigger.units;
+            revenue = bigger.revenue;
+            profit = bigger.profit;
+        }
+    }
+
+    /**
+     * Loads the history and prints one slice.
+     * Usage: java SalesAnalytics [groupBy] [from yyyy-mm-dd] [to yyyy-mm-dd]
+     */
+    public static void main(String[] args) {
+        GroupBy groupBy = args.length > 0 ? GroupBy.valueOf(args[0].toUpperCase()) : GroupBy.MONTH;
+        Filter filter = new Filter();
+        if (args.length > 1) filter.from(LocalDate.parse(args[1]).atStartOfDay());
+        if (args.length > 2) filter.to(LocalDate.parse(args[2]).atStartOfDay());
+        try {
+            SalesAnalytics analytics = shared();
+            analytics.refresh();
+            Result result = analytics.query(filter, groupBy);
+            for (Group group : result.groups()) {
+                System.out.printf("%-12s %10d sales %12d units %16.2f revenue %16.2f profit%n",
+                    group.label() != null ? group.label() : "#" + group.key(), group.transactions(), group.units(), group.revenue(), group.profit());
+            }
+            System.out.printf("✅ %d of %d sales matched in %.1f ms%n", result.rowsMatched(), result.rowsScanned(), result.millis());
+        } catch (SQLException e) {
+            System.err.println("❌ Analytics failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+}
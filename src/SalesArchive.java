@@ -0,0 +1,381 @@
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the transaction table down to recent months, so checkout inserts
+ * and the table's indexes stay the same size however many years of sales
+ * pile up.
+ *
+ * Sales dated before the last inventory.archive.keepMonths months (default
+ * 13, the current one included) move to transaction_archive: one compact
+ * row per sale with cost, price, total and profit already resolved,
+ * clustered by date. Each batch is copied and deleted in one transaction,
+ * so a sale is always in exactly one of the two tables; months that have
+ * archived sales are listed with their totals in transaction_archive_period.
+ * On MySQL the transaction table is range-partitioned by month: partitions
+ * are added a few months ahead and dropped once archiving has emptied them.
+ *
+ * Readers that cover the whole history (the history pages, the analytics
+ * load, rollup and summary rebuilds) read the archive as well, but only
+ * for dates before archivedBefore().
+ *
+ * Usage: java SalesArchive [--status]
+ */
+public class SalesArchive implements AutoCloseable {
+
+    public record Period(YearMonth month, long sales, double revenue, double profit) {}
+
+    public record Result(long salesMoved, int partitionsDropped, LocalDateTime cutoff, double millis) {}
+
+    private static final int BATCH = 5000;
+    private static final int MONTHS_AHEAD = 3;
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final String OLDEST_SALES =
+        "SELECT t.id, t.date, t.product_id, t.customer_id, t.quantity, " +
+        "COALESCE(t.unit_cost, p.cost_price, 0), COALESCE(t.unit_price, p.price, 0), COALESCE(t.discount_percent, 0), " +
+        "COALESCE(t.total_with_tax, t.subtotal, t.quantity * COALESCE(t.unit_price, p.price, 0)), COALESCE(t.profit_amount, 0) " +
+        "FROM `transaction` t LEFT JOIN product p ON p.id = t.product_id " +
+        "WHERE t.date < ? ORDER BY t.date, t.id LIMIT " + BATCH;
+
+    private static SalesArchive shared;
+
+    private final int keepMonths;
+    private final long intervalHours;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sales-archive");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile Result lastResult;
+    private boolean started;
+
+    public SalesArchive(int keepMonths, long intervalHours) {
+        this.keepMonths = Math.max(1, keepMonths);
+        this.intervalHours = Math.max(1, intervalHours);
+    }
+
+    public static synchronized SalesArchive shared() {
+        if (shared == null) {
+            shared = new SalesArchive(Integer.getInteger("inventory.archive.keepMonths", 13), Long.getLong("inventory.archive.intervalHours", 24));
+        }
+        return shared;
+    }
+
+    /** Archives a few minutes after startup and then every interval, unless -Dinventory.archive.enabled=false. */
+    public synchronized void start() {
+        if (started || !Boolean.parseBoolean(System.getProperty("inventory.archive.enabled", "true"))) return;
+        started = true;
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                Result result = archive();
+                if (result.salesMoved() > 0) {
+                    System.out.printf("🗄️ Archived %d sales dated before %s in %.1fs%n", result.salesMoved(), result.cutoff().toLocalDate(), result.millis() / 1000);
+                }
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("⚠️ Sales archiving failed: " + e.getMessage());
+            }
+        }, 5 * 60, intervalHours * 3600, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        scheduler.shutdownNow();
+    }
+
+    public Result getLastResult() {
+        return lastResult;
+    }
+
+    /** Moves every sale dated before the oldest kept month to the archive. Safe to run from several processes at once. */
+    public Result archive() throws SQLException {
+        long start = System.nanoTime();
+        LocalDateTime cutoff = YearMonth.now().minusMonths(keepMonths - 1).atDay(1).atStartOfDay();
+        long moved = 0;
+        int dropped = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("Database is not reachable");
+            if (!SchemaCapabilities.get(conn).hasSaleColumns()) throw new SQLException("Run SchemaMigrator first: the transaction table predates the sale columns");
+            ensureArchiveTables(conn);
+            boolean partitioned = !partitionNames(conn).isEmpty();
+            if (partitioned) addPartitions(conn, YearMonth.now().plusMonths(MONTHS_AHEAD));
+            Set<YearMonth> months = new TreeSet<>();
+            int batch;
+            do {
+                batch = TransactionRetry.run(() -> moveBatch(conn, cutoff, months));
+                moved += batch;
+            } while (batch == BATCH);
+            updatePeriodTotals(conn, months);
+            if (partitioned) dropped = dropEmptyPartitions(conn, YearMonth.from(cutoff));
+        }
+        Result result = new Result(moved, dropped, cutoff, (System.nanoTime() - start) / 1_000_000.0);
+        lastResult = result;
+        return result;
+    }
+
+    private static int moveBatch(Connection conn, LocalDateTime cutoff, Set<YearMonth> months) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            List<Integer> ids = new ArrayList<>(BATCH);
+            Set<YearMonth> batchMonths = new TreeSet<>();
+            try (PreparedStatement select = conn.prepareStatement(OLDEST_SALES);
+                 PreparedStatement insert = conn.prepareStatement(
+                     "INSERT IGNORE INTO transaction_archive (id, date, product_id, customer_id, quantity, unit_cost, unit_price, " +
+                     "discount_percent, total, profit) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                select.setTimestamp(1, Timestamp.valueOf(cutoff));
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                        batchMonths.add(YearMonth.from(rs.getTimestamp(2).toLocalDateTime()));
+                        for (int i = 1; i <= 10; i++) insert.setObject(i, rs.getObject(i));
+                        insert.addBatch();
+                    }
+                }
+                if (ids.isEmpty()) {
+                    conn.commit();
+                    return 0;
+                }
+                insert.executeBatch();
+            }
+            // The date bound lets a partitioned table look only at partitions being archived
+            StringBuilder delete = new StringBuilder("DELETE FROM `transaction` WHERE date < ? AND id IN (");
+            for (int i = 0; i < ids.size(); i++) delete.append(i == 0 ? "?" : ", ?");
+            try (PreparedStatement stmt = conn.prepareStatement(delete.append(')').toString())) {
+                stmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+                for (int i = 0; i < ids.size(); i++) stmt.setInt(i + 2, ids.get(i));
+                stmt.executeUpdate();
+            }
+            // Listed in the same commit, so archivedBefore() never lags the rows themselves
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT IGNORE INTO transaction_archive_period (period_start) VALUES (?)")) {
+                for (YearMonth month : batchMonths) {
+                    stmt.setDate(1, Date.valueOf(month.atDay(1)));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            conn.commit();
+            months.addAll(batchMonths);
+            return ids.size();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // Recounted rather than added up per batch, so two archivers racing each other still get them right
+    private static void updatePeriodTotals(Connection conn, Set<YearMonth> months) throws SQLException {
+        try (PreparedStatement totals = conn.prepareStatement(
+                 "SELECT COUNT(*), COALESCE(SUM(total), 0), COALESCE(SUM(profit), 0) FROM transaction_archive WHERE date >= ? AND date < ?");
+             PreparedStatement update = conn.prepareStatement(
+                 "UPDATE transaction_archive_period SET sales = ?, revenue = ?, profit = ?, archived_at = CURRENT_TIMESTAMP WHERE period_start = ?")) {
+            for (YearMonth month : months) {
+                totals.setTimestamp(1, Timestamp.valueOf(month.atDay(1).atStartOfDay()));
+                totals.setTimestamp(2, Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+                try (ResultSet rs = totals.executeQuery()) {
+                    rs.next();
+                    update.setLong(1, rs.getLong(1));
+                    update.setDouble(2, rs.getDouble(2));
+                    update.setDouble(3, rs.getDouble(3));
+                }
+                update.setDate(4, Date.valueOf(month.atDay(1)));
+                update.executeUpdate();
+            }
+        }
+    }
+
+    /** Every archived sale is dated before this; null when nothing has been archived. */
+    public static LocalDateTime archivedBefore(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(period_start) FROM transaction_archive_period")) {
+            Date last = rs.next() ? rs.getDate(1) : null;
+            return last == null ? null : last.toLocalDate().plusMonths(1).atStartOfDay();
+        }
+    }
+
+    public static List<Period> periods(Connection conn) throws SQLException {
+        List<Period> periods = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT period_start, sales, revenue, profit FROM transaction_archive_period ORDER BY period_start")) {
+            while (rs.next()) periods.add(new Period(YearMonth.from(rs.getDate(1).toLocalDate()), rs.getLong(2), rs.getDouble(3), rs.getDouble(4)));
+        }
+        return periods;
+    }
+
+    static boolean hasArchive(Connection conn) throws SQLException {
+        return SchemaCapabilities.columns(conn.getMetaData(), conn.getCatalog(), "transaction_archive").contains("profit");
+    }
+
+    static void ensureArchiveTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!hasArchive(conn)) {
+                String table =
+                    "CREATE TABLE IF NOT EXISTS transaction_archive (" +
+                    "id INT NOT NULL, " +
+                    "date TIMESTAMP NOT NULL, " +
+                    "product_id INT NOT NULL, " +
+                    "customer_id INT NOT NULL, " +
+                    "quantity INT NOT NULL, " +
+                    "unit_cost DOUBLE NOT NULL, " +
+                    "unit_price DOUBLE NOT NULL, " +
+                    "discount_percent DOUBLE NOT NULL, " +
+                    "total DOUBLE NOT NULL, " +
+                    "profit DOUBLE NOT NULL, " +
+                    "PRIMARY KEY (date, id), " +
+                    "INDEX idx_archive_product (product_id, date), " +
+                    "INDEX idx_archive_customer (customer_id, date))";
+                if (isMySql(conn)) {
+                    try {
+                        stmt.executeUpdate(table + " ROW_FORMAT=COMPRESSED");
+                    } catch (SQLException e) {
+                        System.err.println("⚠️ Compressed rows unavailable, archiving uncompressed: " + e.getMessage());
+                        stmt.executeUpdate(table);
+                    }
+                } else {
+                    stmt.executeUpdate(table);
+                }
+            }
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS transaction_archive_period (" +
+                "period_start DATE PRIMARY KEY, " +
+                "sales BIGINT NOT NULL DEFAULT 0, " +
+                "revenue DOUBLE NOT NULL DEFAULT 0, " +
+                "profit DOUBLE NOT NULL DEFAULT 0, " +
+                "archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+    }
+
+    /**
+     * Partitions the transaction table by month on MySQL; a no-op elsewhere
+     * or when already done. MySQL cannot partition a table with foreign
+     * keys, so the ones from sales to products and customers go first and
+     * checkout checks both ids itself from then on. The date joins the
+     * primary key, since MySQL wants the partitioning column in every
+     * unique key.
+     */
+    static void partitionTransactions(Connection conn) throws SQLException {
+        if (!isMySql(conn) || !partitionNames(conn).isEmpty()) return;
+        dropSaleForeignKeys(conn);
+        try (Statement stmt = conn.createStatement()) {
+            YearMonth first = oldestMonth(conn);
+            stmt.executeUpdate("UPDATE `transaction` SET date = '" + first.atDay(1) + " 00:00:00' WHERE date IS NULL");
+            stmt.executeUpdate("ALTER TABLE `transaction` MODIFY date TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                "DROP PRIMARY KEY, ADD PRIMARY KEY (id, date)");
+            stmt.executeUpdate("ALTER TABLE `transaction` PARTITION BY RANGE (UNIX_TIMESTAMP(date)) (" +
+                partitionDefinitions(first, YearMonth.now().plusMonths(MONTHS_AHEAD)) + ")");
+        }
+    }
+
+    // They cascaded too, so a deleted product took its whole history with it
+    private static void dropSaleForeignKeys(Connection conn) throws SQLException {
+        Set<String> keys = new TreeSet<>();
+        try (ResultSet rs = conn.getMetaData().getImportedKeys(conn.getCatalog(), null, "transaction")) {
+            while (rs.next()) {
+                if (rs.getString("FK_NAME") != null) keys.add(rs.getString("FK_NAME"));
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String key : keys) stmt.executeUpdate("ALTER TABLE `transaction` DROP FOREIGN KEY `" + key + "`");
+        }
+    }
+
+    // Splits the catch-all partition so every month up to {@code through} has its own
+    private static void addPartitions(Connection conn, YearMonth through) throws SQLException {
+        List<String> names = partitionNames(conn);
+        if (!names.get(names.size() - 1).equals("pmax")) return;
+        YearMonth next = names.size() > 1 ? YearMonth.parse(names.get(names.size() - 2), PARTITION_NAME).plusMonths(1) : oldestMonth(conn);
+        if (next.isAfter(through)) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE `transaction` REORGANIZE PARTITION pmax INTO (" + partitionDefinitions(next, through) + ")");
+        }
+    }
+
+    private static String partitionDefinitions(YearMonth from, YearMonth through) {
+        StringBuilder sql = new StringBuilder();
+        for (YearMonth month = from; !month.isAfter(through); month = month.plusMonths(1)) {
+            sql.append("PARTITION ").append(PARTITION_NAME.format(month.atDay(1)))
+               .append(" VALUES LESS THAN (UNIX_TIMESTAMP('").append(month.plusMonths(1).atDay(1)).append(" 00:00:00')), ");
+        }
+        return sql.append("PARTITION pmax VALUES LESS THAN MAXVALUE").toString();
+    }
+
+    // Month partitions wholly before {@code cutoff}; dropping an empty one is instant and returns its space
+    private static int dropEmptyPartitions(Connection conn, YearMonth cutoff) throws SQLException {
+        int dropped = 0;
+        try (Statement stmt = conn.createStatement()) {
+            for (String name : partitionNames(conn)) {
+                if (name.equals("pmax") || !YearMonth.parse(name, PARTITION_NAME).isBefore(cutoff)) continue;
+                try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM `transaction` PARTITION (" + name + ") LIMIT 1")) {
+                    if (rs.next()) continue;
+                }
+                stmt.executeUpdate("ALTER TABLE `transaction` DROP PARTITION " + name);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    private static List<String> partitionNames(Connection conn) throws SQLException {
+        List<String> names = new ArrayList<>();
+        if (!isMySql(conn)) return names;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT PARTITION_NAME FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() " +
+                 "AND TABLE_NAME = 'transaction' AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION")) {
+            while (rs.next()) names.add(rs.getString(1));
+        }
+        return names;
+    }
+
+    private static YearMonth oldestMonth(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(date) FROM `transaction`")) {
+            Timestamp oldest = rs.next() ? rs.getTimestamp(1) : null;
+            return oldest == null ? YearMonth.now() : YearMonth.from(oldest.toLocalDateTime());
+        }
+    }
+
+    private static boolean isMySql(Connection conn) throws SQLException {
+        return "MySQL".equals(conn.getMetaData().getDatabaseProductName());
+    }
+
+    public static void main(String[] args) {
+        boolean statusOnly = args.length > 0 && args[0].equals("--status");
+        try {
+            if (!statusOnly) {
+                Result result = shared().archive();
+                System.out.printf("✅ Archived %d sales dated before %s, dropped %d partition(s) in %.1f ms%n",
+                    result.salesMoved(), result.cutoff().toLocalDate(), result.partitionsDropped(), result.millis());
+            }
+            try (Connection conn = DBConnection.getConnection()) {
+                if (conn == null) throw new SQLException("Database is not reachable");
+                if (!hasArchive(conn)) {
+                    System.out.println("📋 Nothing archived yet");
+                    return;
+                }
+                for (Period period : periods(conn)) {
+                    System.out.printf("🗄️ %s  %8d sales  revenue %14.2f  profit %14.2f%n", period.month(), period.sales(), period.revenue(), period.profit());
+                }
+                LocalDateTime before = archivedBefore(conn);
+                System.out.println("📋 Archive holds sales before " + (before == null ? "-" : before.toLocalDate()) +
+                    "; hot partitions: " + partitionNames(conn));
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Archiving failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+}
@@ -0,0 +1,585 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind journal for checkouts. A checkout is accepted once it is
+ * appended to a memory-mapped file on local disk; a background flusher
+ * writes the journaled sales to the database in batches, one transaction
+ * per batch, so the till waits for an fsync instead of a MySQL commit.
+ *
+ * Stock is admitted against the shared ProductCatalog minus what is
+ * already journaled but not yet written. The flusher still applies every
+ * sale with the conditional decrement of CheckoutProcessor, so a sale that
+ * another terminal's stock change made impossible is rejected at flush
+ * time (logged and appended to the ".rejected" file next to the journal)
+ * instead of overselling. A sale that keeps failing for any other reason
+ * (bad data, a dropped column) is set aside the same way after
+ * inventory.journal.maxAttempts flushes, so it cannot hold up the rest.
+ *
+ * The file is a ring of checksummed records behind a small header holding
+ * the last flushed sequence number. The same number is committed to the
+ * sales_journal table together with each batch, so a crash between the
+ * database commit and the header update never writes a sale twice: on
+ * startup everything after the checkpoint is replayed.
+ *
+ * Enabled with -Dinventory.journal.path=/var/lib/inventory/sales.journal;
+ * tuned with inventory.journal.sizeMB, batchSize, flushMillis, maxAttempts
+ * and sync.
+ */
+public class SalesJournal implements AutoCloseable {
+    private static final int MAGIC = 0x534A524E;
+    // Header: magic @0, journal id @8, flushed sequence @16, tail offset @24
+    private static final int HEADER_BYTES = 64;
+    // Record: payload length, CRC32 of sequence and payload, sequence, payload
+    private static final int RECORD_HEADER = 16;
+    private static final int WRAP = -1;
+    private static final LatencyHistogram FLUSH_TIME = Metrics.timer("inventory_journal_flush_seconds",
+        "Time to write one batch of journaled sales to the database");
+    private static final SqlQuery LOAD_CHECKPOINT = SqlQuery.named("journal.load_checkpoint",
+        "SELECT flushed_seq FROM sales_journal WHERE journal_id = ?");
+    private static final SqlQuery UPDATE_CHECKPOINT = SqlQuery.named("journal.update_checkpoint",
+        "UPDATE sales_journal SET flushed_seq = ?, updated_at = CURRENT_TIMESTAMP WHERE journal_id = ?");
+    private static final SqlQuery INSERT_CHECKPOINT = SqlQuery.named("journal.insert_checkpoint",
+        "INSERT INTO sales_journal (journal_id, flushed_seq) VALUES (?, ?)");
+
+    /** Lag and throughput figures; lagMillis is the age of the oldest sale not yet in the database. */
+    public record Stats(int pendingCheckouts, long pendingBytes, long capacityBytes, long appended, long flushed,
+                        long rejected, long batches, double avgBatchSize, long lagMillis, double lastFlushMillis,
+                        String lastError) {}
+
+    private record Entry(long seq, long soldAtMillis, int customerId, List<CheckoutProcessor.Line> lines,
+                         int endOffset, int bytes) {}
+
+    private static SalesJournal shared;
+    private static boolean sharedOpened;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long journalId;
+    private final ProductCatalog catalog;
+    private final CheckoutProcessor processor = new CheckoutProcessor();
+    private final int batchSize;
+    private final long flushMillis;
+    private final int maxAttempts;
+    private final boolean sync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition work = lock.newCondition();
+    private final Condition spaceFreed = lock.newCondition();
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    // Units journaled per product and not yet written to the database
+    private final Map<Integer, Integer> reserved = new HashMap<>();
+    private int head;
+    private long used;
+    private long nextSeq;
+    private boolean closed;
+
+    private long appended;
+    private long flushed;
+    private long rejected;
+    private long batches;
+    private double lastFlushMillis;
+    private volatile String lastError;
+    private boolean checkpointLoaded;
+    // The sale that failed the last flush and how many flushes in a row it has failed; flusher thread only
+    private long failingSeq;
+    private int failingAttempts;
+
+    private final Thread flusher;
+
+    private SalesJournal(Path path, int sizeBytes, ProductCatalog catalog, int batchSize, long flushMillis, int maxAttempts,
+                         boolean sync) throws IOException {
+        this.path = path;
+        this.catalog = catalog;
+        this.batchSize = batchSize;
+        this.flushMillis = flushMillis;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.sync = sync;
+        boolean existing = Files.exists(path) && Files.size(path) > HEADER_BYTES;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = existing ? channel.size() : sizeBytes;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.capacity = (int) (size - HEADER_BYTES);
+        if (existing) {
+            if (buffer.getInt(0) != MAGIC) {
+                channel.close();
+                throw new IOException(path + " is not a sales journal");
+            }
+            journalId = buffer.getLong(8);
+            recover(buffer.getLong(16), buffer.getInt(24));
+        } else {
+            journalId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(8, journalId);
+            writeHeader(0, 0);
+            nextSeq = 1;
+        }
+        flusher = new Thread(this::runFlusher, "sales-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /** Opens (creating or recovering) the journal file and starts its flusher. */
+    public static SalesJournal open(Path path, ProductCatalog catalog) throws IOException {
+        int sizeBytes = Integer.getInteger("inventory.journal.sizeMB", 64) * 1024 * 1024;
+        return new SalesJournal(path, sizeBytes, catalog,
+            Integer.getInteger("inventory.journal.batchSize", 200),
+            Long.getLong("inventory.journal.flushMillis", 50),
+            Integer.getInteger("inventory.journal.maxAttempts", 5),
+            Boolean.parseBoolean(System.getProperty("inventory.journal.sync", "true")));
+    }
+
+    /**
+     * The journal configured by inventory.journal.path over the shared
+     * catalog, or null when checkouts go straight to the database.
+     * Closed, with a final flush, when the JVM exits.
+     */
+    public static synchronized SalesJournal shared() {
+        if (sharedOpened) return shared;
+        sharedOpened = true;
+        String location = System.getProperty("inventory.journal.path");
+        if (location == null || location.isBlank()) return null;
+        try {
+            shared = open(Path.of(location), ProductCatalog.shared());
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::close, "sales-journal-close"));
+            System.out.println("📒 Sales journal at " + location + (shared.pending.isEmpty() ? ""
+                : ", replaying " + shared.pending.size() + " checkout(s) not yet in the database"));
+        } catch (IOException e) {
+            System.err.println("❌ Sales journal unavailable, checkouts write directly: " + e.getMessage());
+        }
+        return shared;
+    }
+
+    // ---- appending ----
+
+    /**
+     * Journals a checkout and returns once it is on disk. Fails with
+     * StockConflictException if the cached stock, less what is already
+     * journaled, cannot cover a line. The receipt's profit uses the cached
+     * cost prices; the database rows use the cost at flush time.
+     */
+    public CheckoutProcessor.Receipt append(int customerId, List<CheckoutProcessor.Line> lines) throws SQLException {
+        CheckoutProcessor.validate(lines);
+        long start = System.nanoTime();
+        catalog.ensureFresh();
+        Map<Integer, Integer> requested = new TreeMap<>();
+        for (CheckoutProcessor.Line line : lines) requested.merge(line.productId(), line.quantity(), Integer::sum);
+
+        long soldAt = System.currentTimeMillis();
+        byte[] payload = encode(soldAt, customerId, lines);
+        int recordBytes = RECORD_HEADER + payload.length;
+        if (recordBytes > capacity / 4) throw new IllegalArgumentException("Cart is too large for the sales journal");
+
+        int offset;
+        lock.lock();
+        try {
+            boolean wrap;
+            int waste;
+            while (true) {
+                if (closed) throw new SQLException("Sales journal is closed");
+                wrap = head + recordBytes > capacity;
+                waste = wrap ? capacity - head : 0;
+                if (used + waste + recordBytes <= capacity) break;
+                work.signal();
+                try {
+                    if (!spaceFreed.await(10, TimeUnit.SECONDS)) {
+                        throw new SQLException("Sales journal is full; the database is not keeping up" +
+                            (lastError == null ? "" : " (" + lastError + ")"));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for journal space", e);
+                }
+            }
+            checkStock(requested);
+
+            if (wrap) {
+                if (waste >= 4) buffer.putInt(HEADER_BYTES + head, WRAP);
+                head = 0;
+            }
+            offset = head;
+            long seq = nextSeq++;
+            CRC32 crc = new CRC32();
+            crc.update(ByteBuffer.allocate(8).putLong(0, seq));
+            crc.update(payload);
+            buffer.putInt(HEADER_BYTES + offset, payload.length);
+            buffer.putInt(HEADER_BYTES + offset + 4, (int) crc.getValue());
+            buffer.putLong(HEADER_BYTES + offset + 8, seq);
+            buffer.put(HEADER_BYTES + offset + RECORD_HEADER, payload);
+            head = offset + recordBytes;
+            used += waste + recordBytes;
+            if (waste >= 4 && sync) buffer.force(HEADER_BYTES + capacity - waste, 4);
+
+            pending.addLast(new Entry(seq, soldAt, customerId, List.copyOf(lines), head, waste + recordBytes));
+            requested.forEach((id, qty) -> reserved.merge(id, qty, Integer::sum));
+            appended++;
+            if (pending.size() >= batchSize) work.signal();
+        } finally {
+            lock.unlock();
+        }
+        // Concurrent appenders sync their own regions in parallel
+        if (sync) buffer.force(HEADER_BYTES + offset, recordBytes);
+
+        double revenue = 0.0;
+        double profit = 0.0;
+        int units = 0;
+        for (CheckoutProcessor.Line line : lines) {
+            Product product = catalog.get(line.productId());
+            double cost = product == null ? 0.0 : product.getCostPrice();
+            revenue += line.unitPrice() * line.quantity();
+            profit += (line.unitPrice() - cost) * line.quantity();
+            units += line.quantity();
+        }
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+        return new CheckoutProcessor.Receipt(lines.size(), units, revenue, profit, Map.of("journal", millis));
+    }
+
+    // Called with the lock held
+    private void checkStock(Map<Integer, Integer> requested) throws StockConflictException {
+        List<StockConflictException.Shortfall> shortfalls = new ArrayList<>();
+        requested.forEach((id, qty) -> {
+            Product product = catalog.get(id);
+            if (product == null) {
+                shortfalls.add(new StockConflictException.Shortfall(id, null, qty, -1));
+                return;
+            }
+            int available = product.getQuantity() - reserved.getOrDefault(id, 0);
+            if (available < qty) {
+                shortfalls.add(new StockConflictException.Shortfall(id, product.getName(), qty, Math.max(available, 0)));
+            }
+        });
+        if (!shortfalls.isEmpty()) throw new StockConflictException(shortfalls);
+    }
+
+    /** Units of the product sold through the journal but not yet written to the database. */
+    public int reservedQuantity(int productId) {
+        lock.lock();
+        try {
+            return reserved.getOrDefault(productId, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            Entry oldest = pending.peekFirst();
+            return new Stats(pending.size(), used, capacity, appended, flushed, rejected, batches,
+                batches == 0 ? 0.0 : (double) (flushed + rejected) / batches,
+                oldest == null ? 0 : System.currentTimeMillis() - oldest.soldAtMillis(),
+                lastFlushMillis, lastError);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---- flushing ----
+
+    private void runFlusher() {
+        long backoff = 0;
+        while (true) {
+            List<Entry> batch = new ArrayList<>();
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    if (closed) return;
+                    work.await(flushMillis, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                // Give concurrent checkouts a moment to join the batch
+                if (pending.size() < batchSize && !closed) work.await(flushMillis, TimeUnit.MILLISECONDS);
+                for (Entry entry : pending) {
+                    if (batch.size() == batchSize) break;
+                    batch.add(entry);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                flush(batch);
+                backoff = 0;
+            } catch (SQLException | RuntimeException e) {
+                if (lastError == null) System.err.println("⚠️ Sales journal flush failed, will retry: " + e.getMessage());
+                lastError = e.getMessage();
+                checkpointLoaded = false;
+                backoff = Math.min(Math.max(backoff * 2, 100), 5000);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void flush(List<Entry> batch) throws SQLException {
+        long start = System.nanoTime();
+        List<Entry> written = new ArrayList<>();
+        List<String> rejections = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("Database is not reachable");
+            long committed = -1;
+            if (!checkpointLoaded) {
+                ensureCheckpointTable(conn);
+                committed = loadCheckpoint(conn);
+            }
+            conn.setAutoCommit(false);
+            try {
+                for (Entry entry : batch) {
+                    // Already committed before a crash or a lost connection
+                    if (entry.seq() <= committed) continue;
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        processor.writeSale(conn, entry.customerId(), entry.lines(), new Timestamp(entry.soldAtMillis()),
+                            savepoint, new HashMap<>());
+                        conn.releaseSavepoint(savepoint);
+                        written.add(entry);
+                    } catch (SQLException | RuntimeException e) {
+                        boolean refused = e instanceof StockConflictException || e instanceof SQLException sql && isIntegrityViolation(sql);
+                        if (!refused && !givesUp(entry, e)) throw e;
+                        if (!(e instanceof StockConflictException)) conn.rollback(savepoint);
+                        // One line per sale in the .rejected file, whatever the driver put in the message
+                        String reason = String.valueOf(e.getMessage()).replace('\n', ' ');
+                        rejections.add(describe(entry) + "\t" + (refused ? "" : "gave up after " + maxAttempts + " attempts: ") + reason);
+                    }
+                }
+                saveCheckpoint(conn, batch.get(batch.size() - 1).seq());
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        checkpointLoaded = true;
+
+        Entry last = batch.get(batch.size() - 1);
+        // The header must move past these records before their space can be reused
+        writeHeader(last.seq(), last.endOffset());
+        if (!rejections.isEmpty()) recordRejections(rejections);
+
+        lock.lock();
+        try {
+            for (Entry entry : batch) {
+                pending.removeFirst();
+                used -= entry.bytes();
+                for (CheckoutProcessor.Line line : entry.lines()) {
+                    reserved.merge(line.productId(), -line.quantity(), Integer::sum);
+                    reserved.remove(line.productId(), 0);
+                }
+            }
+            for (Entry entry : written) {
+                for (CheckoutProcessor.Line line : entry.lines()) catalog.adjustQuantity(line.productId(), -line.quantity());
+            }
+            flushed += written.size();
+            rejected += rejections.size();
+            batches++;
+            lastFlushMillis = (System.nanoTime() - start) / 1_000_000.0;
+            FLUSH_TIME.recordSince(start);
+            lastError = null;
+            spaceFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts a failure of the sale itself; true once it has failed
+     * maxAttempts flushes in a row. Lost connections and lock conflicts
+     * are the database's trouble, not the sale's, and are not counted.
+     */
+    private boolean givesUp(Entry entry, Exception e) {
+        if (e instanceof SQLException sql && (TransactionRetry.isRetryable(sql) || sql instanceof SQLTransientException
+                || sql instanceof SQLRecoverableException || sql instanceof SQLNonTransientConnectionException
+                || sql.getSQLState() != null && sql.getSQLState().startsWith("08"))) {
+            return false;
+        }
+        if (entry.seq() != failingSeq) {
+            failingSeq = entry.seq();
+            failingAttempts = 0;
+        }
+        return ++failingAttempts >= maxAttempts;
+    }
+
+    private static boolean isIntegrityViolation(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+
+    private static String describe(Entry entry) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(entry.seq()).append('\t').append(new Timestamp(entry.soldAtMillis())).append("\tcustomer ").append(entry.customerId());
+        for (CheckoutProcessor.Line line : entry.lines()) {
+            sb.append("\t#").append(line.productId()).append(" x").append(line.quantity()).append(" @").append(line.unitPrice());
+        }
+        return sb.toString();
+    }
+
+    private void recordRejections(List<String> rejections) {
+        Path rejectedFile = path.resolveSibling(path.getFileName() + ".rejected");
+        for (String rejection : rejections) System.err.println("❌ Journaled checkout rejected by the database: " + rejection);
+        try {
+            Files.writeString(rejectedFile, String.join("\n", rejections) + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not record rejected checkouts in " + rejectedFile + ": " + e.getMessage());
+        }
+    }
+
+    // ---- checkpoint ----
+
+    // DDL commits implicitly on MySQL, so this runs before the batch transaction starts
+    static void ensureCheckpointTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS sales_journal (" +
+                "journal_id BIGINT PRIMARY KEY, " +
+                "flushed_seq BIGINT NOT NULL, " +
+                "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+    }
+
+    private long loadCheckpoint(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = LOAD_CHECKPOINT.prepare(conn)) {
+            stmt.setLong(1, journalId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private void saveCheckpoint(Connection conn, long seq) throws SQLException {
+        try (PreparedStatement update = UPDATE_CHECKPOINT.prepare(conn)) {
+            update.setLong(1, seq);
+            update.setLong(2, journalId);
+            if (update.executeUpdate() > 0) return;
+        }
+        try (PreparedStatement insert = INSERT_CHECKPOINT.prepare(conn)) {
+            insert.setLong(1, journalId);
+            insert.setLong(2, seq);
+            insert.executeUpdate();
+        }
+    }
+
+    // ---- file format ----
+
+    private void writeHeader(long flushedSeq, int tail) {
+        buffer.putLong(16, flushedSeq);
+        buffer.putInt(24, tail);
+        buffer.force(0, HEADER_BYTES);
+    }
+
+    private static byte[] encode(long soldAt, int customerId, List<CheckoutProcessor.Line> lines) {
+        ByteBuffer out = ByteBuffer.allocate(16 + lines.size() * 16);
+        out.putLong(soldAt).putInt(customerId).putInt(lines.size());
+        for (CheckoutProcessor.Line line : lines) out.putInt(line.productId()).putInt(line.quantity()).putDouble(line.unitPrice());
+        return out.array();
+    }
+
+    /**
+     * Rebuilds the pending queue from the records after the flushed
+     * sequence. Stops at the first record that is torn, fails its checksum
+     * or is out of sequence: everything past that point is older data the
+     * ring has not overwritten yet.
+     */
+    private void recover(long flushedSeq, int tail) {
+        int offset = tail;
+        long expected = flushedSeq + 1;
+        int waste = 0;
+        while (used + waste < capacity) {
+            if (capacity - offset < RECORD_HEADER) {
+                waste += capacity - offset;
+                offset = 0;
+                continue;
+            }
+            int length = buffer.getInt(HEADER_BYTES + offset);
+            if (length == WRAP && offset > 0) {
+                waste += capacity - offset;
+                offset = 0;
+                continue;
+            }
+            if (length < 16 || length > capacity - offset - RECORD_HEADER) break;
+            int checksum = buffer.getInt(HEADER_BYTES + offset + 4);
+            long seq = buffer.getLong(HEADER_BYTES + offset + 8);
+            if (seq != expected) break;
+            byte[] payload = new byte[length];
+            buffer.get(HEADER_BYTES + offset + RECORD_HEADER, payload);
+            CRC32 crc = new CRC32();
+            crc.update(ByteBuffer.allocate(8).putLong(0, seq));
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) break;
+
+            ByteBuffer in = ByteBuffer.wrap(payload);
+            long soldAt = in.getLong();
+            int customerId = in.getInt();
+            int count = in.getInt();
+            if (length != 16 + count * 16) break;
+            List<CheckoutProcessor.Line> lines = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) lines.add(new CheckoutProcessor.Line(in.getInt(), in.getInt(), in.getDouble()));
+
+            int end = offset + RECORD_HEADER + length;
+            int bytes = waste + RECORD_HEADER + length;
+            pending.addLast(new Entry(seq, soldAt, customerId, List.copyOf(lines), end, bytes));
+            for (CheckoutProcessor.Line line : lines) reserved.merge(line.productId(), line.quantity(), Integer::sum);
+            used += bytes;
+            waste = 0;
+            offset = end;
+            expected++;
+        }
+        head = pending.isEmpty() ? tail : pending.peekLast().endOffset();
+        nextSeq = expected;
+    }
+
+    /** Stops accepting checkouts, flushes what is journaled if the database allows, and closes the file. */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            work.signalAll();
+            spaceFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join(Long.getLong("inventory.journal.closeTimeoutSeconds", 10) * 1000);
+            if (flusher.isAlive()) {
+                flusher.interrupt();
+                flusher.join(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int left = stats().pendingCheckouts();
+        if (left > 0) System.err.println("⚠️ " + left + " journaled checkout(s) not yet in the database; they are replayed on next start");
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not close sales journal: " + e.getMessage());
+        }
+    }
+}
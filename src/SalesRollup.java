@@ -0,0 +1,482 @@
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hourly, daily and monthly sales totals per product, per customer and
+ * overall, kept in sales_rollup. Checkout adds each sale to them in the
+ * same transaction as the sale, the way it maintains sales_summary, so a
+ * report reads at most a few hundred rollup rows however long the history
+ * grows. rebuild() recomputes everything from the transaction table, one
+ * month per worker; it only runs when asked to, from SchemaMigrator or
+ * java SalesRollup, never from a report.
+ */
+public class SalesRollup {
+
+    public enum Grain {
+        HOUR("H"), DAY("D"), MONTH("M");
+
+        final String code;
+
+        Grain(String code) {
+            this.code = code;
+        }
+
+        public LocalDateTime truncate(LocalDateTime time) {
+            switch (this) {
+                case HOUR: return time.truncatedTo(ChronoUnit.HOURS);
+                case DAY: return time.truncatedTo(ChronoUnit.DAYS);
+                default: return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            }
+        }
+
+        public LocalDateTime minus(LocalDateTime time, long periods) {
+            switch (this) {
+                case HOUR: return time.minusHours(periods);
+                case DAY: return time.minusDays(periods);
+                default: return time.minusMonths(periods);
+            }
+        }
+    }
+
+    /** What the reports tab offers: a window of whole periods ending with the current one. */
+    public enum Range {
+        LAST_24_HOURS("Last 24 hours (hourly)", Grain.HOUR, 24),
+        LAST_30_DAYS("Last 30 days (daily)", Grain.DAY, 30),
+        LAST_12_MONTHS("Last 12 months (monthly)", Grain.MONTH, 12);
+
+        final String label;
+        final Grain grain;
+        final int periods;
+
+        Range(String label, Grain grain, int periods) {
+            this.label = label;
+            this.grain = grain;
+            this.periods = periods;
+        }
+
+        public LocalDateTime start(LocalDateTime now) {
+            return grain.minus(grain.truncate(now), periods - 1);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public record Period(LocalDateTime start, long transactions, long units, double revenue, double profit) {
+        public double marginPercent() {
+            return revenue == 0 ? 0.0 : profit / revenue * 100;
+        }
+    }
+
+    public record Ranked(int id, String name, long transactions, long units, double revenue, double profit) {}
+
+    public record Report(Range range, List<Period> periods, List<Ranked> topProducts, List<Ranked> topCustomers, double millis) {}
+
+    private static final String PRODUCT = "P";
+    private static final String CUSTOMER = "C";
+    private static final String TOTAL = "T";
+
+    private static final SqlQuery UPSERT = SqlQuery.named("rollup.upsert",
+        "INSERT INTO sales_rollup (grain, dimension, key_id, period_start, transactions, units, revenue, profit) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE transactions = transactions + VALUES(transactions), " +
+        "units = units + VALUES(units), revenue = revenue + VALUES(revenue), profit = profit + VALUES(profit)");
+    private static final SqlQuery PRODUCT_SALES = SqlQuery.named("rollup.product_sales",
+        "SELECT COALESCE(SUM(transactions), 0) FROM sales_rollup WHERE grain = ? AND dimension = ? AND key_id = ?");
+    private static final SqlQuery REPORT_PERIODS = SqlQuery.named("rollup.report_periods",
+        "SELECT period_start, transactions, units, revenue, profit FROM sales_rollup " +
+        "WHERE grain = ? AND dimension = ? AND key_id = 0 AND period_start >= ? ORDER BY period_start");
+
+    private static final String HISTORY_COLUMNS =
+        "SELECT product_id, customer_id, date, quantity, COALESCE(total_with_tax, subtotal, 0), COALESCE(profit_amount, 0) " +
+        "FROM `transaction` ";
+    private static final String ARCHIVE_COLUMNS =
+        "SELECT product_id, customer_id, date, quantity, total, profit FROM transaction_archive ";
+
+    private static final String DAILY_UNITS_FROM_SALES =
+        "SELECT product_id, date, quantity FROM `transaction` WHERE date >= ?";
+
+    private static volatile boolean ready;
+    // Sales take the read side, rebuild() the write side, so none lands in the middle of a rebuild
+    private static final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    private record Key(String grain, String dimension, int keyId, LocalDateTime period) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key o) {
+            int c = grain.compareTo(o.grain);
+            if (c == 0) c = dimension.compareTo(o.dimension);
+            if (c == 0) c = Integer.compare(keyId, o.keyId);
+            return c != 0 ? c : period.compareTo(o.period);
+        }
+    }
+
+    private static final class Totals {
+        long transactions;
+        long units;
+        double revenue;
+        double profit;
+    }
+
+    /**
+     * Sales collected for one apply(). Rows are written in primary key
+     * order, so two checkouts touching the same rows lock them in the same
+     * order.
+     */
+    public static final class Delta {
+        private final Map<Key, Totals> rows = new TreeMap<>();
+
+        public void add(int productId, int customerId, LocalDateTime soldAt, int units, double revenue, double profit) {
+            add(productId, customerId, soldAt, 1, units, revenue, profit);
+        }
+
+        private void add(int productId, int customerId, LocalDateTime soldAt, int transactions, int units, double revenue, double profit) {
+            for (Grain grain : Grain.values()) {
+                LocalDateTime period = grain.truncate(soldAt);
+                addRow(new Key(grain.code, PRODUCT, productId, period), transactions, units, revenue, profit);
+                addRow(new Key(grain.code, CUSTOMER, customerId, period), transactions, units, revenue, profit);
+                addRow(new Key(grain.code, TOTAL, 0, period), transactions, units, revenue, profit);
+            }
+        }
+
+        private void addRow(Key key, int transactions, int units, double revenue, double profit) {
+            Totals totals = rows.computeIfAbsent(key, _ -> new Totals());
+            totals.transactions += transactions;
+            totals.units += units;
+            totals.revenue += revenue;
+            totals.profit += profit;
+        }
+
+        public boolean isEmpty() {
+            return rows.isEmpty();
+        }
+    }
+
+    /**
+     * Adds the sales to the rollups. Call inside the sale's transaction so
+     * both commit together. Waits while this process is rebuilding.
+     */
+    public static void apply(Connection conn, Delta delta) throws SQLException {
+        if (delta.isEmpty()) return;
+        // No DDL here, it would commit the caller's transaction; a rebuild counts these sales once the table exists
+        if (!tableReady(conn)) return;
+        rebuildLock.readLock().lock();
+        try {
+            write(conn, delta);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private static void write(Connection conn, Delta delta) throws SQLException {
+        try (PreparedStatement stmt = UPSERT.prepare(conn)) {
+            int batched = 0;
+            for (Map.Entry<Key, Totals> row : delta.rows.entrySet()) {
+                Key key = row.getKey();
+                Totals totals = row.getValue();
+                stmt.setString(1, key.grain());
+                stmt.setString(2, key.dimension());
+                stmt.setInt(3, key.keyId());
+                stmt.setTimestamp(4, Timestamp.valueOf(key.period()));
+                stmt.setLong(5, totals.transactions);
+                stmt.setLong(6, totals.units);
+                stmt.setDouble(7, totals.revenue);
+                stmt.setDouble(8, totals.profit);
+                stmt.addBatch();
+                if (++batched % 1000 == 0) stmt.executeBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * All-time sales of a product from the monthly rollups, so it costs the
+     * same however much history there is; -1 when the rollups cannot be
+     * trusted and the caller should count the sales itself.
+     */
+    public static long productSales(Connection conn, int productId) throws SQLException {
+        if (!tableReady(conn)) return -1;
+        try (PreparedStatement stmt = PRODUCT_SALES.prepare(conn)) {
+            stmt.setString(1, Grain.MONTH.code);
+            stmt.setString(2, PRODUCT);
+            stmt.setInt(3, productId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * Takes a product's sales out of the customer and overall rollups and
+     * drops its own rows, for databases where deleting a product still
+     * cascades to its transactions. Like StatsEngine.removeProductSales,
+     * this must run in the transaction that deletes the product, before the DELETE.
+     */
+    public static void removeProductSales(Connection conn, int productId) throws SQLException {
+        if (!tableReady(conn)) return;
+        Delta delta = new Delta();
+        try (PreparedStatement stmt = conn.prepareStatement(HISTORY_COLUMNS + "WHERE product_id = ? AND date IS NOT NULL")) {
+            stmt.setInt(1, productId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    delta.add(productId, rs.getInt(2), rs.getTimestamp(3).toLocalDateTime(), -1, -rs.getInt(4), -rs.getDouble(5), -rs.getDouble(6));
+                }
+            }
+        }
+        apply(conn, delta);
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM sales_rollup WHERE dimension = ? AND key_id = ?")) {
+            stmt.setString(1, PRODUCT);
+            stmt.setInt(2, productId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /** Drops a customer's own rows, once all of its sales are gone; the overall rollups are left to removeProductSales. */
+    static void removeCustomerRows(Connection conn, int customerId) throws SQLException {
+        if (!tableReady(conn)) return;
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM sales_rollup WHERE dimension = ? AND key_id = ?")) {
+            stmt.setString(1, CUSTOMER);
+            stmt.setInt(2, customerId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Recomputes every rollup from the transaction table and its archive,
+     * each month on its own pooled connection. Sales in this process wait
+     * until it is done; sales committed by other processes while it runs may
+     * be counted twice or not at all, so stop the other tills first.
+     */
+    public static void rebuild(int threads) throws SQLException {
+        rebuildLock.writeLock().lock();
+        try {
+            rebuildAll(threads);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    private static void rebuildAll(int threads) throws SQLException {
+        LocalDateTime first = null;
+        LocalDateTime last = null;
+        boolean archive;
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("Database is not reachable");
+            if (!ensureRollupTable(conn)) throw new SQLException("sales_rollup is not available");
+            archive = SalesArchive.hasArchive(conn);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM sales_rollup");
+                for (String table : archive ? List.of("transaction_archive", "`transaction`") : List.of("`transaction`")) {
+                    try (ResultSet rs = stmt.executeQuery("SELECT MIN(date), MAX(date) FROM " + table)) {
+                        if (!rs.next() || rs.getTimestamp(1) == null) continue;
+                        LocalDateTime min = rs.getTimestamp(1).toLocalDateTime();
+                        LocalDateTime max = rs.getTimestamp(2).toLocalDateTime();
+                        if (first == null || min.isBefore(first)) first = min;
+                        if (last == null || max.isAfter(last)) last = max;
+                    }
+                }
+            }
+        }
+        if (first == null) return;
+        first = Grain.MONTH.truncate(first);
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Long>> months = new ArrayList<>();
+            for (LocalDateTime month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+                LocalDateTime from = month;
+                months.add(workers.submit(() -> rebuildMonth(from, from.plusMonths(1), archive)));
+            }
+            long rows = 0;
+            for (Future<Long> month : months) rows += month.get();
+            System.out.println("📊 Rebuilt sales rollups from " + rows + " sales over " + months.size() + " month(s)");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Rollup rebuild interrupted", e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            if (e.getCause() instanceof SQLException sql) throw sql;
+            throw new SQLException("Rollup rebuild failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static long rebuildMonth(LocalDateTime from, LocalDateTime to, boolean archive) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("Database is not reachable");
+            Delta delta = new Delta();
+            long sales = 0;
+            for (String columns : archive ? List.of(ARCHIVE_COLUMNS, HISTORY_COLUMNS) : List.of(HISTORY_COLUMNS)) {
+                try (PreparedStatement stmt = conn.prepareStatement(columns + "WHERE date >= ? AND date < ?")) {
+                    stmt.setTimestamp(1, Timestamp.valueOf(from));
+                    stmt.setTimestamp(2, Timestamp.valueOf(to));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            delta.add(rs.getInt(1), rs.getInt(2), rs.getTimestamp(3).toLocalDateTime(), rs.getInt(4), rs.getDouble(5), rs.getDouble(6));
+                            sales++;
+                        }
+                    }
+                }
+            }
+            TransactionRetry.run(() -> {
+                conn.setAutoCommit(false);
+                try {
+                    write(conn, delta);
+                    conn.commit();
+                    return null;
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            });
+            return sales;
+        }
+    }
+
+    // ---- reports ----
+
+    public static Report loadReport(Connection conn, Range range, int limit) throws SQLException {
+        long start = System.nanoTime();
+        if (!tableReady(conn)) throw new SQLException("sales_rollup is missing: build it with java SalesRollup while the tills are stopped");
+        Timestamp from = Timestamp.valueOf(range.start(LocalDateTime.now()));
+        String grain = range.grain.code;
+
+        List<Period> periods = new ArrayList<>();
+        try (PreparedStatement stmt = REPORT_PERIODS.prepare(conn)) {
+            stmt.setString(1, grain);
+            stmt.setString(2, TOTAL);
+            stmt.setTimestamp(3, from);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    periods.add(new Period(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2), rs.getLong(3), rs.getDouble(4), rs.getDouble(5)));
+                }
+            }
+        }
+        List<Ranked> products = topRanked(conn, PRODUCT, "product", "Deleted Product", grain, from, limit);
+        List<Ranked> customers = topRanked(conn, CUSTOMER, "customer", "Deleted Customer", grain, from, limit);
+        return new Report(range, periods, products, customers, (System.nanoTime() - start) / 1_000_000.0);
+    }
+
+    /**
+     * Units sold per product on each of the last {@code days} days, today
+     * included: index 0 is the oldest day and days without a sale stay 0.
+     * Products that sold nothing in the window are absent. Without the
+     * rollups the window's sales are added up instead.
+     */
+    public static Map<Integer, long[]> dailyProductUnits(Connection conn, int days) throws SQLException {
+        LocalDateTime first = Grain.DAY.minus(Grain.DAY.truncate(LocalDateTime.now()), days - 1);
+        Map<Integer, long[]> units = new java.util.HashMap<>();
+        if (!tableReady(conn)) {
+            try (PreparedStatement stmt = conn.prepareStatement(DAILY_UNITS_FROM_SALES)) {
+                stmt.setTimestamp(1, Timestamp.valueOf(first));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int day = (int) ChronoUnit.DAYS.between(first, Grain.DAY.truncate(rs.getTimestamp(2).toLocalDateTime()));
+                        if (day >= 0 && day < days) units.computeIfAbsent(rs.getInt(1), _ -> new long[days])[day] += rs.getLong(3);
+                    }
+                }
+            }
+            return units;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT key_id, period_start, units FROM sales_rollup WHERE grain = ? AND dimension = ? AND period_start >= ?")) {
+            stmt.setString(1, Grain.DAY.code);
+            stmt.setString(2, PRODUCT);
+            stmt.setTimestamp(3, Timestamp.valueOf(first));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int day = (int) ChronoUnit.DAYS.between(first, rs.getTimestamp(2).toLocalDateTime());
+                    if (day >= 0 && day < days) units.computeIfAbsent(rs.getInt(1), _ -> new long[days])[day] += rs.getLong(3);
+                }
+            }
+        }
+        return units;
+    }
+
+    private static List<Ranked> topRanked(Connection conn, String dimension, String table, String deletedName, String grain,
+                                          Timestamp from, int limit) throws SQLException {
+        List<Ranked> ranked = new ArrayList<>();
+        SqlQuery query = SqlQuery.named("rollup.top_" + table + "s",
+            "SELECT r.key_id, COALESCE(MAX(n.name), '" + deletedName + "'), SUM(r.transactions), SUM(r.units), SUM(r.revenue), SUM(r.profit) " +
+            "FROM sales_rollup r LEFT JOIN " + table + " n ON n.id = r.key_id " +
+            "WHERE r.grain = ? AND r.dimension = ? AND r.period_start >= ? " +
+            "GROUP BY r.key_id HAVING SUM(r.transactions) > 0 " + // rows emptied by a product delete
+            "ORDER BY SUM(r.revenue) DESC LIMIT ?");
+        try (PreparedStatement stmt = query.prepare(conn)) {
+            stmt.setString(1, grain);
+            stmt.setString(2, dimension);
+            stmt.setTimestamp(3, from);
+            stmt.setInt(4, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ranked.add(new Ranked(rs.getInt(1), rs.getString(2), rs.getLong(3), rs.getLong(4), rs.getDouble(5), rs.getDouble(6)));
+                }
+            }
+        }
+        return ranked;
+    }
+
+    // Metadata only, so it is safe inside a transaction; only finding the table is remembered, another process may create it
+    private static boolean tableReady(Connection conn) throws SQLException {
+        if (ready) return true;
+        boolean exists = SchemaCapabilities.columns(conn.getMetaData(), conn.getCatalog(), "sales_rollup").contains("grain");
+        if (exists) ready = true;
+        return exists;
+    }
+
+    // Creates sales_rollup on databases from before it existed; the caller fills it with rebuild()
+    static boolean ensureRollupTable(Connection conn) {
+        if (ready) return true;
+        synchronized (SalesRollup.class) {
+            if (ready) return true;
+            try (Statement stmt = conn.createStatement()) {
+                if (!tableReady(conn)) {
+                    stmt.executeUpdate(
+                        "CREATE TABLE IF NOT EXISTS sales_rollup (" +
+                        "grain CHAR(1) NOT NULL, " +
+                        "dimension CHAR(1) NOT NULL, " +
+                        "key_id INT NOT NULL, " +
+                        "period_start DATETIME NOT NULL, " +
+                        "transactions BIGINT NOT NULL DEFAULT 0, " +
+                        "units BIGINT NOT NULL DEFAULT 0, " +
+                        "revenue DOUBLE NOT NULL DEFAULT 0, " +
+                        "profit DOUBLE NOT NULL DEFAULT 0, " +
+                        "PRIMARY KEY (grain, dimension, key_id, period_start), " +
+                        "INDEX idx_rollup_period (grain, dimension, period_start))");
+                    ready = true;
+                }
+            } catch (SQLException e) {
+                System.err.println("⚠️ sales_rollup unavailable, reports are disabled: " + e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Rebuilds all rollups from the history, with the tills stopped. Usage: java SalesRollup [threads] */
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        try {
+            long start = System.nanoTime();
+            rebuild(threads);
+            System.out.printf("✅ Done in %.1fs%n", (System.nanoTime() - start) / 1e9);
+        } catch (SQLException e) {
+            System.err.println("❌ Rebuild failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import java.sql.*;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * What the connected database's schema supports, probed once per
+ * connection pool instead of on every refresh. Hands out the query
+ * variants that match, so callers never try-and-fall-back at runtime.
+ * Databases imported from db/inventory.sql have everything; older ones
+ * can be brought up to date with SchemaMigrator.
+ */
+public class SchemaCapabilities {
+    private static SchemaCapabilities current;
+    private static ConnectionPool probedPool;
+
+    private final boolean productCostPrice;
+    private final boolean saleColumns;
+    private final boolean salesSummary;
+    private final boolean salesArchive;
+    private final boolean cascadingSales;
+    private final boolean saleForeignKeys;
+    private final int schemaVersion;
+    private final String productLoadQuery;
+    private final String transactionHistoryQuery;
+    private final String archiveHistoryQuery;
+
+    private SchemaCapabilities(boolean productCostPrice, boolean saleColumns, boolean salesSummary,
+                               boolean salesArchive, boolean cascadingSales, boolean saleForeignKeys, int schemaVersion) {
+        this.productCostPrice = productCostPrice;
+        this.saleColumns = saleColumns;
+        this.salesSummary = salesSummary;
+        this.salesArchive = salesArchive;
+        this.cascadingSales = cascadingSales;
+        this.saleForeignKeys = saleForeignKeys;
+        this.schemaVersion = schemaVersion;
+
+        productLoadQuery = productCostPrice
+            ? "SELECT id, name, quantity, price, COALESCE(cost_price, 0) AS cost_price FROM product"
+            : "SELECT id, name, quantity, price, 0 AS cost_price FROM product";
+
+        String productCost = productCostPrice ? "p.cost_price" : "0";
+        String columns = saleColumns
+            ? "COALESCE(t.unit_cost, " + productCost + ", 0) AS unit_cost, " +
+              "COALESCE(t.unit_price, p.price) AS unit_price, " +
+              "COALESCE(t.total_with_tax, t.subtotal, t.quantity * COALESCE(t.unit_price, p.price)) AS total, " +
+              "COALESCE(t.profit_amount, 0) AS profit, "
+            // Before the sale columns existed: price everything from the product, 18% GST on top
+            : "COALESCE(" + productCost + ", 0) AS unit_cost, COALESCE(p.price, 0) AS unit_price, " +
+              "(t.quantity * COALESCE(p.price, 0) * 1.18) AS total, 0 AS profit, ";
+        // Sales outlive their product and customer, so both are outer joins
+        String names = "SELECT t.id, COALESCE(p.name, 'Deleted Product') AS product_name, " +
+            "COALESCE(c.name, 'Deleted Customer') AS customer_name, t.quantity, ";
+        String joins = " t LEFT JOIN product p ON t.product_id = p.id " +
+            "LEFT JOIN customer c ON t.customer_id = c.id WHERE 1 = 1";
+        transactionHistoryQuery = names + columns + "t.date FROM `transaction`" + joins;
+        archiveHistoryQuery = names + "t.unit_cost, t.unit_price, t.total, t.profit, t.date FROM transaction_archive" + joins;
+    }
+
+    /** Capabilities of the current pool's database, probing with a pooled connection the first time. */
+    public static SchemaCapabilities get() throws SQLException {
+        synchronized (SchemaCapabilities.class) {
+            if (current != null && probedPool == DBConnection.getPool()) return current;
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) throw new SQLException("Database is not reachable");
+            return get(conn);
+        }
+    }
+
+    /** Same as get(), probing with the caller's connection if nothing is cached yet. */
+    public static synchronized SchemaCapabilities get(Connection conn) throws SQLException {
+        ConnectionPool pool = DBConnection.getPool();
+        if (current == null || probedPool != pool) {
+            if (Boolean.getBoolean("inventory.schema.autoMigrate")) SchemaMigrator.migrate(conn);
+            current = probe(conn);
+            probedPool = pool;
+            System.out.println("🔎 Schema: " + current);
+        }
+        return current;
+    }
+
+    /** Forgets the cached result, e.g. after a migration changed the schema. */
+    public static synchronized void invalidate() {
+        current = null;
+        probedPool = null;
+    }
+
+    public static SchemaCapabilities probe(Connection conn) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        Set<String> product = columns(meta, conn.getCatalog(), "product");
+        Set<String> transaction = columns(meta, conn.getCatalog(), "transaction");
+        boolean summary = !columns(meta, conn.getCatalog(), "sales_summary").isEmpty();
+        boolean cascading = false;
+        boolean productKey = false;
+        boolean customerKey = false;
+        try (ResultSet rs = meta.getImportedKeys(conn.getCatalog(), null, "transaction")) {
+            while (rs.next()) {
+                boolean toProduct = "product".equalsIgnoreCase(rs.getString("PKTABLE_NAME"));
+                productKey |= toProduct;
+                customerKey |= "customer".equalsIgnoreCase(rs.getString("PKTABLE_NAME"));
+                cascading |= toProduct && rs.getShort("DELETE_RULE") == DatabaseMetaData.importedKeyCascade;
+            }
+        }
+        return new SchemaCapabilities(
+            product.contains("cost_price"),
+            transaction.containsAll(Set.of("unit_cost", "unit_price", "total_with_tax", "profit_amount")),
+            summary,
+            SalesArchive.hasArchive(conn),
+            cascading,
+            productKey && customerKey,
+            SchemaMigrator.currentVersion(conn));
+    }
+
+    static Set<String> columns(DatabaseMetaData meta, String catalog, String table) throws SQLException {
+        Set<String> names = new HashSet<>();
+        try (ResultSet rs = meta.getColumns(catalog, null, table, null)) {
+            while (rs.next()) names.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+        }
+        return names;
+    }
+
+    public boolean hasProductCostPrice() { return productCostPrice; }
+    public boolean hasSaleColumns() { return saleColumns; }
+    public boolean hasSalesSummary() { return salesSummary; }
+    public boolean hasSalesArchive() { return salesArchive; }
+    /** True while a foreign key still deletes a product's sales along with it, as on databases migration 9 did not partition. */
+    public boolean deletesSalesWithProducts() { return cascadingSales; }
+    /** False once sales have no foreign keys, so checkout itself must reject unknown customers and products. */
+    public boolean hasSaleForeignKeys() { return saleForeignKeys; }
+    /** Last migration recorded in schema_version, 0 when the table does not exist. */
+    public int getSchemaVersion() { return schemaVersion; }
+
+    /** Columns: id, name, quantity, price, cost_price. */
+    public String productLoadQuery() { return productLoadQuery; }
+
+    /**
+     * Columns: id, product_name, customer_name, quantity, unit_cost,
+     * unit_price, total, profit, date. Ends in a WHERE clause so callers
+     * can append " AND ..." filters.
+     */
+    public String transactionHistoryQuery() { return transactionHistoryQuery; }
+
+    /** Same columns as transactionHistoryQuery(), over transaction_archive. Only valid if hasSalesArchive(). */
+    public String archiveHistoryQuery() { return archiveHistoryQuery; }
+
+    public boolean isLegacy() {
+        return !productCostPrice || !saleColumns;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("version %d, cost_price=%b, sale columns=%b, sales_summary=%b, archive=%b%s",
+            schemaVersion, productCostPrice, saleColumns, salesSummary, salesArchive,
+            isLegacy() ? " (legacy - run SchemaMigrator to upgrade)" : "");
+    }
+}
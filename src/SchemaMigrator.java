@@ -0,0 +1,173 @@
+import java.sql.*;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Upgrades databases created by older versions of the application to the
+ * layout of db/inventory.sql. Applied versions are recorded in
+ * schema_version; each step checks what already exists before changing
+ * anything, so a step interrupted halfway (MySQL DDL cannot be rolled
+ * back) is simply re-run.
+ *
+ * Usage: java SchemaMigrator [--status] [jdbcUrl]
+ * Runs automatically at startup when -Dinventory.schema.autoMigrate=true.
+ */
+public class SchemaMigrator {
+
+    private interface Step {
+        void apply(Connection conn, Statement stmt) throws SQLException;
+    }
+
+    private record Migration(int version, String description, Step step) {}
+
+    private static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "product cost price", SchemaMigrator::addProductCostPrice),
+        new Migration(2, "per-sale price, tax and profit columns", SchemaMigrator::addSaleColumns),
+        new Migration(3, "transaction date/product/customer indexes", SchemaMigrator::addTransactionIndexes),
+        new Migration(4, "sales_summary dashboard table", (conn, _) -> {
+            if (!StatsEngine.ensureSummaryTable(conn)) throw new SQLException("Could not create sales_summary");
+        }),
+        new Migration(5, "sales_journal checkpoint table", (conn, _) -> SalesJournal.ensureCheckpointTable(conn)),
+        new Migration(6, "sales_rollup report aggregates", (conn, _) -> {
+            if (!SalesRollup.ensureRollupTable(conn)) throw new SQLException("Could not create sales_rollup");
+            SalesRollup.rebuild(Runtime.getRuntime().availableProcessors());
+        }),
+        new Migration(7, "change_log and capture triggers", (conn, _) -> ChangeFeed.ensureChangeLog(conn)),
+        new Migration(8, "product_supplier links", (conn, _) -> ReplenishmentEngine.ensureLinkTable(conn)),
+        new Migration(9, "sales archive tables, monthly transaction partitions", (conn, _) -> {
+            SalesArchive.ensureArchiveTables(conn);
+            SalesArchive.partitionTransactions(conn);
+        })
+    );
+
+    public static final int LATEST_VERSION = MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+
+    /** Applies every migration newer than the recorded version. Returns how many ran. */
+    public static synchronized int migrate(Connection conn) throws SQLException {
+        int applied = 0;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS schema_version (" +
+                "version INT PRIMARY KEY, " +
+                "description VARCHAR(200) NOT NULL, " +
+                "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            int version = currentVersion(conn);
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() <= version) continue;
+                migration.step().apply(conn, stmt);
+                try (PreparedStatement record = conn.prepareStatement(
+                         "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                    record.setInt(1, migration.version());
+                    record.setString(2, migration.description());
+                    record.executeUpdate();
+                }
+                System.out.println("🛠️ Applied migration " + migration.version() + ": " + migration.description());
+                applied++;
+            }
+        }
+        if (applied > 0) SchemaCapabilities.invalidate();
+        return applied;
+    }
+
+    /** Highest recorded migration, or 0 for databases that predate schema_version. */
+    public static int currentVersion(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+
+    private static Set<String> columns(Connection conn, String table) throws SQLException {
+        return SchemaCapabilities.columns(conn.getMetaData(), conn.getCatalog(), table);
+    }
+
+    private static void addProductCostPrice(Connection conn, Statement stmt) throws SQLException {
+        Set<String> existing = columns(conn, "product");
+        if (!existing.contains("cost_price")) {
+            stmt.executeUpdate("ALTER TABLE product ADD COLUMN cost_price DOUBLE NOT NULL DEFAULT 0.0");
+        }
+        if (!existing.contains("profit_margin")) {
+            // Convenience column for ad-hoc SQL only; the application computes margins itself
+            try {
+                stmt.executeUpdate("ALTER TABLE product ADD COLUMN profit_margin DOUBLE " +
+                    "GENERATED ALWAYS AS ((price - cost_price) / cost_price * 100) STORED");
+            } catch (SQLException e) {
+                System.err.println("⚠️ Skipped generated column product.profit_margin: " + e.getMessage());
+            }
+        }
+    }
+
+    // Adds the columns checkout writes, then prices old sales the way the legacy history view did
+    private static void addSaleColumns(Connection conn, Statement stmt) throws SQLException {
+        Set<String> existing = columns(conn, "transaction");
+        String[][] added = {
+            {"unit_cost", "DOUBLE DEFAULT NULL"},
+            {"unit_price", "DOUBLE DEFAULT NULL"},
+            {"subtotal", "DOUBLE DEFAULT NULL"},
+            {"discount_percent", "DOUBLE DEFAULT 0"},
+            {"discount_amount", "DOUBLE DEFAULT NULL"},
+            {"tax_amount", "DOUBLE DEFAULT NULL"},
+            {"total_with_tax", "DOUBLE DEFAULT NULL"},
+            {"profit_amount", "DOUBLE DEFAULT NULL"}
+        };
+        for (String[] column : added) {
+            if (!existing.contains(column[0])) {
+                stmt.executeUpdate("ALTER TABLE `transaction` ADD COLUMN " + column[0] + " " + column[1]);
+            }
+        }
+        stmt.executeUpdate("UPDATE `transaction` SET " +
+            "unit_price = (SELECT p.price FROM product p WHERE p.id = product_id), " +
+            "unit_cost = COALESCE(unit_cost, (SELECT p.cost_price FROM product p WHERE p.id = product_id)) " +
+            "WHERE unit_price IS NULL");
+        stmt.executeUpdate("UPDATE `transaction` SET subtotal = quantity * unit_price WHERE subtotal IS NULL");
+        stmt.executeUpdate("UPDATE `transaction` SET discount_amount = 0 WHERE discount_amount IS NULL");
+        stmt.executeUpdate("UPDATE `transaction` SET tax_amount = subtotal * 0.18 WHERE tax_amount IS NULL");
+        stmt.executeUpdate("UPDATE `transaction` SET total_with_tax = subtotal + tax_amount WHERE total_with_tax IS NULL");
+        stmt.executeUpdate("UPDATE `transaction` SET profit_amount = (unit_price - COALESCE(unit_cost, 0)) * quantity " +
+            "WHERE profit_amount IS NULL");
+    }
+
+    private static void addTransactionIndexes(Connection conn, Statement stmt) throws SQLException {
+        Set<String> indexes = new java.util.HashSet<>();
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, "transaction", false, true)) {
+            while (rs.next()) {
+                String name = rs.getString("INDEX_NAME");
+                if (name != null) indexes.add(name.toLowerCase(java.util.Locale.ROOT));
+            }
+        }
+        String[][] wanted = {{"idx_date", "date"}, {"idx_product", "product_id"}, {"idx_customer", "customer_id"}};
+        for (String[] index : wanted) {
+            if (!indexes.contains(index[0])) {
+                stmt.executeUpdate("CREATE INDEX " + index[0] + " ON `transaction` (" + index[1] + ")");
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        boolean statusOnly = args.length > 0 && args[0].equals("--status");
+        String url = args.length > (statusOnly ? 1 : 0) ? args[statusOnly ? 1 : 0] : null;
+        if (url != null) {
+            DBConnection.usePool(new ConnectionPool(() -> DriverManager.getConnection(url), ConnectionPool.Config.fromSystemProperties()));
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            if (conn == null) {
+                System.err.println("❌ Database is not reachable");
+                System.exit(1);
+            }
+            int version = currentVersion(conn);
+            System.out.println("📋 Schema version " + version + " of " + LATEST_VERSION);
+            if (!statusOnly) {
+                int applied = migrate(conn);
+                System.out.println(applied == 0 ? "✅ Schema is up to date" : "✅ Applied " + applied + " migration(s)");
+            }
+            System.out.println("🔎 " + SchemaCapabilities.probe(conn));
+        } catch (SQLException e) {
+            System.err.println("❌ Migration failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+}
@@ -0,0 +1,332 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * In-memory type-ahead index over a set of records keyed by int id.
+ * The id and every field are folded to lower-case words; each word is
+ * indexed by its trigrams, padded in front so that one- and two-letter
+ * word prefixes are trigrams too. A query walks the shortest posting list
+ * among its trigrams and checks only those candidates.
+ *
+ * Query words of one or two letters match word prefixes, longer ones
+ * match anywhere. Results rank an exact id first, then labels starting
+ * with the query, then records where every word is a word prefix, then
+ * the rest; ties go by label. Records sit in label order, so the first
+ * matches of each rank found are already the best ones and a broad query
+ * stops as soon as it has enough label matches.
+ *
+ * put() and remove() update single records: a record whose words did not
+ * change only has its value swapped, others are appended out of order and
+ * merged in by an occasional rebuild, which also drops removed records.
+ * Thread-safe.
+ */
+public class SearchIndex<T> {
+    private static final int MIN_REBUILD = 1024;
+
+    private static final class Postings {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            slots[size++] = slot;
+        }
+    }
+
+    private final ToIntFunction<T> id;
+    private final Function<T, String> label;
+    private final List<Function<T, String>> fields;
+    private final IntObjectMap<Integer> slotById = new IntObjectMap<>(256);
+    private final IntObjectMap<Postings> postings = new IntObjectMap<>(4096);
+    // Per slot; a null value marks a dead slot. Slots below sortedEnd are in label order.
+    private Object[] values = new Object[256];
+    private String[] texts = new String[256];
+    private String[] labels = new String[256];
+    private int slots;
+    private int sortedEnd;
+
+    /** {@code label} is what results are ranked and shown by; {@code fields} are searched as well. */
+    @SafeVarargs
+    public SearchIndex(ToIntFunction<T> id, Function<T, String> label, Function<T, String>... fields) {
+        this.id = id;
+        this.label = label;
+        // Copied element by element: handing the array itself on to another varargs method is what -Xlint:varargs flags
+        List<Function<T, String>> copy = new ArrayList<>(fields.length);
+        for (Function<T, String> field : fields) copy.add(field);
+        this.fields = List.copyOf(copy);
+    }
+
+    public synchronized int size() {
+        return slotById.size();
+    }
+
+    public synchronized T get(int key) {
+        Integer slot = slotById.get(key);
+        return slot == null ? null : cast(values[slot]);
+    }
+
+    public synchronized void put(T value) {
+        store(value);
+        rebuildIfDue();
+    }
+
+    public synchronized void remove(int key) {
+        Integer slot = slotById.remove(key);
+        if (slot == null) return;
+        values[slot] = null;
+        rebuildIfDue();
+    }
+
+    /** Makes the index hold exactly {@code all}, re-indexing only records that changed. */
+    public synchronized void replaceAll(Collection<T> all) {
+        IntObjectMap<T> fresh = new IntObjectMap<>(Math.max(256, all.size()));
+        for (T value : all) fresh.put(id.applyAsInt(value), value);
+        for (int slot = 0; slot < slots; slot++) {
+            if (values[slot] != null && !fresh.containsKey(id.applyAsInt(cast(values[slot])))) {
+                slotById.remove(id.applyAsInt(cast(values[slot])));
+                values[slot] = null;
+            }
+        }
+        if (slotById.size() == 0) {
+            rebuild(fresh.values());
+        } else {
+            fresh.forEachValue(this::store);
+            rebuildIfDue();
+        }
+    }
+
+    /** Up to {@code limit} best matches that pass {@code filter}; an empty query matches nothing. */
+    public synchronized List<T> search(String query, int limit, Predicate<? super T> filter) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) return List.of();
+        String[] words = normalized.split(" ");
+
+        Postings shortest = null;
+        for (String word : words) {
+            String padded = word.length() < 3 ? "  ".substring(word.length() - 1) + word : word;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                Postings p = postings.get(trigram(padded, i));
+                if (p == null) return List.of();
+                if (shortest == null || p.size < shortest.size) shortest = p;
+            }
+        }
+
+        // [slot, rank] pairs: the first `limit` of each rank in label order, plus every match among the unsorted slots
+        List<int[]> found = new ArrayList<>();
+        int[] perRank = new int[4];
+        int exactId = parseId(normalized);
+        Integer exact = exactId >= 0 ? slotById.get(exactId) : null;
+        if (exact != null && rank(exact, words, normalized) >= 0 && filter.test(cast(values[exact]))) {
+            found.add(new int[]{exact, 0});
+            perRank[0]++;
+        }
+        // Sorted labels starting with the query form one block, so rank 1 needs no posting walk
+        int blockStart = firstLabelFrom(normalized);
+        int blockEnd = firstLabelFrom(normalized + Character.MAX_VALUE);
+        for (int slot = blockStart; slot < blockEnd && perRank[1] < limit; slot++) {
+            if (values[slot] == null || (exact != null && slot == exact) || !filter.test(cast(values[slot]))) continue;
+            found.add(new int[]{slot, 1});
+            perRank[1]++;
+        }
+        int i = perRank[0] + perRank[1] >= limit ? unsortedFrom(shortest, 0) : 0;
+        for (; i < shortest.size; i++) {
+            int slot = shortest.slots[i];
+            boolean sorted = slot < sortedEnd;
+            if (values[slot] == null || (exact != null && slot == exact) || (slot >= blockStart && slot < blockEnd)) continue;
+            int rank = rank(slot, words, normalized);
+            if (rank < 0 || (sorted && perRank[rank] >= limit) || !filter.test(cast(values[slot]))) continue;
+            found.add(new int[]{slot, rank});
+            if (!sorted) continue;
+            // Later sorted slots rank 2 with a later label, or worse; only the unsorted tail can still compete
+            perRank[rank]++;
+            if (perRank[0] + perRank[1] + perRank[2] >= limit) i = unsortedFrom(shortest, i + 1) - 1;
+        }
+        found.sort(Comparator.<int[]>comparingInt(r -> r[1])
+            .thenComparing(r -> labels[r[0]]).thenComparingInt(r -> id.applyAsInt(cast(values[r[0]]))));
+        List<T> results = new ArrayList<>(Math.min(limit, found.size()));
+        for (int[] match : found) {
+            if (results.size() == limit) break;
+            results.add(cast(values[match[0]]));
+        }
+        return results;
+    }
+
+    public List<T> search(String query, int limit) {
+        return search(query, limit, _ -> true);
+    }
+
+    // First sorted slot whose label is not below {@code key}
+    private int firstLabelFrom(String key) {
+        int lo = 0, hi = sortedEnd;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (labels[mid].compareTo(key) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int unsortedFrom(Postings p, int from) {
+        int at = Arrays.binarySearch(p.slots, from, p.size, sortedEnd);
+        return at < 0 ? -at - 1 : at;
+    }
+
+    // 1 to 3, or -1 when the record does not match every word
+    private int rank(int slot, String[] words, String query) {
+        String text = texts[slot];
+        boolean allPrefixes = true;
+        for (String word : words) {
+            int at = text.indexOf(word);
+            if (at < 0) return -1;
+            boolean prefix = text.charAt(at - 1) == ' ' || text.contains(" " + word);
+            if (!prefix && word.length() < 3) return -1;
+            allPrefixes &= prefix;
+        }
+        if (labels[slot].startsWith(query)) return 1;
+        return allPrefixes ? 2 : 3;
+    }
+
+    private void store(T value) {
+        int key = id.applyAsInt(value);
+        String text = text(key, value);
+        Integer slot = slotById.get(key);
+        if (slot != null) {
+            if (texts[slot].equals(text)) {
+                values[slot] = value;
+                return;
+            }
+            values[slot] = null;
+        }
+        slotById.put(key, add(value, text, normalize(label.apply(value))));
+    }
+
+    private int add(Object value, String text, String normalizedLabel) {
+        if (slots == values.length) {
+            int capacity = slots * 2;
+            values = Arrays.copyOf(values, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+        }
+        int slot = slots++;
+        values[slot] = value;
+        texts[slot] = text;
+        labels[slot] = normalizedLabel;
+        // Each distinct trigram once per record
+        int[] codes = new int[3 * text.length()];
+        int n = 0;
+        int start = 1;
+        while (start < text.length()) {
+            int end = text.indexOf(' ', start);
+            if (end < 0) end = text.length();
+            // Padded "  word": the first two trigrams are the one- and two-letter prefixes
+            codes[n++] = trigram(' ', ' ', text.charAt(start));
+            if (end - start > 1) codes[n++] = trigram(' ', text.charAt(start), text.charAt(start + 1));
+            for (int i = start; i + 3 <= end; i++) codes[n++] = trigram(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2));
+            start = end + 1;
+        }
+        Arrays.sort(codes, 0, n);
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && codes[i] == codes[i - 1]) continue;
+            Postings p = postings.get(codes[i]);
+            if (p == null) {
+                p = new Postings();
+                postings.put(codes[i], p);
+            }
+            p.add(slot);
+        }
+        return slot;
+    }
+
+    // Re-adds the live records in label order once enough are dead or out of order
+    private void rebuildIfDue() {
+        int live = slotById.size();
+        if (slots - live + slots - sortedEnd < Math.max(MIN_REBUILD, live / 8)) return;
+        List<T> records = new ArrayList<>(live);
+        for (int slot = 0; slot < slots; slot++) {
+            if (values[slot] != null) records.add(cast(values[slot]));
+        }
+        rebuild(records);
+    }
+
+    private void rebuild(List<T> records) {
+        int n = records.size();
+        String[] newTexts = new String[n];
+        String[] newLabels = new String[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            T value = records.get(i);
+            newTexts[i] = text(id.applyAsInt(value), value);
+            newLabels[i] = normalize(label.apply(value));
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer, String>comparing(i -> newLabels[i]).thenComparingInt(i -> id.applyAsInt(records.get(i))));
+        values = new Object[Math.max(256, n * 2)];
+        texts = new String[values.length];
+        labels = new String[values.length];
+        slots = 0;
+        postings.clear();
+        slotById.clear();
+        for (int i : order) {
+            slotById.put(id.applyAsInt(records.get(i)), add(records.get(i), newTexts[i], newLabels[i]));
+        }
+        sortedEnd = slots;
+    }
+
+    // " id word word ...", with a leading space so every word follows one
+    private String text(int key, T value) {
+        StringBuilder sb = new StringBuilder(" ").append(key);
+        String name = normalize(label.apply(value));
+        if (!name.isEmpty()) sb.append(' ').append(name);
+        for (Function<T, String> field : fields) {
+            String words = normalize(field.apply(value));
+            if (!words.isEmpty()) sb.append(' ').append(words);
+        }
+        return sb.toString();
+    }
+
+    /** Lower-case letters and digits, with any run of other characters turned into one space. */
+    static String normalize(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean space = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && sb.length() > 0) sb.append(' ');
+                sb.append(Character.toLowerCase(c));
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int trigram(String s, int at) {
+        return trigram(s.charAt(at), s.charAt(at + 1), s.charAt(at + 2));
+    }
+
+    // 10 bits per character; non-ASCII characters may share codes, which only adds candidates
+    private static int trigram(char a, char b, char c) {
+        return (a & 0x3FF) << 20 | (b & 0x3FF) << 10 | (c & 0x3FF);
+    }
+
+    private static int parseId(String query) {
+        if (query.length() > 9) return -1;
+        for (int i = 0; i < query.length(); i++) {
+            if (query.charAt(i) < '0' || query.charAt(i) > '9') return -1;
+        }
+        return Integer.parseInt(query);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+}
@@ -0,0 +1,79 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A statement the application runs often, under a stable name.
+ * ConnectionPool keeps prepared statements open per connection keyed by
+ * their SQL text, so a query defined here is parsed and planned once per
+ * connection and only bound and executed after that. Executions are
+ * counted under the name in inventory_db_statement_executions_total.
+ *
+ * Queries whose text depends on the schema or on the length of an IN list
+ * are defined when they are built; every distinct text is its own cached
+ * statement, which is why IN lists are padded with inList().
+ */
+public final class SqlQuery {
+    private static final int MAX_REGISTERED = 4096;
+    private static final Map<String, SqlQuery> bySql = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String sql;
+
+    private SqlQuery(String name, String sql) {
+        this.name = name;
+        this.sql = sql;
+    }
+
+    /** The query for {@code sql}; a text keeps the first name it was given. */
+    public static SqlQuery named(String name, String sql) {
+        SqlQuery query = bySql.get(sql);
+        if (query != null) return query;
+        query = new SqlQuery(name, sql);
+        if (bySql.size() >= MAX_REGISTERED) return query;
+        SqlQuery existing = bySql.putIfAbsent(sql, query);
+        return existing != null ? existing : query;
+    }
+
+    /** Name registered for the text, or null. */
+    static String nameOf(String sql) {
+        SqlQuery query = bySql.get(sql);
+        return query == null ? null : query.name;
+    }
+
+    /**
+     * Placeholders for an IN list of {@code count} values, rounded up to a
+     * power of two so lists of similar length share one statement. Bind the
+     * extra placeholders to the last value again.
+     */
+    public static int inListSize(int count) {
+        return count <= 1 ? 1 : Integer.highestOneBit(count - 1) << 1;
+    }
+
+    /** "?, ?, ?" for inListSize(count) values. */
+    public static String inList(int count) {
+        int size = inListSize(count);
+        StringBuilder sb = new StringBuilder(size * 3);
+        for (int i = 0; i < size; i++) sb.append(i == 0 ? "?" : ", ?");
+        return sb.toString();
+    }
+
+    public PreparedStatement prepare(Connection conn) throws SQLException {
+        return conn.prepareStatement(sql);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String sql() {
+        return sql;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,130 @@
+import java.sql.*;
+
+/**
+ * Dashboard figures in a single round trip.
+ * Sales totals come from the one-row sales_summary table, which checkout
+ * keeps up to date in the same transaction as the sale itself, so reading
+ * them costs the same no matter how large the transaction table grows.
+ */
+public class StatsEngine {
+
+    public record Snapshot(int products, int customers, int suppliers,
+                           long transactions, double revenue, double profit) {}
+
+    private static final SqlQuery SUMMARY_QUERY = SqlQuery.named("stats.summary",
+        "SELECT (SELECT COUNT(*) FROM product), (SELECT COUNT(*) FROM customer), (SELECT COUNT(*) FROM supplier), " +
+        "s.transaction_count, s.total_revenue, s.total_profit " +
+        "FROM sales_summary s WHERE s.id = 1");
+    private static final SqlQuery RECORD_SALES = SqlQuery.named("stats.record_sales",
+        "UPDATE sales_summary SET transaction_count = transaction_count + ?, " +
+        "total_revenue = total_revenue + ?, total_profit = total_profit + ? WHERE id = 1");
+
+    private static final String COUNT = "(SELECT COUNT(*) FROM `transaction`)";
+    private static final String REVENUE = "(SELECT COALESCE(SUM(total_with_tax), 0) FROM `transaction`)";
+    private static final String PROFIT = "(SELECT COALESCE(SUM(profit_amount), 0) FROM `transaction`)";
+    private static final String ARCHIVED_COUNT = " + (SELECT COUNT(*) FROM transaction_archive)";
+    private static final String ARCHIVED_REVENUE = " + (SELECT COALESCE(SUM(total), 0) FROM transaction_archive)";
+    private static final String ARCHIVED_PROFIT = " + (SELECT COALESCE(SUM(profit), 0) FROM transaction_archive)";
+
+    private static volatile boolean summaryReady;
+
+    public static Snapshot load(Connection conn) throws SQLException {
+        boolean useSummary = ensureSummaryTable(conn);
+        SqlQuery query = useSummary ? SUMMARY_QUERY : SqlQuery.named("stats.full_scan", fullScanQuery(SalesArchive.hasArchive(conn)));
+        try (PreparedStatement stmt = query.prepare(conn);
+             ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) return new Snapshot(0, 0, 0, 0, 0, 0);
+            return new Snapshot(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+                rs.getLong(4), rs.getDouble(5), rs.getDouble(6));
+        }
+    }
+
+    /**
+     * Adds a checkout's totals to the summary. Call inside the checkout
+     * transaction so the summary commits or rolls back with the sale.
+     */
+    public static void recordSales(Connection conn, int transactions, double revenue, double profit) throws SQLException {
+        if (!summaryExists(conn)) return; // its creation counts this sale from the table
+        try (PreparedStatement stmt = RECORD_SALES.prepare(conn)) {
+            stmt.setInt(1, transactions);
+            stmt.setDouble(2, revenue);
+            stmt.setDouble(3, profit);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Takes a product's sales out of the summary, for databases where deleting
+     * a product still cascades to its transactions (any migration 9 did not partition).
+     * Cascaded deletes do not fire triggers, so this must run in the same
+     * transaction as the DELETE.
+     */
+    public static void removeProductSales(Connection conn, int productId) throws SQLException {
+        if (!summaryExists(conn)) return;
+        try (PreparedStatement stmt = conn.prepareStatement(
+            "UPDATE sales_summary SET " +
+            "transaction_count = transaction_count - (SELECT COUNT(*) FROM `transaction` WHERE product_id = ?), " +
+            "total_revenue = total_revenue - (SELECT COALESCE(SUM(total_with_tax), 0) FROM `transaction` WHERE product_id = ?), " +
+            "total_profit = total_profit - (SELECT COALESCE(SUM(profit_amount), 0) FROM `transaction` WHERE product_id = ?) WHERE id = 1")) {
+            stmt.setInt(1, productId);
+            stmt.setInt(2, productId);
+            stmt.setInt(3, productId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /** Recomputes the summary from the full history, e.g. after rows were edited by hand. */
+    public static void rebuildSummary(Connection conn) throws SQLException {
+        if (!ensureSummaryTable(conn)) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(rebuildSummaryQuery(SalesArchive.hasArchive(conn)));
+        }
+    }
+
+    // Used only when the summary table cannot be created (e.g. no CREATE privilege)
+    private static String fullScanQuery(boolean archive) {
+        return "SELECT (SELECT COUNT(*) FROM product), (SELECT COUNT(*) FROM customer), (SELECT COUNT(*) FROM supplier), " +
+            COUNT + (archive ? ARCHIVED_COUNT : "") + ", " +
+            REVENUE + (archive ? ARCHIVED_REVENUE : "") + ", " +
+            PROFIT + (archive ? ARCHIVED_PROFIT : "");
+    }
+
+    private static String rebuildSummaryQuery(boolean archive) {
+        return "UPDATE sales_summary SET " +
+            "transaction_count = " + COUNT + (archive ? ARCHIVED_COUNT : "") + ", " +
+            "total_revenue = " + REVENUE + (archive ? ARCHIVED_REVENUE : "") + ", " +
+            "total_profit = " + PROFIT + (archive ? ARCHIVED_PROFIT : "") + " WHERE id = 1";
+    }
+
+    // Metadata only, so it is safe inside a transaction and sees a table another process created
+    private static boolean summaryExists(Connection conn) throws SQLException {
+        if (summaryReady) return true;
+        if (SchemaCapabilities.columns(conn.getMetaData(), conn.getCatalog(), "sales_summary").isEmpty()) return false;
+        summaryReady = true;
+        return true;
+    }
+
+    // Creates and seeds sales_summary on databases imported before it existed
+    static boolean ensureSummaryTable(Connection conn) {
+        if (summaryReady) return true;
+        synchronized (StatsEngine.class) {
+            if (summaryReady) return true;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(
+                    "CREATE TABLE IF NOT EXISTS sales_summary (" +
+                    "id INT PRIMARY KEY, " +
+                    "transaction_count BIGINT NOT NULL DEFAULT 0, " +
+                    "total_revenue DOUBLE NOT NULL DEFAULT 0, " +
+                    "total_profit DOUBLE NOT NULL DEFAULT 0)");
+                if (stmt.executeUpdate("INSERT IGNORE INTO sales_summary (id) VALUES (1)") > 0) {
+                    stmt.executeUpdate(rebuildSummaryQuery(SalesArchive.hasArchive(conn)));
+                }
+                summaryReady = true;
+            } catch (SQLException e) {
+                System.err.println("⚠️ sales_summary unavailable, dashboard falls back to full scans: " + e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+}
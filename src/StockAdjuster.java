@@ -0,0 +1,70 @@
+import java.sql.*;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a relative stock change (add and/or remove) with a single
+ * conditional UPDATE, so concurrent adjustments and checkouts never
+ * overwrite each other and stock can never go negative, nor below what
+ * the sales journal has sold but not yet written.
+ */
+public class StockAdjuster {
+
+    public record Result(int productId, String productName, int previousStock, int newStock) {}
+
+    private static final SqlQuery ADJUST_STOCK = SqlQuery.named("stock.adjust",
+        "UPDATE product SET quantity = quantity + ? WHERE id = ? AND quantity + ? >= ?");
+    private static final SqlQuery READ_STOCK = SqlQuery.named("stock.read",
+        "SELECT name, quantity FROM product WHERE id = ?");
+
+    /**
+     * Adds {@code delta} (negative to remove) to the product's stock.
+     * Throws StockConflictException if the product is missing or would go below zero.
+     */
+    public Result adjust(Connection conn, int productId, int delta) throws SQLException {
+        return adjust(conn, productId, delta, 0);
+    }
+
+    /**
+     * Same, leaving at least {@code reserved} units for checkouts that are
+     * journaled but not yet in the database. A shortfall's requested count
+     * includes them.
+     */
+    public Result adjust(Connection conn, int productId, int delta, int reserved) throws SQLException {
+        return TransactionRetry.run(() -> attemptAdjust(conn, productId, delta, reserved));
+    }
+
+    private Result attemptAdjust(Connection conn, int productId, int delta, int reserved) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            int updated;
+            try (PreparedStatement update = ADJUST_STOCK.prepare(conn)) {
+                update.setInt(1, delta);
+                update.setInt(2, productId);
+                update.setInt(3, delta);
+                update.setInt(4, reserved);
+                updated = update.executeUpdate();
+            }
+            if (updated == 0) {
+                conn.rollback();
+                throw new StockConflictException(CheckoutProcessor.describeShortfalls(conn, List.of(productId), Map.of(productId, reserved - delta)));
+            }
+            // Reads our own uncommitted row, so this is exactly the value we produced
+            try (PreparedStatement select = READ_STOCK.prepare(conn)) {
+                select.setInt(1, productId);
+                try (ResultSet rs = select.executeQuery()) {
+                    rs.next();
+                    Result result = new Result(productId, rs.getString("name"), rs.getInt("quantity") - delta, rs.getInt("quantity"));
+                    conn.commit();
+                    return result;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
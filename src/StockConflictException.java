@@ -0,0 +1,31 @@
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Thrown when a stock change would drive one or more products below zero.
+ * Nothing has been written when this is thrown: the whole cart or
+ * adjustment was rolled back.
+ */
+public class StockConflictException extends SQLException {
+
+    /** One product that could not be covered. available is -1 if the product no longer exists. */
+    public record Shortfall(int productId, String productName, int requested, int available) {
+        @Override
+        public String toString() {
+            return available < 0
+                ? String.format("#%d no longer exists", productId)
+                : String.format("%s (#%d): requested %d, only %d in stock", productName, productId, requested, available);
+        }
+    }
+
+    private final List<Shortfall> shortfalls;
+
+    public StockConflictException(List<Shortfall> shortfalls) {
+        super("Insufficient stock for " + shortfalls.size() + " item(s): " + shortfalls);
+        this.shortfalls = List.copyOf(shortfalls);
+    }
+
+    public List<Shortfall> getShortfalls() {
+        return shortfalls;
+    }
+}
@@ -0,0 +1,164 @@
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-threaded stress check for the checkout and stock adjustment paths.
+ * Many threads check out, restock and remove the same two products at once;
+ * afterwards the stock must equal the starting level plus every committed
+ * change, must never be negative, and must match the transaction rows.
+ *
+ * Usage: java StockStressCheck jdbcUrl [threads] [operationsPerThread]
+ * The URL is required so it never runs against the configured database by
+ * accident: it creates and removes products 990001/990002 and a customer,
+ * and writes sales through the summary and rollup tables. Point it at a
+ * scratch copy.
+ */
+public class StockStressCheck {
+    private static final int PRODUCT_A = 990001;
+    private static final int PRODUCT_B = 990002;
+    private static final int CUSTOMER = 990001;
+    private static final int INITIAL_STOCK = 40;
+
+    private static final AtomicInteger[] sold = {new AtomicInteger(), new AtomicInteger()};
+    private static final AtomicInteger[] added = {new AtomicInteger(), new AtomicInteger()};
+    private static final AtomicInteger[] removed = {new AtomicInteger(), new AtomicInteger()};
+    private static final AtomicInteger checkouts = new AtomicInteger();
+    private static final AtomicInteger rejected = new AtomicInteger();
+    private static final AtomicInteger errors = new AtomicInteger();
+    private static final AtomicInteger negativeSeen = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: java StockStressCheck jdbcUrl [threads] [operationsPerThread]");
+            System.err.println("⚠️ Writes and deletes test rows: use a scratch database, not the store's");
+            System.exit(2);
+        }
+        String url = args[0];
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        DBConnection.usePool(new ConnectionPool(() -> DriverManager.getConnection(url),
+            ConnectionPool.Config.fromSystemProperties().maxSize(threads)));
+
+        System.out.println("🔥 Stock stress check: " + threads + " threads x " + operations + " operations");
+        setUp();
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            workers.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < operations; i++) runOneOperation();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - began) / 1e9;
+
+        boolean ok = verify();
+        System.out.printf("⏱ %.2fs | checkouts=%d rejected=%d errors=%d | pool: %s%n",
+            seconds, checkouts.get(), rejected.get(), errors.get(), DBConnection.getPoolStats());
+        tearDown();
+        DBConnection.shutdown();
+        System.out.println(ok ? "✅ PASS - no negative stock, no lost updates" : "❌ FAIL");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static void runOneOperation() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int which = random.nextInt(2);
+        int productId = which == 0 ? PRODUCT_A : PRODUCT_B;
+        int op = random.nextInt(10);
+        try (Connection conn = DBConnection.getConnection()) {
+            if (op < 6) {
+                int qtyA = random.nextInt(1, 4);
+                int qtyB = random.nextInt(0, 3);
+                List<CheckoutProcessor.Line> lines = qtyB == 0
+                    ? List.of(new CheckoutProcessor.Line(PRODUCT_A, qtyA, 10.0))
+                    : List.of(new CheckoutProcessor.Line(PRODUCT_B, qtyB, 20.0), new CheckoutProcessor.Line(PRODUCT_A, qtyA, 10.0));
+                new CheckoutProcessor().checkout(conn, CUSTOMER, lines);
+                sold[0].addAndGet(qtyA);
+                sold[1].addAndGet(qtyB);
+                checkouts.incrementAndGet();
+            } else if (op < 8) {
+                int qty = random.nextInt(1, 6);
+                new StockAdjuster().adjust(conn, productId, qty);
+                added[which].addAndGet(qty);
+            } else {
+                int qty = random.nextInt(1, 4);
+                StockAdjuster.Result result = new StockAdjuster().adjust(conn, productId, -qty);
+                if (result.newStock() < 0) negativeSeen.incrementAndGet();
+                removed[which].addAndGet(qty);
+            }
+        } catch (StockConflictException e) {
+            rejected.incrementAndGet();
+        } catch (SQLException e) {
+            errors.incrementAndGet();
+            System.err.println("⚠️ " + e.getMessage());
+        }
+    }
+
+    private static boolean verify() throws SQLException {
+        boolean ok = negativeSeen.get() == 0 && errors.get() == 0;
+        int[] ids = {PRODUCT_A, PRODUCT_B};
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stock = conn.prepareStatement("SELECT quantity FROM product WHERE id = ?");
+             PreparedStatement sales = conn.prepareStatement("SELECT COALESCE(SUM(quantity), 0) FROM transaction WHERE product_id = ?")) {
+            for (int i = 0; i < ids.length; i++) {
+                stock.setInt(1, ids[i]);
+                sales.setInt(1, ids[i]);
+                int actual;
+                int recordedSales;
+                try (ResultSet rs = stock.executeQuery()) { rs.next(); actual = rs.getInt(1); }
+                try (ResultSet rs = sales.executeQuery()) { rs.next(); recordedSales = rs.getInt(1); }
+                int expected = INITIAL_STOCK + added[i].get() - removed[i].get() - sold[i].get();
+                boolean productOk = actual == expected && actual >= 0 && recordedSales == sold[i].get();
+                System.out.printf("   %s #%d: stock=%d expected=%d | sold=%d recorded=%d added=%d removed=%d%n",
+                    productOk ? "✓" : "✗", ids[i], actual, expected, sold[i].get(), recordedSales, added[i].get(), removed[i].get());
+                ok &= productOk;
+            }
+        }
+        return ok;
+    }
+
+    private static void setUp() throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            StatsEngine.load(conn); // makes sure sales_summary exists before sales are recorded
+        }
+        tearDown();
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO customer (id, name, email) VALUES (" + CUSTOMER + ", 'Stress Check', 'stress.check@example.invalid')");
+            stmt.executeUpdate("INSERT INTO product (id, name, quantity, price, cost_price) VALUES (" + PRODUCT_A + ", 'Stress A', " + INITIAL_STOCK + ", 10.0, 6.0)");
+            stmt.executeUpdate("INSERT INTO product (id, name, quantity, price, cost_price) VALUES (" + PRODUCT_B + ", 'Stress B', " + INITIAL_STOCK + ", 20.0, 12.0)");
+        }
+    }
+
+    private static void tearDown() throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            StatsEngine.removeProductSales(conn, PRODUCT_A);
+            StatsEngine.removeProductSales(conn, PRODUCT_B);
+            SalesRollup.removeProductSales(conn, PRODUCT_A);
+            SalesRollup.removeProductSales(conn, PRODUCT_B);
+            SalesRollup.removeCustomerRows(conn, CUSTOMER);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM transaction WHERE customer_id = " + CUSTOMER);
+                stmt.executeUpdate("DELETE FROM product WHERE id IN (" + PRODUCT_A + ", " + PRODUCT_B + ")");
+                stmt.executeUpdate("DELETE FROM customer WHERE id = " + CUSTOMER);
+            }
+            conn.commit();
+        }
+    }
+}
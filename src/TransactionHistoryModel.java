@@ -0,0 +1,292 @@
+import javax.swing.table.AbstractTableModel;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.DoubleFunction;
+import java.util.function.IntConsumer;
+
+/**
+ * Lazily loaded sales history for the Transactions tab.
+ * Pages are fetched newest first with keyset pagination on (date, id), so
+ * reaching a page deep in the history costs the same as the first one.
+ * Only a bounded window of rows is held: scrolling down past it drops the
+ * newest rows, and scrolling back up fetches them again.
+ * Filters map onto idx_date, idx_product and idx_customer. Pages that
+ * reach back past SalesArchive.archivedBefore() are merged with the same
+ * query over transaction_archive.
+ */
+public class TransactionHistoryModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Sale ID", "Product", "Customer", "Qty", "Cost Price", "Unit Price", "Total", "Profit", "Date & Time"};
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
+    private static final String PAGE_GROUP = "transaction-pages";
+
+    /** Which sales to show; null fields are not filtered on. Both dates are inclusive. */
+    public record Filter(LocalDate from, LocalDate to, Integer productId, Integer customerId) {
+        public static final Filter NONE = new Filter(null, null, null, null);
+
+        public boolean isEmpty() {
+            return from == null && to == null && productId == null && customerId == null;
+        }
+    }
+
+    /** One sale as listed; product and customer are names. */
+    public record Row(int id, String product, String customer, int quantity, double unitCost,
+                      double unitPrice, double total, double profit, Timestamp date) {}
+
+    enum Direction { FIRST, OLDER, NEWER }
+
+    private final DataExecutor executor;
+    private final DoubleFunction<String> currency;
+    private final int pageSize;
+    private final int maxRows;
+    private final List<Row> rows = new ArrayList<>();
+    private Filter filter = Filter.NONE;
+    private boolean hasOlder;
+    private boolean hasNewer;
+    private int generation;
+    private Future<?> pending;
+    private IntConsumer topRowsListener = _ -> {};
+    private Consumer<Exception> errorListener = Throwable::printStackTrace;
+
+    public TransactionHistoryModel(DataExecutor executor, DoubleFunction<String> currency, int pageSize, int maxRows) {
+        this.executor = executor;
+        this.currency = currency;
+        this.pageSize = pageSize;
+        this.maxRows = Math.max(maxRows, pageSize * 2);
+    }
+
+    /**
+     * Called with the number of rows inserted at the top of the window
+     * (negative when rows were dropped from the top), so the view can keep
+     * the rows the user is looking at in place.
+     */
+    public void setTopRowsListener(IntConsumer listener) {
+        this.topRowsListener = listener;
+    }
+
+    public void setErrorListener(Consumer<Exception> listener) {
+        this.errorListener = listener;
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    public void setFilter(Filter filter) {
+        this.filter = filter == null ? Filter.NONE : filter;
+        reload();
+    }
+
+    /** Discards the window and loads the newest page for the current filter. */
+    public void reload() {
+        generation++;
+        fetch(Direction.FIRST, null);
+    }
+
+    /** Fetches the next page of older sales, unless one is already on its way. */
+    public void loadOlder() {
+        if (isLoading() || !hasOlder || rows.isEmpty()) return;
+        fetch(Direction.OLDER, rows.get(rows.size() - 1));
+    }
+
+    /** Fetches newer sales that were dropped from the top of the window. */
+    public void loadNewer() {
+        if (isLoading() || !hasNewer || rows.isEmpty()) return;
+        fetch(Direction.NEWER, rows.get(0));
+    }
+
+    public boolean isLoading() {
+        return pending != null && !pending.isDone();
+    }
+
+    public boolean hasOlder() {
+        return hasOlder;
+    }
+
+    public boolean hasNewer() {
+        return hasNewer;
+    }
+
+    /** One-line summary of what is loaded, for a status label. */
+    public String describeWindow() {
+        if (rows.isEmpty()) {
+            return filter.isEmpty() ? "No sales yet - add products and customers to start selling" : "No sales match the filter";
+        }
+        String range = DATE_FORMAT.format(rows.get(rows.size() - 1).date().toLocalDateTime()) + " to " +
+                       DATE_FORMAT.format(rows.get(0).date().toLocalDateTime());
+        return String.format("Showing %d sales (%s)%s", rows.size(), range, hasOlder ? " - scroll down for older" : "");
+    }
+
+    private void fetch(Direction direction, Row anchor) {
+        int requestGeneration = generation;
+        Filter requestFilter = filter;
+        if (pending != null) pending.cancel(true);
+        pending = executor.submit(PAGE_GROUP, () -> queryPage(requestFilter, direction, anchor), page -> {
+            if (requestGeneration == generation) apply(direction, page);
+        }, e -> {
+            if (requestGeneration == generation) errorListener.accept(e);
+        });
+    }
+
+    private void apply(Direction direction, List<Row> page) {
+        boolean full = page.size() == pageSize;
+        switch (direction) {
+            case FIRST -> {
+                rows.clear();
+                rows.addAll(page);
+                hasOlder = full;
+                hasNewer = false;
+                fireTableDataChanged();
+            }
+            case OLDER -> {
+                hasOlder = full;
+                if (page.isEmpty()) return;
+                int start = rows.size();
+                rows.addAll(page);
+                fireTableRowsInserted(start, rows.size() - 1);
+                int excess = rows.size() - maxRows;
+                if (excess > 0) {
+                    rows.subList(0, excess).clear();
+                    hasNewer = true;
+                    fireTableRowsDeleted(0, excess - 1);
+                    topRowsListener.accept(-excess);
+                }
+            }
+            case NEWER -> {
+                hasNewer = full;
+                if (page.isEmpty()) return;
+                rows.addAll(0, page);
+                fireTableRowsInserted(0, page.size() - 1);
+                topRowsListener.accept(page.size());
+                int excess = rows.size() - maxRows;
+                if (excess > 0) {
+                    int end = rows.size();
+                    rows.subList(end - excess, end).clear();
+                    hasOlder = true;
+                    fireTableRowsDeleted(end - excess, end - 1);
+                }
+            }
+        }
+    }
+
+    List<Row> queryPage(Filter filter, Direction direction, Row anchor) throws SQLException {
+        return queryPage(filter, direction, anchor, pageSize);
+    }
+
+    /**
+     * Up to {@code pageSize} sales next to {@code anchor} in the given
+     * direction, newest first; the newest ones when the anchor is null.
+     * Fewer than {@code pageSize} means nothing further that way. Sales
+     * without a date are never returned. Blocking: call it off the EDT.
+     */
+    static List<Row> queryPage(Filter filter, Direction direction, Row anchor, int pageSize) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            SchemaCapabilities caps = SchemaCapabilities.get(conn);
+            List<Row> page = queryTier(conn, caps.transactionHistoryQuery(), filter, direction, anchor, pageSize);
+            LocalDateTime archivedBefore = caps.hasSalesArchive() ? SalesArchive.archivedBefore(conn) : null;
+            if (archivedBefore != null && needsArchive(page, filter, direction, anchor, Timestamp.valueOf(archivedBefore), pageSize)) {
+                page.addAll(queryTier(conn, caps.archiveHistoryQuery(), filter, direction, anchor, pageSize));
+                Comparator<Row> newestFirst = Comparator.comparing(Row::date).thenComparingInt(Row::id).reversed();
+                page.sort(direction == Direction.NEWER ? newestFirst.reversed() : newestFirst);
+                if (page.size() > pageSize) page.subList(pageSize, page.size()).clear();
+            }
+            if (direction == Direction.NEWER) Collections.reverse(page);
+            return page;
+        }
+    }
+
+    // Archived sales are all older than archivedBefore, so most pages never touch the archive
+    private static boolean needsArchive(List<Row> hotPage, Filter filter, Direction direction, Row anchor, Timestamp archivedBefore, int pageSize) {
+        if (filter.from() != null && !Timestamp.valueOf(filter.from().atStartOfDay()).before(archivedBefore)) return false;
+        if (direction == Direction.NEWER) return anchor.date().before(archivedBefore);
+        return hotPage.size() < pageSize || hotPage.get(hotPage.size() - 1).date().before(archivedBefore);
+    }
+
+    private static List<Row> queryTier(Connection conn, String baseQuery, Filter filter, Direction direction, Row anchor, int pageSize) throws SQLException {
+        // Undated rows cannot be paged past; left out by the query, so a short page still means the last one
+        StringBuilder sql = new StringBuilder(baseQuery).append(" AND t.date IS NOT NULL");
+        List<Object> params = new ArrayList<>();
+        if (filter.from() != null) {
+            sql.append(" AND t.date >= ?");
+            params.add(Timestamp.valueOf(filter.from().atStartOfDay()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND t.date < ?");
+            params.add(Timestamp.valueOf(filter.to().plusDays(1).atStartOfDay()));
+        }
+        if (filter.productId() != null) {
+            sql.append(" AND t.product_id = ?");
+            params.add(filter.productId());
+        }
+        if (filter.customerId() != null) {
+            sql.append(" AND t.customer_id = ?");
+            params.add(filter.customerId());
+        }
+        // Spelled out rather than a (date, id) row comparison so MySQL can use a range scan on idx_date
+        if (direction == Direction.OLDER) {
+            sql.append(" AND (t.date < ? OR (t.date = ? AND t.id < ?))");
+        } else if (direction == Direction.NEWER) {
+            sql.append(" AND (t.date > ? OR (t.date = ? AND t.id > ?))");
+        }
+        if (anchor != null) {
+            params.add(anchor.date());
+            params.add(anchor.date());
+            params.add(anchor.id());
+        }
+        sql.append(direction == Direction.NEWER ? " ORDER BY t.date ASC, t.id ASC" : " ORDER BY t.date DESC, t.id DESC");
+        sql.append(" LIMIT ").append(pageSize);
+
+        List<Row> page = new ArrayList<>(pageSize);
+        // A handful of filter combinations, each one statement the pool keeps prepared
+        try (PreparedStatement stmt = SqlQuery.named("history.page", sql.toString()).prepare(conn)) {
+            for (int i = 0; i < params.size(); i++) stmt.setObject(i + 1, params.get(i));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(new Row(rs.getInt("id"), rs.getString("product_name"), rs.getString("customer_name"),
+                        rs.getInt("quantity"), rs.getDouble("unit_cost"), rs.getDouble("unit_price"),
+                        rs.getDouble("total"), rs.getDouble("profit"), rs.getTimestamp("date")));
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Row row = rows.get(rowIndex);
+        switch (columnIndex) {
+            case 0: return "#" + row.id();
+            case 1: return row.product();
+            case 2: return row.customer();
+            case 3: return row.quantity();
+            case 4: return currency.apply(row.unitCost());
+            case 5: return currency.apply(row.unitPrice());
+            case 6: return currency.apply(row.total());
+            case 7: return currency.apply(row.profit());
+            case 8: return DATE_FORMAT.format(row.date().toLocalDateTime());
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Re-runs a unit of database work when it loses a lock conflict
+ * (deadlock or lock wait timeout). Each attempt must open, commit or roll
+ * back its own transaction.
+ */
+public class TransactionRetry {
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws SQLException;
+    }
+
+    public static final int DEFAULT_ATTEMPTS = Integer.getInteger("inventory.tx.maxAttempts", 5);
+
+    public static <T> T run(Work<T> work) throws SQLException {
+        return run(DEFAULT_ATTEMPTS, work);
+    }
+
+    public static <T> T run(int maxAttempts, Work<T> work) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.run();
+            } catch (SQLException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) throw e;
+                try {
+                    // Randomised backoff so the competing transactions don't collide again
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20L << Math.min(attempt, 5)));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public static boolean isRetryable(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql) {
+                // 40001 = serialization failure / deadlock, 1213 = ER_LOCK_DEADLOCK, 1205 = ER_LOCK_WAIT_TIMEOUT
+                if ("40001".equals(sql.getSQLState()) || sql.getErrorCode() == 1213 || sql.getErrorCode() == 1205) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,189 @@
+import javax.swing.*;
+import javax.swing.event.AncestorEvent;
+import javax.swing.event.AncestorListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Text field that looks records up as the user types and drops down the
+ * best few matches; Up/Down and Enter, or a click, pick one. Only those
+ * matches ever reach Swing, never the full list. The lookup runs on the
+ * EDT on every keystroke, so it must be an in-memory one such as
+ * SearchIndex.
+ */
+public class TypeAheadField<T> extends JTextField {
+
+    public interface Search<T> {
+        List<T> find(String text, int limit);
+    }
+
+    private final Search<T> search;
+    private final Function<T, String> label;
+    private final int limit;
+    private final DefaultListModel<T> matches = new DefaultListModel<>();
+    private final JList<T> list = new JList<>(matches);
+    private final JScrollPane scrollPane = new JScrollPane(list);
+    private final JPopupMenu popup = new JPopupMenu();
+    private final List<Consumer<T>> selectionListeners = new ArrayList<>();
+    private T selected;
+    private boolean settingText;
+
+    /** {@code label} is shown in the field once picked, {@code listLabel} in the drop-down. */
+    public TypeAheadField(int columns, int limit, Search<T> search, Function<T, String> label, Function<T, String> listLabel) {
+        super(columns);
+        this.search = search;
+        this.label = label;
+        this.limit = limit;
+
+        list.setFocusable(false);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> l, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                @SuppressWarnings("unchecked")
+                String text = listLabel.apply((T) value);
+                return super.getListCellRendererComponent(l, text, index, isSelected, cellHasFocus);
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0) choose(matches.get(index));
+            }
+        });
+        scrollPane.setBorder(BorderFactory.createEmptyBorder());
+        popup.setFocusable(false);
+        popup.add(scrollPane);
+
+        getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { textChanged(); }
+            public void removeUpdate(DocumentEvent e) { textChanged(); }
+            public void changedUpdate(DocumentEvent e) { }
+        });
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN -> {
+                        if (!popup.isVisible()) showMatches();
+                        else move(1);
+                        e.consume();
+                    }
+                    case KeyEvent.VK_UP -> {
+                        move(-1);
+                        e.consume();
+                    }
+                    case KeyEvent.VK_ENTER -> {
+                        if (popup.isVisible() && list.getSelectedValue() != null) {
+                            choose(list.getSelectedValue());
+                            e.consume();
+                        }
+                    }
+                    case KeyEvent.VK_ESCAPE -> {
+                        if (popup.isVisible()) {
+                            popup.setVisible(false);
+                            e.consume();
+                        }
+                    }
+                    default -> { }
+                }
+            }
+        });
+        addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                popup.setVisible(false);
+            }
+        });
+    }
+
+    /** The picked record, or null while the text does not name one. */
+    public T getSelected() {
+        return selected;
+    }
+
+    /** Shows {@code value} as picked, e.g. a fresher copy of the current one; null clears the field. */
+    public void setSelected(T value) {
+        settingText = true;
+        try {
+            setText(value == null ? "" : label.apply(value));
+        } finally {
+            settingText = false;
+        }
+        popup.setVisible(false);
+        boolean changed = selected != value;
+        selected = value;
+        if (changed) fireSelection();
+    }
+
+    /** Runs on the EDT when a record is picked, and with null when editing un-picks it. */
+    public void addSelectionListener(Consumer<T> listener) {
+        selectionListeners.add(listener);
+    }
+
+    /** Takes the keyboard focus as soon as the field is shown, e.g. inside a JOptionPane. */
+    public void focusWhenShown() {
+        addAncestorListener(new AncestorListener() {
+            public void ancestorAdded(AncestorEvent e) {
+                removeAncestorListener(this);
+                SwingUtilities.invokeLater(TypeAheadField.this::requestFocusInWindow);
+            }
+            public void ancestorRemoved(AncestorEvent e) { }
+            public void ancestorMoved(AncestorEvent e) { }
+        });
+    }
+
+    private void textChanged() {
+        if (settingText) return;
+        if (selected != null) {
+            selected = null;
+            fireSelection();
+        }
+        showMatches();
+    }
+
+    private void showMatches() {
+        List<T> found = search.find(getText(), limit);
+        matches.clear();
+        matches.addAll(found);
+        if (found.isEmpty() || !isShowing()) {
+            popup.setVisible(false);
+            return;
+        }
+        list.setSelectedIndex(0);
+        list.setVisibleRowCount(found.size());
+        scrollPane.setPreferredSize(null);
+        Dimension size = scrollPane.getPreferredSize();
+        scrollPane.setPreferredSize(new Dimension(Math.max(getWidth(), size.width), size.height));
+        popup.pack();
+        popup.show(this, 0, getHeight());
+    }
+
+    private void move(int step) {
+        if (!popup.isVisible() || matches.isEmpty()) return;
+        int index = Math.floorMod(list.getSelectedIndex() + step, matches.size());
+        list.setSelectedIndex(index);
+        list.ensureIndexIsVisible(index);
+    }
+
+    private void choose(T value) {
+        setSelected(value);
+        requestFocusInWindow();
+    }
+
+    private void fireSelection() {
+        for (Consumer<T> listener : selectionListeners) listener.accept(selected);
+    }
+}